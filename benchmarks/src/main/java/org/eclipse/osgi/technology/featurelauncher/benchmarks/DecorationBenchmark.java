@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.osgi.technology.featurelauncher.common.decorator.impl.DecorationContext;
+import org.eclipse.osgi.technology.featurelauncher.common.decorator.impl.MutableRepositoryList;
+import org.eclipse.osgi.technology.featurelauncher.featureservice.base.FeatureServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.feature.Feature;
+import org.osgi.service.featurelauncher.decorator.AbandonOperationException;
+import org.osgi.service.featurelauncher.decorator.FeatureExtensionHandler;
+
+/**
+ * Measures {@link DecorationContext#executeFeatureExtensionHandlers} for
+ * synthetic features carrying the built in extensions plus one custom
+ * extension for every ten bundles
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecorationBenchmark {
+
+	@Param({ "10", "100", "1000", "5000" })
+	public int size;
+
+	private FeatureServiceImpl featureService;
+
+	private Feature feature;
+
+	private Map<String, FeatureExtensionHandler> extensionHandlers;
+
+	@Setup
+	public void setup() throws IOException {
+		featureService = new FeatureServiceImpl();
+		feature = featureService.readFeature(
+				new StringReader(SyntheticFeatures.featureJson("decoration", size, "1.0.0", "a")));
+
+		extensionHandlers = new HashMap<>();
+		FeatureExtensionHandler identity = (f, e, r, b, d) -> f;
+		for (String name : feature.getExtensions().keySet()) {
+			if (name.startsWith(SyntheticFeatures.CUSTOM_EXTENSION_PREFIX)) {
+				extensionHandlers.put(name, identity);
+			}
+		}
+	}
+
+	@Benchmark
+	public Feature executeFeatureExtensionHandlers() throws AbandonOperationException {
+		DecorationContext<FeatureExtensionHandler> context = new DecorationContext<>((f, e, r, b, d) -> f);
+		return context.executeFeatureExtensionHandlers(featureService, feature, new MutableRepositoryList(),
+				extensionHandlers);
+	}
+}
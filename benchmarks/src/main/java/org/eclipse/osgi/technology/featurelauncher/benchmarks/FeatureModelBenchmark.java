@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.osgi.technology.featurelauncher.featureservice.base.FeatureServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgi.service.feature.Feature;
+import org.osgi.service.feature.FeatureConfiguration;
+import org.osgi.service.feature.FeatureExtension;
+
+/**
+ * Measures the allocations made when reading features dominated by large text
+ * and JSON extensions, once when only the metadata and bundles are used, as a
+ * runtime without handlers for the extensions does, and once when every
+ * extension and configuration is materialized. Run with <code>-prof gc</code>,
+ * the <code>gc.alloc.rate.norm</code> column shows the bytes allocated per
+ * operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeatureModelBenchmark {
+
+	@Param({ "10", "100" })
+	public int size;
+
+	@Param({ "10", "1000" })
+	public int lines;
+
+	private FeatureServiceImpl featureService;
+
+	private String json;
+
+	@Setup
+	public void setup() {
+		featureService = new FeatureServiceImpl();
+		json = SyntheticFeatures.extensionFeatureJson("model", size, lines);
+	}
+
+	@Benchmark
+	public void readUnused(Blackhole blackhole) throws IOException {
+		Feature feature = featureService.readFeature(new StringReader(json));
+		blackhole.consume(feature.getBundles());
+		for (FeatureExtension extension : feature.getExtensions().values()) {
+			blackhole.consume(extension.getType());
+		}
+	}
+
+	@Benchmark
+	public void readMaterialized(Blackhole blackhole) throws IOException {
+		Feature feature = featureService.readFeature(new StringReader(json));
+		blackhole.consume(feature.getBundles());
+		for (FeatureConfiguration configuration : feature.getConfigurations().values()) {
+			blackhole.consume(configuration.getValues().size());
+		}
+		for (FeatureExtension extension : feature.getExtensions().values()) {
+			switch (extension.getType()) {
+			case TEXT -> blackhole.consume(extension.getText().size());
+			case ARTIFACTS -> blackhole.consume(extension.getArtifacts().size());
+			case JSON -> blackhole.consume(extension.getJSON());
+			}
+		}
+	}
+}
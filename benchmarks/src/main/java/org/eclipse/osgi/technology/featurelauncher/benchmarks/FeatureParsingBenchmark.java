@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.osgi.technology.featurelauncher.featureservice.base.FeatureServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.feature.Feature;
+
+/**
+ * Measures {@link FeatureServiceImpl#readFeature(java.io.Reader)} for
+ * synthetic features of increasing size, up to around 5MB of JSON, with and
+ * without comments. Run with <code>-prof gc</code> to also see the allocation
+ * rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeatureParsingBenchmark {
+
+	@Param({ "10", "100", "1000", "5000", "20000" })
+	public int size;
+
+	@Param({ "false", "true" })
+	public boolean comments;
+
+	private FeatureServiceImpl featureService;
+
+	private String json;
+
+	@Setup
+	public void setup() {
+		featureService = new FeatureServiceImpl();
+		json = SyntheticFeatures.featureJson("parsing", size, "1.0.0", "a", comments);
+	}
+
+	@Benchmark
+	public Feature readFeature() throws IOException {
+		return featureService.readFeature(new StringReader(json));
+	}
+}
@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.benchmarks;
+
+import static org.eclipse.osgi.technology.featurelauncher.common.decorator.impl.FeatureDecorationConstants.BUNDLE_START_LEVELS_DEFAULT;
+import static org.eclipse.osgi.technology.featurelauncher.common.decorator.impl.FeatureDecorationConstants.BUNDLE_START_LEVELS_MINIMUM;
+import static org.osgi.service.featurelauncher.FeatureLauncherConstants.BUNDLE_START_LEVELS;
+import static org.osgi.service.featurelauncher.FeatureLauncherConstants.FRAMEWORK_LAUNCHING_PROPERTIES;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Generates features of a given size, and the bundles they refer to, for use
+ * by the benchmarks.
+ * <p>
+ * Each generated feature contains <code>size</code> bundles and
+ * <code>size</code> configurations. Every configuration refers to a feature
+ * variable, so that variable substitution has work to do. The features also
+ * carry the bundle start level and framework launching properties extensions,
+ * plus one custom JSON extension for every ten bundles. Optionally every bundle
+ * and configuration is preceded by a comment.
+ */
+public final class SyntheticFeatures {
+
+	public static final String GROUP_ID = "org.eclipse.osgi.technology.featurelauncher.benchmark";
+
+	public static final String CUSTOM_EXTENSION_PREFIX = "benchmark.extension.";
+
+	private SyntheticFeatures() {
+	}
+
+	/**
+	 * Generate the JSON for a feature
+	 *
+	 * @param name the artifact id of the feature
+	 * @param size the number of bundles and configurations
+	 * @param bundleVersion the version used for the bundles
+	 * @param configValue a value written into every configuration, so that
+	 *            two features of the same size can differ only in their
+	 *            configurations
+	 * @return the feature JSON
+	 */
+	public static String featureJson(String name, int size, String bundleVersion, String configValue) {
+		return featureJson(name, size, bundleVersion, configValue, false);
+	}
+
+	/**
+	 * Generate the JSON for a feature
+	 *
+	 * @param name the artifact id of the feature
+	 * @param size the number of bundles and configurations
+	 * @param bundleVersion the version used for the bundles
+	 * @param configValue a value written into every configuration
+	 * @param comments whether to add a line comment before every bundle and a
+	 *            block comment before every configuration
+	 * @return the feature JSON
+	 */
+	public static String featureJson(String name, int size, String bundleVersion, String configValue,
+			boolean comments) {
+		StringBuilder sb = new StringBuilder(256 * size + 512);
+		sb.append("{\n");
+		sb.append("  \"feature-resource-version\": \"1.0\",\n");
+		sb.append("  \"id\": \"").append(GROUP_ID).append(':').append(name).append(":1.0.0\",\n");
+		sb.append("  \"name\": \"Synthetic feature with ").append(size).append(" bundles\",\n");
+		sb.append("  \"complete\": true,\n");
+
+		sb.append("  \"variables\": {\n");
+		for (int i = 0; i < size; i++) {
+			sb.append("    \"var").append(i).append("\": \"value-").append(i).append('"');
+			sb.append(i < size - 1 ? ",\n" : "\n");
+		}
+		sb.append("  },\n");
+
+		sb.append("  \"bundles\": [\n");
+		for (int i = 0; i < size; i++) {
+			if (comments) {
+				sb.append("    // bundle ").append(i).append(", see http://example.com/bundles/").append(i).append('\n');
+			}
+			sb.append("    { \"id\": \"").append(bundleId(i, bundleVersion)).append("\", \"start-order\": ")
+					.append(1 + (i % 5)).append(" }");
+			sb.append(i < size - 1 ? ",\n" : "\n");
+		}
+		sb.append("  ],\n");
+
+		sb.append("  \"configurations\": {\n");
+		for (int i = 0; i < size; i++) {
+			if (comments) {
+				sb.append("    /*\n     * configuration ").append(i).append("\n     */\n");
+			}
+			sb.append("    \"").append(pid(i)).append("\": {\n");
+			sb.append("      \"name\": \"${var").append(i).append("}\",\n");
+			sb.append("      \"path\": \"/srv/${var").append(i).append("}/data\",\n");
+			sb.append("      \"value\": \"").append(configValue).append("\",\n");
+			sb.append("      \"index:Integer\": ").append(i).append(",\n");
+			sb.append("      \"enabled:Boolean\": true\n");
+			sb.append("    }");
+			sb.append(i < size - 1 ? ",\n" : "\n");
+		}
+		sb.append("  },\n");
+
+		sb.append("  \"extensions\": {\n");
+		sb.append("    \"").append(BUNDLE_START_LEVELS).append("\": {\n");
+		sb.append("      \"kind\": \"optional\", \"type\": \"json\",\n");
+		sb.append("      \"json\": { \"").append(BUNDLE_START_LEVELS_DEFAULT).append("\": 3, \"")
+				.append(BUNDLE_START_LEVELS_MINIMUM).append("\": 5 }\n");
+		sb.append("    },\n");
+		sb.append("    \"").append(FRAMEWORK_LAUNCHING_PROPERTIES).append("\": {\n");
+		sb.append("      \"kind\": \"optional\", \"type\": \"json\",\n");
+		sb.append("      \"json\": { \"benchmark.size\": \"").append(size).append("\" }\n");
+		sb.append("    }");
+		for (int i = 0; i < Math.max(1, size / 10); i++) {
+			sb.append(",\n    \"").append(CUSTOM_EXTENSION_PREFIX).append(i).append("\": {\n");
+			sb.append("      \"kind\": \"optional\", \"type\": \"json\",\n");
+			sb.append("      \"json\": { \"index\": ").append(i).append(", \"enabled\": true }\n");
+			sb.append("    }");
+		}
+		sb.append("\n  }\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Generate the JSON for a feature dominated by its extensions: a few
+	 * bundles, and <code>size</code> text extensions and <code>size</code>
+	 * JSON extensions, each with <code>lines</code> lines or entries
+	 *
+	 * @param name the artifact id of the feature
+	 * @param size the number of text and of JSON extensions
+	 * @param lines the number of lines of each text extension, and of entries
+	 *            of each JSON extension
+	 * @return the feature JSON
+	 */
+	public static String extensionFeatureJson(String name, int size, int lines) {
+		StringBuilder sb = new StringBuilder(160 * size * lines + 512);
+		sb.append("{\n");
+		sb.append("  \"id\": \"").append(GROUP_ID).append(':').append(name).append(":1.0.0\",\n");
+		sb.append("  \"bundles\": [\n");
+		for (int i = 0; i < 10; i++) {
+			sb.append("    { \"id\": \"").append(bundleId(i, "1.0.0")).append("\" }");
+			sb.append(i < 9 ? ",\n" : "\n");
+		}
+		sb.append("  ],\n");
+		sb.append("  \"configurations\": {\n");
+		for (int i = 0; i < size; i++) {
+			sb.append("    \"").append(pid(i)).append("\": { \"index:Integer\": ").append(i)
+					.append(", \"ports:Integer[]\": [80, 443, 8080], \"enabled:Boolean\": true }");
+			sb.append(i < size - 1 ? ",\n" : "\n");
+		}
+		sb.append("  },\n");
+		sb.append("  \"extensions\": {\n");
+		for (int i = 0; i < size; i++) {
+			sb.append("    \"").append(CUSTOM_EXTENSION_PREFIX).append("text.").append(i).append("\": {\n");
+			sb.append("      \"kind\": \"optional\", \"type\": \"text\",\n");
+			sb.append("      \"text\": [\n");
+			for (int j = 0; j < lines; j++) {
+				sb.append("        \"Line ").append(j).append(" of extension ").append(i)
+						.append(", with some more words to make it a realistic line of text\"");
+				sb.append(j < lines - 1 ? ",\n" : "\n");
+			}
+			sb.append("      ]\n");
+			sb.append("    },\n");
+			sb.append("    \"").append(CUSTOM_EXTENSION_PREFIX).append("json.").append(i).append("\": {\n");
+			sb.append("      \"kind\": \"optional\", \"type\": \"json\",\n");
+			sb.append("      \"json\": {\n");
+			for (int j = 0; j < lines; j++) {
+				sb.append("        \"entry").append(j).append("\": { \"index\": ").append(j)
+						.append(", \"enabled\": true, \"tags\": [\"a\", \"b\", \"c\"] }");
+				sb.append(j < lines - 1 ? ",\n" : "\n");
+			}
+			sb.append("      }\n");
+			sb.append("    }");
+			sb.append(i < size - 1 ? ",\n" : "\n");
+		}
+		sb.append("  }\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Generate the configuration properties and variables used by a feature of
+	 * the given size, as they are passed to variable substitution
+	 *
+	 * @param size the number of configurations
+	 * @return a map holding the <code>variables</code> and one map of
+	 *         properties for each configuration
+	 */
+	public static Map<String, Map<String, Object>> configurations(int size) {
+		Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+		Map<String, Object> variables = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			variables.put("var" + i, "value-" + i);
+
+			Map<String, Object> properties = new LinkedHashMap<>();
+			properties.put("name", "${var" + i + "}");
+			properties.put("path", "/srv/${var" + i + "}/data");
+			properties.put("index", Integer.valueOf(i));
+			properties.put("enabled", Boolean.TRUE);
+			result.put(pid(i), properties);
+		}
+		result.put("variables", variables);
+		return result;
+	}
+
+	/**
+	 * Write the bundles used by a feature into a local repository with the
+	 * Maven layout
+	 *
+	 * @param repository the repository root
+	 * @param size the number of bundles
+	 * @param bundleVersion the version of the bundles
+	 * @throws IOException if a bundle could not be written
+	 */
+	public static void writeBundles(Path repository, int size, String bundleVersion) throws IOException {
+		for (int i = 0; i < size; i++) {
+			String artifactId = artifactId(i);
+			Path jar = repository.resolve(GROUP_ID.replace('.', '/'))
+					.resolve(artifactId)
+					.resolve(bundleVersion)
+					.resolve(artifactId + "-" + bundleVersion + ".jar");
+			if (Files.exists(jar)) {
+				continue;
+			}
+			Files.createDirectories(jar.getParent());
+
+			Manifest manifest = new Manifest();
+			Attributes attributes = manifest.getMainAttributes();
+			attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+			attributes.putValue("Bundle-ManifestVersion", "2");
+			attributes.putValue("Bundle-SymbolicName", GROUP_ID + "." + artifactId);
+			attributes.putValue("Bundle-Version", bundleVersion);
+			try (OutputStream os = Files.newOutputStream(jar);
+					JarOutputStream jos = new JarOutputStream(os, manifest)) {
+				// A manifest is all that is needed
+			}
+		}
+	}
+
+	public static String bundleId(int index, String bundleVersion) {
+		return GROUP_ID + ":" + artifactId(index) + ":" + bundleVersion;
+	}
+
+	private static String artifactId(int index) {
+		return "bundle" + index;
+	}
+
+	private static String pid(int index) {
+		return GROUP_ID + ".pid" + index;
+	}
+}
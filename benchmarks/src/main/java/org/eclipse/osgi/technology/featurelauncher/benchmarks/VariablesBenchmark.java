@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.osgi.technology.featurelauncher.common.util.impl.VariablesUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link VariablesUtil#maybeSubstituteVariables(Map, Map)} over all
+ * of the configurations of a synthetic feature
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VariablesBenchmark {
+
+	@Param({ "10", "100", "1000", "5000" })
+	public int size;
+
+	private Map<String, Object> variables;
+
+	private List<Map<String, Object>> configurations;
+
+	@Setup
+	public void setup() {
+		Map<String, Map<String, Object>> generated = SyntheticFeatures.configurations(size);
+		variables = generated.remove("variables");
+		configurations = new ArrayList<>(generated.values());
+	}
+
+	@Benchmark
+	public void maybeSubstituteVariables(Blackhole blackhole) {
+		for (Map<String, Object> properties : configurations) {
+			blackhole.consume(VariablesUtil.maybeSubstituteVariables(properties, variables));
+		}
+	}
+}
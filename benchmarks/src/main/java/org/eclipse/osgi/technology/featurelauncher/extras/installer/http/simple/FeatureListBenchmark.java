@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.osgi.technology.featurelauncher.extras.installer.http.simple;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link FeatureHttpWatcher#parseFeatureList} for feature lists of up
+ * to 10,000 entries, read from the received bytes as the watcher does. The
+ * benchmark lives in the package of the watcher, as the parser is not API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeatureListBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int entries;
+
+	private FeatureHttpWatcher watcher;
+
+	private byte[] json;
+
+	@Setup
+	public void setup() {
+		watcher = new FeatureHttpWatcher(null, "http://localhost/features.json", null, "ONCE", 60, 5, 5, null,
+				null);
+		StringBuilder sb = new StringBuilder(120 * entries + 2);
+		sb.append("[\n");
+		for (int i = 0; i < entries; i++) {
+			sb.append("  {\"id\": \"org.example.benchmark:feature-").append(i)
+					.append(":1.0.0\", \"url\": \"https://features.example.com/features/feature-").append(i)
+					.append(".json\", \"description\": \"Feature \\\"").append(i).append("\\\"\"}");
+			sb.append(i < entries - 1 ? ",\n" : "\n");
+		}
+		sb.append("]\n");
+		json = sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public void parse(Blackhole blackhole) {
+		blackhole.consume(watcher.parseFeatureList(
+				new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.impl.runtime;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.osgi.technology.featurelauncher.benchmarks.SyntheticFeatures;
+import org.eclipse.osgi.technology.featurelauncher.featureservice.base.FeatureServiceImpl;
+import org.eclipse.osgi.technology.featurelauncher.repository.common.osgi.ArtifactRepositoryAdapter;
+import org.eclipse.osgi.technology.featurelauncher.repository.common.osgi.ArtifactRepositoryFactoryAdapter;
+import org.eclipse.osgi.technology.featurelauncher.repository.lite.LiteRepositoryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.launch.FrameworkFactory;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.feature.Feature;
+import org.osgi.service.featurelauncher.repository.ArtifactRepository;
+import org.osgi.service.featurelauncher.runtime.InstalledFeature;
+
+/**
+ * Measures install, update and remove operations of {@link FeatureRuntimeImpl}
+ * running in an embedded framework, with the synthetic bundles served by a
+ * local Lite repository.
+ * <p>
+ * The Configuration Admin bundle is installed into the embedded framework from
+ * the directory named by the <code>featurelauncher.benchmark.bundles</code>
+ * system property, which defaults to <code>target/bundles</code>.
+ * <p>
+ * Each operation changes the framework, so every measurement is a single shot
+ * and the state needed by the next one is prepared outside of the measurement.
+ */
+public class FeatureRuntimeBenchmark {
+
+	public static final String BUNDLES_DIRECTORY = "featurelauncher.benchmark.bundles";
+
+	private static final String REPOSITORY_NAME = "benchmark";
+
+	@State(Scope.Benchmark)
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 3)
+	@Measurement(iterations = 10)
+	@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+	public abstract static class EmbeddedRuntime {
+
+		@Param({ "10", "100", "1000", "5000" })
+		public int size;
+
+		protected FeatureRuntimeImpl runtime;
+
+		protected ArtifactRepository repository;
+
+		protected Feature feature;
+
+		protected Feature updatedBundlesFeature;
+
+		protected Feature updatedConfigurationsFeature;
+
+		private Path workDirectory;
+
+		private Framework framework;
+
+		@Setup(Level.Trial)
+		public void startFramework() throws Exception {
+			workDirectory = Files.createTempDirectory("featurelauncher-benchmark");
+
+			Path repositoryPath = workDirectory.resolve("repository");
+			SyntheticFeatures.writeBundles(repositoryPath, size, "1.0.0");
+			SyntheticFeatures.writeBundles(repositoryPath, size, "1.0.1");
+
+			FeatureServiceImpl featureService = new FeatureServiceImpl();
+			feature = featureService.readFeature(new StringReader(
+					SyntheticFeatures.featureJson("runtime", size, "1.0.0", "a")));
+			updatedBundlesFeature = featureService.readFeature(new StringReader(
+					SyntheticFeatures.featureJson("runtime", size, "1.0.1", "b")));
+			updatedConfigurationsFeature = featureService.readFeature(new StringReader(
+					SyntheticFeatures.featureJson("runtime", size, "1.0.0", "b")));
+
+			// @formatter:off
+			Map<String, String> frameworkProperties = Map.of(
+					Constants.FRAMEWORK_STORAGE, workDirectory.resolve("framework").toString(),
+					Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT,
+					// Share the Configuration Admin API with the runtime on the class path
+					Constants.FRAMEWORK_SYSTEMPACKAGES_EXTRA, "org.osgi.service.cm;version=1.6.1");
+			// @formatter:on
+
+			FrameworkFactory frameworkFactory = ServiceLoader.load(FrameworkFactory.class).findFirst()
+					.orElseThrow(() -> new IllegalStateException("No OSGi framework found on the class path"));
+			framework = frameworkFactory.newFramework(frameworkProperties);
+			framework.start();
+
+			BundleContext context = framework.getBundleContext();
+			context.installBundle(findBundle("org.apache.felix.configadmin").toUri().toString()).start();
+			ServiceReference<ConfigurationAdmin> ref = context.getServiceReference(ConfigurationAdmin.class);
+
+			FeatureRuntimeConfigurationManager configurationManager = new FeatureRuntimeConfigurationManager();
+			configurationManager.configurationAdmin = context.getService(ref);
+
+			LiteRepositoryFactory repositoryFactory = new LiteRepositoryFactory();
+			runtime = new FeatureRuntimeImpl(context, defaultConfig(),
+					new ArtifactRepositoryFactoryAdapter(repositoryFactory), configurationManager, featureService);
+
+			repository = new ArtifactRepositoryAdapter(repositoryFactory.createRepository(repositoryPath));
+		}
+
+		@TearDown(Level.Trial)
+		public void stopFramework() throws Exception {
+			try {
+				runtime.deactivate();
+				framework.stop();
+				framework.waitForStop(TimeUnit.SECONDS.toMillis(30));
+			} finally {
+				try (Stream<Path> s = Files.walk(workDirectory)) {
+					s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+				}
+			}
+		}
+
+		protected InstalledFeature installFeature(Feature toInstall) {
+			return runtime.install(toInstall)
+					.useDefaultRepositories(false)
+					.addRepository(REPOSITORY_NAME, repository)
+					.install();
+		}
+
+		protected InstalledFeature updateFeature(Feature toUpdate) {
+			return runtime.update(toUpdate.getID(), toUpdate)
+					.useDefaultRepositories(false)
+					.addRepository(REPOSITORY_NAME, repository)
+					.update();
+		}
+
+		protected boolean isInstalled() {
+			return runtime.getInstalledFeatures().stream()
+					.anyMatch(f -> f.getFeature().getID().equals(feature.getID()));
+		}
+
+		private static Path findBundle(String prefix) throws IOException {
+			Path directory = Paths.get(System.getProperty(BUNDLES_DIRECTORY, "target/bundles"));
+			try (Stream<Path> s = Files.list(directory)) {
+				return s.filter(p -> p.getFileName().toString().startsWith(prefix)
+						&& p.getFileName().toString().endsWith(".jar"))
+						.findFirst()
+						.orElseThrow(() -> new IllegalStateException(String.format(
+								"No %s bundle found in %s, set the %s system property", prefix,
+								directory.toAbsolutePath(), BUNDLES_DIRECTORY)));
+			}
+		}
+
+		private static FeatureRuntimeImpl.Config defaultConfig() {
+			return (FeatureRuntimeImpl.Config) Proxy.newProxyInstance(FeatureRuntimeImpl.Config.class.getClassLoader(),
+					new Class<?>[] { FeatureRuntimeImpl.Config.class }, (p, m, a) -> m.getDefaultValue());
+		}
+	}
+
+	/**
+	 * Install a feature into an empty runtime
+	 */
+	public static class Install extends EmbeddedRuntime {
+
+		@Setup(Level.Iteration)
+		public void prepare() {
+			if (isInstalled()) {
+				runtime.remove(feature.getID());
+			}
+		}
+
+		@Benchmark
+		public InstalledFeature install() {
+			return installFeature(feature);
+		}
+	}
+
+	/**
+	 * Remove an installed feature
+	 */
+	public static class Remove extends EmbeddedRuntime {
+
+		@Setup(Level.Iteration)
+		public void prepare() {
+			if (!isInstalled()) {
+				installFeature(feature);
+			}
+		}
+
+		@Benchmark
+		public void remove() {
+			runtime.remove(feature.getID());
+		}
+	}
+
+	/**
+	 * Update an installed feature to new versions of all of its bundles and
+	 * new configuration values
+	 */
+	public static class UpdateBundles extends EmbeddedRuntime {
+
+		@Setup(Level.Iteration)
+		public void prepare() {
+			if (isInstalled()) {
+				updateFeature(feature);
+			} else {
+				installFeature(feature);
+			}
+		}
+
+		@Benchmark
+		public InstalledFeature update() {
+			return updateFeature(updatedBundlesFeature);
+		}
+	}
+
+	/**
+	 * Update an installed feature where only the configuration values change
+	 */
+	public static class UpdateConfigurations extends EmbeddedRuntime {
+
+		@Setup(Level.Iteration)
+		public void prepare() {
+			if (isInstalled()) {
+				updateFeature(feature);
+			} else {
+				installFeature(feature);
+			}
+		}
+
+		@Benchmark
+		public InstalledFeature update() {
+			return updateFeature(updatedConfigurationsFeature);
+		}
+	}
+}
@@ -13,6 +13,8 @@
  */
 package org.eclipse.osgi.technology.featurelauncher.common.osgi.util.impl;
 
+import java.util.Collection;
+
 /**
  * Util for @see org.osgi.service.cm.ConfigurationAdmin
  * 
@@ -39,6 +41,40 @@ public class ConfigurationUtil {
 		return sb.toString();
 	}
 
+	/**
+	 * Construct a filter matching the configurations with any of the given PIDs
+	 * 
+	 * @param pids the PIDs, must not be empty
+	 * @return the filter
+	 */
+	public static String constructPidsFilter(Collection<String> pids) {
+		StringBuilder sb = new StringBuilder();
+
+		if (pids.size() > 1) {
+			sb.append("(|");
+		}
+		for (String pid : pids) {
+			sb.append("(service.pid=");
+			appendFilterValue(sb, pid);
+			sb.append(")");
+		}
+		if (pids.size() > 1) {
+			sb.append(")");
+		}
+
+		return sb.toString();
+	}
+
+	private static void appendFilterValue(StringBuilder sb, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '*' || c == '(' || c == ')') {
+				sb.append('\\');
+			}
+			sb.append(c);
+		}
+	}
+
 	public static String normalizePid(String rawPid) {
 		return rawPid.substring(rawPid.indexOf('~') + 1);
 	}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.common.repository.impl;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.osgi.technology.featurelauncher.common.decorator.impl.LaunchFrameworkFeatureExtensionHandler;
+import org.osgi.service.feature.ID;
+import org.osgi.service.featurelauncher.repository.ArtifactRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves artifacts to local files ahead of their use, so that remote
+ * downloads for many artifacts can overlap.
+ * <p>
+ * Artifacts are resolved against the supplied repositories in order, exactly
+ * as {@link LaunchFrameworkFeatureExtensionHandler#getArtifactPath(ID, List)}
+ * does. At most <code>parallelism</code> artifacts are resolved at once. A
+ * parallelism of <code>1</code> or less disables prefetching, and each
+ * artifact is resolved on the calling thread when it is requested.
+ */
+public class ArtifactPrefetcher implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ArtifactPrefetcher.class);
+
+	private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+	private final List<ArtifactRepository> repositories;
+
+	private final ExecutorService executor;
+
+	private final Map<ID, CompletableFuture<Path>> artifacts = new LinkedHashMap<>();
+
+	public ArtifactPrefetcher(List<ArtifactRepository> repositories, int parallelism) {
+		this.repositories = Objects.requireNonNull(repositories, "Repositories cannot be null!");
+
+		if (parallelism > 1) {
+			String prefix = "featurelauncher-prefetch-" + POOL_COUNTER.incrementAndGet() + "-";
+			AtomicInteger threadCounter = new AtomicInteger();
+			this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+				Thread t = new Thread(r, prefix + threadCounter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		} else {
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * Start resolving the supplied artifacts. Artifacts which have already
+	 * been requested are not resolved again.
+	 *
+	 * @param ids the artifacts to resolve
+	 */
+	public synchronized void prefetch(Collection<ID> ids) {
+		if (executor == null) {
+			return;
+		}
+		for (ID id : ids) {
+			artifacts.computeIfAbsent(id,
+					k -> CompletableFuture.supplyAsync(() -> resolve(k), executor));
+		}
+	}
+
+	/**
+	 * Get the local path for an artifact, waiting for it to be resolved if it
+	 * has been prefetched, or resolving it now if it has not.
+	 *
+	 * @param id the artifact
+	 * @return the local path of the artifact, or <code>null</code> if no
+	 *         repository contains it
+	 * @throws IllegalStateException if resolving the artifact failed, or the
+	 *             wait was interrupted
+	 */
+	public Path getArtifactPath(ID id) {
+		CompletableFuture<Path> future;
+		synchronized (this) {
+			future = artifacts.get(id);
+		}
+		if (future == null) {
+			return resolve(id);
+		}
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw new IllegalStateException(String.format("Unable to resolve artifact %s", id), e.getCause());
+		}
+	}
+
+	private Path resolve(ID id) {
+		long start = System.nanoTime();
+		Path path = LaunchFrameworkFeatureExtensionHandler.getArtifactPath(id, repositories);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Resolved artifact {} to {} in {} ms", id, path, (System.nanoTime() - start) / 1_000_000);
+		}
+		return path;
+	}
+
+	/**
+	 * Stop any outstanding resolutions and release the worker threads
+	 */
+	@Override
+	public synchronized void close() {
+		if (executor != null) {
+			artifacts.values().forEach(f -> f.cancel(false));
+			executor.shutdownNow();
+		}
+	}
+}
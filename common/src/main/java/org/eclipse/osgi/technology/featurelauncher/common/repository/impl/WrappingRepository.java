@@ -13,26 +13,25 @@
  */
 package org.eclipse.osgi.technology.featurelauncher.common.repository.impl;
 
-import static java.nio.file.StandardOpenOption.CREATE_NEW;
 import static java.nio.file.StandardOpenOption.READ;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
 
-import org.eclipse.osgi.technology.featurelauncher.common.util.impl.FileSystemUtil;
 import org.osgi.service.feature.ID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.eclipse.osgi.technology.featurelauncher.repository.spi.ArtifactCache;
 import org.eclipse.osgi.technology.featurelauncher.repository.spi.FileSystemRepository;
 import org.eclipse.osgi.technology.featurelauncher.repository.spi.Repository;
 
 /**
  * Converts a {@link Repository} with no File backing into a file-backed {@link Repository}
+ * by storing its artifacts in the shared {@link ArtifactCache}
  */
 public class WrappingRepository implements FileSystemRepository {
 
@@ -40,52 +39,37 @@ public class WrappingRepository implements FileSystemRepository {
 	
 	private final Repository wrapped;
 	
-	private final Path localRepoPath;
+	private final ArtifactCache cache;
+	
+	private final String name;
 	
 	public WrappingRepository(Repository toWrap, String name) {
+		this(toWrap, name, ArtifactCache.getDefault());
+	}
+
+	public WrappingRepository(Repository toWrap, String name, ArtifactCache cache) {
 		Objects.requireNonNull(toWrap, "A repository must be supplied for wrapping");
 		this.wrapped = toWrap;
+		this.name = name == null ? toWrap.getName() : name;
 
 		if(this.wrapped instanceof FileSystemRepository) {
-			localRepoPath = null;
+			this.cache = null;
 		} else {
-			localRepoPath = createTemporaryFolder();
-		}
-	}
-	
-	private Path createTemporaryFolder() {
-		try {
-			Path localRepositoryPath = Files.createTempDirectory("featurelauncherM2repo_");
-
-			deleteOnShutdown(localRepositoryPath);
-
-			return localRepositoryPath;
-
-		} catch (IOException e) {
-			throw new IllegalStateException("Could not create temporary local artifact repository!", e);
+			this.cache = Objects.requireNonNull(cache, "An artifact cache must be supplied");
 		}
 	}
 	
-	private void deleteOnShutdown(Path localRepositoryPath) {
-		Runtime.getRuntime().addShutdownHook(new Thread() {
-			@Override
-			public void run() {
-				try {
-					FileSystemUtil.recursivelyDelete(localRepositoryPath);
-				} catch (IOException e) {
-					LOG.warn("Could not delete temporary local artifact repository!");
-				}
-			}
-		});
-	}
-	
 	@Override
 	public InputStream getArtifactData(ID id) {
-		if(localRepoPath == null) {
+		if(cache == null) {
 			return wrapped.getArtifactData(id);
 		} else {
+			Path path = getArtifactPath(id);
+			if(path == null) {
+				return null;
+			}
 			try {
-				return Files.newInputStream(getArtifactPath(id), READ);
+				return Files.newInputStream(path, READ);
 			} catch (IOException e) {
 				return null;
 			}
@@ -94,50 +78,34 @@ public class WrappingRepository implements FileSystemRepository {
 
 	@Override
 	public Path getArtifactPath(ID id) {
-		if(localRepoPath == null) {
+		if(cache == null) {
 			return ((FileSystemRepository)wrapped).getArtifactPath(id);
 		} else {
-			Path filePath = getFilePath(id);
-			
-			if(Files.exists(filePath)) {
-				return filePath;
+			// Artifacts from other repositories may have the same ID
+			Path cached = cache.get(name, id);
+			if(cached != null) {
+				return cached;
 			}
 			
-			InputStream is = getArtifactData(id);
+			InputStream is = wrapped.getArtifactData(id);
 			if(is == null) {
 				return null;
 			}
 			try(is) {
-				Files.createDirectories(filePath.getParent());
-				try(OutputStream os = Files.newOutputStream(filePath, CREATE_NEW)) {
-					is.transferTo(os);
-				}
-				return filePath;
+				return cache.put(name, id, is);
 			} catch(IOException ioe) {
-				LOG.error("Failed caching artifact {}", id);
+				LOG.error("Failed caching artifact {}", id, ioe);
 			}
 		}
 		return null;
 	}
 
-	private Path getFilePath(ID id) {
-		Path p = localRepoPath.resolve(id.getGroupId())
-				.resolve(id.getArtifactId())
-				.resolve(id.getVersion());
-		String fileName = "file" + 
-				id.getClassifier().map(c -> "-" + c).orElse("") +
-				id.getType().orElse("jar");
-
-		Path filePath = p.resolve(fileName);
-		return filePath;
-	}
-
 	@Override
 	public Path getLocalRepositoryPath() {
-		if(localRepoPath != null) {
+		if(cache == null) {
 			return ((FileSystemRepository)wrapped).getLocalRepositoryPath();
 		} else {
-			return localRepoPath;
+			return cache.getRoot();
 		}
 	}
 
@@ -14,24 +14,41 @@
 package org.eclipse.osgi.technology.featurelauncher.extensions.hash.checker;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringReader;
-import java.security.DigestOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.eclipse.osgi.technology.featurelauncher.repository.common.osgi.ArtifactRepositoryAdapter;
+import org.eclipse.osgi.technology.featurelauncher.repository.spi.ArtifactCache;
+import org.eclipse.osgi.technology.featurelauncher.repository.spi.FileSystemRepository;
+import org.eclipse.osgi.technology.featurelauncher.repository.spi.Repository;
 import org.osgi.service.feature.Feature;
 import org.osgi.service.feature.FeatureBundle;
 import org.osgi.service.feature.FeatureExtension;
 import org.osgi.service.feature.FeatureExtension.Type;
+import org.osgi.service.feature.ID;
 import org.osgi.service.featurelauncher.decorator.AbandonOperationException;
 import org.osgi.service.featurelauncher.decorator.DecoratorBuilderFactory;
 import org.osgi.service.featurelauncher.decorator.FeatureExtensionHandler;
@@ -57,11 +74,18 @@ public class BundleHashChecker implements FeatureExtensionHandler {
 	public static final String ALL = "all";
 	public static final String AT_LEAST_ONE = "at_least_one";
 	public static final String ZERO_OR_MORE = "zero_or_more";
+	public static final String PARALLELISM = "parallelism";
+	public static final String USE_DIGEST_CACHE = "use_digest_cache";
+	public static final String DIGEST_CACHE_DIRECTORY = "digest_cache_directory";
 
 	public static final String HASH_CHECKER_DIGESTS = HASH_CHECKER_EXTENSION_NAME + ".digests";
 
 	private static final Logger LOG = LoggerFactory.getLogger(BundleHashChecker.class);
 
+	private static final int DEFAULT_PARALLELISM = 4;
+
+	private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
 	@Override
 	public Feature handle(Feature feature, FeatureExtension extension,
 			List<ArtifactRepository> repositories,
@@ -78,63 +102,281 @@ public class BundleHashChecker implements FeatureExtensionHandler {
 
 		Map<String, Object> config = parseConfig(extension.getJSON());
 
-		for (FeatureBundle fb : feature.getBundles()) {
-			Map<String,Object> metadata = fb.getMetadata();
+		int parallelism = getParallelism(config);
+		VerifiedDigestCache digestCache = getDigestCache(config);
 
-			if(!metadata.containsKey(HASH_CHECKER_DIGESTS)) {
-				if(isEnabled(config, ALLOW_UNVERIFIED, true)) {
-					LOG.warn("No hash validation for feature bundle {}", fb.getID());
-					continue;
-				} else {
-					LOG.error("No hash validation for feature bundle {}", fb.getID());
-					throw new AbandonOperationException("The feature bundle " + fb.getID()
-							+ " contained no digest information.");
+		Map<ID, Path> verifiedBundles;
+		if(parallelism > 1 && feature.getBundles().size() > 1) {
+			verifiedBundles = checkInParallel(feature, repositories, config, digestCache, parallelism);
+		} else {
+			verifiedBundles = new LinkedHashMap<>();
+			for (FeatureBundle fb : feature.getBundles()) {
+				Path path = check(feature, fb, repositories, config, digestCache);
+				if(path != null) {
+					verifiedBundles.put(fb.getID(), path);
 				}
 			}
+		}
 
-			ArtifactRepository repo = repositories.stream()
-				.filter(r -> r.getArtifact(fb.getID()) != null)
-				.findFirst()
-				.orElseThrow(() -> new AbandonOperationException("Unable to locate feature bundle "
-						+ fb.getID() + " in a repository"));
+		if(!verifiedBundles.isEmpty()) {
+			// Install the bytes which were checked, rather than reading them from
+			// the original repositories again
+			try {
+				repositories.add(0, new VerifiedArtifactRepository(feature.getID(), verifiedBundles));
+			} catch (UnsupportedOperationException uoe) {
+				LOG.debug("The repositories for feature {} cannot be modified, verified bundles will be read again when installed",
+						feature.getID());
+			}
+		}
 
-			String hashes = String.valueOf(metadata.get(HASH_CHECKER_DIGESTS));
-			String[] split = hashes.split(",");
+		return feature;
+	}
 
-			try {
-				Stream<String[]> checks = Arrays.stream(split)
-						.map(s -> validateHashDefinition(fb, s, config))
-						.filter(Objects::nonNull);
-
-				Predicate<String[]> check = s -> verify(fb, repo, s[0], s[1], config);
-
-				boolean result;
-				String matchType = getValue(config, REQUIRE_MATCH, AT_LEAST_ONE);
-				switch(matchType) {
-					case ALL:
-						result = checks.allMatch(check);
-						break;
-					case AT_LEAST_ONE:
-						result = checks.anyMatch(check);
-						break;
-					case ZERO_OR_MORE:
-						checks.forEach(check::test);
-						result = true;
-						break;
-					default:
-						LOG.error("Invalid value {} for {}", matchType, REQUIRE_MATCH);
-						throw new AbandonOperationException("Invalid configuration for the hash checker");
+	/**
+	 * Check the feature bundles using a bounded pool of workers. The first
+	 * failure abandons the whole operation, cancelling any checks which are
+	 * still running.
+	 */
+	private Map<ID, Path> checkInParallel(Feature feature, List<ArtifactRepository> repositories,
+			Map<String, Object> config, VerifiedDigestCache digestCache, int parallelism)
+			throws AbandonOperationException {
+		List<FeatureBundle> bundles = feature.getBundles();
+		Path[] paths = new Path[bundles.size()];
+
+		String prefix = "featurelauncher-hash-checker-" + POOL_COUNTER.incrementAndGet() + "-";
+		AtomicInteger threadCounter = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, bundles.size()), r -> {
+			Thread t = new Thread(r, prefix + threadCounter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+			for (int i = 0; i < bundles.size(); i++) {
+				int index = i;
+				completion.submit(() -> {
+					paths[index] = check(feature, bundles.get(index), repositories, config, digestCache);
+					return index;
+				});
+			}
+
+			for (int i = 0; i < bundles.size(); i++) {
+				try {
+					completion.take().get();
+				} catch (ExecutionException ee) {
+					Throwable cause = ee.getCause();
+					if(cause instanceof AbandonOperationException) {
+						throw (AbandonOperationException) cause;
+					}
+					throw new AbandonOperationException("Hash checking failed for feature " + feature.getID(), cause);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw new AbandonOperationException("Interrupted while checking hashes for feature "
+							+ feature.getID(), ie);
 				}
-				if(!result) {
-					LOG.error("The artifact {} failed hash checking.", fb.getID());
-					throw new AbandonOperationException("Hash checking failed for feature " + feature.getID());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Map<ID, Path> verifiedBundles = new LinkedHashMap<>();
+		for (int i = 0; i < paths.length; i++) {
+			if(paths[i] != null) {
+				verifiedBundles.put(bundles.get(i).getID(), paths[i]);
+			}
+		}
+		return verifiedBundles;
+	}
+
+	/**
+	 * Check a single feature bundle
+	 *
+	 * @return the local file holding the verified bytes, or <code>null</code>
+	 *         if the bundle was not read
+	 */
+	private Path check(Feature feature, FeatureBundle fb, List<ArtifactRepository> repositories,
+			Map<String, Object> config, VerifiedDigestCache digestCache) throws AbandonOperationException {
+		Map<String,Object> metadata = fb.getMetadata();
+
+		if(!metadata.containsKey(HASH_CHECKER_DIGESTS)) {
+			if(isEnabled(config, ALLOW_UNVERIFIED, true)) {
+				LOG.warn("No hash validation for feature bundle {}", fb.getID());
+				return null;
+			} else {
+				LOG.error("No hash validation for feature bundle {}", fb.getID());
+				throw new AbandonOperationException("The feature bundle " + fb.getID()
+						+ " contained no digest information.");
+			}
+		}
+
+		ArtifactSource source = locate(fb.getID(), repositories);
+
+		String hashes = String.valueOf(metadata.get(HASH_CHECKER_DIGESTS));
+		String[] split = hashes.split(",");
+
+		try {
+			DigestedArtifact digested = digest(fb.getID(), source, split, digestCache);
+
+			List<String[]> definitions = Arrays.stream(split)
+					.map(s -> validateHashDefinition(fb, s, config))
+					.filter(Objects::nonNull)
+					.collect(Collectors.toList());
+			Stream<String[]> checks = definitions.stream();
+
+			Predicate<String[]> check = s -> verify(fb, digested.digests(), s[0], s[1], config);
+
+			boolean result;
+			String matchType = getValue(config, REQUIRE_MATCH, AT_LEAST_ONE);
+			switch(matchType) {
+				case ALL:
+					result = checks.allMatch(check);
+					break;
+				case AT_LEAST_ONE:
+					result = checks.anyMatch(check);
+					break;
+				case ZERO_OR_MORE:
+					checks.forEach(check::test);
+					result = true;
+					break;
+				default:
+					LOG.error("Invalid value {} for {}", matchType, REQUIRE_MATCH);
+					throw new AbandonOperationException("Invalid configuration for the hash checker");
+			}
+			if(!result) {
+				LOG.error("The artifact {} failed hash checking.", fb.getID());
+				throw new AbandonOperationException("Hash checking failed for feature " + feature.getID());
+			}
+			if(source.path() == null && !definitions.isEmpty() && definitions.stream()
+					.allMatch(d -> d[1].equalsIgnoreCase(digested.digests().get(d[0])))) {
+				recordVerified(fb.getID(), digested.path());
+			}
+			return digested.path();
+		} catch (HashCheckerException re) {
+			throw re.getWrapped();
+		}
+	}
+
+	/**
+	 * Record the cached copy of a stream-only artifact for its ID, once every
+	 * expected hash has matched
+	 */
+	private void recordVerified(ID id, Path path) {
+		try {
+			ArtifactCache.getDefault().putKey(id, path);
+		} catch (IOException | IllegalArgumentException e) {
+			LOG.warn("Unable to record the verified content of {} in the artifact cache", id, e);
+		}
+	}
+
+	/**
+	 * Find the first repository containing the artifact. File system
+	 * repositories are asked for a path, so that no stream is opened just to
+	 * test for the presence of an artifact.
+	 */
+	private ArtifactSource locate(ID id, List<ArtifactRepository> repositories) throws AbandonOperationException {
+		for (ArtifactRepository ar : repositories) {
+			Repository r = ar instanceof ArtifactRepositoryAdapter ? ((ArtifactRepositoryAdapter) ar).unwrap() : null;
+			FileSystemRepository fsr = ar instanceof FileSystemRepository ? (FileSystemRepository) ar
+					: r instanceof FileSystemRepository ? (FileSystemRepository) r : null;
+
+			if(fsr != null) {
+				Path path = fsr.getArtifactPath(id);
+				if(path != null && Files.isRegularFile(path)) {
+					return new ArtifactSource(path, null);
+				}
+			} else {
+				InputStream is = ar.getArtifact(id);
+				if(is != null) {
+					return new ArtifactSource(null, is);
 				}
-			} catch (HashCheckerException re) {
-				throw re.getWrapped();
 			}
 		}
+		throw new AbandonOperationException("Unable to locate feature bundle " + id + " in a repository");
+	}
 
-		return feature;
+	/**
+	 * Calculate every available digest declared for the artifact in a single
+	 * pass over its bytes. Artifacts which are only available as a stream are
+	 * stored in the {@link ArtifactCache} as they are read, so that they can be
+	 * installed from the verified copy, but are only recorded for the artifact
+	 * once they have been verified. Digests of unchanged local files are
+	 * taken from the {@link VerifiedDigestCache}, if there is one, and the
+	 * SHA-256 digest of cached content from its name.
+	 */
+	private DigestedArtifact digest(ID id, ArtifactSource source, String[] hashDefinitions,
+			VerifiedDigestCache digestCache) {
+		Map<String, MessageDigest> digests = new LinkedHashMap<>();
+		for (String hashDefinition : hashDefinitions) {
+			String[] def = hashDefinition.split(";");
+			if(def.length == 2 && !def[0].isBlank() && !digests.containsKey(def[0])) {
+				try {
+					digests.put(def[0], MessageDigest.getInstance(def[0]));
+				} catch (NoSuchAlgorithmException e) {
+					// Reported when the definition is checked
+				}
+			}
+		}
+
+		try {
+			Map<String, String> calculated = new LinkedHashMap<>();
+
+			// Content of the artifact cache is named by its SHA-256 digest
+			String contentDigest = source.path() == null ? null
+					: ArtifactCache.getDefault().getDigest(source.path());
+			if(contentDigest != null) {
+				for (Iterator<String> it = digests.keySet().iterator(); it.hasNext();) {
+					String algorithm = it.next();
+					if("SHA-256".equalsIgnoreCase(algorithm)) {
+						calculated.put(algorithm, contentDigest);
+						it.remove();
+					}
+				}
+			}
+
+			String state = null;
+			if(digestCache != null && source.path() != null && !digests.isEmpty()) {
+				// Read the state before the content, so that a concurrent
+				// modification is never recorded against the old content
+				state = VerifiedDigestCache.state(source.path(), contentDigest != null);
+				calculated.putAll(digestCache.get(source.path(), state, digests.keySet()));
+				digests.keySet().removeAll(calculated.keySet());
+			}
+
+			if(digests.isEmpty()) {
+				if(source.stream() != null) {
+					source.stream().close();
+				}
+				return new DigestedArtifact(source.path(), calculated);
+			}
+
+			InputStream is = source.stream() == null ? Files.newInputStream(source.path()) : source.stream();
+			for (MessageDigest md : digests.values()) {
+				is = new DigestInputStream(is, md);
+			}
+
+			Path path;
+			try (InputStream in = is) {
+				if(source.path() != null) {
+					in.transferTo(OutputStream.nullOutputStream());
+					path = source.path();
+				} else {
+					// Not keyed until verified, so that rejected bytes are never
+					// looked up for the artifact
+					path = ArtifactCache.getDefault().put((String) null, in);
+				}
+			}
+
+			Map<String, String> fresh = new LinkedHashMap<>();
+			digests.forEach((k, v) -> fresh.put(k, HexFormat.of().formatHex(v.digest())));
+			if(state != null) {
+				digestCache.put(source.path(), state, fresh);
+			}
+			calculated.putAll(fresh);
+			return new DigestedArtifact(path, calculated);
+		} catch (IOException e) {
+			LOG.error("An unexpected error occurred reading {}", id, e);
+			throw new HashCheckerException(e.getMessage(), e);
+		}
 	}
 
 	private Map<String, Object> parseConfig(String json) {
@@ -187,6 +429,29 @@ public class BundleHashChecker implements FeatureExtensionHandler {
 		}
 	}
 
+	private int getParallelism(Map<String, Object> config) throws AbandonOperationException {
+		Object val = config.get(PARALLELISM);
+		if(val == null) {
+			return Math.min(DEFAULT_PARALLELISM, Runtime.getRuntime().availableProcessors());
+		}
+		try {
+			return val instanceof Number n ? n.intValue() : Integer.parseInt(String.valueOf(val));
+		} catch (NumberFormatException nfe) {
+			LOG.error("Invalid value {} for {}", val, PARALLELISM);
+			throw new AbandonOperationException("Invalid configuration for the hash checker");
+		}
+	}
+
+	private VerifiedDigestCache getDigestCache(Map<String, Object> config) {
+		if(!isEnabled(config, USE_DIGEST_CACHE, false)) {
+			return null;
+		}
+		String directory = getValue(config, DIGEST_CACHE_DIRECTORY, null);
+		return new VerifiedDigestCache(directory == null
+				? ArtifactCache.getDefault().getRoot().resolve("verified-digests")
+				: Paths.get(directory));
+	}
+
 	private String getValue(Map<String, Object> config, String key, String defaultValue) {
 		if(config.containsKey(key)) {
 			return String.valueOf(config.get(key));
@@ -208,39 +473,93 @@ public class BundleHashChecker implements FeatureExtensionHandler {
 		return def;
 	}
 
-	private boolean verify(FeatureBundle fb, ArtifactRepository repo, String hashFunction, String signature, Map<String, Object> config) {
+	private boolean verify(FeatureBundle fb, Map<String, String> digests, String hashFunction, String signature, Map<String, Object> config) {
 
-		try {
-			MessageDigest digest = MessageDigest.getInstance(hashFunction);
-			repo.getArtifact(fb.getID()).transferTo(
-					new DigestOutputStream(OutputStream.nullOutputStream(), digest));
-
-			String calculated = HexFormat.of().formatHex(digest.digest());
-			if(signature.equalsIgnoreCase(calculated)) {
-				return true;
-			} else {
-				if(isEnabled(config, ALLOW_HASH_MISMATCH, false)) {
-					LOG.warn("The {} hash for {} did not match. Expected \n\n{}\n\n but was\n\n {}",
-							hashFunction, fb.getID(), signature, calculated);
-					return false;
-				} else {
-					LOG.error("The {} hash for {} did not match. Expected \n\n{}\n\n but was\n\n {}",
-							hashFunction, fb.getID(), signature, calculated);
-					throw new HashCheckerException("The " + hashFunction + " hash for "
-							+ fb.getID() + " did not match");
-				}
-			}
-		} catch (NoSuchAlgorithmException e) {
+		String calculated = digests.get(hashFunction);
+		if(calculated == null) {
 			if(isEnabled(config, FORBID_UNKNOWN_ALGORITHM, false)) {
 				LOG.error("The {} hash algorithm is not available", hashFunction);
-				throw new HashCheckerException("The " + hashFunction + " is not available", e);
+				throw new HashCheckerException("The " + hashFunction + " is not available");
 			} else {
 				LOG.warn("The {} hash algorithm is not available", hashFunction);
 				return false;
 			}
-		} catch (IOException e) {
-			LOG.error("An unexpected error occurred", hashFunction);
-			throw new HashCheckerException(e.getMessage(), e);
+		}
+
+		if(signature.equalsIgnoreCase(calculated)) {
+			return true;
+		} else {
+			if(isEnabled(config, ALLOW_HASH_MISMATCH, false)) {
+				LOG.warn("The {} hash for {} did not match. Expected \n\n{}\n\n but was\n\n {}",
+						hashFunction, fb.getID(), signature, calculated);
+				return false;
+			} else {
+				LOG.error("The {} hash for {} did not match. Expected \n\n{}\n\n but was\n\n {}",
+						hashFunction, fb.getID(), signature, calculated);
+				throw new HashCheckerException("The " + hashFunction + " hash for "
+						+ fb.getID() + " did not match");
+			}
+		}
+	}
+
+	/**
+	 * Where the bytes of an artifact come from, either a local file or a stream
+	 * which has already been opened
+	 */
+	private record ArtifactSource(Path path, InputStream stream) {
+	}
+
+	/**
+	 * The calculated digests of an artifact, keyed by algorithm, and the local
+	 * file holding the bytes which were digested
+	 */
+	private record DigestedArtifact(Path path, Map<String, String> digests) {
+	}
+
+	private static class VerifiedArtifactRepository implements ArtifactRepository, FileSystemRepository {
+
+		private final ID featureId;
+		private final Map<ID, Path> verifiedBundles;
+
+		public VerifiedArtifactRepository(ID featureId, Map<ID, Path> verifiedBundles) {
+			this.featureId = featureId;
+			this.verifiedBundles = Map.copyOf(verifiedBundles);
+		}
+
+		@Override
+		public InputStream getArtifactData(ID id) {
+			Path path = verifiedBundles.get(id);
+
+			if(path != null) {
+				try {
+					return Files.newInputStream(path);
+				} catch (IOException e) {
+					throw new RuntimeException("Failed to open the verified file for feature bundle " + id);
+				}
+			} else {
+				return null;
+			}
+		}
+
+		@Override
+		public String getName() {
+			return "Virtual repository for hash checked bundles in feature " + featureId;
+		}
+
+		@Override
+		public Path getArtifactPath(ID id) {
+			return verifiedBundles.get(id);
+		}
+
+		@Override
+		public Path getLocalRepositoryPath() {
+			// We don't expose a root path
+			return null;
+		}
+
+		@Override
+		public InputStream getArtifact(ID id) {
+			return getArtifactData(id);
 		}
 	}
 
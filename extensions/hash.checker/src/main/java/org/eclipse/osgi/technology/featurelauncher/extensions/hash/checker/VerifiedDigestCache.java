@@ -0,0 +1,328 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.extensions.hash.checker;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent record of the digests calculated for local artifact files, so
+ * that unchanged files are not hashed again on the next update or launch.
+ * <p>
+ * Entries are keyed by the absolute path of the artifact and are only used
+ * while the {@link #state(Path) state} of the file is unchanged. As well as
+ * the size and last modified time, which can be set freely by the owner of the
+ * file, the state includes the file key and, where the file system provides
+ * it, the change time, which is updated whenever the content or the attributes
+ * of the file are written. Each path is stored in its own file, which is
+ * replaced atomically, so concurrent launches sharing the cache directory see
+ * either the old or the new entry.
+ * <p>
+ * As a cached digest is trusted in place of the content, the cache directory
+ * is only used if it belongs to the user running the JVM, it is made
+ * accessible to that user alone where the file system supports POSIX
+ * permissions, and each entry is authenticated with a secret key stored in
+ * the cache directory. Entries which fail authentication are ignored.
+ */
+class VerifiedDigestCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(VerifiedDigestCache.class);
+
+	private static final String PATH = "path";
+	private static final String STATE = "state";
+	private static final String MAC = "mac";
+	private static final String DIGEST_PREFIX = "digest.";
+
+	private static final String KEY_FILE = "secret.key";
+	private static final String MAC_ALGORITHM = "HmacSHA256";
+	private static final int KEY_LENGTH = 32;
+
+	private final Path root;
+
+	// The key authenticating the entries, or null if the cache is unusable
+	private SecretKeySpec key;
+
+	private boolean initialized;
+
+	VerifiedDigestCache(Path root) {
+		this.root = root.toAbsolutePath();
+	}
+
+	/**
+	 * Read the state of an artifact file which is recorded with its digests.
+	 * It must be read before the content is digested, so that a concurrent
+	 * modification is never recorded against the old content.
+	 *
+	 * @param artifact the artifact file
+	 * @return the state of the file
+	 * @throws IOException if the attributes of the file could not be read
+	 */
+	static String state(Path artifact) throws IOException {
+		return state(artifact, false);
+	}
+
+	/**
+	 * Read the state of an artifact file which is recorded with its digests.
+	 * The times of content-addressed files, which are never written in place,
+	 * are left out, as they are updated whenever the content is leased from
+	 * the artifact cache.
+	 *
+	 * @param artifact the artifact file
+	 * @param contentAddressed whether the file is named by its content
+	 * @return the state of the file
+	 * @throws IOException if the attributes of the file could not be read
+	 */
+	static String state(Path artifact, boolean contentAddressed) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(artifact, BasicFileAttributes.class);
+		StringBuilder state = new StringBuilder()
+				.append(attributes.size());
+		if (contentAddressed) {
+			return state.append(':').append(attributes.fileKey()).toString();
+		}
+		state.append(':').append(attributes.lastModifiedTime().toMillis())
+				.append(':').append(attributes.fileKey());
+		if (Files.getFileStore(artifact).supportsFileAttributeView("unix")) {
+			FileTime changed = (FileTime) Files.getAttribute(artifact, "unix:ctime");
+			state.append(':').append(changed.toInstant());
+		}
+		return state.toString();
+	}
+
+	/**
+	 * Get the cached digests for an artifact
+	 *
+	 * @param artifact the artifact file
+	 * @param state the current {@link #state(Path) state} of the artifact file
+	 * @param algorithms the digest algorithms of interest
+	 * @return the cached digests, keyed by algorithm, for those algorithms
+	 *         which have been recorded against the current file
+	 */
+	Map<String, String> get(Path artifact, String state, Collection<String> algorithms) {
+		Properties entry = read(artifact, state);
+		Map<String, String> digests = new HashMap<>();
+		if(entry != null) {
+			for (String algorithm : algorithms) {
+				String digest = entry.getProperty(DIGEST_PREFIX + algorithm);
+				if(digest != null) {
+					digests.put(algorithm, digest);
+				}
+			}
+		}
+		return digests;
+	}
+
+	/**
+	 * Record the digests calculated for an artifact, keeping any other
+	 * digests already recorded for the same file content
+	 *
+	 * @param artifact the artifact file
+	 * @param state the {@link #state(Path) state} of the artifact file, read
+	 *            before its content was digested
+	 * @param digests the calculated digests, keyed by algorithm
+	 */
+	void put(Path artifact, String state, Map<String, String> digests) {
+		Properties entry = read(artifact, state);
+		if(entry == null) {
+			if(getKey() == null) {
+				return;
+			}
+			entry = new Properties();
+			entry.setProperty(PATH, artifact.toAbsolutePath().toString());
+			entry.setProperty(STATE, state);
+		}
+		for (Map.Entry<String, String> e : digests.entrySet()) {
+			entry.setProperty(DIGEST_PREFIX + e.getKey(), e.getValue());
+		}
+		entry.remove(MAC);
+		entry.setProperty(MAC, mac(entry));
+
+		Path entryFile = entryFile(artifact);
+		try {
+			Files.createDirectories(entryFile.getParent());
+			Path temp = Files.createTempFile(entryFile.getParent(), "digests", ".tmp");
+			try {
+				try (Writer w = Files.newBufferedWriter(temp, UTF_8)) {
+					entry.store(w, null);
+				}
+				try {
+					Files.move(temp, entryFile, ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(temp, entryFile, REPLACE_EXISTING);
+				}
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException e) {
+			LOG.warn("Unable to record the verified digests for {}", artifact, e);
+		}
+	}
+
+	private Properties read(Path artifact, String state) {
+		if(getKey() == null) {
+			return null;
+		}
+
+		Properties entry = new Properties();
+		try (Reader r = Files.newBufferedReader(entryFile(artifact), UTF_8)) {
+			entry.load(r);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | IllegalArgumentException e) {
+			LOG.warn("Unable to read the verified digests for {}", artifact, e);
+			return null;
+		}
+
+		String mac = (String) entry.remove(MAC);
+		if(mac == null || !MessageDigest.isEqual(mac.getBytes(UTF_8), mac(entry).getBytes(UTF_8))) {
+			LOG.warn("Ignoring the verified digests for {} as they could not be authenticated", artifact);
+			return null;
+		}
+
+		if(artifact.toAbsolutePath().toString().equals(entry.getProperty(PATH))
+				&& state.equals(entry.getProperty(STATE))) {
+			return entry;
+		}
+		LOG.debug("The verified digests for {} are out of date", artifact);
+		return null;
+	}
+
+	private String mac(Properties entry) {
+		try {
+			Mac mac = Mac.getInstance(MAC_ALGORITHM);
+			mac.init(key);
+			// Sort the properties, as their order is not preserved when stored
+			for (Map.Entry<String, String> e : new TreeMap<>(toMap(entry)).entrySet()) {
+				mac.update(e.getKey().getBytes(UTF_8));
+				mac.update((byte) 0);
+				mac.update(e.getValue().getBytes(UTF_8));
+				mac.update((byte) 0);
+			}
+			return HexFormat.of().formatHex(mac.doFinal());
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+		}
+	}
+
+	private static Map<String, String> toMap(Properties entry) {
+		Map<String, String> map = new HashMap<>();
+		for (String name : entry.stringPropertyNames()) {
+			map.put(name, entry.getProperty(name));
+		}
+		return map;
+	}
+
+	/**
+	 * Verify the cache directory and read its secret key, creating them if
+	 * necessary
+	 *
+	 * @return the key, or <code>null</code> if the cache cannot be used
+	 */
+	private synchronized SecretKeySpec getKey() {
+		if(!initialized) {
+			initialized = true;
+			try {
+				key = new SecretKeySpec(readKey(), MAC_ALGORITHM);
+			} catch (IOException e) {
+				LOG.warn("The verified digest cache {} cannot be used", root, e);
+			}
+		}
+		return key;
+	}
+
+	private byte[] readKey() throws IOException {
+		Files.createDirectories(root);
+		PosixFileAttributeView view = Files.getFileAttributeView(root, PosixFileAttributeView.class);
+		if(view != null) {
+			Path probe = Files.createTempFile(root, "owner", ".tmp");
+			try {
+				if(!Files.getOwner(probe).equals(view.getOwner())) {
+					throw new IOException(String.format(
+							"The verified digest cache directory %s does not belong to the current user", root));
+				}
+			} finally {
+				Files.deleteIfExists(probe);
+			}
+			view.setPermissions(PosixFilePermissions.fromString("rwx------"));
+		}
+
+		Path keyFile = root.resolve(KEY_FILE);
+		if(!Files.exists(keyFile)) {
+			byte[] secret = new byte[KEY_LENGTH];
+			new SecureRandom().nextBytes(secret);
+			Path temp = Files.createTempFile(root, "secret", ".tmp");
+			try {
+				Files.write(temp, secret);
+				try {
+					// Never replace a key which another launch has created
+					Files.createLink(keyFile, temp);
+				} catch (FileAlreadyExistsException e) {
+					// Use the existing key
+				} catch (UnsupportedOperationException e) {
+					Files.move(temp, keyFile);
+				}
+			} catch (FileAlreadyExistsException e) {
+				// Use the existing key
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+
+		byte[] secret = Files.readAllBytes(keyFile);
+		if(secret.length != KEY_LENGTH) {
+			throw new IOException(String.format("The verified digest cache key %s is invalid", keyFile));
+		}
+		return secret;
+	}
+
+	private Path entryFile(Path artifact) {
+		try {
+			byte[] key = MessageDigest.getInstance("SHA-256")
+					.digest(artifact.toAbsolutePath().toString().getBytes(UTF_8));
+			String hash = HexFormat.of().formatHex(key);
+			return root.resolve(hash.substring(0, 2)).resolve(hash);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+}
@@ -14,11 +14,15 @@
 package org.eclipse.osgi.technology.featurelauncher.extensions.hash.checker;
 
 import static org.eclipse.osgi.technology.featurelauncher.extensions.hash.checker.BundleHashChecker.HASH_CHECKER_EXTENSION_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrowsExactly;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -26,11 +30,14 @@ import java.util.List;
 import java.util.Properties;
 
 import org.eclipse.osgi.technology.featurelauncher.featureservice.base.FeatureServiceImpl;
+import org.eclipse.osgi.technology.featurelauncher.repository.spi.FileSystemRepository;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.osgi.service.feature.Feature;
 import org.osgi.service.feature.FeatureService;
+import org.osgi.service.feature.ID;
 import org.osgi.service.featurelauncher.decorator.AbandonOperationException;
 import org.osgi.service.featurelauncher.decorator.FeatureExtensionHandler;
 import org.osgi.service.featurelauncher.repository.ArtifactRepository;
@@ -107,4 +114,55 @@ class BundleHashCheckerTests {
 					new DecoratorBuilderFactoryImpl(featureService)));
 		};
 	}
+
+	@Test
+	void testVerifiedPathHandedOnWithoutOpeningStreams() throws Exception {
+		try (BufferedReader br = Files.newBufferedReader(FEATURES.resolve("with-hashes.json"))) {
+			Feature feature = featureService.readFeature(br);
+			
+			List<ArtifactRepository> repositories = new ArrayList<>();
+			repositories.add(new PathOnlyRepository());
+			
+			assertSame(feature, new BundleHashChecker().handle(feature, 
+					feature.getExtensions().get(HASH_CHECKER_EXTENSION_NAME),
+					repositories, new FeatureExtensionHandlerBuilderImpl(featureService, feature),
+					new DecoratorBuilderFactoryImpl(featureService)));
+			
+			assertEquals(2, repositories.size());
+			FileSystemRepository verified = assertInstanceOf(FileSystemRepository.class, repositories.get(0));
+			ID a = feature.getBundles().get(0).getID();
+			assertEquals(ARTIFACTS.resolve("a"), verified.getArtifactPath(a));
+		};
+	}
+	
+	/**
+	 * A repository which fails if its artifacts are read as a stream
+	 */
+	static class PathOnlyRepository implements ArtifactRepository, FileSystemRepository {
+
+		@Override
+		public InputStream getArtifactData(ID id) {
+			throw new AssertionError("The artifact " + id + " should be read from its path");
+		}
+
+		@Override
+		public String getName() {
+			return "path only";
+		}
+
+		@Override
+		public Path getArtifactPath(ID id) {
+			return ARTIFACTS.resolve(id.getArtifactId());
+		}
+
+		@Override
+		public Path getLocalRepositoryPath() {
+			return ARTIFACTS;
+		}
+
+		@Override
+		public InputStream getArtifact(ID id) {
+			return getArtifactData(id);
+		}
+	}
 }
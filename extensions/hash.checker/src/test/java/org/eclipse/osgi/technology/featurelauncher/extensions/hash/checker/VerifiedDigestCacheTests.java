@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.extensions.hash.checker;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class VerifiedDigestCacheTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testDigestsSurviveNewInstance() throws Exception {
+		Path artifact = Files.writeString(tempDir.resolve("artifact"), "hello");
+		String state = VerifiedDigestCache.state(artifact);
+
+		new VerifiedDigestCache(tempDir.resolve("cache")).put(artifact, state,
+				Map.of("SHA-256", "abc"));
+		new VerifiedDigestCache(tempDir.resolve("cache")).put(artifact, state,
+				Map.of("SHA-512", "def"));
+
+		VerifiedDigestCache cache = new VerifiedDigestCache(tempDir.resolve("cache"));
+		assertEquals(Map.of("SHA-256", "abc", "SHA-512", "def"),
+				cache.get(artifact, state, List.of("SHA-256", "SHA-512", "MD5")));
+	}
+
+	@Test
+	void testModifiedArtifactIsNotTrusted() throws Exception {
+		Path artifact = Files.writeString(tempDir.resolve("artifact"), "hello");
+		VerifiedDigestCache cache = new VerifiedDigestCache(tempDir.resolve("cache"));
+		cache.put(artifact, VerifiedDigestCache.state(artifact), Map.of("SHA-256", "abc"));
+
+		Files.setLastModifiedTime(artifact, FileTime.fromMillis(1000));
+
+		assertTrue(cache.get(artifact, VerifiedDigestCache.state(artifact), List.of("SHA-256")).isEmpty());
+	}
+
+	@Test
+	void testLeasedContentAddressedArtifactIsTrusted() throws Exception {
+		Path artifact = Files.writeString(tempDir.resolve("artifact"), "hello");
+		VerifiedDigestCache cache = new VerifiedDigestCache(tempDir.resolve("cache"));
+		cache.put(artifact, VerifiedDigestCache.state(artifact, true), Map.of("SHA-512", "abc"));
+
+		// Leasing content from the artifact cache updates its times
+		Files.setLastModifiedTime(artifact, FileTime.fromMillis(1000));
+
+		assertEquals(Map.of("SHA-512", "abc"),
+				cache.get(artifact, VerifiedDigestCache.state(artifact, true), List.of("SHA-512")));
+	}
+
+	@Test
+	void testReplacedArtifactWithRestoredTimestampIsNotTrusted() throws Exception {
+		Path artifact = Files.writeString(tempDir.resolve("artifact"), "hello");
+		FileTime modified = Files.getLastModifiedTime(artifact);
+		VerifiedDigestCache cache = new VerifiedDigestCache(tempDir.resolve("cache"));
+		cache.put(artifact, VerifiedDigestCache.state(artifact), Map.of("SHA-256", "abc"));
+
+		// Swap in content of the same size and restore the timestamp, as
+		// touch -r would
+		Path replacement = Files.writeString(tempDir.resolve("replacement"), "jello");
+		Files.move(replacement, artifact, REPLACE_EXISTING);
+		Files.setLastModifiedTime(artifact, modified);
+
+		assertTrue(cache.get(artifact, VerifiedDigestCache.state(artifact), List.of("SHA-256")).isEmpty());
+	}
+
+	@Test
+	void testTamperedEntryIsNotTrusted() throws Exception {
+		Path artifact = Files.writeString(tempDir.resolve("artifact"), "hello");
+		String state = VerifiedDigestCache.state(artifact);
+		VerifiedDigestCache cache = new VerifiedDigestCache(tempDir.resolve("cache"));
+		cache.put(artifact, state, Map.of("SHA-256", "abc"));
+
+		try (Stream<Path> files = Files.walk(tempDir.resolve("cache"))) {
+			for (Path entry : files.filter(p -> Files.isRegularFile(p) && p.getNameCount()
+					- tempDir.resolve("cache").getNameCount() == 2).toList()) {
+				Files.writeString(entry, Files.readString(entry).replace("=abc", "=bad"));
+			}
+		}
+
+		assertTrue(new VerifiedDigestCache(tempDir.resolve("cache"))
+				.get(artifact, state, List.of("SHA-256")).isEmpty());
+	}
+
+	@Test
+	void testCacheDirectoryIsPrivate() throws Exception {
+		Path artifact = Files.writeString(tempDir.resolve("artifact"), "hello");
+		Path root = tempDir.resolve("cache");
+		new VerifiedDigestCache(root).put(artifact, VerifiedDigestCache.state(artifact),
+				Map.of("SHA-256", "abc"));
+
+		PosixFileAttributeView view = Files.getFileAttributeView(root, PosixFileAttributeView.class);
+		assumeTrue(view != null, "POSIX permissions are not supported");
+		assertEquals(PosixFilePermissions.fromString("rwx------"), view.readAttributes().permissions());
+	}
+}
@@ -24,7 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.TreeMap;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
@@ -32,6 +32,7 @@ import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
 
+import org.eclipse.osgi.technology.featurelauncher.repository.spi.ArtifactCache;
 import org.eclipse.osgi.technology.featurelauncher.repository.spi.FileSystemRepository;
 import org.osgi.service.feature.Feature;
 import org.osgi.service.feature.FeatureBundle;
@@ -84,10 +85,11 @@ public class BundleManifestReplacer implements FeatureExtensionHandler {
 				};
 			}
 			
-			Path baseFolder = Optional.ofNullable(config.getString(WORKING_DIRECTORY, null))
-					.map(Paths::get)
-					.orElse(Files.createTempDirectory(MANIFEST_REPLACER_EXTENSION_NAME))
-					.resolve(feature.getID().toString());
+			// Without a working directory the rewritten bundles are kept in the
+			// shared artifact cache, so that they are reused after a restart
+			String workingDirectory = config.getString(WORKING_DIRECTORY, null);
+			Path baseFolder = workingDirectory == null ? null
+					: Paths.get(workingDirectory).resolve(feature.getID().toString());
 			
 			Map<ID, Path> manifestReplacedBundles = new HashMap<>();
 			
@@ -108,33 +110,16 @@ public class BundleManifestReplacer implements FeatureExtensionHandler {
 				a.put(Attributes.Name.MANIFEST_VERSION, "1.0");
 				manifest.forEach((k,v) -> a.putValue(k,v));
 				
-				Path outputPath = baseFolder
-						.resolve(fbId.getGroupId())
-						.resolve(fbId.getArtifactId())
-						.resolve(fbId.toString());
-				Files.createDirectories(outputPath.getParent());
-				manifestReplacedBundles.put(fbId, outputPath);
-				
-				try(JarInputStream is = new JarInputStream(repositories.stream()
-						.map(r -> r.getArtifact(fbId))
-						.filter(Objects::nonNull)
-						.findFirst()
-						.orElseThrow(() -> new AbandonOperationException("Unable to locate feature bundle " 
-								+ fbId + " in a repository")));
-						JarOutputStream os = new JarOutputStream(
-								new BufferedOutputStream(Files.newOutputStream(outputPath)), m)) {
-					
-					JarEntry je;
-					while((je = is.getNextJarEntry()) != null) {
-						if("META-INF/MANIFEST.MF".equals(je.getName())) {
-							continue;
-						}
-						os.putNextEntry(new JarEntry(je.getRealName()));
-						is.transferTo(os);
-					}
-				} catch (IOException ioe) {
-					throw new AbandonOperationException("Failed to generate jar with updated manifest for "
-							+ fbId, ioe);
+				if(baseFolder == null) {
+					manifestReplacedBundles.put(fbId, getCachedBundle(fbId, manifest, m, repositories));
+				} else {
+					Path outputPath = baseFolder
+							.resolve(fbId.getGroupId())
+							.resolve(fbId.getArtifactId())
+							.resolve(fbId.toString());
+					Files.createDirectories(outputPath.getParent());
+					writeBundle(fbId, m, repositories, outputPath);
+					manifestReplacedBundles.put(fbId, outputPath);
 				}
 			}
 			
@@ -150,6 +135,54 @@ public class BundleManifestReplacer implements FeatureExtensionHandler {
 		return feature;
 	}
 
+	private Path getCachedBundle(ID fbId, Map<String, String> manifest, Manifest m,
+			List<ArtifactRepository> repositories) throws IOException, AbandonOperationException {
+		ArtifactCache cache = ArtifactCache.getDefault();
+		
+		// The content of a SNAPSHOT may change, so only the bytes are cached
+		String key = fbId.getVersion().endsWith("-SNAPSHOT") ? null
+				: MANIFEST_REPLACER_EXTENSION_NAME + ":" + fbId + ":" + new TreeMap<>(manifest);
+		
+		Path cached = key == null ? null : cache.get(key);
+		if(cached == null) {
+			Path temp = Files.createTempFile(MANIFEST_REPLACER_EXTENSION_NAME, ".jar");
+			try {
+				writeBundle(fbId, m, repositories, temp);
+				try(InputStream is = Files.newInputStream(temp)) {
+					cached = cache.put(key, is);
+				}
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+		return cached;
+	}
+	
+	private void writeBundle(ID fbId, Manifest m, List<ArtifactRepository> repositories, Path outputPath)
+			throws AbandonOperationException {
+		try(JarInputStream is = new JarInputStream(repositories.stream()
+				.map(r -> r.getArtifact(fbId))
+				.filter(Objects::nonNull)
+				.findFirst()
+				.orElseThrow(() -> new AbandonOperationException("Unable to locate feature bundle " 
+						+ fbId + " in a repository")));
+				JarOutputStream os = new JarOutputStream(
+						new BufferedOutputStream(Files.newOutputStream(outputPath)), m)) {
+			
+			JarEntry je;
+			while((je = is.getNextJarEntry()) != null) {
+				if("META-INF/MANIFEST.MF".equals(je.getName())) {
+					continue;
+				}
+				os.putNextEntry(new JarEntry(je.getRealName()));
+				is.transferTo(os);
+			}
+		} catch (IOException ioe) {
+			throw new AbandonOperationException("Failed to generate jar with updated manifest for "
+					+ fbId, ioe);
+		}
+	}
+
 	private static class ManifestReplacingArtifactRepository implements ArtifactRepository, FileSystemRepository {
 
 		private final ID featureId;
@@ -36,7 +36,10 @@ interface DirectoryInstallerConfig {
 	String PROP_FEATURE_PATTERN = PROP_PREFIX + "feature.pattern";
 	String PROP_SKIP_PATTERNS = PROP_PREFIX + "skip.patterns";
 	String PROP_ARTIFACTS_DIR = PROP_PREFIX + "artifacts.dir";
+	String PROP_WATCH_EVENTS = PROP_PREFIX + "watch.events";
+	String PROP_WATCH_DEBOUNCE = PROP_PREFIX + "watch.debounce";
 	long DEFAULT_SCAN_INTERVAL = 10;
+	long DEFAULT_WATCH_DEBOUNCE = 500;
 	String DEFAULT_SCAN_MODE = "ONCE";
 	String DEFAULT_FEATURE_PATTERN = "*.json";
 	String DEFAULT_SKIP_PATTERNS = "00-*.json,bootstrap.json";
@@ -60,11 +63,23 @@ interface DirectoryInstallerConfig {
 	String scan_mode();
 
 	@AttributeDefinition(name = "Scan Interval",
-		description = "Polling interval in seconds (WATCH mode)",
+		description = "Polling interval in seconds (WATCH mode, when file system events are not used)",
 		required = false, defaultValue = "10",
 		type = AttributeType.LONG)
 	long scan_interval();
 
+	@AttributeDefinition(name = "Watch Events",
+		description = "Whether WATCH mode reacts to file system events instead of polling. Polling is used anyway where the file system does not support watching.",
+		required = false, defaultValue = "true",
+		type = AttributeType.BOOLEAN)
+	boolean watch_events();
+
+	@AttributeDefinition(name = "Watch Debounce",
+		description = "Milliseconds without further file system events before the directories are rescanned (WATCH mode)",
+		required = false, defaultValue = "500",
+		type = AttributeType.LONG)
+	long watch_debounce();
+
 	@AttributeDefinition(name = "Feature Pattern",
 		description = "Glob pattern for feature files",
 		required = false, defaultValue = DEFAULT_FEATURE_PATTERN)
@@ -36,7 +36,10 @@ public class FeatureDirectoryInstallerActivator implements BundleActivator {
 	static final String PROP_FEATURE_PATTERN = DirectoryInstallerConfig.PROP_FEATURE_PATTERN;
 	static final String PROP_SKIP_PATTERNS = DirectoryInstallerConfig.PROP_SKIP_PATTERNS;
 	static final String PROP_ARTIFACTS_DIR = DirectoryInstallerConfig.PROP_ARTIFACTS_DIR;
+	static final String PROP_WATCH_EVENTS = DirectoryInstallerConfig.PROP_WATCH_EVENTS;
+	static final String PROP_WATCH_DEBOUNCE = DirectoryInstallerConfig.PROP_WATCH_DEBOUNCE;
 	static final long DEFAULT_SCAN_INTERVAL = DirectoryInstallerConfig.DEFAULT_SCAN_INTERVAL;
+	static final long DEFAULT_WATCH_DEBOUNCE = DirectoryInstallerConfig.DEFAULT_WATCH_DEBOUNCE;
 
 	private ServiceTracker<FeatureRuntime, FeatureDirectoryWatcher> tracker;
 
@@ -50,6 +53,10 @@ public class FeatureDirectoryInstallerActivator implements BundleActivator {
 		String featurePattern = context.getProperty(PROP_FEATURE_PATTERN);
 		String skipPatterns = context.getProperty(PROP_SKIP_PATTERNS);
 		String artifactsDir = context.getProperty(PROP_ARTIFACTS_DIR);
+		String watchEventsProp = context.getProperty(PROP_WATCH_EVENTS);
+		boolean watchEvents = watchEventsProp == null || watchEventsProp.isEmpty()
+				|| Boolean.parseBoolean(watchEventsProp.trim());
+		long debounce = parseLong(context.getProperty(PROP_WATCH_DEBOUNCE), DEFAULT_WATCH_DEBOUNCE);
 
 		LOG.info("Configuration: {}={}", PROP_FEATURES_DIR, featuresDir);
 		LOG.info("Configuration: {}={}", PROP_REPO_DIR, repoDir);
@@ -58,6 +65,8 @@ public class FeatureDirectoryInstallerActivator implements BundleActivator {
 		LOG.info("Configuration: {}={}", PROP_FEATURE_PATTERN, featurePattern);
 		LOG.info("Configuration: {}={}", PROP_SKIP_PATTERNS, skipPatterns);
 		LOG.info("Configuration: {}={}", PROP_ARTIFACTS_DIR, artifactsDir);
+		LOG.info("Configuration: {}={}", PROP_WATCH_EVENTS, watchEvents);
+		LOG.info("Configuration: {}={}", PROP_WATCH_DEBOUNCE, debounce);
 
 		if (featuresDir == null || featuresDir.isEmpty()) {
 			LOG.warn("No features directory configured ({} is not set)", PROP_FEATURES_DIR);
@@ -74,7 +83,7 @@ public class FeatureDirectoryInstallerActivator implements BundleActivator {
 				if (runtime != null) {
 					LOG.info("FeatureRuntime service available, starting directory watcher");
 					FeatureDirectoryWatcher watcher = new FeatureDirectoryWatcher(runtime, featuresDir, repoDir,
-							scanMode, interval, featurePattern, skipPatterns, artifactsDir);
+							scanMode, interval, featurePattern, skipPatterns, artifactsDir, watchEvents, debounce);
 					watcher.start();
 					return watcher;
 				}
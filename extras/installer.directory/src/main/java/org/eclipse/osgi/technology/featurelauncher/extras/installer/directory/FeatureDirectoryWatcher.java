@@ -9,19 +9,42 @@
  */
 package org.eclipse.osgi.technology.featurelauncher.extras.installer.directory;
 
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import org.osgi.service.feature.ID;
@@ -33,6 +56,12 @@ import org.slf4j.LoggerFactory;
 /**
  * Watches a directory for feature JSON files and installs/updates/removes them
  * via FeatureRuntime.
+ * <p>
+ * In WATCH mode the directories are watched with a {@link WatchService}, and
+ * rescanned once no further events arrived for the debounce delay, so that a
+ * file still being written is not picked up half way. Where the file system
+ * does not support watching, or when events are disabled, the directories are
+ * polled at the scan interval instead.
  */
 class FeatureDirectoryWatcher {
 
@@ -51,6 +80,9 @@ class FeatureDirectoryWatcher {
 
 	private static final String DEFAULT_PATTERN = "*.json";
 	private static final String DEFAULT_SKIP_PATTERNS = "";
+	// The number of files read and parsed at a time, which also bounds how
+	// many prepared changes wait to be applied
+	private static final int PARSE_PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
 
 	private final FeatureRuntime featureRuntime;
 	private final Path featuresDir;
@@ -60,15 +92,28 @@ class FeatureDirectoryWatcher {
 	private final String featurePattern;
 	private final String[] skipPatterns;
 	private final Path artifactsDir;
+	private final boolean watchEvents;
+	private final long debounceMillis;
 
 	private final List<Path> discoveredRepoDirs = new ArrayList<>();
 	private final List<Path> discoveredFeatureDirs = new ArrayList<>();
 
 	private final Map<Path, TrackedFeature> trackedFeatures = new HashMap<>();
 	private volatile Thread watchThread;
+	// Reads, hashes and parses the changed files of a scan
+	private volatile ExecutorService prepareExecutor;
+	private volatile WatchService watchService;
+	private volatile ScanSummary lastScan;
 
 	FeatureDirectoryWatcher(FeatureRuntime featureRuntime, String featuresDir, String repoDir, String scanMode,
 			long intervalSeconds, String featurePattern, String skipPatternsStr, String artifactsDir) {
+		this(featureRuntime, featuresDir, repoDir, scanMode, intervalSeconds, featurePattern, skipPatternsStr,
+				artifactsDir, true, FeatureDirectoryInstallerActivator.DEFAULT_WATCH_DEBOUNCE);
+	}
+
+	FeatureDirectoryWatcher(FeatureRuntime featureRuntime, String featuresDir, String repoDir, String scanMode,
+			long intervalSeconds, String featurePattern, String skipPatternsStr, String artifactsDir,
+			boolean watchEvents, long debounceMillis) {
 		this.featureRuntime = featureRuntime;
 		this.featuresDir = Paths.get(featuresDir);
 		this.repoDir = repoDir != null && !repoDir.isEmpty() ? Paths.get(repoDir) : null;
@@ -85,6 +130,9 @@ class FeatureDirectoryWatcher {
 		}
 
 		this.artifactsDir = artifactsDir != null && !artifactsDir.isEmpty() ? Paths.get(artifactsDir) : null;
+		this.watchEvents = watchEvents;
+		this.debounceMillis = debounceMillis >= 0 ? debounceMillis
+				: FeatureDirectoryInstallerActivator.DEFAULT_WATCH_DEBOUNCE;
 	}
 
 	void start() {
@@ -97,26 +145,108 @@ class FeatureDirectoryWatcher {
 
 		discoverArtifacts();
 
+		// registered before the first scan, so that no change in between is missed
+		WatchService ws = ScanMode.WATCH == scanMode && watchEvents ? openWatchService() : null;
+
+		prepareExecutor = Executors.newFixedThreadPool(PARSE_PARALLELISM,
+				Thread.ofVirtual().name("FeatureDirectoryWatcher-parse-", 1).factory());
+
 		scan();
 
-		if (ScanMode.WATCH == scanMode) {
-			watchThread = Thread.ofVirtual().name("FeatureDirectoryWatcher").start(() -> {
-				LOG.info("WATCH mode active - polling every {} seconds", intervalSeconds);
-				Duration interval = Duration.ofSeconds(intervalSeconds);
-				while (!Thread.currentThread().isInterrupted()) {
-					try {
-						Thread.sleep(interval);
-					} catch (InterruptedException e) {
-						Thread.currentThread().interrupt();
-						break;
-					}
-					scan();
+		if (ScanMode.ONCE == scanMode) {
+			shutdownPrepareExecutor();
+		}
+
+		if (ws != null) {
+			watchService = ws;
+			watchThread = Thread.ofVirtual().name("FeatureDirectoryWatcher").start(() -> watchEvents(ws));
+		} else if (ScanMode.WATCH == scanMode) {
+			watchThread = Thread.ofVirtual().name("FeatureDirectoryWatcher").start(this::poll);
+		}
+	}
+
+	/**
+	 * @return a watch service on all feature directories, or <code>null</code>
+	 *         if the file system does not support it
+	 */
+	private WatchService openWatchService() {
+		List<Path> dirs = new ArrayList<>();
+		dirs.add(featuresDir);
+		dirs.addAll(discoveredFeatureDirs);
+
+		WatchService ws = null;
+		try {
+			ws = featuresDir.getFileSystem().newWatchService();
+			for (Path dir : dirs) {
+				dir.register(ws, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+			}
+			return ws;
+		} catch (IOException | UnsupportedOperationException e) {
+			LOG.warn("Cannot watch the feature directories for changes, falling back to polling", e);
+			if (ws != null) {
+				try {
+					ws.close();
+				} catch (IOException ce) {
+					LOG.debug("Failed to close the watch service", ce);
+				}
+			}
+			return null;
+		}
+	}
+
+	private void watchEvents(WatchService ws) {
+		LOG.info("WATCH mode active - watching for file system events, debounce {} ms", debounceMillis);
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				drain(ws.take());
+
+				// wait until the directories are quiet, writers may still be busy
+				WatchKey key;
+				while ((key = ws.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+					drain(key);
 				}
-			});
+				scan();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// stopped
+		}
+	}
+
+	private void drain(WatchKey key) {
+		// The events only trigger a scan, which finds out what changed. An
+		// overflow is handled the same way.
+		key.pollEvents();
+		if (!key.reset()) {
+			LOG.warn("Feature directory is no longer watched: {}", key.watchable());
+		}
+	}
+
+	private void poll() {
+		LOG.info("WATCH mode active - polling every {} seconds", intervalSeconds);
+		Duration interval = Duration.ofSeconds(intervalSeconds);
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				Thread.sleep(interval);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			scan();
 		}
 	}
 
 	void stop() {
+		WatchService ws = watchService;
+		if (ws != null) {
+			try {
+				ws.close();
+			} catch (IOException e) {
+				LOG.debug("Failed to close the watch service", e);
+			}
+			watchService = null;
+		}
 		Thread t = watchThread;
 		if (t != null) {
 			t.interrupt();
@@ -127,43 +257,182 @@ class FeatureDirectoryWatcher {
 			}
 			watchThread = null;
 		}
+		shutdownPrepareExecutor();
 		LOG.info("Directory watcher stopped");
 	}
 
+	private void shutdownPrepareExecutor() {
+		ExecutorService executor = prepareExecutor;
+		if (executor != null) {
+			executor.shutdownNow();
+			prepareExecutor = null;
+		}
+	}
+
+	/**
+	 * Bring the installed features in line with the directories. Changed files
+	 * are read, hashed and parsed in parallel, while the calls which modify
+	 * the runtime are made one at a time, in file name order.
+	 */
 	private void scan() {
+		long start = System.nanoTime();
+		int files = 0;
+		int removed = 0;
+		Map<Outcome, Integer> outcomes = new EnumMap<>(Outcome.class);
 		try {
 			List<Path> currentFiles = collectFeatureFiles();
 			Set<Path> currentSet = new HashSet<>(currentFiles);
+			files = currentFiles.size();
 
-			Set<Path> removed = new HashSet<>(trackedFeatures.keySet());
-			removed.removeAll(currentSet);
-			for (Path path : removed) {
+			Set<Path> removedPaths = new HashSet<>(trackedFeatures.keySet());
+			removedPaths.removeAll(currentSet);
+			for (Path path : removedPaths) {
 				TrackedFeature tracked = trackedFeatures.remove(path);
 				if (tracked != null && tracked.featureId != null) {
 					LOG.info("Feature file removed: {}", path.getFileName());
 					try {
 						featureRuntime.remove(tracked.featureId);
 						LOG.info("Successfully removed feature: {}", tracked.featureId);
+						removed++;
 					} catch (Exception e) {
 						LOG.error("Failed to remove feature: {}", tracked.featureId, e);
+						outcomes.merge(Outcome.FAILED, 1, Integer::sum);
 					}
 				}
 			}
 
-			for (Path path : currentFiles) {
-				long lastModified = Files.getLastModifiedTime(path).toMillis();
-				long size = Files.size(path);
+			prepareChanges(currentFiles, change -> outcomes.merge(apply(change), 1, Integer::sum));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (Exception e) {
+			LOG.error("Error during directory scan", e);
+			outcomes.merge(Outcome.FAILED, 1, Integer::sum);
+		}
+
+		int installed = outcomes.getOrDefault(Outcome.INSTALLED, 0);
+		int updated = outcomes.getOrDefault(Outcome.UPDATED, 0);
+		int failed = outcomes.getOrDefault(Outcome.FAILED, 0);
 
-				TrackedFeature tracked = trackedFeatures.get(path);
-				if (tracked == null) {
-					installFeature(path, lastModified, size);
-				} else if (tracked.lastModified != lastModified || tracked.size != size) {
-					LOG.info("Feature file changed: {}", path.getFileName());
-					updateFeature(path, tracked, lastModified, size);
+		ScanSummary summary = new ScanSummary(files, installed, updated, removed, failed,
+				Duration.ofNanos(System.nanoTime() - start));
+		lastScan = summary;
+		if (installed + updated + removed + failed > 0) {
+			LOG.info("Scan converged in {} ms - files={}, installed={}, updated={}, removed={}, failed={}",
+					summary.duration().toMillis(), files, installed, updated, removed, failed);
+		} else {
+			LOG.debug("Scan found no changes in {} ms - files={}", summary.duration().toMillis(), files);
+		}
+	}
+
+	/**
+	 * @return the summary of the last completed scan, or <code>null</code>
+	 *         before the first one
+	 */
+	ScanSummary lastScan() {
+		return lastScan;
+	}
+
+	/**
+	 * Apply a prepared change to the runtime
+	 */
+	private Outcome apply(Change change) {
+		if (change.error != null) {
+			if (change.error instanceof IOException) {
+				LOG.error("Failed to read feature file: {}", change.path.getFileName(), change.error);
+			} else {
+				LOG.error("Failed to parse feature file: {}", change.path.getFileName(), change.error);
+			}
+			return Outcome.FAILED;
+		} else if (change.installBuilder == null && change.updateBuilder == null) {
+			LOG.debug("Feature file touched, content unchanged: {}", change.path.getFileName());
+			trackedFeatures.put(change.path, new TrackedFeature(change.tracked.featureId, change.file));
+			return Outcome.UNCHANGED;
+		} else if (change.installBuilder != null) {
+			return installFeature(change) ? Outcome.INSTALLED : Outcome.FAILED;
+		} else {
+			LOG.info("Feature file changed: {}", change.path.getFileName());
+			return updateFeature(change) ? Outcome.UPDATED : Outcome.FAILED;
+		}
+	}
+
+	/**
+	 * Find the files which are new or whose content changed, reading, hashing
+	 * and parsing them in parallel. At most {@link #PARSE_PARALLELISM} files
+	 * are prepared ahead of the one being applied, so that the content of a
+	 * large directory is never held at once.
+	 *
+	 * @param action called with each change, in the order of the given files
+	 */
+	private void prepareChanges(List<Path> currentFiles, Consumer<Change> action) throws InterruptedException {
+		List<Path> candidates = new ArrayList<>();
+		for (Path path : currentFiles) {
+			TrackedFeature tracked = trackedFeatures.get(path);
+			// Unchanged metadata is taken as unchanged content, anything else
+			// is decided by the content hash
+			if (tracked == null || !tracked.file.sameMetadata(path)) {
+				candidates.add(path);
+			}
+		}
+
+		ExecutorService executor = prepareExecutor;
+		if (candidates.size() <= 1 || executor == null) {
+			for (Path path : candidates) {
+				action.accept(prepare(path, trackedFeatures.get(path)));
+			}
+			return;
+		}
+
+		Deque<Future<Change>> pending = new ArrayDeque<>();
+		Iterator<Path> remaining = candidates.iterator();
+		try {
+			while (remaining.hasNext() || !pending.isEmpty()) {
+				while (remaining.hasNext() && pending.size() < PARSE_PARALLELISM) {
+					Path path = remaining.next();
+					// applying a change only updates the tracking of its own file
+					TrackedFeature tracked = trackedFeatures.get(path);
+					pending.add(executor.submit(() -> prepare(path, tracked)));
 				}
+				try {
+					action.accept(pending.remove().get());
+				} catch (ExecutionException e) {
+					// not expected, prepare reports its failures in the change
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		} catch (RejectedExecutionException e) {
+			// stopped while scanning
+			throw new InterruptedException();
+		} finally {
+			pending.forEach(f -> f.cancel(true));
+		}
+	}
+
+	/**
+	 * Read, hash and parse a file. Called from the parsing threads, so it must
+	 * not touch the tracked features.
+	 */
+	private Change prepare(Path path, TrackedFeature tracked) {
+		try {
+			// the metadata is read first, so that a write racing with this
+			// scan is seen again by the next one
+			long lastModified = Files.getLastModifiedTime(path).toMillis();
+			long size = Files.size(path);
+			byte[] content = Files.readAllBytes(path);
+			FileState file = new FileState(lastModified, size, sha256(content));
+
+			if (tracked != null && tracked.file.hash().equals(file.hash())) {
+				// touched, or rewritten with the same content
+				return new Change(path, tracked, file, null, null, null);
+			}
+
+			Reader reader = new StringReader(new String(content, StandardCharsets.UTF_8));
+			if (tracked == null) {
+				return new Change(path, null, file, featureRuntime.install(reader), null, null);
 			}
+			return new Change(path, tracked, file, null, featureRuntime.update(tracked.featureId, reader), null);
 		} catch (Exception e) {
-			LOG.error("Error during directory scan", e);
+			return new Change(path, tracked, null, null, null, e);
 		}
 	}
 
@@ -216,45 +485,49 @@ class FeatureDirectoryWatcher {
 		}
 	}
 
-	private void installFeature(Path featureFile, long lastModified, long size) {
-		String filename = featureFile.getFileName().toString();
+	private boolean installFeature(Change change) {
+		String filename = change.path.getFileName().toString();
 		LOG.info("Installing feature: {}", filename);
 
-		try (Reader reader = Files.newBufferedReader(featureFile)) {
-			FeatureRuntime.InstallOperationBuilder builder = featureRuntime.install(reader);
-
-			configureRepositories(builder);
+		try {
+			configureRepositories(change.installBuilder);
 
-			InstalledFeature installed = builder.install();
+			InstalledFeature installed = change.installBuilder.install();
 			ID featureId = installed.getFeature().getID();
 
-			trackedFeatures.put(featureFile, new TrackedFeature(featureId, lastModified, size));
+			trackedFeatures.put(change.path, new TrackedFeature(featureId, change.file));
 			LOG.info("Successfully installed feature: {} (ID: {})", filename, featureId);
-		} catch (IOException e) {
-			LOG.error("Failed to read feature file: {}", filename, e);
+			return true;
 		} catch (Exception e) {
 			LOG.error("Failed to install feature: {}", filename, e);
+			return false;
 		}
 	}
 
-	private void updateFeature(Path featureFile, TrackedFeature tracked, long lastModified, long size) {
-		String filename = featureFile.getFileName().toString();
+	private boolean updateFeature(Change change) {
+		String filename = change.path.getFileName().toString();
 		LOG.info("Updating feature: {}", filename);
 
-		try (Reader reader = Files.newBufferedReader(featureFile)) {
-			FeatureRuntime.UpdateOperationBuilder builder = featureRuntime.update(tracked.featureId, reader);
-
-			configureRepositories(builder);
+		try {
+			configureRepositories(change.updateBuilder);
 
-			InstalledFeature updated = builder.update();
+			InstalledFeature updated = change.updateBuilder.update();
 			ID featureId = updated.getFeature().getID();
 
-			trackedFeatures.put(featureFile, new TrackedFeature(featureId, lastModified, size));
+			trackedFeatures.put(change.path, new TrackedFeature(featureId, change.file));
 			LOG.info("Successfully updated feature: {} (ID: {})", filename, featureId);
-		} catch (IOException e) {
-			LOG.error("Failed to read feature file: {}", filename, e);
+			return true;
 		} catch (Exception e) {
 			LOG.error("Failed to update feature: {}", filename, e);
+			return false;
+		}
+	}
+
+	private static String sha256(byte[] content) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
 		}
 	}
 
@@ -307,6 +580,43 @@ class FeatureDirectoryWatcher {
 				discoveredRepoDirs.size(), discoveredFeatureDirs.size());
 	}
 
-	private record TrackedFeature(ID featureId, long lastModified, long size) {
+	/**
+	 * The outcome of one scan
+	 *
+	 * @param files the number of feature files found
+	 * @param installed the number of features installed
+	 * @param updated the number of features updated
+	 * @param removed the number of features removed
+	 * @param failed the number of files or features which failed
+	 * @param duration the time until the runtime matched the directories
+	 */
+	record ScanSummary(int files, int installed, int updated, int removed, int failed, Duration duration) {
+	}
+
+	private enum Outcome {
+		UNCHANGED, INSTALLED, UPDATED, FAILED
+	}
+
+	private record FileState(long lastModified, long size, String hash) {
+
+		boolean sameMetadata(Path path) {
+			try {
+				return lastModified == Files.getLastModifiedTime(path).toMillis() && size == Files.size(path);
+			} catch (IOException e) {
+				return false;
+			}
+		}
+	}
+
+	private record TrackedFeature(ID featureId, FileState file) {
+	}
+
+	/**
+	 * A new or changed file, prepared for the runtime. Without a builder or
+	 * an error only the file metadata changed.
+	 */
+	private record Change(Path path, TrackedFeature tracked, FileState file,
+			FeatureRuntime.InstallOperationBuilder installBuilder, FeatureRuntime.UpdateOperationBuilder updateBuilder,
+			Exception error) {
 	}
 }
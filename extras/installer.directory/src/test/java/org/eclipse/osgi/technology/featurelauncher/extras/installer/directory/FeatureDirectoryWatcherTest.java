@@ -10,6 +10,7 @@
 package org.eclipse.osgi.technology.featurelauncher.extras.installer.directory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -23,6 +24,8 @@ import static org.mockito.Mockito.when;
 import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -206,6 +209,89 @@ class FeatureDirectoryWatcherTest {
 		watcher.stop();
 	}
 
+	@Test
+	void watchMode_eventsDetectNewFileBeforeInterval() throws Exception {
+		FeatureDirectoryWatcher watcher = new FeatureDirectoryWatcher(featureRuntime, tempDir.toString(), null, "WATCH",
+				60, null, null, null, true, 100);
+		watcher.start();
+
+		verify(featureRuntime, never()).install(any(Reader.class));
+
+		Files.writeString(tempDir.resolve("10-app.json"), "{}");
+
+		verify(featureRuntime, timeout(3000).times(1)).install(any(Reader.class));
+
+		watcher.stop();
+	}
+
+	@Test
+	void watchMode_eventsDetectFileInDiscoveredFeatureDir() throws Exception {
+		Path featuresDir = Files.createDirectories(tempDir.resolve("features"));
+		Path artifactFeatures = Files.createDirectories(tempDir.resolve("artifacts/app/features"));
+
+		FeatureDirectoryWatcher watcher = new FeatureDirectoryWatcher(featureRuntime, featuresDir.toString(), null,
+				"WATCH", 60, null, null, tempDir.resolve("artifacts").toString(), true, 100);
+		watcher.start();
+
+		Files.writeString(artifactFeatures.resolve("10-app.json"), "{}");
+
+		verify(featureRuntime, timeout(3000).times(1)).install(any(Reader.class));
+
+		watcher.stop();
+	}
+
+	@Test
+	void watchMode_pollingWhenEventsDisabled() throws Exception {
+		FeatureDirectoryWatcher watcher = new FeatureDirectoryWatcher(featureRuntime, tempDir.toString(), null, "WATCH",
+				1, null, null, null, false, 100);
+		watcher.start();
+
+		Files.writeString(tempDir.resolve("10-app.json"), "{}");
+
+		verify(featureRuntime, timeout(3000).times(1)).install(any(Reader.class));
+
+		watcher.stop();
+	}
+
+	@Test
+	void watchMode_ignoresTouchWithSameContent() throws Exception {
+		Path featureFile = tempDir.resolve("10-app.json");
+		Files.writeString(featureFile, "{}");
+
+		FeatureDirectoryWatcher watcher = new FeatureDirectoryWatcher(featureRuntime, tempDir.toString(), null, "WATCH",
+				1, null, null, null, false, 100);
+		watcher.start();
+
+		verify(featureRuntime, times(1)).install(any(Reader.class));
+
+		Thread.sleep(1100);
+		Files.writeString(featureFile, "{}");
+		Files.setLastModifiedTime(featureFile, FileTime.fromMillis(System.currentTimeMillis()));
+
+		Thread.sleep(2500);
+		verify(featureRuntime, never()).update(any(ID.class), any(Reader.class));
+		verify(featureRuntime, times(1)).install(any(Reader.class));
+
+		watcher.stop();
+	}
+
+	@Test
+	void scanSummary_reportsConvergence() throws Exception {
+		Files.writeString(tempDir.resolve("10-first.json"), "{}");
+		Files.writeString(tempDir.resolve("20-second.json"), "{}");
+		Files.writeString(tempDir.resolve("30-third.json"), "{}");
+
+		FeatureDirectoryWatcher watcher = new FeatureDirectoryWatcher(featureRuntime, tempDir.toString(), null, "ONCE",
+				30, null, null, null);
+		watcher.start();
+
+		FeatureDirectoryWatcher.ScanSummary summary = watcher.lastScan();
+		assertEquals(3, summary.files());
+		assertEquals(3, summary.installed());
+		assertEquals(0, summary.failed());
+		verify(installBuilder, times(3)).install();
+	}
+
 	@Test
 	void stopShutdownsExecutor() throws Exception {
 		Files.writeString(tempDir.resolve("10-app.json"), "{}");
@@ -265,6 +351,29 @@ class FeatureDirectoryWatcherTest {
 		verify(featureRuntime, times(3)).install(any(Reader.class));
 	}
 
+	@Test
+	void onceMode_boundsParallelParsing() throws Exception {
+		AtomicInteger parsing = new AtomicInteger();
+		AtomicInteger maxParsing = new AtomicInteger();
+		when(featureRuntime.install(any(Reader.class))).thenAnswer(i -> {
+			maxParsing.accumulateAndGet(parsing.incrementAndGet(), Math::max);
+			Thread.sleep(10);
+			parsing.decrementAndGet();
+			return installBuilder;
+		});
+		for (int i = 10; i < 50; i++) {
+			Files.writeString(tempDir.resolve(i + "-feature.json"), "{}");
+		}
+
+		FeatureDirectoryWatcher watcher = new FeatureDirectoryWatcher(featureRuntime, tempDir.toString(), null, "ONCE",
+				30, null, null, null);
+		watcher.start();
+
+		verify(installBuilder, times(40)).install();
+		assertTrue(maxParsing.get() <= Math.max(2, Runtime.getRuntime().availableProcessors()),
+				"At most one file per processor should be parsed at a time");
+	}
+
 	@Test
 	void installFailure_doesNotStopOtherInstalls() throws Exception {
 		when(installBuilder.install()).thenThrow(new RuntimeException("test failure")).thenReturn(installedFeature);
@@ -9,6 +9,9 @@
  */
 package org.eclipse.osgi.technology.featurelauncher.extras.installer.http.simple;
 
+import java.io.File;
+import java.nio.file.Path;
+
 import org.osgi.annotation.bundle.Header;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
@@ -36,10 +39,14 @@ public class FeatureHttpInstallerActivator implements BundleActivator {
 	static final String PROP_CONNECT_TIMEOUT = HttpInstallerConfig.PROP_CONNECT_TIMEOUT;
 	static final String PROP_REQUEST_TIMEOUT = HttpInstallerConfig.PROP_REQUEST_TIMEOUT;
 	static final String PROP_SERVER_ID = HttpInstallerConfig.PROP_SERVER_ID;
+	static final String PROP_MAX_CONCURRENT_REQUESTS = HttpInstallerConfig.PROP_MAX_CONCURRENT_REQUESTS;
 
 	static final long DEFAULT_SCAN_INTERVAL = HttpInstallerConfig.DEFAULT_SCAN_INTERVAL;
 	static final long DEFAULT_CONNECT_TIMEOUT = HttpInstallerConfig.DEFAULT_CONNECT_TIMEOUT;
 	static final long DEFAULT_REQUEST_TIMEOUT = HttpInstallerConfig.DEFAULT_REQUEST_TIMEOUT;
+	static final long DEFAULT_MAX_CONCURRENT_REQUESTS = HttpInstallerConfig.DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+	static final String STATE_FILE = "feature-http-state.properties";
 
 	private ServiceTracker<FeatureRuntime, FeatureHttpWatcher> tracker;
 
@@ -52,9 +59,13 @@ public class FeatureHttpInstallerActivator implements BundleActivator {
 		long interval = parseLong(context.getProperty(PROP_SCAN_INTERVAL), DEFAULT_SCAN_INTERVAL);
 		long connectTimeout = parseLong(context.getProperty(PROP_CONNECT_TIMEOUT), DEFAULT_CONNECT_TIMEOUT);
 		long requestTimeout = parseLong(context.getProperty(PROP_REQUEST_TIMEOUT), DEFAULT_REQUEST_TIMEOUT);
+		long maxConcurrentRequests = parseLong(context.getProperty(PROP_MAX_CONCURRENT_REQUESTS),
+				DEFAULT_MAX_CONCURRENT_REQUESTS);
 
 		String serverId = context.getProperty(PROP_SERVER_ID);
 		String frameworkId = context.getProperty(Constants.FRAMEWORK_UUID);
+		File dataFile = context.getDataFile(STATE_FILE);
+		Path stateFile = dataFile != null ? dataFile.toPath() : null;
 
 		LOG.info("Configuration: {}={}", PROP_FEATURES_URL, featuresUrl);
 		LOG.info("Configuration: {}={}", PROP_REPO_DIR, repoDir);
@@ -62,8 +73,10 @@ public class FeatureHttpInstallerActivator implements BundleActivator {
 		LOG.info("Configuration: {}={}", PROP_SCAN_INTERVAL, interval);
 		LOG.info("Configuration: {}={}", PROP_CONNECT_TIMEOUT, connectTimeout);
 		LOG.info("Configuration: {}={}", PROP_REQUEST_TIMEOUT, requestTimeout);
+		LOG.info("Configuration: {}={}", PROP_MAX_CONCURRENT_REQUESTS, maxConcurrentRequests);
 		LOG.info("Configuration: {}={}", PROP_SERVER_ID, serverId);
 		LOG.info("Configuration: {}={}", Constants.FRAMEWORK_UUID, frameworkId);
+		LOG.debug("State file: {}", stateFile);
 
 		if (featuresUrl == null || featuresUrl.isEmpty()) {
 			LOG.warn("No features URL configured ({} is not set)", PROP_FEATURES_URL);
@@ -80,7 +93,8 @@ public class FeatureHttpInstallerActivator implements BundleActivator {
 				if (runtime != null) {
 					LOG.info("FeatureRuntime service available, starting HTTP watcher");
 					FeatureHttpWatcher watcher = new FeatureHttpWatcher(runtime, featuresUrl, repoDir, scanMode,
-							interval, connectTimeout, requestTimeout, serverId, frameworkId);
+							interval, connectTimeout, requestTimeout, serverId, frameworkId, maxConcurrentRequests,
+							stateFile);
 					watcher.start();
 					return watcher;
 				}
@@ -9,7 +9,15 @@
  */
 package org.eclipse.osgi.technology.featurelauncher.extras.installer.http.simple;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
@@ -19,6 +27,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -28,7 +37,16 @@ import java.util.HexFormat;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.osgi.service.feature.ID;
 import org.osgi.service.featurelauncher.runtime.FeatureRuntime;
@@ -36,6 +54,9 @@ import org.osgi.service.featurelauncher.runtime.InstalledFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.grack.nanojson.JsonParserException;
+import com.grack.nanojson.JsonReader;
+
 /**
  * Fetches feature JSON files via HTTP and installs/updates/removes them
  * via FeatureRuntime.
@@ -45,6 +66,8 @@ import org.slf4j.LoggerFactory;
  * <ul>
  * <li><b>ONCE</b> - Fetch the feature list once and install all features found</li>
  * <li><b>WATCH</b> - Initial fetch + periodic polling for changes</li>
+ * <li><b>PUSH</b> - Initial fetch + a scan for every server-sent event received
+ * from the features URL, with a periodic full scan as consistency check</li>
  * </ul>
  *
  * <p>
@@ -60,18 +83,44 @@ import org.slf4j.LoggerFactory;
  * <p>
  * On startup the watcher checks {@link FeatureRuntime#getInstalledFeatures()}
  * to avoid reinstalling features that are already present in the runtime.
+ *
+ * <p>
+ * The feature list and the features are revalidated with conditional requests,
+ * using the <code>ETag</code> and <code>Last-Modified</code> headers of the
+ * previous response, so that unchanged content costs a <code>304</code>
+ * without a body. Bodies are hashed while they are read and parsed from the
+ * received bytes. The validators are kept in an optional state file across
+ * restarts.
+ *
+ * <p>
+ * The features are fetched concurrently over HTTP/2 where the server supports
+ * it, with a bounded number of requests in flight, and the results are applied
+ * to the {@link FeatureRuntime} in list order. A URL that fails is skipped for
+ * an exponentially growing number of scans.
+ *
+ * <p>
+ * In PUSH mode the features URL is also requested with
+ * <code>Accept: text/event-stream</code>. A server supporting it keeps the
+ * response open and sends an event whenever the list or a feature changes,
+ * e.g. <code>data: changed</code>; the content of the events is not
+ * interpreted. A lost connection is reestablished with a jittered backoff. A
+ * server answering without an event stream is not asked again, the watcher
+ * then falls back to polling at the scan interval as in WATCH mode.
  */
 class FeatureHttpWatcher {
 
 	private static final Logger LOG = LoggerFactory.getLogger(FeatureHttpWatcher.class);
 
 	enum ScanMode {
-		ONCE, WATCH;
+		ONCE, WATCH, PUSH;
 
 		static ScanMode fromString(String value) {
 			if (value != null && value.equalsIgnoreCase(WATCH.name())) {
 				return WATCH;
 			}
+			if (value != null && value.equalsIgnoreCase(PUSH.name())) {
+				return PUSH;
+			}
 			return ONCE;
 		}
 	}
@@ -87,12 +136,46 @@ class FeatureHttpWatcher {
 	private final Duration requestTimeout;
 	private final HttpClient httpClient;
 
+	private final Path stateFile;
+
 	private final Map<String, TrackedFeature> trackedFeatures = new HashMap<>();
+	private Map<String, TrackedFeature> savedFeatures;
+	private TrackedFeature featureList;
+	private List<FeatureEntry> featureEntries = List.of();
 	private volatile Thread watchThread;
+	private volatile Thread pushThread;
+	private volatile InputStream pushStream;
+	private final Semaphore scanRequests = new Semaphore(0);
+
+	private final Semaphore permits;
+	private final Map<URI, Backoff> backoffs = new ConcurrentHashMap<>();
+
+	// per scan counters, updated by the responses in flight
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger notModified = new AtomicInteger();
+	private final AtomicInteger deferred = new AtomicInteger();
+	private final AtomicLong bytesTransferred = new AtomicLong();
+	private volatile ScanSummary lastScan;
 
 	FeatureHttpWatcher(FeatureRuntime featureRuntime, String featuresUrl, String repoDir,
 			String scanMode, long intervalSeconds, long connectTimeoutSeconds,
 			long requestTimeoutSeconds, String serverId, String frameworkId) {
+		this(featureRuntime, featuresUrl, repoDir, scanMode, intervalSeconds, connectTimeoutSeconds,
+				requestTimeoutSeconds, serverId, frameworkId,
+				FeatureHttpInstallerActivator.DEFAULT_MAX_CONCURRENT_REQUESTS, null);
+	}
+
+	/**
+	 * @param maxConcurrentRequests the number of feature requests that may be
+	 *            in flight at the same time
+	 * @param stateFile the file in which the entity tags, modification dates
+	 *            and content hashes of the tracked features are kept across
+	 *            restarts, or <code>null</code> to keep them in memory only
+	 */
+	FeatureHttpWatcher(FeatureRuntime featureRuntime, String featuresUrl, String repoDir,
+			String scanMode, long intervalSeconds, long connectTimeoutSeconds,
+			long requestTimeoutSeconds, String serverId, String frameworkId, long maxConcurrentRequests,
+			Path stateFile) {
 		this.featureRuntime = featureRuntime;
 		this.featuresUrl = buildFeaturesUrl(featuresUrl, serverId, frameworkId);
 		this.repoDir = repoDir != null && !repoDir.isEmpty() ? Paths.get(repoDir) : null;
@@ -107,7 +190,12 @@ class FeatureHttpWatcher {
 						connectTimeoutSeconds > 0 ? connectTimeoutSeconds
 								: FeatureHttpInstallerActivator.DEFAULT_CONNECT_TIMEOUT))
 				.followRedirects(HttpClient.Redirect.NORMAL)
+				.version(HttpClient.Version.HTTP_2)
 				.build();
+		this.permits = new Semaphore((int) (maxConcurrentRequests > 0 ? maxConcurrentRequests
+				: FeatureHttpInstallerActivator.DEFAULT_MAX_CONCURRENT_REQUESTS));
+		this.stateFile = stateFile;
+		this.savedFeatures = loadState();
 	}
 
 	void start() {
@@ -115,13 +203,20 @@ class FeatureHttpWatcher {
 
 		scan();
 
-		if (ScanMode.WATCH == scanMode) {
+		if (ScanMode.ONCE != scanMode) {
 			watchThread = Thread.ofVirtual().name("FeatureHttpWatcher").start(() -> {
-				LOG.info("WATCH mode active - polling every {} seconds", intervalSeconds);
+				if (ScanMode.PUSH == scanMode) {
+					LOG.info("PUSH mode active - full scan every {} seconds", intervalSeconds);
+				} else {
+					LOG.info("WATCH mode active - polling every {} seconds", intervalSeconds);
+				}
 				Duration interval = Duration.ofSeconds(intervalSeconds);
 				while (!Thread.currentThread().isInterrupted()) {
 					try {
-						Thread.sleep(interval);
+						if (scanRequests.tryAcquire(interval.toNanos(), TimeUnit.NANOSECONDS)) {
+							// notifications received during the last scan are covered by this one
+							scanRequests.drainPermits();
+						}
 					} catch (InterruptedException e) {
 						Thread.currentThread().interrupt();
 						break;
@@ -130,23 +225,167 @@ class FeatureHttpWatcher {
 				}
 			});
 		}
+		if (ScanMode.PUSH == scanMode) {
+			pushThread = Thread.ofVirtual().name("FeatureHttpWatcher-push").start(this::listen);
+		}
 	}
 
 	void stop() {
+		Thread p = pushThread;
+		if (p != null) {
+			p.interrupt();
+			closePushStream();
+			join(p);
+			pushThread = null;
+		}
 		Thread t = watchThread;
 		if (t != null) {
 			t.interrupt();
+			join(t);
+			watchThread = null;
+		}
+		LOG.info("HTTP watcher stopped");
+	}
+
+	private void join(Thread t) {
+		try {
+			t.join(5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Keeps a server-sent events connection to the features URL and requests
+	 * a scan for every event carrying data. After a lost connection it
+	 * reconnects with a jittered exponential backoff, and requests a scan once
+	 * reconnected, since notifications may have been missed meanwhile. It
+	 * stops once the server answers without an event stream, leaving the
+	 * periodic scan.
+	 */
+	private void listen() {
+		int failures = 0;
+		boolean reconnect = false;
+		while (!Thread.currentThread().isInterrupted()) {
 			try {
-				t.join(5000);
+				switch (receiveEvents(reconnect)) {
+				case CLOSED -> {
+					failures = 0;
+					reconnect = true;
+				}
+				case UNAVAILABLE -> failures++;
+				case UNSUPPORTED -> {
+					LOG.warn("No event stream at {}, falling back to polling every {} seconds", featuresUrl,
+							intervalSeconds);
+					return;
+				}
+				}
 			} catch (InterruptedException e) {
 				Thread.currentThread().interrupt();
+				break;
+			} catch (Exception e) {
+				if (Thread.currentThread().isInterrupted()) {
+					break;
+				}
+				LOG.warn("Push connection to {} failed: {}", featuresUrl, e.toString());
+				failures++;
+			}
+
+			long delay = Math.min(INITIAL_RECONNECT_DELAY.toMillis() << Math.min(failures, 16),
+					MAX_RECONNECT_DELAY.toMillis());
+			try {
+				Thread.sleep(ThreadLocalRandom.current().nextLong(delay / 2, delay + 1));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		LOG.debug("Push listener stopped");
+	}
+
+	private enum StreamOutcome {
+		/** The event stream was established, and later closed */
+		CLOSED,
+		/** The server failed to answer, it may succeed later */
+		UNAVAILABLE,
+		/** The server answered without an event stream */
+		UNSUPPORTED
+	}
+
+	private StreamOutcome receiveEvents(boolean reconnect) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder()
+				.uri(featuresUrl)
+				.timeout(requestTimeout)
+				.header("Accept", EVENT_STREAM)
+				.header("Cache-Control", "no-cache")
+				.GET()
+				.build();
+
+		HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		try (InputStream in = response.body()) {
+			String contentType = response.headers().firstValue("Content-Type").orElse("");
+			int status = response.statusCode();
+			if (status == 429 || status >= 500) {
+				LOG.warn("Push connection to {} failed: HTTP {}", featuresUrl, status);
+				return StreamOutcome.UNAVAILABLE;
+			} else if (status != 200 || !contentType.startsWith(EVENT_STREAM)) {
+				LOG.debug("Push connection to {} answered HTTP {}, {}", featuresUrl, status, contentType);
+				return StreamOutcome.UNSUPPORTED;
+			}
+			pushStream = in;
+			if (Thread.currentThread().isInterrupted()) {
+				return StreamOutcome.CLOSED;
+			}
+			LOG.info("Push connection established: {}", featuresUrl);
+			if (reconnect) {
+				scanRequests.release();
+			}
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			boolean data = false;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					// end of an event, events without data are not dispatched
+					if (data) {
+						LOG.debug("Change notification received from: {}", featuresUrl);
+						scanRequests.release();
+						data = false;
+					}
+				} else if (line.startsWith("data")) {
+					data = true;
+				}
+			}
+			LOG.info("Push connection closed by server: {}", featuresUrl);
+			return StreamOutcome.CLOSED;
+		} finally {
+			pushStream = null;
+		}
+	}
+
+	private void closePushStream() {
+		InputStream in = pushStream;
+		if (in != null) {
+			try {
+				in.close();
+			} catch (IOException e) {
+				LOG.debug("Error closing push connection", e);
 			}
-			watchThread = null;
 		}
-		LOG.info("HTTP watcher stopped");
 	}
 
 	private void scan() {
+		long start = System.nanoTime();
+		requests.set(0);
+		notModified.set(0);
+		deferred.set(0);
+		bytesTransferred.set(0);
+		int installed = 0;
+		int updated = 0;
+		int removed = 0;
+		int failed = 0;
+
+		List<Pending> pending = new ArrayList<>();
 		try {
 			List<FeatureEntry> entries = fetchFeatureEntries();
 			Map<String, FeatureEntry> currentById = new LinkedHashMap<>();
@@ -154,224 +393,316 @@ class FeatureHttpWatcher {
 				currentById.put(entry.id(), entry);
 			}
 
-			// On first scan, reconcile with runtime to avoid duplicate installs
-			if (trackedFeatures.isEmpty() && !currentById.isEmpty()) {
-				reconcileWithRuntime(currentById);
-			}
-
 			// Detect removed feature IDs
-			Set<String> removed = new HashSet<>(trackedFeatures.keySet());
-			removed.removeAll(currentById.keySet());
-			for (String idStr : removed) {
+			Set<String> removedIds = new HashSet<>(trackedFeatures.keySet());
+			removedIds.removeAll(currentById.keySet());
+			for (String idStr : removedIds) {
 				TrackedFeature tracked = trackedFeatures.remove(idStr);
 				if (tracked != null && tracked.featureId() != null) {
 					LOG.info("Feature removed from list: {}", idStr);
 					try {
 						featureRuntime.remove(tracked.featureId());
 						LOG.info("Successfully removed feature: {}", idStr);
+						removed++;
 					} catch (Exception e) {
 						LOG.error("Failed to remove feature: {}", idStr, e);
+						failed++;
 					}
 				}
 			}
 
-			// New or changed
-			for (Map.Entry<String, FeatureEntry> e : currentById.entrySet()) {
-				String idStr = e.getKey();
-				FeatureEntry entry = e.getValue();
+			// Untracked features already present in the runtime are adopted, not installed
+			Map<String, ID> runtimeIds = new HashMap<>();
+			if (!trackedFeatures.keySet().containsAll(currentById.keySet())) {
+				for (InstalledFeature installedFeature : featureRuntime.getInstalledFeatures()) {
+					ID id = installedFeature.getFeature().getID();
+					runtimeIds.put(id.toString(), id);
+				}
+			}
 
-				TrackedFeature tracked = trackedFeatures.get(idStr);
+			// Fetch all features concurrently ...
+			for (FeatureEntry entry : currentById.values()) {
+				TrackedFeature tracked = trackedFeatures.get(entry.id());
+				ID runtimeId = tracked == null ? runtimeIds.get(entry.id()) : null;
+				TrackedFeature validators = null;
 				if (tracked != null) {
-					// Already tracked - check for content changes
-					String content = fetchContent(entry.url());
-					if (content == null) {
+					validators = tracked.validatorsFor(entry.url());
+				} else if (runtimeId != null && savedFeatures.containsKey(entry.id())) {
+					// validators saved by a previous run spare the download
+					validators = savedFeatures.get(entry.id()).validatorsFor(entry.url());
+				}
+				pending.add(new Pending(entry, tracked, runtimeId, fetchFeature(entry.url(), validators)));
+			}
+
+			// ... and apply the results in list order
+			for (Pending p : pending) {
+				String idStr = p.entry().id();
+				URI url = p.entry().url();
+				Fetched fetched = p.fetched().get();
+
+				if (p.tracked() != null) {
+					// Already tracked - the body only comes back if it changed
+					if (fetched == null) {
 						continue;
 					}
-					String contentHash = sha256(content);
-					if (!tracked.contentHash().equals(contentHash)) {
-						LOG.info("Feature content changed: {}", idStr);
-						updateFeature(idStr, tracked, entry.url(), content, contentHash);
+					if (fetched.notModified() || p.tracked().contentHash().equals(fetched.hash())) {
+						trackedFeatures.put(idStr, p.tracked().revalidated(url, fetched));
+						continue;
 					}
-				} else {
-					// Not tracked - check runtime before installing
-					if (isInstalledInRuntime(idStr)) {
-						LOG.info("Feature {} already installed in runtime, tracking", idStr);
-						ID runtimeId = findIdInRuntime(idStr);
-						String content = fetchContent(entry.url());
-						String hash = content != null ? sha256(content) : "";
-						trackedFeatures.put(idStr, new TrackedFeature(runtimeId, hash, entry.url()));
+					LOG.info("Feature content changed: {}", idStr);
+					if (updateFeature(idStr, p.tracked(), url, fetched)) {
+						updated++;
 					} else {
-						String content = fetchContent(entry.url());
-						if (content == null) {
-							continue;
-						}
-						String contentHash = sha256(content);
-						installFeature(idStr, entry.url(), content, contentHash);
+						failed++;
+					}
+				} else if (p.runtimeId() != null) {
+					LOG.info("Feature {} already installed in runtime, tracking", idStr);
+					// a 304 carries the saved hash
+					trackedFeatures.put(idStr, fetched == null
+							? new TrackedFeature(p.runtimeId(), "", url, null, null)
+							: new TrackedFeature(p.runtimeId(), fetched.hash(), url, fetched.etag(),
+									fetched.lastModified()));
+				} else if (fetched != null) {
+					if (installFeature(idStr, url, fetched)) {
+						installed++;
+					} else {
+						failed++;
 					}
 				}
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pending.forEach(p -> p.fetched().cancel(true));
+			return;
 		} catch (Exception e) {
 			LOG.error("Error during HTTP scan", e);
+			failed++;
 		}
-	}
 
-	private void reconcileWithRuntime(Map<String, FeatureEntry> currentById) {
-		for (InstalledFeature installed : featureRuntime.getInstalledFeatures()) {
-			String idStr = installed.getFeature().getID().toString();
-			FeatureEntry entry = currentById.get(idStr);
-			if (entry != null) {
-				String content = fetchContent(entry.url());
-				String hash = content != null ? sha256(content) : "";
-				trackedFeatures.put(idStr, new TrackedFeature(
-						installed.getFeature().getID(), hash, entry.url()));
-				LOG.info("Reconciled existing feature: {}", idStr);
-			}
+		saveState();
+
+		ScanSummary summary = new ScanSummary(trackedFeatures.size(), requests.get(), notModified.get(),
+				deferred.get(), bytesTransferred.get(), installed, updated, removed, failed,
+				Duration.ofNanos(System.nanoTime() - start));
+		lastScan = summary;
+		if (installed + updated + removed + failed > 0) {
+			LOG.info("Scan converged in {} ms - features={}, requests={}, notModified={}, deferred={}, bytes={}, "
+					+ "installed={}, updated={}, removed={}, failed={}",
+					summary.duration().toMillis(), summary.features(), summary.requests(), summary.notModified(),
+					summary.deferred(), summary.bytesTransferred(), installed, updated, removed, failed);
+		} else {
+			LOG.debug("Scan found no changes in {} ms - features={}, requests={}, notModified={}, deferred={}, bytes={}",
+					summary.duration().toMillis(), summary.features(), summary.requests(), summary.notModified(),
+					summary.deferred(), summary.bytesTransferred());
 		}
 	}
 
-	private boolean isInstalledInRuntime(String idStr) {
-		return featureRuntime.getInstalledFeatures().stream()
-				.anyMatch(f -> f.getFeature().getID().toString().equals(idStr));
-	}
-
-	private ID findIdInRuntime(String idStr) {
-		return featureRuntime.getInstalledFeatures().stream()
-				.filter(f -> f.getFeature().getID().toString().equals(idStr))
-				.map(f -> f.getFeature().getID())
-				.findFirst()
-				.orElse(null);
+	/**
+	 * @return the summary of the last completed scan, or <code>null</code>
+	 *         before the first one
+	 */
+	ScanSummary lastScan() {
+		return lastScan;
 	}
 
-	private List<FeatureEntry> fetchFeatureEntries() {
+	private List<FeatureEntry> fetchFeatureEntries() throws InterruptedException {
 		LOG.debug("Fetching feature list from: {}", featuresUrl);
 		try {
-			String body = fetchContent(featuresUrl);
-			if (body == null) {
+			Fetched fetched = fetchAsync(featuresUrl, featureList).get();
+			if (fetched == null) {
 				return List.of();
 			}
-			return parseFeatureList(body);
+			if (fetched.notModified()
+					|| featureList != null && fetched.hash().equals(featureList.contentHash())) {
+				featureList = featureList.revalidated(featuresUrl, fetched);
+				return featureEntries;
+			}
+			try (Reader reader = fetched.reader()) {
+				featureEntries = parseFeatureList(reader);
+			}
+			featureList = new TrackedFeature(null, fetched.hash(), featuresUrl, fetched.etag(),
+					fetched.lastModified());
+			return featureEntries;
+		} catch (InterruptedException e) {
+			throw e;
 		} catch (Exception e) {
 			LOG.error("Error fetching feature list from: {}", featuresUrl, e);
 			return List.of();
 		}
 	}
 
-	String fetchContent(URI url) {
-		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					.uri(url)
-					.timeout(requestTimeout)
-					.GET()
-					.build();
-
-			HttpResponse<String> response = httpClient.send(request,
-					HttpResponse.BodyHandlers.ofString());
-
-			if (response.statusCode() >= 200 && response.statusCode() < 300) {
-				return response.body();
+	/**
+	 * Fetches a feature URL unless it is backing off after failed attempts.
+	 * Every failure doubles the number of intervals the URL is skipped for, up
+	 * to <code>2^MAX_BACKOFF_SHIFT</code>, so that a failing or timing out
+	 * server does not cost a request timeout in every scan.
+	 */
+	private CompletableFuture<Fetched> fetchFeature(URI url, TrackedFeature validators)
+			throws InterruptedException {
+		Backoff backoff = backoffs.get(url);
+		if (backoff != null && System.nanoTime() - backoff.retryAt() < 0) {
+			LOG.debug("Skipping {} after {} failed attempts", url, backoff.failures());
+			deferred.incrementAndGet();
+			return CompletableFuture.completedFuture(null);
+		}
+		return fetchAsync(url, validators).thenApply(fetched -> {
+			if (fetched != null) {
+				backoffs.remove(url);
 			} else {
-				LOG.error("HTTP {} fetching URL: {}", response.statusCode(), url);
-				return null;
+				backoffs.compute(url, (u, previous) -> {
+					int failures = previous != null ? previous.failures() + 1 : 1;
+					long delay = Duration.ofSeconds(intervalSeconds).toNanos()
+							<< Math.min(failures, MAX_BACKOFF_SHIFT);
+					return new Backoff(failures, System.nanoTime() + delay);
+				});
 			}
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
-			LOG.debug("Interrupted while fetching URL: {}", url);
-			return null;
-		} catch (Exception e) {
-			LOG.error("Error fetching URL: {}", url, e);
-			return null;
+			return fetched;
+		});
+	}
+
+	/**
+	 * Fetches a URL asynchronously, hashing the body while it is received. At
+	 * most <code>maxConcurrentRequests</code> requests are in flight; this
+	 * method blocks until one is available.
+	 *
+	 * @param url the URL to fetch
+	 * @param validators the entity tag and modification date of the copy that
+	 *            is already known, sent as <code>If-None-Match</code> and
+	 *            <code>If-Modified-Since</code>, or <code>null</code>
+	 * @return the response, which has no body if the server answered
+	 *         <code>304 Not Modified</code>, or <code>null</code> if the
+	 *         request failed; the future never completes exceptionally
+	 */
+	CompletableFuture<Fetched> fetchAsync(URI url, TrackedFeature validators) throws InterruptedException {
+		HttpRequest.Builder request = HttpRequest.newBuilder()
+				.uri(url)
+				.timeout(requestTimeout)
+				.GET();
+		if (validators != null && validators.etag() != null) {
+			request.header("If-None-Match", validators.etag());
+		}
+		if (validators != null && validators.lastModified() != null) {
+			request.header("If-Modified-Since", validators.lastModified());
+		}
+
+		permits.acquire();
+		requests.incrementAndGet();
+		return httpClient.sendAsync(request.build(), info -> fetchedBody(info, validators))
+				.whenComplete((response, e) -> permits.release())
+				.handle((response, e) -> {
+					if (e != null) {
+						LOG.error("Error fetching URL: {}", url,
+								e instanceof CompletionException ? e.getCause() : e);
+						return null;
+					}
+					if (response.body() == null) {
+						LOG.error("HTTP {} fetching URL: {}", response.statusCode(), url);
+					}
+					return response.body();
+				});
+	}
+
+	private HttpResponse.BodySubscriber<Fetched> fetchedBody(HttpResponse.ResponseInfo info,
+			TrackedFeature validators) {
+		String etag = info.headers().firstValue("ETag").orElse(null);
+		String lastModified = info.headers().firstValue("Last-Modified").orElse(null);
+
+		if (info.statusCode() == 304 && validators != null) {
+			notModified.incrementAndGet();
+			return HttpResponse.BodySubscribers.replacing(new Fetched(null, validators.contentHash(),
+					etag != null ? etag : validators.etag(),
+					lastModified != null ? lastModified : validators.lastModified()));
+		} else if (info.statusCode() >= 200 && info.statusCode() < 300) {
+			MessageDigest digest = sha256Digest();
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			return HttpResponse.BodySubscribers.mapping(
+					HttpResponse.BodySubscribers.ofByteArrayConsumer(chunk -> chunk.ifPresent(bytes -> {
+						digest.update(bytes);
+						body.writeBytes(bytes);
+					})),
+					done -> {
+						bytesTransferred.addAndGet(body.size());
+						return new Fetched(body.toByteArray(), HexFormat.of().formatHex(digest.digest()), etag,
+								lastModified);
+					});
 		}
+		return HttpResponse.BodySubscribers.replacing(null);
 	}
 
 	List<FeatureEntry> parseFeatureList(String jsonBody) {
+		return parseFeatureList(new StringReader(jsonBody));
+	}
+
+	/**
+	 * Reads the feature list as a stream of tokens, without building
+	 * intermediate strings for the entries. Unknown members of an entry are
+	 * skipped; entries without <code>id</code> or <code>url</code> are skipped
+	 * with a warning.
+	 *
+	 * @return the entries, or an empty list if the JSON is not an array
+	 */
+	List<FeatureEntry> parseFeatureList(Reader json) {
 		List<FeatureEntry> entries = new ArrayList<>();
-		String trimmed = jsonBody.trim();
-		if (!trimmed.startsWith("[") || !trimmed.endsWith("]")) {
-			LOG.error("Expected JSON array but got: {}...",
-					trimmed.substring(0, Math.min(trimmed.length(), 100)));
-			return entries;
-		}
-
-		String inner = trimmed.substring(1, trimmed.length() - 1).trim();
-		if (inner.isEmpty()) {
-			return entries;
-		}
-
-		// Split into top-level objects by tracking brace depth
-		List<String> objects = new ArrayList<>();
-		int braceDepth = 0;
-		boolean inQuote = false;
-		StringBuilder current = new StringBuilder();
-		for (int i = 0; i < inner.length(); i++) {
-			char c = inner.charAt(i);
-			if (c == '"' && (i == 0 || inner.charAt(i - 1) != '\\')) {
-				inQuote = !inQuote;
-			}
-			if (!inQuote) {
-				if (c == '{') {
-					braceDepth++;
-				} else if (c == '}') {
-					braceDepth--;
-				} else if (c == ',' && braceDepth == 0) {
-					objects.add(current.toString().trim());
-					current.setLength(0);
+		try {
+			JsonReader reader = JsonReader.from(json);
+			reader.array();
+			while (reader.next()) {
+				if (reader.current() != JsonReader.Type.OBJECT) {
+					LOG.warn("Skipping malformed feature entry of type {}", reader.current());
+					skipValue(reader);
 					continue;
 				}
+				String id = null;
+				String url = null;
+				reader.object();
+				while (reader.next()) {
+					String key = reader.key();
+					if (reader.current() == JsonReader.Type.STRING && "id".equals(key)) {
+						id = reader.string();
+					} else if (reader.current() == JsonReader.Type.STRING && "url".equals(key)) {
+						url = reader.string();
+					} else {
+						skipValue(reader);
+					}
+				}
+				if (id != null && url != null) {
+					entries.add(new FeatureEntry(id, URI.create(url)));
+				} else {
+					LOG.warn("Skipping malformed feature entry: id={}, url={}", id, url);
+				}
 			}
-			current.append(c);
-		}
-		String last = current.toString().trim();
-		if (!last.isEmpty()) {
-			objects.add(last);
-		}
-
-		for (String obj : objects) {
-			String id = extractJsonValue(obj, "id");
-			String url = extractJsonValue(obj, "url");
-			if (id != null && url != null) {
-				entries.add(new FeatureEntry(id, URI.create(url)));
-			} else {
-				LOG.warn("Skipping malformed feature entry: {}...",
-						obj.substring(0, Math.min(obj.length(), 100)));
-			}
+		} catch (JsonParserException e) {
+			LOG.error("Expected JSON array of feature entries: {}", e.getMessage());
+			return List.of();
 		}
-
 		return entries;
 	}
 
-	private String extractJsonValue(String json, String key) {
-		String searchKey = "\"" + key + "\"";
-		int keyIdx = json.indexOf(searchKey);
-		if (keyIdx < 0) {
-			return null;
-		}
-		int colonIdx = json.indexOf(':', keyIdx + searchKey.length());
-		if (colonIdx < 0) {
-			return null;
-		}
-		// Find opening quote of value
-		int openQuote = json.indexOf('"', colonIdx + 1);
-		if (openQuote < 0) {
-			return null;
+	private static void skipValue(JsonReader reader) throws JsonParserException {
+		switch (reader.current()) {
+		case OBJECT -> {
+			reader.object();
+			while (reader.next()) {
+				skipValue(reader);
+			}
 		}
-		// Find closing quote (not escaped)
-		int closeQuote = openQuote + 1;
-		while (closeQuote < json.length()) {
-			if (json.charAt(closeQuote) == '"' && json.charAt(closeQuote - 1) != '\\') {
-				break;
+		case ARRAY -> {
+			reader.array();
+			while (reader.next()) {
+				skipValue(reader);
 			}
-			closeQuote++;
 		}
-		if (closeQuote >= json.length()) {
-			return null;
+		case STRING -> reader.string();
+		case NUMBER -> reader.number();
+		case BOOLEAN -> reader.bool();
+		case NULL -> reader.nul();
 		}
-		return json.substring(openQuote + 1, closeQuote);
 	}
 
-	private void installFeature(String idStr, URI featureUrl, String content, String contentHash) {
+	private boolean installFeature(String idStr, URI featureUrl, Fetched fetched) {
 		LOG.info("Installing feature {} from URL: {}", idStr, featureUrl);
 
-		try (StringReader reader = new StringReader(content)) {
+		try (Reader reader = fetched.reader()) {
 			FeatureRuntime.InstallOperationBuilder builder = featureRuntime.install(reader);
 
 			configureRepositories(builder);
@@ -379,18 +710,20 @@ class FeatureHttpWatcher {
 			InstalledFeature installed = builder.install();
 			ID featureId = installed.getFeature().getID();
 
-			trackedFeatures.put(idStr, new TrackedFeature(featureId, contentHash, featureUrl));
+			trackedFeatures.put(idStr, new TrackedFeature(featureId, fetched.hash(), featureUrl,
+					fetched.etag(), fetched.lastModified()));
 			LOG.info("Successfully installed feature: {} (ID: {})", idStr, featureId);
+			return true;
 		} catch (Exception e) {
 			LOG.error("Failed to install feature from URL: {}", featureUrl, e);
+			return false;
 		}
 	}
 
-	private void updateFeature(String idStr, TrackedFeature tracked, URI featureUrl,
-			String content, String contentHash) {
+	private boolean updateFeature(String idStr, TrackedFeature tracked, URI featureUrl, Fetched fetched) {
 		LOG.info("Updating feature {} from URL: {}", idStr, featureUrl);
 
-		try (StringReader reader = new StringReader(content)) {
+		try (Reader reader = fetched.reader()) {
 			FeatureRuntime.UpdateOperationBuilder builder = featureRuntime.update(
 					tracked.featureId(), reader);
 
@@ -399,10 +732,13 @@ class FeatureHttpWatcher {
 			InstalledFeature updated = builder.update();
 			ID featureId = updated.getFeature().getID();
 
-			trackedFeatures.put(idStr, new TrackedFeature(featureId, contentHash, featureUrl));
+			trackedFeatures.put(idStr, new TrackedFeature(featureId, fetched.hash(), featureUrl,
+					fetched.etag(), fetched.lastModified()));
 			LOG.info("Successfully updated feature: {} (ID: {})", idStr, featureId);
+			return true;
 		} catch (Exception e) {
 			LOG.error("Failed to update feature from URL: {}", featureUrl, e);
+			return false;
 		}
 	}
 
@@ -418,15 +754,90 @@ class FeatureHttpWatcher {
 	}
 
 	static String sha256(String content) {
+		byte[] hash = sha256Digest().digest(content.getBytes(StandardCharsets.UTF_8));
+		return HexFormat.of().formatHex(hash);
+	}
+
+	private static MessageDigest sha256Digest() {
 		try {
-			MessageDigest digest = MessageDigest.getInstance("SHA-256");
-			byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
-			return HexFormat.of().formatHex(hash);
+			return MessageDigest.getInstance("SHA-256");
 		} catch (Exception e) {
 			throw new RuntimeException("SHA-256 not available", e);
 		}
 	}
 
+	/**
+	 * Loads the validators and content hashes saved by a previous run, so
+	 * that features which are still installed in the runtime can be adopted
+	 * with a conditional request.
+	 */
+	private Map<String, TrackedFeature> loadState() {
+		Map<String, TrackedFeature> saved = new HashMap<>();
+		if (stateFile == null || !Files.isRegularFile(stateFile)) {
+			return saved;
+		}
+		Properties props = new Properties();
+		try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+			props.load(reader);
+		} catch (IOException e) {
+			LOG.warn("Unable to read HTTP watcher state from: {}", stateFile, e);
+			return saved;
+		}
+		for (String key : props.stringPropertyNames()) {
+			if (key.endsWith(STATE_URL)) {
+				String idStr = key.substring(0, key.length() - STATE_URL.length());
+				String hash = props.getProperty(idStr + STATE_HASH);
+				if (hash != null) {
+					saved.put(idStr, new TrackedFeature(null, hash, URI.create(props.getProperty(key)),
+							props.getProperty(idStr + STATE_ETAG),
+							props.getProperty(idStr + STATE_LAST_MODIFIED)));
+				}
+			}
+		}
+		LOG.debug("Loaded HTTP watcher state for {} features from: {}", saved.size(), stateFile);
+		return saved;
+	}
+
+	private void saveState() {
+		if (stateFile == null || trackedFeatures.equals(savedFeatures)) {
+			return;
+		}
+		Properties props = new Properties();
+		for (Map.Entry<String, TrackedFeature> e : trackedFeatures.entrySet()) {
+			TrackedFeature tracked = e.getValue();
+			props.setProperty(e.getKey() + STATE_URL, tracked.url().toString());
+			props.setProperty(e.getKey() + STATE_HASH, tracked.contentHash());
+			if (tracked.etag() != null) {
+				props.setProperty(e.getKey() + STATE_ETAG, tracked.etag());
+			}
+			if (tracked.lastModified() != null) {
+				props.setProperty(e.getKey() + STATE_LAST_MODIFIED, tracked.lastModified());
+			}
+		}
+		try {
+			Files.createDirectories(stateFile.toAbsolutePath().getParent());
+			Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+			try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				props.store(writer, "Feature HTTP watcher state");
+			}
+			Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			savedFeatures = new HashMap<>(trackedFeatures);
+		} catch (IOException e) {
+			LOG.warn("Unable to save HTTP watcher state to: {}", stateFile, e);
+		}
+	}
+
+	private static final int MAX_BACKOFF_SHIFT = 4;
+
+	static final String EVENT_STREAM = "text/event-stream";
+	private static final Duration INITIAL_RECONNECT_DELAY = Duration.ofSeconds(1);
+	private static final Duration MAX_RECONNECT_DELAY = Duration.ofMinutes(1);
+
+	private static final String STATE_URL = ".url";
+	private static final String STATE_HASH = ".hash";
+	private static final String STATE_ETAG = ".etag";
+	private static final String STATE_LAST_MODIFIED = ".lastModified";
+
 	static final String SERVER_ID_PLACEHOLDER = "{serverId}";
 	static final String FRAMEWORK_ID_PLACEHOLDER = "{frameworkId}";
 
@@ -446,6 +857,43 @@ class FeatureHttpWatcher {
 		return url.replace(placeholder, URLEncoder.encode(value, StandardCharsets.UTF_8));
 	}
 
-	private record TrackedFeature(ID featureId, String contentHash, URI url) {
+	record ScanSummary(int features, int requests, int notModified, int deferred, long bytesTransferred,
+			int installed, int updated, int removed, int failed, Duration duration) {
+	}
+
+	/**
+	 * A fetched body and its hash, or only the validators if the server
+	 * answered <code>304 Not Modified</code>.
+	 */
+	record Fetched(byte[] body, String hash, String etag, String lastModified) {
+
+		boolean notModified() {
+			return body == null;
+		}
+
+		Reader reader() {
+			return new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8);
+		}
+	}
+
+	private record Pending(FeatureEntry entry, TrackedFeature tracked, ID runtimeId,
+			CompletableFuture<Fetched> fetched) {
+	}
+
+	private record Backoff(int failures, long retryAt) {
+	}
+
+	record TrackedFeature(ID featureId, String contentHash, URI url, String etag, String lastModified) {
+
+		/**
+		 * @return this, if the validators apply to the given URL
+		 */
+		TrackedFeature validatorsFor(URI other) {
+			return url.equals(other) ? this : null;
+		}
+
+		TrackedFeature revalidated(URI other, Fetched fetched) {
+			return new TrackedFeature(featureId, contentHash, other, fetched.etag(), fetched.lastModified());
+		}
 	}
 }
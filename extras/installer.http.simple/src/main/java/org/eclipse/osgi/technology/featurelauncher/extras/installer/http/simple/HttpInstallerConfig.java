@@ -36,11 +36,13 @@ interface HttpInstallerConfig {
 	String PROP_CONNECT_TIMEOUT = PROP_PREFIX + "connect.timeout";
 	String PROP_REQUEST_TIMEOUT = PROP_PREFIX + "request.timeout";
 	String PROP_SERVER_ID = PROP_PREFIX + "server.id";
+	String PROP_MAX_CONCURRENT_REQUESTS = PROP_PREFIX + "max.concurrent.requests";
 
 	long DEFAULT_SCAN_INTERVAL = 60;
 	String DEFAULT_SCAN_MODE = "ONCE";
 	long DEFAULT_CONNECT_TIMEOUT = 30;
 	long DEFAULT_REQUEST_TIMEOUT = 60;
+	long DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
 
 	@AttributeDefinition(name = "Features URL",
 		description = "HTTP URL that returns a JSON array of feature objects with id and url, e.g. [{\"id\":\"g:a:v\",\"url\":\"http://...\"}]. "
@@ -59,12 +61,13 @@ interface HttpInstallerConfig {
 		required = false, defaultValue = DEFAULT_SCAN_MODE,
 		options = {
 			@Option(label = "Once", value = "ONCE"),
-			@Option(label = "Watch", value = "WATCH")
+			@Option(label = "Watch", value = "WATCH"),
+			@Option(label = "Push", value = "PUSH")
 		})
 	String scan_mode();
 
 	@AttributeDefinition(name = "Scan Interval",
-		description = "Polling interval in seconds (WATCH mode)",
+		description = "Polling interval in seconds (WATCH mode), or interval of the full consistency scan (PUSH mode)",
 		required = false, defaultValue = "60",
 		type = AttributeType.LONG)
 	long scan_interval();
@@ -85,4 +88,10 @@ interface HttpInstallerConfig {
 		description = "Custom server identifier used to replace the {serverId} placeholder in the features URL.",
 		required = false)
 	String server_id();
+
+	@AttributeDefinition(name = "Maximum Concurrent Requests",
+		description = "Maximum number of feature URLs fetched at the same time",
+		required = false, defaultValue = "8",
+		type = AttributeType.LONG)
+	long max_concurrent_requests();
 }
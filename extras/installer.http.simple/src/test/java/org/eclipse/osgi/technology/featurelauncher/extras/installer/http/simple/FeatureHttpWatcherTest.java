@@ -21,6 +21,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Reader;
@@ -30,7 +31,17 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -56,6 +67,7 @@ class FeatureHttpWatcherTest {
 	private Feature feature;
 	private ID featureId;
 	private HttpServer server;
+	private ExecutorService serverExecutor;
 	private String baseUrl;
 
 	@BeforeEach
@@ -84,6 +96,8 @@ class FeatureHttpWatcherTest {
 		when(featureId.toString()).thenReturn("org.example:test-feature:1.0.0");
 
 		server = HttpServer.create(new InetSocketAddress(0), 0);
+		serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
 		server.start();
 		baseUrl = "http://localhost:" + server.getAddress().getPort();
 	}
@@ -93,6 +107,9 @@ class FeatureHttpWatcherTest {
 		if (server != null) {
 			server.stop(0);
 		}
+		if (serverExecutor != null) {
+			serverExecutor.shutdownNow();
+		}
 	}
 
 	@Test
@@ -406,6 +423,22 @@ class FeatureHttpWatcherTest {
 		assertEquals("org.example:db:2.0.0", entries.get(1).id());
 	}
 
+	@Test
+	void parseFeatureList_escapesAndUnknownMembers() {
+		FeatureHttpWatcher watcher = createWatcher(baseUrl + "/features.json", "ONCE");
+		List<FeatureHttpWatcher.FeatureEntry> entries = watcher.parseFeatureList(
+				"[{\"name\":\"say \\\"hi\\\", {x}\",\"id\":\"org.example:app:1.0.0\","
+						+ "\"tags\":[{\"url\":\"nested\"}],\"url\":\"http://a.com/f1.json\"},"
+						+ "{\"id\":\"org.example:no-url:1.0.0\"},"
+						+ "\"not an object\","
+						+ "{\"url\":\"http://b.com/f2.json\",\"id\":\"org.example:db:2.0.0\"}]");
+		assertEquals(2, entries.size());
+		assertEquals(new FeatureHttpWatcher.FeatureEntry("org.example:app:1.0.0",
+				URI.create("http://a.com/f1.json")), entries.get(0));
+		assertEquals(new FeatureHttpWatcher.FeatureEntry("org.example:db:2.0.0",
+				URI.create("http://b.com/f2.json")), entries.get(1));
+	}
+
 	@Test
 	void sha256_producesConsistentHash() {
 		String hash1 = FeatureHttpWatcher.sha256("test content");
@@ -496,6 +529,238 @@ class FeatureHttpWatcherTest {
 		assertEquals("/features.json?node=test-uuid-123", requestUri.get());
 	}
 
+	@Test
+	void watchMode_revalidatesWithEtag() throws Exception {
+		AtomicInteger bodies = new AtomicInteger();
+		serveWithEtag("/feature1.json", "{}", "\"v1\"", bodies);
+		serveJson("/features.json", featureList(
+				entry("org.example:test-feature:1.0.0", baseUrl + "/feature1.json")));
+
+		FeatureHttpWatcher watcher = createWatcher(baseUrl + "/features.json", "WATCH", 1);
+		watcher.start();
+
+		verify(featureRuntime, times(1)).install(any(Reader.class));
+		assertEquals(1, bodies.get());
+
+		FeatureHttpWatcher.ScanSummary summary = awaitScan(watcher, s -> s.notModified() > 0);
+		assertEquals(2, summary.requests());
+		assertEquals(1, summary.notModified());
+		assertEquals(1, bodies.get(), "Unchanged feature must not be downloaded again");
+		verify(featureRuntime, never()).update(any(ID.class), any(Reader.class));
+
+		watcher.stop();
+	}
+
+	@Test
+	void scanSummary_countsRequestsAndBytes() {
+		String list = featureList(entry("org.example:test-feature:1.0.0", baseUrl + "/feature1.json"));
+		serveJson("/feature1.json", "{}");
+		serveJson("/features.json", list);
+
+		FeatureHttpWatcher watcher = createWatcher(baseUrl + "/features.json", "ONCE");
+		watcher.start();
+
+		FeatureHttpWatcher.ScanSummary summary = watcher.lastScan();
+		assertEquals(1, summary.features());
+		assertEquals(2, summary.requests());
+		assertEquals(0, summary.notModified());
+		assertEquals(list.length() + 2, summary.bytesTransferred());
+		assertEquals(1, summary.installed());
+		assertEquals(0, summary.failed());
+	}
+
+	@Test
+	void stateFile_adoptsInstalledFeatureWithConditionalRequest() {
+		AtomicInteger bodies = new AtomicInteger();
+		serveWithEtag("/feature1.json", "{}", "\"v1\"", bodies);
+		serveJson("/features.json", featureList(
+				entry("org.example:test-feature:1.0.0", baseUrl + "/feature1.json")));
+		Path stateFile = tempDir.resolve("state.properties");
+
+		FeatureHttpWatcher first = createWatcher(baseUrl + "/features.json", stateFile);
+		first.start();
+
+		verify(featureRuntime, times(1)).install(any(Reader.class));
+		assertTrue(Files.isRegularFile(stateFile));
+
+		// restart, the runtime kept the feature
+		when(featureRuntime.getInstalledFeatures()).thenReturn(List.of(installedFeature));
+
+		FeatureHttpWatcher second = createWatcher(baseUrl + "/features.json", stateFile);
+		second.start();
+
+		assertEquals(1, bodies.get(), "Adopted feature must be revalidated, not downloaded");
+		assertEquals(1, second.lastScan().notModified());
+		verify(featureRuntime, times(1)).install(any(Reader.class));
+	}
+
+	@Test
+	void concurrentFetch_appliesResultsInListOrder() throws Exception {
+		CountDownLatch bothInFlight = new CountDownLatch(2);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		for (String name : List.of("slow", "fast")) {
+			server.createContext("/" + name + ".json", exchange -> {
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				bothInFlight.countDown();
+				try {
+					bothInFlight.await(2, TimeUnit.SECONDS);
+					if (name.equals("slow")) {
+						Thread.sleep(200);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				inFlight.decrementAndGet();
+				byte[] bytes = ("{\"name\":\"" + name + "\"}").getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, bytes.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(bytes);
+				}
+			});
+		}
+		serveJson("/features.json", featureList(
+				entry("org.example:slow:1.0.0", baseUrl + "/slow.json"),
+				entry("org.example:fast:1.0.0", baseUrl + "/fast.json")));
+
+		List<String> installOrder = new CopyOnWriteArrayList<>();
+		when(featureRuntime.install(any(Reader.class))).thenAnswer(invocation -> {
+			installOrder.add(new BufferedReader(invocation.<Reader> getArgument(0)).readLine());
+			return installBuilder;
+		});
+
+		FeatureHttpWatcher watcher = createWatcher(baseUrl + "/features.json", "ONCE");
+		watcher.start();
+
+		assertEquals(2, maxInFlight.get(), "Features should be fetched concurrently");
+		assertEquals(List.of("{\"name\":\"slow\"}", "{\"name\":\"fast\"}"), installOrder);
+	}
+
+	@Test
+	void failingUrl_isBackedOff() throws Exception {
+		AtomicInteger failures = new AtomicInteger();
+		server.createContext("/broken.json", exchange -> {
+			failures.incrementAndGet();
+			exchange.sendResponseHeaders(500, -1);
+			exchange.close();
+		});
+		serveJson("/feature1.json", "{}");
+		serveJson("/features.json", featureList(
+				entry("org.example:test-feature:1.0.0", baseUrl + "/feature1.json"),
+				entry("org.example:broken:1.0.0", baseUrl + "/broken.json")));
+
+		FeatureHttpWatcher watcher = createWatcher(baseUrl + "/features.json", "WATCH", 1);
+		watcher.start();
+
+		verify(featureRuntime, times(1)).install(any(Reader.class));
+		assertEquals(1, failures.get());
+
+		FeatureHttpWatcher.ScanSummary summary = awaitScan(watcher, s -> s.deferred() > 0);
+		assertEquals(1, summary.deferred());
+		assertEquals(1, failures.get(), "Broken URL must not be requested while backing off");
+
+		watcher.stop();
+	}
+
+	@Test
+	void pushMode_scansOnNotification() throws Exception {
+		serveJson("/feature1.json", "{}");
+		serveJson("/feature2.json", "{}");
+		AtomicReference<String> listBody = new AtomicReference<>(featureList(
+				entry("org.example:test-feature:1.0.0", baseUrl + "/feature1.json")));
+		BlockingQueue<String> events = new LinkedBlockingQueue<>();
+		AtomicInteger connections = new AtomicInteger();
+		servePush("/features.json", listBody, events, connections);
+
+		FeatureHttpWatcher watcher = createWatcher(baseUrl + "/features.json", "PUSH", 60);
+		watcher.start();
+
+		verify(featureRuntime, times(1)).install(any(Reader.class));
+		awaitCondition(() -> connections.get() == 1);
+
+		listBody.set(featureList(
+				entry("org.example:test-feature:1.0.0", baseUrl + "/feature1.json"),
+				entry("org.example:feature2:1.0.0", baseUrl + "/feature2.json")));
+		events.add("changed");
+
+		verify(featureRuntime, timeout(2000).times(2)).install(any(Reader.class));
+
+		watcher.stop();
+	}
+
+	@Test
+	void pushMode_reconnectsAndScans() throws Exception {
+		serveJson("/feature1.json", "{}");
+		serveJson("/feature2.json", "{}");
+		AtomicReference<String> listBody = new AtomicReference<>(featureList(
+				entry("org.example:test-feature:1.0.0", baseUrl + "/feature1.json")));
+		BlockingQueue<String> events = new LinkedBlockingQueue<>();
+		AtomicInteger connections = new AtomicInteger();
+		servePush("/features.json", listBody, events, connections);
+
+		FeatureHttpWatcher watcher = createWatcher(baseUrl + "/features.json", "PUSH", 60);
+		watcher.start();
+		awaitCondition(() -> connections.get() == 1);
+
+		// changed while the connection is lost, no notification
+		listBody.set(featureList(
+				entry("org.example:test-feature:1.0.0", baseUrl + "/feature1.json"),
+				entry("org.example:feature2:1.0.0", baseUrl + "/feature2.json")));
+		events.add(CLOSE);
+
+		verify(featureRuntime, timeout(4000).times(2)).install(any(Reader.class));
+		assertEquals(2, connections.get());
+
+		watcher.stop();
+	}
+
+	@Test
+	void pushMode_withoutEventStream_keepsPolling() {
+		AtomicReference<String> listBody = new AtomicReference<>("[]");
+		serveDynamic("/features.json", listBody);
+		serveJson("/feature1.json", "{}");
+
+		FeatureHttpWatcher watcher = createWatcher(baseUrl + "/features.json", "PUSH", 1);
+		watcher.start();
+
+		listBody.set(featureList(
+				entry("org.example:test-feature:1.0.0", baseUrl + "/feature1.json")));
+
+		verify(featureRuntime, timeout(3000).times(1)).install(any(Reader.class));
+
+		watcher.stop();
+	}
+
+	@Test
+	void pushMode_withoutEventStream_stopsRequestingIt() throws Exception {
+		AtomicInteger streamRequests = new AtomicInteger();
+		AtomicInteger listRequests = new AtomicInteger();
+		server.createContext("/features.json", exchange -> {
+			if (FeatureHttpWatcher.EVENT_STREAM.equals(exchange.getRequestHeaders().getFirst("Accept"))) {
+				streamRequests.incrementAndGet();
+			} else {
+				listRequests.incrementAndGet();
+			}
+			byte[] bytes = "[]".getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, bytes.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(bytes);
+			}
+		});
+
+		FeatureHttpWatcher watcher = createWatcher(baseUrl + "/features.json", "PUSH", 1);
+		watcher.start();
+
+		// well past the first reconnect delays, the periodic scan goes on
+		awaitCondition(() -> streamRequests.get() == 1);
+		Thread.sleep(3500);
+		assertEquals(1, streamRequests.get());
+		assertTrue(listRequests.get() >= 3, "The periodic scan should go on");
+
+		watcher.stop();
+	}
+
 	// --- helpers ---
 
 	private FeatureHttpWatcher createWatcher(String featuresUrl, String scanMode) {
@@ -507,6 +772,24 @@ class FeatureHttpWatcherTest {
 				scanMode, interval, 5, 5, null, null);
 	}
 
+	private FeatureHttpWatcher createWatcher(String featuresUrl, Path stateFile) {
+		return new FeatureHttpWatcher(featureRuntime, featuresUrl, null,
+				"ONCE", 60, 5, 5, null, null, 8, stateFile);
+	}
+
+	private FeatureHttpWatcher.ScanSummary awaitScan(FeatureHttpWatcher watcher,
+			Predicate<FeatureHttpWatcher.ScanSummary> condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 3000;
+		while (System.currentTimeMillis() < deadline) {
+			FeatureHttpWatcher.ScanSummary summary = watcher.lastScan();
+			if (summary != null && condition.test(summary)) {
+				return summary;
+			}
+			Thread.sleep(50);
+		}
+		throw new AssertionError("No matching scan: " + watcher.lastScan());
+	}
+
 	private String featureList(String... entries) {
 		return "[" + String.join(",", entries) + "]";
 	}
@@ -533,6 +816,68 @@ class FeatureHttpWatcherTest {
 		});
 	}
 
+	private void serveWithEtag(String path, String body, String etag, AtomicInteger bodies) {
+		server.createContext(path, exchange -> {
+			exchange.getResponseHeaders().set("ETag", etag);
+			if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+			bodies.incrementAndGet();
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, bytes.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(bytes);
+			}
+		});
+	}
+
+	private static final String CLOSE = "<close>";
+
+	/**
+	 * Serves the list, or an event stream sending the queued events when
+	 * requested with Accept: text/event-stream.
+	 */
+	private void servePush(String path, AtomicReference<String> listBody, BlockingQueue<String> events,
+			AtomicInteger connections) {
+		server.createContext(path, exchange -> {
+			if (!FeatureHttpWatcher.EVENT_STREAM.equals(exchange.getRequestHeaders().getFirst("Accept"))) {
+				byte[] bytes = listBody.get().getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, bytes.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(bytes);
+				}
+				return;
+			}
+			connections.incrementAndGet();
+			exchange.getResponseHeaders().set("Content-Type", FeatureHttpWatcher.EVENT_STREAM);
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(": connected\n\n".getBytes(StandardCharsets.UTF_8));
+				os.flush();
+				String event;
+				while (!CLOSE.equals(event = events.take())) {
+					os.write(("data: " + event + "\n\n").getBytes(StandardCharsets.UTF_8));
+					os.flush();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+	}
+
+	private void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 3000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new AssertionError("Condition not met in time");
+			}
+			Thread.sleep(20);
+		}
+	}
+
 	private void serveDynamic(String path, AtomicReference<String> bodyRef) {
 		server.createContext(path, exchange -> {
 			byte[] bytes = bodyRef.get().getBytes(StandardCharsets.UTF_8);
@@ -54,10 +54,23 @@ class ConfigurationBuilderImpl implements FeatureConfigurationBuilder {
 
 	@Override
 	public FeatureConfiguration build() {
+		return build(p, name, Map.copyOf(values));
+	}
+
+	/**
+	 * Create a configuration around values which are already immutable, such
+	 * as values read from JSON, without copying them
+	 *
+	 * @param pid the pid, or the factory pid if name is not <code>null</code>
+	 * @param name the name of the factory configuration, or <code>null</code>
+	 * @param values the unmodifiable values
+	 * @return the configuration
+	 */
+	static FeatureConfiguration build(String pid, String name, Map<String, Object> values) {
 		if (name == null) {
-			return new ConfigurationImpl(p, Optional.empty(), values);
+			return new ConfigurationImpl(pid, Optional.empty(), values);
 		} else {
-			return new ConfigurationImpl(p + "~" + name, Optional.of(p), values);
+			return new ConfigurationImpl(pid + "~" + name, Optional.of(pid), values);
 		}
 	}
 
@@ -67,7 +80,7 @@ class ConfigurationBuilderImpl implements FeatureConfigurationBuilder {
 		private ConfigurationImpl(String pid, Optional<String> factoryPid, Map<String, Object> values) {
 			this.pid = pid;
 			this.factoryPid = factoryPid;
-			this.values = Map.copyOf(values);
+			this.values = values;
 		}
 
 		@Override
@@ -71,7 +71,24 @@ class ExtensionBuilderImpl implements FeatureExtensionBuilder {
 
 	@Override
 	public FeatureExtension build() {
-		return new ExtensionImpl(name, type, kind, json, textList, artifacts);
+		return new ExtensionImpl(name, type, kind, json, List.copyOf(textList), List.copyOf(artifacts));
+	}
+
+	/**
+	 * Create a text extension around lines which are already immutable, such
+	 * as lines parsed from their JSON on first access, without copying them
+	 */
+	static FeatureExtension text(String name, Kind kind, List<String> text) {
+		return new ExtensionImpl(name, Type.TEXT, kind, null, text, List.of());
+	}
+
+	/**
+	 * Create an artifacts extension around artifacts which are already
+	 * immutable, such as artifacts parsed from their JSON on first access,
+	 * without copying them
+	 */
+	static FeatureExtension artifacts(String name, Kind kind, List<FeatureArtifact> artifacts) {
+		return new ExtensionImpl(name, Type.ARTIFACTS, kind, null, List.of(), artifacts);
 	}
 
 	private static record ExtensionImpl(String name, Type type, Kind kind, String json, List<String> text,
@@ -83,8 +100,8 @@ class ExtensionBuilderImpl implements FeatureExtensionBuilder {
 			this.type = type;
 			this.kind = kind;
 			this.json = json;
-			this.text = List.copyOf(text);
-			this.artifacts = List.copyOf(artifacts);
+			this.text = text;
+			this.artifacts = artifacts;
 		}
 
 		@Override
@@ -14,21 +14,35 @@
 
 package org.eclipse.osgi.technology.featurelauncher.featureservice.base;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.Writer;
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Hashtable;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.eclipse.osgi.technology.featurelauncher.featureservice.base.external.CommentRemovingReader;
 import org.eclipse.osgi.technology.featurelauncher.featureservice.base.external.TypeConverter;
 import org.osgi.service.feature.BuilderFactory;
 import org.osgi.service.feature.Feature;
@@ -36,9 +50,7 @@ import org.osgi.service.feature.FeatureArtifact;
 import org.osgi.service.feature.FeatureArtifactBuilder;
 import org.osgi.service.feature.FeatureBundle;
 import org.osgi.service.feature.FeatureConfiguration;
-import org.osgi.service.feature.FeatureConfigurationBuilder;
 import org.osgi.service.feature.FeatureExtension;
-import org.osgi.service.feature.FeatureExtensionBuilder;
 import org.osgi.service.feature.FeatureService;
 import org.osgi.service.feature.ID;
 
@@ -46,12 +58,69 @@ import com.grack.nanojson.JsonAppendableWriter;
 import com.grack.nanojson.JsonParserException;
 import com.grack.nanojson.JsonReader;
 import com.grack.nanojson.JsonSink;
-import com.grack.nanojson.JsonStringWriter;
 import com.grack.nanojson.JsonWriter;
 
 public class FeatureServiceImpl implements FeatureService {
+
+	/**
+	 * System property naming the directory in which binary snapshots of parsed
+	 * features are kept by instances created with {@link #FeatureServiceImpl()}
+	 */
+	public static final String SNAPSHOT_DIRECTORY = "org.eclipse.osgi.technology.featurelauncher.featureservice.snapshot.directory";
+
+	private static final String SNAPSHOT_EXTENSION = ".feature";
+
+	/**
+	 * The number of snapshots kept by default, the least recently used ones
+	 * are deleted beyond it
+	 */
+	public static final int DEFAULT_MAX_SNAPSHOTS = 256;
+
+	private static final int ID_POOL_SIZE = 4096;
+
 	private final BuilderFactoryImpl builderFactory = new BuilderFactoryImpl();
 
+	/* the same coordinates are referenced by many features */
+	private final IDPool ids = new IDPool(ID_POOL_SIZE);
+
+	private final Path snapshotDirectory;
+
+	private final int maxSnapshots;
+
+	/**
+	 * Create a feature service, which keeps snapshots of the features it reads
+	 * in the directory named by the {@link #SNAPSHOT_DIRECTORY} system property,
+	 * if set
+	 */
+	public FeatureServiceImpl() {
+		this(Optional.ofNullable(System.getProperty(SNAPSHOT_DIRECTORY)).map(Paths::get).orElse(null));
+	}
+
+	/**
+	 * Create a feature service
+	 *
+	 * @param snapshotDirectory the directory in which to keep snapshots of the
+	 *            features read, keyed by the SHA-256 digest of their JSON, or
+	 *            <code>null</code> to always parse the JSON
+	 */
+	public FeatureServiceImpl(Path snapshotDirectory) {
+		this(snapshotDirectory, DEFAULT_MAX_SNAPSHOTS);
+	}
+
+	/**
+	 * Create a feature service
+	 *
+	 * @param snapshotDirectory the directory in which to keep snapshots of the
+	 *            features read, keyed by the SHA-256 digest of their JSON, or
+	 *            <code>null</code> to always parse the JSON
+	 * @param maxSnapshots the number of snapshots to keep, the least recently
+	 *            used ones are deleted when more are written
+	 */
+	public FeatureServiceImpl(Path snapshotDirectory, int maxSnapshots) {
+		this.snapshotDirectory = snapshotDirectory;
+		this.maxSnapshots = maxSnapshots;
+	}
+
 	@Override
 	public BuilderFactory getBuilderFactory() {
 		return builderFactory;
@@ -59,12 +128,12 @@ public class FeatureServiceImpl implements FeatureService {
 
 	@Override
 	public ID getIDfromMavenCoordinates(String mavenID) {
-		return IDImpl.fromMavenID(mavenID);
+		return ids.fromMavenID(mavenID);
 	}
 
 	@Override
 	public ID getID(String groupId, String artifactId, String version) {
-		return new IDImpl(groupId, artifactId, version, Optional.empty(), Optional.empty());
+		return ids.intern(new IDImpl(groupId, artifactId, version, Optional.empty(), Optional.empty()));
 	}
 
 	@Override
@@ -73,7 +142,7 @@ public class FeatureServiceImpl implements FeatureService {
 			throw new NullPointerException("type must not be null");
 		}
 
-		return new IDImpl(groupId, artifactId, version, Optional.of(type), Optional.empty());
+		return ids.intern(new IDImpl(groupId, artifactId, version, Optional.of(type), Optional.empty()));
 	}
 
 	@Override
@@ -85,84 +154,195 @@ public class FeatureServiceImpl implements FeatureService {
 			throw new NullPointerException("classifier must not be null");
 		}
 
-		return new IDImpl(groupId, artifactId, version, Optional.of(type), Optional.of(classifier));
+		return ids.intern(new IDImpl(groupId, artifactId, version, Optional.of(type), Optional.of(classifier)));
 	}
 
 	@Override
 	public Feature readFeature(Reader jsonReader) throws IOException {
+		if (snapshotDirectory == null) {
+			return parseFeature(jsonReader);
+		}
 
-		try {
-			CommentRemovingReader cleanReader = new CommentRemovingReader(jsonReader);
-			JsonReader reader = JsonReader.from(cleanReader);
-			reader.object();
+		String json = readFully(jsonReader);
+		Path snapshot = snapshotDirectory.resolve(snapshotKey(json) + SNAPSHOT_EXTENSION);
 
-			// cache here because id must not be first
-			String id = null;
-			String name = null;
-			String description = null;
-			String docURL = null;
-			String license = null;
-			String scm = null;
-			String vendor = null;
-			boolean complete = false;
-			Map<String, Object> variables = Map.of();
-			FeatureBundle[] bundles = new FeatureBundle[] {};
-			String[] categories = new String[] {};
-			FeatureConfiguration[] configurations = new FeatureConfiguration[] {};
-			FeatureExtension[] extensions = new FeatureExtension[] {};
+		if (Files.isRegularFile(snapshot)) {
+			try {
+				Feature feature = readSnapshot(snapshot);
+				// Record the use, so that the snapshot is pruned last
+				Files.setLastModifiedTime(snapshot, FileTime.fromMillis(System.currentTimeMillis()));
+				return feature;
+			} catch (IOException e) {
+				// Unusable, it is replaced below
+			}
+		}
 
-			while (reader.next()) {
-				switch (reader.key()) {
-				case "id" -> id = reader.string();
-				case "name" -> name = reader.string();
-				case "description" -> description = reader.string();
-				case "docURL" -> docURL = reader.string();
-				case "license" -> license = reader.string();
-				case "scm" -> scm = reader.string();
-				case "vendor" -> vendor = reader.string();
-				case "complete" -> complete = reader.bool();
-				case "variables" -> variables = readVariables(reader);
-				case "bundles" -> bundles = readBundles(reader);
-				case "categories" -> categories = readCategories(reader);
-				case "configurations" -> configurations = readConfigurations(reader);
-				case "extensions" -> extensions = readExtensions(reader);
-				default -> skipValue(reader);
+		Feature feature = parseFeature(new StringReader(json));
+		try {
+			Files.createDirectories(snapshotDirectory);
+			Path temp = Files.createTempFile(snapshotDirectory, "snapshot", ".tmp");
+			try {
+				try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(temp))) {
+					writeSnapshot(feature, os);
+				}
+				try {
+					Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
 				}
+			} finally {
+				Files.deleteIfExists(temp);
 			}
+			pruneSnapshots();
+		} catch (IOException e) {
+			// The snapshot is only an optimization, the feature is still usable
+		}
+		return feature;
+	}
+
+	/**
+	 * Delete the least recently used snapshots beyond the maximum number
+	 */
+	private void pruneSnapshots() throws IOException {
+		List<Path> snapshots;
+		try (Stream<Path> files = Files.list(snapshotDirectory)) {
+			snapshots = files.filter(p -> p.getFileName().toString().endsWith(SNAPSHOT_EXTENSION))
+					.collect(Collectors.toList());
+		}
+		if (snapshots.size() <= maxSnapshots) {
+			return;
+		}
 
-			if (id == null) {
-				throw new IOException("Feature JSON missing required 'id' field");
+		Map<Path, FileTime> lastUsed = new HashMap<>();
+		for (Path snapshot : snapshots) {
+			try {
+				lastUsed.put(snapshot, Files.getLastModifiedTime(snapshot));
+			} catch (IOException e) {
+				// Already deleted by another instance
+				lastUsed.put(snapshot, FileTime.fromMillis(0));
 			}
+		}
+		snapshots.sort(Comparator.comparing(lastUsed::get));
+		for (Path snapshot : snapshots.subList(0, snapshots.size() - maxSnapshots)) {
+			Files.deleteIfExists(snapshot);
+		}
+	}
 
-			// now create builder with id and set cached values
-			var builder = builderFactory.newFeatureBuilder(getIDfromMavenCoordinates(id));
-			builder.setName(name);
-			builder.setDescription(description);
-			builder.setDocURL(docURL);
-			builder.setLicense(license);
-			builder.setSCM(scm);
-			builder.setVendor(vendor);
-			builder.setComplete(complete);
-			builder.addVariables(variables);
-			builder.addBundles(bundles);
-			builder.addCategories(categories);
-			builder.addConfigurations(configurations);
-			builder.addExtensions(extensions);
+	/**
+	 * Write a binary snapshot of a feature, which holds the feature fully
+	 * parsed, with all configuration values converted to their types
+	 *
+	 * @param feature the feature
+	 * @param out receives the snapshot, it is not closed
+	 * @throws IOException if the snapshot could not be written
+	 */
+	public void writeSnapshot(Feature feature, OutputStream out) throws IOException {
+		FeatureSnapshot.write(feature, out);
+	}
 
-			return builder.build();
-		} catch (JsonParserException e) {
-			throw new IOException("Invalid JSON", e);
+	/**
+	 * Read a feature from a snapshot written by
+	 * {@link #writeSnapshot(Feature, OutputStream)}. The whole snapshot is
+	 * checked and decoded at once, so a damaged snapshot is always reported
+	 * here.
+	 *
+	 * @param snapshot the snapshot file
+	 * @return the feature
+	 * @throws IOException if the snapshot could not be read
+	 */
+	public Feature readSnapshot(Path snapshot) throws IOException {
+		return FeatureSnapshot.read(snapshot, builderFactory, ids);
+	}
+
+	private static String readFully(Reader reader) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		char[] buffer = new char[8192];
+		int read;
+		while ((read = reader.read(buffer)) != -1) {
+			sb.append(buffer, 0, read);
 		}
+		return sb.toString();
+	}
+
+	private static String snapshotKey(String json) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			// the format version is part of the key, so that older snapshots are not used
+			digest.update((byte) FeatureSnapshot.FORMAT_VERSION);
+			return HexFormat.of().formatHex(digest.digest(json.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-256 is not available", e);
+		}
+	}
+
+	private Feature parseFeature(Reader jsonReader) throws IOException {
+		JsonTokenizer reader = new JsonTokenizer(jsonReader);
+		reader.object();
+
+		// cache here because id must not be first
+		String id = null;
+		String name = null;
+		String description = null;
+		String docURL = null;
+		String license = null;
+		String scm = null;
+		String vendor = null;
+		boolean complete = false;
+		Map<String, Object> variables = Map.of();
+		FeatureBundle[] bundles = new FeatureBundle[] {};
+		String[] categories = new String[] {};
+		FeatureConfiguration[] configurations = new FeatureConfiguration[] {};
+		FeatureExtension[] extensions = new FeatureExtension[] {};
+
+		while (reader.next()) {
+			switch (reader.key()) {
+			case "id" -> id = reader.string();
+			case "name" -> name = reader.string();
+			case "description" -> description = reader.string();
+			case "docURL" -> docURL = reader.string();
+			case "license" -> license = reader.string();
+			case "scm" -> scm = reader.string();
+			case "vendor" -> vendor = reader.string();
+			case "complete" -> complete = reader.bool();
+			case "variables" -> variables = readVariables(reader);
+			case "bundles" -> bundles = readBundles(reader);
+			case "categories" -> categories = readCategories(reader);
+			case "configurations" -> configurations = readConfigurations(reader);
+			case "extensions" -> extensions = readExtensions(reader);
+			default -> reader.skip();
+			}
+		}
+
+		if (id == null) {
+			throw new IOException("Feature JSON missing required 'id' field");
+		}
+
+		// now create builder with id and set cached values
+		var builder = builderFactory.newFeatureBuilder(getIDfromMavenCoordinates(id));
+		builder.setName(name);
+		builder.setDescription(description);
+		builder.setDocURL(docURL);
+		builder.setLicense(license);
+		builder.setSCM(scm);
+		builder.setVendor(vendor);
+		builder.setComplete(complete);
+		builder.addVariables(variables);
+		builder.addBundles(bundles);
+		builder.addCategories(categories);
+		builder.addConfigurations(configurations);
+		builder.addExtensions(extensions);
+
+		return builder.build();
 	}
 
-	private Map<String, Object> readVariables(JsonReader reader) throws JsonParserException {
+	private Map<String, Object> readVariables(JsonTokenizer reader) throws IOException {
 		Map<String, Object> variables = new LinkedHashMap<>();
 		reader.object();
 		while (reader.next()) {
 			String key = reader.key();
 			switch (reader.current()) {
 			case STRING -> variables.put(key, reader.string());
-			case NUMBER -> variables.put(key, toBigDecimal(reader.number()));
+			case NUMBER -> variables.put(key, reader.bigDecimal());
 			case BOOLEAN -> variables.put(key, reader.bool());
 			case NULL -> {
 				reader.nul();
@@ -175,20 +355,7 @@ public class FeatureServiceImpl implements FeatureService {
 		return variables;
 	}
 
-	private BigDecimal toBigDecimal(Number n) {
-		if (n instanceof BigDecimal bd) {
-			return bd;
-		}
-		if (n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte) {
-			return BigDecimal.valueOf(n.longValue());
-		}
-		if (n instanceof Double || n instanceof Float) {
-			return BigDecimal.valueOf(n.doubleValue());
-		}
-		return new BigDecimal(n.toString());
-	}
-
-	private FeatureBundle[] readBundles(JsonReader reader) throws JsonParserException {
+	private FeatureBundle[] readBundles(JsonTokenizer reader) throws IOException {
 		List<FeatureBundle> bundles = new ArrayList<>();
 		reader.array();
 		while (reader.next()) {
@@ -214,7 +381,7 @@ public class FeatureServiceImpl implements FeatureService {
 		return bundles.toArray(new FeatureBundle[0]);
 	}
 
-	private String[] readCategories(JsonReader reader) throws JsonParserException {
+	private String[] readCategories(JsonTokenizer reader) throws IOException {
 		List<String> cats = new ArrayList<>();
 		reader.array();
 		while (reader.next()) {
@@ -228,33 +395,25 @@ public class FeatureServiceImpl implements FeatureService {
 		return cats.toArray(new String[] {});
 	}
 
-	private FeatureConfiguration[] readConfigurations(JsonReader reader) throws JsonParserException {
+	private FeatureConfiguration[] readConfigurations(JsonTokenizer reader) throws IOException {
 		List<FeatureConfiguration> configs = new ArrayList<>();
 		reader.object();
 		while (reader.next()) {
 			String p = reader.key();
-			String factoryPid = null;
+			String name = null;
 			var idx = p.indexOf('~');
 			if (idx > 0) {
-				factoryPid = p.substring(0, idx);
-				p = p.substring(idx + 1);
-			}
-
-			FeatureConfigurationBuilder builder;
-			if (factoryPid == null) {
-				builder = builderFactory.newConfigurationBuilder(p);
-			} else {
-				builder = builderFactory.newConfigurationBuilder(factoryPid, p);
+				name = p.substring(idx + 1);
+				p = p.substring(0, idx);
 			}
 
-			Map<String, Object> cmap = readConfigValues(reader);
-			builder.addValues(cmap);
-			configs.add(builder.build());
+			// the values are converted here, so that an invalid value is reported on read
+			configs.add(ConfigurationBuilderImpl.build(p, name, readConfigValues(reader)));
 		}
 		return configs.toArray(new FeatureConfiguration[] {});
 	}
 
-	private Map<String, Object> readConfigValues(JsonReader reader) throws JsonParserException {
+	private Map<String, Object> readConfigValues(JsonTokenizer reader) throws IOException {
 		Hashtable<String, Object> config = new Hashtable<>();
 		reader.object();
 		while (reader.next()) {
@@ -262,18 +421,16 @@ public class FeatureServiceImpl implements FeatureService {
 			Object value;
 
 			switch (reader.current()) {
-			case OBJECT -> {
-				value = captureJsonObject(reader);
-			}
+			case OBJECT -> value = reader.json();
 			case ARRAY -> {
 				List<Object> list = new ArrayList<>();
 				reader.array();
 				while (reader.next()) {
-					list.add(normalizeJsonValue(reader.value()));
+					list.add(reader.value());
 				}
 				value = list;
 			}
-			default -> value = normalizeJsonValue(reader.value());
+			default -> value = reader.value();
 			}
 
 			String propertyKey = key;
@@ -288,9 +445,10 @@ public class FeatureServiceImpl implements FeatureService {
 			}
 
 			if (typeInfo != null) {
-				Object converted = TypeConverter.toType(value, typeInfo);
-				if (converted != TypeConverter.FAILED) {
-					value = converted;
+				value = TypeConverter.toType(value, typeInfo);
+				if (value == TypeConverter.FAILED) {
+					throw new IllegalArgumentException(
+							String.format("Invalid value for the configuration property %s", key));
 				}
 			}
 
@@ -298,31 +456,10 @@ public class FeatureServiceImpl implements FeatureService {
 				config.put(propertyKey, value);
 			}
 		}
-		return config;
+		return Map.copyOf(config);
 	}
 
-	/**
-	 * Converts non-standard Number types (e.g. nanojson's JsonLazyNumber) to
-	 * standard Java types that ConfigAdmin accepts (Integer, Long, Double).
-	 */
-	private static Object normalizeJsonValue(Object value) {
-		if (value instanceof Number n
-				&& !(value instanceof Integer || value instanceof Long || value instanceof Double
-						|| value instanceof Float || value instanceof Short || value instanceof Byte)) {
-			double d = n.doubleValue();
-			if (d == Math.floor(d) && !Double.isInfinite(d)) {
-				long l = n.longValue();
-				if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
-					return Integer.valueOf((int) l);
-				}
-				return Long.valueOf(l);
-			}
-			return Double.valueOf(d);
-		}
-		return value;
-	}
-
-	private FeatureExtension[] readExtensions(JsonReader reader) throws JsonParserException {
+	private FeatureExtension[] readExtensions(JsonTokenizer reader) throws IOException {
 		List<FeatureExtension> extensions = new ArrayList<>();
 		reader.object();
 		while (reader.next()) {
@@ -332,15 +469,14 @@ public class FeatureServiceImpl implements FeatureService {
 		return extensions.toArray(new FeatureExtension[] {});
 	}
 
-	private FeatureExtension readSingleExtension(JsonReader reader, String name) throws JsonParserException {
+	private FeatureExtension readSingleExtension(JsonTokenizer reader, String name) throws IOException {
 		reader.object();
 
 		String sType = null;
 		String sKind = "optional";
 		FeatureExtension.Type typeFromContentField = null;
-		List<String> textLines = null;
-		List<ArtifactData> artifactDataList = null;
-		String jsonString = null;
+		// the content is kept as JSON text and only parsed when first used
+		String content = null;
 
 		while (reader.next()) {
 			switch (reader.key()) {
@@ -348,36 +484,17 @@ public class FeatureServiceImpl implements FeatureService {
 			case "kind" -> sKind = reader.string();
 			case "text" -> {
 				typeFromContentField = FeatureExtension.Type.TEXT;
-				textLines = new ArrayList<>();
-				reader.array();
-				while (reader.next()) {
-					textLines.add(reader.string());
-				}
+				content = arrayJson(reader);
 			}
 			case "artifacts" -> {
 				typeFromContentField = FeatureExtension.Type.ARTIFACTS;
-				artifactDataList = new ArrayList<>();
-				reader.array();
-				while (reader.next()) {
-					reader.object();
-					String artId = null;
-					Map<String, Object> metadata = new LinkedHashMap<>();
-					while (reader.next()) {
-						String key = reader.key();
-						if ("id".equals(key)) {
-							artId = reader.string();
-						} else {
-							metadata.put(key, reader.value());
-						}
-					}
-					artifactDataList.add(new ArtifactData(artId, metadata));
-				}
+				content = arrayJson(reader);
 			}
 			case "json" -> {
 				typeFromContentField = FeatureExtension.Type.JSON;
-				jsonString = captureJsonObject(reader);
+				content = reader.json();
 			}
-			default -> skipValue(reader);
+			default -> reader.skip();
 			}
 		}
 
@@ -402,34 +519,53 @@ public class FeatureServiceImpl implements FeatureService {
 		}
 
 		var kind = FeatureExtension.Kind.valueOf(sKind.toUpperCase());
-		FeatureExtensionBuilder builder = builderFactory.newExtensionBuilder(name, typeFromContentField, kind);
 
-		switch (typeFromContentField) {
-		case TEXT -> textLines.forEach(builder::addText);
-		case ARTIFACTS -> {
-			for (ArtifactData ad : artifactDataList) {
-				ID id = getIDfromMavenCoordinates(ad.id());
-				FeatureArtifactBuilder fab = builderFactory.newArtifactBuilder(id);
-				fab.addMetadata(ad.metadata());
-				builder.addArtifact(fab.build());
-			}
-		}
-		case JSON -> builder.setJSON(jsonString);
-		}
+		return switch (typeFromContentField) {
+		case TEXT -> ExtensionBuilderImpl.text(name, kind, JsonSlice.list(content, this::readText));
+		case ARTIFACTS -> ExtensionBuilderImpl.artifacts(name, kind, JsonSlice.list(content, this::readArtifacts));
+		case JSON -> builderFactory.newExtensionBuilder(name, FeatureExtension.Type.JSON, kind)
+				.setJSON(content)
+				.build();
+		};
+	}
 
-		return builder.build();
+	private String arrayJson(JsonTokenizer reader) throws IOException {
+		if (reader.current() != JsonTokenizer.Token.ARRAY) {
+			// reports the error
+			reader.array();
+		}
+		return reader.json();
 	}
 
-	private record ArtifactData(String id, Map<String, Object> metadata) {
+	private List<String> readText(JsonTokenizer reader) throws IOException {
+		List<String> textLines = new ArrayList<>();
+		reader.array();
+		while (reader.next()) {
+			textLines.add(reader.string());
+		}
+		return List.copyOf(textLines);
 	}
 
-	private String captureJsonObject(JsonReader reader) throws JsonParserException {
-		JsonStringWriter jsw = JsonWriter.string();
-		jsw.object();
-		reader.object();
-		copyObjectContents(reader, jsw);
-		jsw.end();
-		return jsw.done();
+	private List<FeatureArtifact> readArtifacts(JsonTokenizer reader) throws IOException {
+		List<FeatureArtifact> artifacts = new ArrayList<>();
+		reader.array();
+		while (reader.next()) {
+			reader.object();
+			String artId = null;
+			Map<String, Object> metadata = new LinkedHashMap<>();
+			while (reader.next()) {
+				String key = reader.key();
+				if ("id".equals(key)) {
+					artId = reader.string();
+				} else {
+					metadata.put(key, reader.value());
+				}
+			}
+			FeatureArtifactBuilder fab = builderFactory.newArtifactBuilder(getIDfromMavenCoordinates(artId));
+			fab.addMetadata(metadata);
+			artifacts.add(fab.build());
+		}
+		return List.copyOf(artifacts);
 	}
 
 	private <T extends JsonSink<T>> void copyObjectContents(JsonReader reader, JsonSink<T> sink)
@@ -487,27 +623,6 @@ public class FeatureServiceImpl implements FeatureService {
 		}
 	}
 
-	private void skipValue(JsonReader reader) throws JsonParserException {
-		switch (reader.current()) {
-		case OBJECT -> {
-			reader.object();
-			while (reader.next()) {
-				skipValue(reader);
-			}
-		}
-		case ARRAY -> {
-			reader.array();
-			while (reader.next()) {
-				skipValue(reader);
-			}
-		}
-		case STRING -> reader.string();
-		case NUMBER -> reader.number();
-		case BOOLEAN -> reader.bool();
-		case NULL -> reader.nul();
-		}
-	}
-
 	@Override
 	public void writeFeature(Feature feature, Writer jsonWriter) throws IOException {
 		JsonAppendableWriter jaw = JsonWriter.indent("  ").on(jsonWriter);
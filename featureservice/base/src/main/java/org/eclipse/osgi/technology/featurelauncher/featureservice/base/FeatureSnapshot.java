@@ -0,0 +1,707 @@
+/**
+ * Copyright (c) 2025 Contributors to the Eclipse Foundation.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Stefan Bischof - initial implementation
+ */
+
+package org.eclipse.osgi.technology.featurelauncher.featureservice.base;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+import org.osgi.service.feature.BuilderFactory;
+import org.osgi.service.feature.Feature;
+import org.osgi.service.feature.FeatureArtifact;
+import org.osgi.service.feature.FeatureArtifactBuilder;
+import org.osgi.service.feature.FeatureBuilder;
+import org.osgi.service.feature.FeatureBundle;
+import org.osgi.service.feature.FeatureBundleBuilder;
+import org.osgi.service.feature.FeatureConfiguration;
+import org.osgi.service.feature.FeatureConfigurationBuilder;
+import org.osgi.service.feature.FeatureExtension;
+import org.osgi.service.feature.FeatureExtensionBuilder;
+import org.osgi.service.feature.ID;
+
+/**
+ * A compact binary form of a parsed {@link Feature}, with all configuration
+ * values already converted to their Java types.
+ * <p>
+ * The snapshot starts with a CRC-32 of its content and a header holding the
+ * offsets of its sections (the string table, variables, bundles,
+ * configurations and extensions). Reading a snapshot checks the CRC and
+ * decodes all the sections at once, checking that each of them ends where the
+ * next one starts, so that a damaged snapshot is rejected when it is read
+ * rather than when the feature is used. The feature is built with the
+ * {@link BuilderFactory}, so it is the same as the one parsed from the JSON.
+ * <p>
+ * Every string is stored once in the string table, as its UTF-8 length
+ * followed by the UTF-8 bytes, and referred to by its index. Indexes and
+ * counts are written as variable length integers, other numbers are big
+ * endian.
+ */
+final class FeatureSnapshot {
+
+	private static final int MAGIC = 0x46534E50; // "FSNP"
+
+	static final int FORMAT_VERSION = 2;
+
+	// magic, version and checksum
+	private static final int CONTENT_OFFSET = 12;
+
+	private static final int SECTIONS = 5;
+
+	private static final int STRINGS = 0;
+	private static final int VARIABLES = 1;
+	private static final int BUNDLES = 2;
+	private static final int CONFIGURATIONS = 3;
+	private static final int EXTENSIONS = 4;
+
+	// Value tags
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte INTEGER = 2;
+	private static final byte LONG = 3;
+	private static final byte DOUBLE = 4;
+	private static final byte FLOAT = 5;
+	private static final byte BOOLEAN = 6;
+	private static final byte SHORT = 7;
+	private static final byte BYTE = 8;
+	private static final byte CHARACTER = 9;
+	private static final byte BIG_DECIMAL = 10;
+	private static final byte BIG_INTEGER = 11;
+	private static final byte ARRAY = 20;
+	private static final byte PRIMITIVE_ARRAY = 21;
+	private static final byte LIST = 22;
+	private static final byte MAP = 23;
+
+	private FeatureSnapshot() {
+	}
+
+	/**
+	 * Write the snapshot of a feature
+	 *
+	 * @param feature the feature
+	 * @param out receives the snapshot, it is not closed
+	 * @throws IOException if the feature holds a value which cannot be
+	 *             represented, or the snapshot could not be written
+	 */
+	static void write(Feature feature, OutputStream out) throws IOException {
+		Encoder encoder = new Encoder();
+
+		DataOutputStream dos = encoder.section(VARIABLES);
+		encoder.writeMap(dos, feature.getVariables());
+
+		dos = encoder.section(BUNDLES);
+		encoder.writeVarInt(dos, feature.getBundles().size());
+		for (FeatureBundle bundle : feature.getBundles()) {
+			encoder.writeID(dos, bundle.getID());
+			encoder.writeMap(dos, bundle.getMetadata());
+		}
+
+		dos = encoder.section(CONFIGURATIONS);
+		encoder.writeVarInt(dos, feature.getConfigurations().size());
+		for (FeatureConfiguration configuration : feature.getConfigurations().values()) {
+			encoder.writeString(dos, configuration.getPid());
+			encoder.writeString(dos, configuration.getFactoryPid().orElse(null));
+			encoder.writeMap(dos, configuration.getValues());
+		}
+
+		dos = encoder.section(EXTENSIONS);
+		encoder.writeVarInt(dos, feature.getExtensions().size());
+		for (FeatureExtension extension : feature.getExtensions().values()) {
+			encoder.writeString(dos, extension.getName());
+			dos.writeByte(extension.getType().ordinal());
+			dos.writeByte(extension.getKind().ordinal());
+			switch (extension.getType()) {
+			case TEXT -> {
+				encoder.writeVarInt(dos, extension.getText().size());
+				for (String text : extension.getText()) {
+					encoder.writeString(dos, text);
+				}
+			}
+			case ARTIFACTS -> {
+				encoder.writeVarInt(dos, extension.getArtifacts().size());
+				for (FeatureArtifact artifact : extension.getArtifacts()) {
+					encoder.writeID(dos, artifact.getID());
+					encoder.writeMap(dos, artifact.getMetadata());
+				}
+			}
+			// an empty JSON body is reported as null
+			case JSON -> encoder.writeString(dos, Objects.requireNonNullElse(extension.getJSON(), ""));
+			}
+		}
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		dos = new DataOutputStream(header);
+		encoder.writeID(dos, feature.getID());
+		encoder.writeString(dos, feature.getName().orElse(null));
+		encoder.writeString(dos, feature.getDescription().orElse(null));
+		encoder.writeString(dos, feature.getDocURL().orElse(null));
+		encoder.writeString(dos, feature.getLicense().orElse(null));
+		encoder.writeString(dos, feature.getSCM().orElse(null));
+		encoder.writeString(dos, feature.getVendor().orElse(null));
+		dos.writeBoolean(feature.isComplete());
+		encoder.writeVarInt(dos, feature.getCategories().size());
+		for (String category : feature.getCategories()) {
+			encoder.writeString(dos, category);
+		}
+
+		encoder.writeStringTable();
+
+		// magic, version, checksum, then section offsets, header, sections
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		dos = new DataOutputStream(content);
+		int offset = CONTENT_OFFSET + 4 * SECTIONS + header.size();
+		for (ByteArrayOutputStream section : encoder.sections) {
+			dos.writeInt(offset);
+			offset += section.size();
+		}
+		header.writeTo(dos);
+		for (ByteArrayOutputStream section : encoder.sections) {
+			section.writeTo(dos);
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(content.toByteArray());
+
+		dos = new DataOutputStream(out);
+		dos.writeInt(MAGIC);
+		dos.writeInt(FORMAT_VERSION);
+		dos.writeInt((int) crc.getValue());
+		content.writeTo(dos);
+		dos.flush();
+	}
+
+	/**
+	 * Read a snapshot file
+	 *
+	 * @param file the snapshot file
+	 * @param builderFactory used to create the feature elements
+	 * @param ids the pool sharing the IDs read with the rest of the service
+	 * @return the feature
+	 * @throws IOException if the file could not be read or is not a valid
+	 *             snapshot
+	 */
+	static Feature read(Path file, BuilderFactory builderFactory, IDPool ids) throws IOException {
+		return read(ByteBuffer.wrap(Files.readAllBytes(file)), builderFactory, ids);
+	}
+
+	static Feature read(ByteBuffer buffer, BuilderFactory builderFactory, IDPool ids) throws IOException {
+		try {
+			buffer = buffer.duplicate();
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Not a feature snapshot");
+			}
+			int version = buffer.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Unsupported feature snapshot version " + version);
+			}
+			long checksum = buffer.getInt() & 0xFFFFFFFFL;
+			CRC32 crc = new CRC32();
+			crc.update(buffer.duplicate());
+			if (crc.getValue() != checksum) {
+				throw new IOException("Corrupt feature snapshot, its checksum does not match");
+			}
+			int[] offsets = new int[SECTIONS];
+			for (int i = 0; i < SECTIONS; i++) {
+				offsets[i] = buffer.getInt();
+				if (offsets[i] < buffer.position() || offsets[i] > buffer.limit()
+						|| (i > 0 && offsets[i] < offsets[i - 1])) {
+					throw new IOException("Corrupt feature snapshot");
+				}
+			}
+			return decode(buffer, offsets, builderFactory, ids);
+		} catch (RuntimeException e) {
+			// Any inconsistency, e.g. a BufferUnderflowException or an index out
+			// of bounds, means the snapshot is damaged
+			throw new IOException("Corrupt feature snapshot", e);
+		}
+	}
+
+	private static byte tagOf(Class<?> type) throws IOException {
+		if (type == String.class) {
+			return STRING;
+		} else if (type == Integer.class || type == int.class) {
+			return INTEGER;
+		} else if (type == Long.class || type == long.class) {
+			return LONG;
+		} else if (type == Double.class || type == double.class) {
+			return DOUBLE;
+		} else if (type == Float.class || type == float.class) {
+			return FLOAT;
+		} else if (type == Boolean.class || type == boolean.class) {
+			return BOOLEAN;
+		} else if (type == Short.class || type == short.class) {
+			return SHORT;
+		} else if (type == Byte.class || type == byte.class) {
+			return BYTE;
+		} else if (type == Character.class || type == char.class) {
+			return CHARACTER;
+		} else if (type == BigDecimal.class) {
+			return BIG_DECIMAL;
+		} else if (type == BigInteger.class) {
+			return BIG_INTEGER;
+		}
+		throw new IOException("Unsupported value type " + type.getName());
+	}
+
+	private static Class<?> typeOf(byte tag, boolean primitive) {
+		return switch (tag) {
+		case STRING -> String.class;
+		case INTEGER -> primitive ? int.class : Integer.class;
+		case LONG -> primitive ? long.class : Long.class;
+		case DOUBLE -> primitive ? double.class : Double.class;
+		case FLOAT -> primitive ? float.class : Float.class;
+		case BOOLEAN -> primitive ? boolean.class : Boolean.class;
+		case SHORT -> primitive ? short.class : Short.class;
+		case BYTE -> primitive ? byte.class : Byte.class;
+		case CHARACTER -> primitive ? char.class : Character.class;
+		case BIG_DECIMAL -> BigDecimal.class;
+		case BIG_INTEGER -> BigInteger.class;
+		default -> throw new IllegalArgumentException("Unknown value type " + tag);
+		};
+	}
+
+	/**
+	 * Encodes the sections of a snapshot, collecting the strings they use
+	 */
+	private static final class Encoder {
+
+		final ByteArrayOutputStream[] sections = new ByteArrayOutputStream[SECTIONS];
+
+		private final Map<String, Integer> strings = new HashMap<>();
+
+		private final List<String> stringTable = new ArrayList<>();
+
+		Encoder() {
+			for (int i = 0; i < SECTIONS; i++) {
+				sections[i] = new ByteArrayOutputStream();
+			}
+		}
+
+		DataOutputStream section(int section) {
+			return new DataOutputStream(sections[section]);
+		}
+
+		void writeStringTable() throws IOException {
+			DataOutputStream dos = section(STRINGS);
+			writeVarInt(dos, stringTable.size());
+			for (String s : stringTable) {
+				byte[] bytes = s.getBytes(UTF_8);
+				writeVarInt(dos, bytes.length);
+				dos.write(bytes);
+			}
+		}
+
+		void writeVarInt(DataOutputStream dos, int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				dos.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			dos.writeByte(value);
+		}
+
+		void writeString(DataOutputStream dos, String s) throws IOException {
+			if (s == null) {
+				writeVarInt(dos, 0);
+				return;
+			}
+			Integer index = strings.get(s);
+			if (index == null) {
+				index = stringTable.size();
+				strings.put(s, index);
+				stringTable.add(s);
+			}
+			writeVarInt(dos, index + 1);
+		}
+
+		void writeID(DataOutputStream dos, ID id) throws IOException {
+			writeString(dos, id.getGroupId());
+			writeString(dos, id.getArtifactId());
+			writeString(dos, id.getVersion());
+			writeString(dos, id.getType().orElse(null));
+			writeString(dos, id.getClassifier().orElse(null));
+		}
+
+		void writeMap(DataOutputStream dos, Map<?, ?> map) throws IOException {
+			writeVarInt(dos, map.size());
+			for (Map.Entry<?, ?> e : map.entrySet()) {
+				writeString(dos, String.valueOf(e.getKey()));
+				writeValue(dos, e.getValue());
+			}
+		}
+
+		void writeValue(DataOutputStream dos, Object value) throws IOException {
+			if (value == null) {
+				dos.writeByte(NULL);
+			} else if (value instanceof Map<?, ?> map) {
+				dos.writeByte(MAP);
+				writeMap(dos, map);
+			} else if (value instanceof Collection<?> collection) {
+				dos.writeByte(LIST);
+				writeVarInt(dos, collection.size());
+				for (Object o : collection) {
+					writeValue(dos, o);
+				}
+			} else if (value.getClass().isArray()) {
+				Class<?> componentType = value.getClass().getComponentType();
+				int length = Array.getLength(value);
+				if (componentType.isPrimitive()) {
+					dos.writeByte(PRIMITIVE_ARRAY);
+					dos.writeByte(tagOf(componentType));
+					writeVarInt(dos, length);
+					for (int i = 0; i < length; i++) {
+						writeScalar(dos, Array.get(value, i));
+					}
+				} else {
+					dos.writeByte(ARRAY);
+					dos.writeByte(tagOf(componentType));
+					writeVarInt(dos, length);
+					for (int i = 0; i < length; i++) {
+						writeValue(dos, Array.get(value, i));
+					}
+				}
+			} else {
+				dos.writeByte(tagOf(value.getClass()));
+				writeScalar(dos, value);
+			}
+		}
+
+		private void writeScalar(DataOutputStream dos, Object value) throws IOException {
+			if (value instanceof String s) {
+				writeString(dos, s);
+			} else if (value instanceof Integer i) {
+				dos.writeInt(i);
+			} else if (value instanceof Long l) {
+				dos.writeLong(l);
+			} else if (value instanceof Double d) {
+				dos.writeDouble(d);
+			} else if (value instanceof Float f) {
+				dos.writeFloat(f);
+			} else if (value instanceof Boolean b) {
+				dos.writeBoolean(b);
+			} else if (value instanceof Short s) {
+				dos.writeShort(s);
+			} else if (value instanceof Byte b) {
+				dos.writeByte(b);
+			} else if (value instanceof Character c) {
+				dos.writeChar(c);
+			} else if (value instanceof BigDecimal || value instanceof BigInteger) {
+				writeString(dos, value.toString());
+			} else {
+				throw new IOException("Unsupported value type " + value.getClass().getName());
+			}
+		}
+	}
+
+	/**
+	 * The string table of a snapshot. Strings are decoded on first use and
+	 * then shared by all the places referring to them.
+	 */
+	private static final class StringTable {
+
+		private final ByteBuffer buffer;
+
+		private final int[] positions;
+
+		private final int[] lengths;
+
+		private final String[] strings;
+
+		StringTable(ByteBuffer buffer, int offset) {
+			this.buffer = buffer.duplicate().position(offset);
+			int count = readCount(this.buffer);
+			positions = new int[count];
+			lengths = new int[count];
+			strings = new String[count];
+			for (int i = 0; i < count; i++) {
+				lengths[i] = readVarInt(this.buffer);
+				positions[i] = this.buffer.position();
+				this.buffer.position(positions[i] + lengths[i]);
+			}
+		}
+
+		/**
+		 * @return the position following the last string
+		 */
+		int end() {
+			return buffer.position();
+		}
+
+		String get(int index) {
+			String s = strings[index];
+			if (s == null) {
+				byte[] bytes = new byte[lengths[index]];
+				buffer.get(positions[index], bytes);
+				s = new String(bytes, UTF_8);
+				strings[index] = s;
+			}
+			return s;
+		}
+	}
+
+	private static int readVarInt(ByteBuffer buffer) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Invalid variable length integer");
+	}
+
+	/*
+	 * Every element takes at least one byte, so a larger count is corrupt
+	 */
+	private static int readCount(ByteBuffer buffer) {
+		int count = readVarInt(buffer);
+		if (count < 0 || count > buffer.remaining()) {
+			throw new IllegalArgumentException("Invalid count " + count);
+		}
+		return count;
+	}
+
+	/**
+	 * Decodes values from a section of a snapshot
+	 */
+	private static final class Decoder {
+
+		private final ByteBuffer buffer;
+
+		private final StringTable strings;
+
+		private final IDPool ids;
+
+		Decoder(ByteBuffer buffer, int offset, StringTable strings, IDPool ids) {
+			this.buffer = buffer.duplicate().position(offset);
+			this.strings = strings;
+			this.ids = ids;
+		}
+
+		int readVarInt() {
+			return FeatureSnapshot.readVarInt(buffer);
+		}
+
+		int readCount() {
+			return FeatureSnapshot.readCount(buffer);
+		}
+
+		/**
+		 * Check that the section was fully read, and ends where the next one
+		 * starts
+		 */
+		void end(int end) {
+			if (buffer.position() != end) {
+				throw new IllegalArgumentException("Section ends at " + buffer.position() + " instead of " + end);
+			}
+		}
+
+		byte readByte() {
+			return buffer.get();
+		}
+
+		String readString() {
+			int index = readVarInt();
+			return index == 0 ? null : strings.get(index - 1);
+		}
+
+		ID readID() {
+			String groupId = readString();
+			String artifactId = readString();
+			String version = readString();
+			Optional<String> type = Optional.ofNullable(readString());
+			Optional<String> classifier = Optional.ofNullable(readString());
+			return ids.intern(new IDImpl(groupId, artifactId, version, type, classifier));
+		}
+
+		/**
+		 * Pass the entries of a map to a consumer, without building the map
+		 */
+		void readEntries(BiConsumer<String, Object> consumer) {
+			int size = readCount();
+			for (int i = 0; i < size; i++) {
+				String key = readString();
+				consumer.accept(key, readValue());
+			}
+		}
+
+		Map<String, Object> readMap() {
+			Map<String, Object> map = new LinkedHashMap<>();
+			readEntries(map::put);
+			return map;
+		}
+
+		Object readValue() {
+			byte tag = buffer.get();
+			switch (tag) {
+			case NULL:
+				return null;
+			case MAP:
+				return readMap();
+			case LIST: {
+				int size = readCount();
+				List<Object> list = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					list.add(readValue());
+				}
+				return list;
+			}
+			case ARRAY: {
+				Class<?> componentType = typeOf(buffer.get(), false);
+				int length = readCount();
+				Object[] array = (Object[]) Array.newInstance(componentType, length);
+				for (int i = 0; i < length; i++) {
+					array[i] = readValue();
+				}
+				return array;
+			}
+			case PRIMITIVE_ARRAY: {
+				byte componentTag = buffer.get();
+				int length = readCount();
+				Object array = Array.newInstance(typeOf(componentTag, true), length);
+				for (int i = 0; i < length; i++) {
+					Array.set(array, i, readScalar(componentTag));
+				}
+				return array;
+			}
+			default:
+				return readScalar(tag);
+			}
+		}
+
+		private Object readScalar(byte tag) {
+			return switch (tag) {
+			case STRING -> readString();
+			case INTEGER -> Integer.valueOf(buffer.getInt());
+			case LONG -> Long.valueOf(buffer.getLong());
+			case DOUBLE -> Double.valueOf(buffer.getDouble());
+			case FLOAT -> Float.valueOf(buffer.getFloat());
+			case BOOLEAN -> Boolean.valueOf(buffer.get() != 0);
+			case SHORT -> Short.valueOf(buffer.getShort());
+			case BYTE -> Byte.valueOf(buffer.get());
+			case CHARACTER -> Character.valueOf(buffer.getChar());
+			case BIG_DECIMAL -> new BigDecimal(readString());
+			case BIG_INTEGER -> new BigInteger(readString());
+			default -> throw new IllegalArgumentException("Unknown value type " + tag);
+			};
+		}
+	}
+
+	/**
+	 * Decode all the sections of a snapshot, checking that each one ends where
+	 * the next one starts
+	 */
+	private static Feature decode(ByteBuffer buffer, int[] offsets, BuilderFactory builderFactory, IDPool ids) {
+		int[] ends = new int[SECTIONS];
+		for (int i = 0; i < SECTIONS; i++) {
+			ends[i] = i + 1 < SECTIONS ? offsets[i + 1] : buffer.limit();
+		}
+
+		StringTable strings = new StringTable(buffer, offsets[STRINGS]);
+		if (strings.end() != ends[STRINGS]) {
+			throw new IllegalArgumentException("Corrupt string table");
+		}
+
+		Decoder decoder = new Decoder(buffer, buffer.position(), strings, ids);
+		FeatureBuilder builder = builderFactory.newFeatureBuilder(decoder.readID());
+		builder.setName(decoder.readString());
+		builder.setDescription(decoder.readString());
+		builder.setDocURL(decoder.readString());
+		builder.setLicense(decoder.readString());
+		builder.setSCM(decoder.readString());
+		builder.setVendor(decoder.readString());
+		builder.setComplete(decoder.readByte() != 0);
+		int count = decoder.readCount();
+		for (int i = 0; i < count; i++) {
+			builder.addCategories(decoder.readString());
+		}
+		decoder.end(offsets[STRINGS]);
+
+		// null values are allowed
+		decoder = new Decoder(buffer, offsets[VARIABLES], strings, ids);
+		decoder.readEntries(builder::addVariable);
+		decoder.end(ends[VARIABLES]);
+
+		decoder = new Decoder(buffer, offsets[BUNDLES], strings, ids);
+		count = decoder.readCount();
+		for (int i = 0; i < count; i++) {
+			FeatureBundleBuilder bundleBuilder = builderFactory.newBundleBuilder(decoder.readID());
+			decoder.readEntries(bundleBuilder::addMetadata);
+			builder.addBundles(bundleBuilder.build());
+		}
+		decoder.end(ends[BUNDLES]);
+
+		decoder = new Decoder(buffer, offsets[CONFIGURATIONS], strings, ids);
+		count = decoder.readCount();
+		for (int i = 0; i < count; i++) {
+			String pid = decoder.readString();
+			String factoryPid = decoder.readString();
+			FeatureConfigurationBuilder configurationBuilder = factoryPid == null
+					? builderFactory.newConfigurationBuilder(pid)
+					: builderFactory.newConfigurationBuilder(factoryPid, pid.substring(factoryPid.length() + 1));
+			decoder.readEntries(configurationBuilder::addValue);
+			builder.addConfigurations(configurationBuilder.build());
+		}
+		decoder.end(ends[CONFIGURATIONS]);
+
+		decoder = new Decoder(buffer, offsets[EXTENSIONS], strings, ids);
+		count = decoder.readCount();
+		for (int i = 0; i < count; i++) {
+			String extensionName = decoder.readString();
+			FeatureExtension.Type type = FeatureExtension.Type.values()[decoder.readByte()];
+			FeatureExtension.Kind kind = FeatureExtension.Kind.values()[decoder.readByte()];
+			FeatureExtensionBuilder extensionBuilder = builderFactory.newExtensionBuilder(extensionName, type, kind);
+			switch (type) {
+			case TEXT -> {
+				int lines = decoder.readCount();
+				for (int j = 0; j < lines; j++) {
+					extensionBuilder.addText(decoder.readString());
+				}
+			}
+			case ARTIFACTS -> {
+				int artifacts = decoder.readCount();
+				for (int j = 0; j < artifacts; j++) {
+					FeatureArtifactBuilder artifactBuilder = builderFactory.newArtifactBuilder(decoder.readID());
+					decoder.readEntries(artifactBuilder::addMetadata);
+					extensionBuilder.addArtifact(artifactBuilder.build());
+				}
+			}
+			case JSON -> extensionBuilder.setJSON(decoder.readString());
+			}
+			builder.addExtensions(extensionBuilder.build());
+		}
+		decoder.end(ends[EXTENSIONS]);
+
+		return builder.build();
+	}
+}
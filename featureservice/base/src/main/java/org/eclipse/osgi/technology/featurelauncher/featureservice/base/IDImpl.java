@@ -19,8 +19,22 @@ import java.util.Optional;
 
 import org.osgi.service.feature.ID;
 
-public record IDImpl(String groupId, String artifactId, String version, Optional<String> type,
-        Optional<String> classifier) implements ID {
+/**
+ * An immutable {@link ID}. The string form is computed once and also serves
+ * as the hash code and for equality, so that IDs used as map keys compare
+ * cheaply, and not at all when they are the same instance, as is the case for
+ * IDs obtained from the same {@link FeatureServiceImpl}.
+ */
+public final class IDImpl implements ID {
+
+	private final String groupId;
+	private final String artifactId;
+	private final String version;
+	private final Optional<String> type;
+	private final Optional<String> classifier;
+
+	/* the string form, computed on first use */
+	private String string;
 
 	/**
 	 * Construct an ID from a Maven ID. Maven IDs have the following syntax:
@@ -32,33 +46,41 @@ public record IDImpl(String groupId, String artifactId, String version, Optional
 	 * @throws IllegalArgumentException if the mavenID does not match the Syntax
 	 */
 	public static IDImpl fromMavenID(String mavenID) throws IllegalArgumentException {
-		var parts = mavenID.split(":");
+		// positions of the colons, at most 4 are valid
+		int[] colons = new int[4];
+		int count = 0;
+		for (int i = mavenID.indexOf(':'); i >= 0; i = mavenID.indexOf(':', i + 1)) {
+			if (count == colons.length) {
+				throw new IllegalArgumentException("Not a valid maven ID" + mavenID);
+			}
+			colons[count++] = i;
+		}
 
 		if (mavenID.startsWith(":") || mavenID.endsWith(":") || mavenID.contains("::")) {
 			throw new IllegalArgumentException("Not a valid maven ID" + mavenID);
 		}
 
-		if (parts.length < 3 || parts.length > 5) {
+		if (count < 2) {
 			throw new IllegalArgumentException("Not a valid maven ID" + mavenID);
 		}
 
-		var gid = parts[0];
-		var aid = parts[1];
-		String ver = null;
+		var gid = mavenID.substring(0, colons[0]);
+		var aid = mavenID.substring(colons[0] + 1, colons[1]);
+		var ver = mavenID.substring(colons[count - 1] + 1);
 		Optional<String> t = Optional.empty();
 		Optional<String> c = Optional.empty();
 
-		if (parts.length == 3) {
-			ver = parts[2];
-		} else if (parts.length == 4) {
-			t = Optional.of(parts[2]);
-			ver = parts[3];
-		} else {
-			t = Optional.of(parts[2]);
-			c = Optional.of(parts[3]);
-			ver = parts[4];
-		}
-		return new IDImpl(gid, aid, ver, t, c);
+		if (count >= 3) {
+			t = Optional.of(mavenID.substring(colons[1] + 1, colons[2]));
+		}
+		if (count == 4) {
+			c = Optional.of(mavenID.substring(colons[2] + 1, colons[3]));
+		}
+
+		IDImpl id = new IDImpl(gid, aid, ver, t, c);
+		// the input is already the string form
+		id.string = mavenID;
+		return id;
 	}
 
 	/**
@@ -127,6 +149,26 @@ public record IDImpl(String groupId, String artifactId, String version, Optional
 		this.classifier = classifier;
 	}
 
+	public String groupId() {
+		return groupId;
+	}
+
+	public String artifactId() {
+		return artifactId;
+	}
+
+	public String version() {
+		return version;
+	}
+
+	public Optional<String> type() {
+		return type;
+	}
+
+	public Optional<String> classifier() {
+		return classifier;
+	}
+
 	/**
 	 * Get the group ID.
 	 *
@@ -186,14 +228,39 @@ public record IDImpl(String groupId, String artifactId, String version, Optional
 	 */
 	@Override
 	public String toString() {
-		var sb = new StringBuilder(groupId).append(":").append(artifactId);
+		String result = string;
+		if (result == null) {
+			var sb = new StringBuilder(groupId).append(":").append(artifactId);
 
-		if (type.isPresent()) {
-			sb = sb.append(":").append(type.get());
-			if (classifier.isPresent()) {
-				sb = sb.append(":").append(classifier.get());
+			if (type.isPresent()) {
+				sb = sb.append(":").append(type.get());
+				if (classifier.isPresent()) {
+					sb = sb.append(":").append(classifier.get());
+				}
 			}
+			result = sb.append(":").append(version).toString();
+			string = result;
+		}
+		return result;
+	}
+
+	/*
+	 * The string form is unambiguous, as no part may contain a colon and a
+	 * classifier requires a type. String caches its own hash code.
+	 */
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof IDImpl other)) {
+			return false;
 		}
-		return sb.append(":").append(version).toString();
+		return hashCode() == other.hashCode() && toString().equals(other.toString());
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2025 Contributors to the Eclipse Foundation.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Stefan Bischof - initial implementation
+ */
+
+package org.eclipse.osgi.technology.featurelauncher.featureservice.base;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded pool of {@link IDImpl} instances, so that the coordinates which
+ * repeat across the features of a node share one instance, with its string
+ * form and hash code computed once.
+ * <p>
+ * The pool is a fixed size table indexed by the hash of the string form, in
+ * which a new ID replaces whatever occupied its slot. The entries are only
+ * weakly referenced, so the pool never keeps an ID alive that is no longer
+ * used elsewhere.
+ */
+final class IDPool {
+
+	private final AtomicReferenceArray<WeakReference<IDImpl>> slots;
+
+	private final int mask;
+
+	/**
+	 * @param size the number of slots, rounded up to a power of two
+	 */
+	IDPool(int size) {
+		int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * @param mavenID an ID in the Maven syntax
+	 * @return the pooled ID for these coordinates
+	 * @throws IllegalArgumentException if the mavenID is not valid
+	 * @see IDImpl#fromMavenID(String)
+	 */
+	IDImpl fromMavenID(String mavenID) {
+		int slot = slot(mavenID.hashCode());
+		IDImpl pooled = get(slot);
+		if (pooled != null && pooled.toString().equals(mavenID)) {
+			return pooled;
+		}
+		IDImpl id = IDImpl.fromMavenID(mavenID);
+		slots.set(slot, new WeakReference<>(id));
+		return id;
+	}
+
+	/**
+	 * @param id an ID
+	 * @return the pooled ID equal to the given one, which is pooled if there is
+	 *         none
+	 */
+	IDImpl intern(IDImpl id) {
+		int slot = slot(id.hashCode());
+		IDImpl pooled = get(slot);
+		if (id.equals(pooled)) {
+			return pooled;
+		}
+		slots.set(slot, new WeakReference<>(id));
+		return id;
+	}
+
+	private IDImpl get(int slot) {
+		WeakReference<IDImpl> ref = slots.get(slot);
+		return ref == null ? null : ref.get();
+	}
+
+	private int slot(int hash) {
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
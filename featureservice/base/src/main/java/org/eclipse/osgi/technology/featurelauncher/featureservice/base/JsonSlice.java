@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2025 Contributors to the Eclipse Foundation.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Stefan Bischof - initial implementation
+ */
+
+package org.eclipse.osgi.technology.featurelauncher.featureservice.base;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A part of a feature kept as the compact JSON text it was read from, which is
+ * only parsed when first accessed.
+ * <p>
+ * Most extensions are never handled by a runtime, so keeping their content as
+ * text avoids building and retaining the values of the parts that are never
+ * looked at. The syntax is checked when the feature is read, as the text is
+ * produced by {@link JsonTokenizer#json()}.
+ * <p>
+ * The lists returned by {@link #list(String, Parser)} are unmodifiable and
+ * compare equal to any other list with the same content.
+ */
+final class JsonSlice<T> {
+
+	@FunctionalInterface
+	interface Parser<T> {
+		/**
+		 * @param reader a tokenizer positioned before the value
+		 * @return the parsed value, which must not be modified afterwards
+		 */
+		T parse(JsonTokenizer reader) throws IOException;
+	}
+
+	private final String json;
+
+	private final Parser<T> parser;
+
+	private volatile T value;
+
+	private JsonSlice(String json, Parser<T> parser) {
+		this.json = json;
+		this.parser = parser;
+	}
+
+	/**
+	 * @return a list parsed from the given JSON text on first access
+	 */
+	static <E> List<E> list(String json, Parser<List<E>> parser) {
+		return new SliceList<>(new JsonSlice<>(json, parser));
+	}
+
+	T get() {
+		T result = value;
+		if (result == null) {
+			try {
+				result = parser.parse(new JsonTokenizer(new StringReader(json)));
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Not a valid feature element: " + json, e);
+			}
+			value = result;
+		}
+		return result;
+	}
+
+	private static final class SliceList<E> extends AbstractList<E> {
+
+		private final JsonSlice<List<E>> slice;
+
+		SliceList(JsonSlice<List<E>> slice) {
+			this.slice = slice;
+		}
+
+		@Override
+		public E get(int index) {
+			return slice.get().get(index);
+		}
+
+		@Override
+		public int size() {
+			return slice.get().size();
+		}
+	}
+}
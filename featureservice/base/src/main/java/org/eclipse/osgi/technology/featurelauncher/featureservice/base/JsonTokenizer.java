@@ -0,0 +1,740 @@
+/**
+ * Copyright (c) 2025 Contributors to the Eclipse Foundation.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Stefan Bischof - initial implementation
+ */
+
+package org.eclipse.osgi.technology.featurelauncher.featureservice.base;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single pass, pull style JSON tokenizer for feature files.
+ * <p>
+ * Line (<code>//</code>) and block (<code>/* *&#47;</code>) comments are
+ * skipped as whitespace, so no separate pre-processing of the input is
+ * needed. The input is read through one fixed size buffer, object keys are
+ * shared through a small cache, and values are only materialized when asked
+ * for, which keeps the garbage produced per element independent of the size
+ * of the feature.
+ * <p>
+ * The navigation follows the model of nanojson's <code>JsonReader</code>:
+ * {@link #object()} or {@link #array()} enter a container, {@link #next()}
+ * advances to its next value (and key), and the type of that value is
+ * available from {@link #current()} until it is consumed.
+ */
+final class JsonTokenizer {
+
+	enum Token {
+		OBJECT, ARRAY, STRING, NUMBER, BOOLEAN, NULL
+	}
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final int KEY_CACHE_SIZE = 256;
+
+	private final Reader reader;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+
+	private int position;
+
+	private int limit;
+
+	/* number of characters read before the current buffer content */
+	private long bufferOffset;
+
+	private int line = 1;
+
+	private long lineStart;
+
+	private final StringBuilder scratch = new StringBuilder(64);
+
+	private final String[] keyCache = new String[KEY_CACHE_SIZE];
+
+	private char[] keyChars = new char[64];
+
+	/* for each nesting level, whether it is an object or an array */
+	private boolean[] objects = new boolean[16];
+
+	private boolean[] firstValue = new boolean[16];
+
+	private int depth;
+
+	private String key;
+
+	private Token current;
+
+	JsonTokenizer(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Enter the object at the current position
+	 */
+	void object() throws IOException {
+		if (skipWhitespace() != '{') {
+			throw error("Expected an object");
+		}
+		position++;
+		push(true);
+	}
+
+	/**
+	 * Enter the array at the current position
+	 */
+	void array() throws IOException {
+		if (skipWhitespace() != '[') {
+			throw error("Expected an array");
+		}
+		position++;
+		push(false);
+	}
+
+	/**
+	 * Advance to the next value of the innermost object or array
+	 *
+	 * @return <code>false</code> if the end of the object or array was reached,
+	 *         which is then left
+	 */
+	boolean next() throws IOException {
+		if (depth == 0) {
+			throw new IllegalStateException("Not inside an object or array");
+		}
+		boolean object = objects[depth - 1];
+
+		int c = skipWhitespace();
+		if (c == (object ? '}' : ']')) {
+			position++;
+			depth--;
+			current = null;
+			return false;
+		}
+
+		if (firstValue[depth - 1]) {
+			firstValue[depth - 1] = false;
+		} else if (c == ',') {
+			position++;
+			c = skipWhitespace();
+		} else {
+			throw error(object ? "Expected ',' or '}'" : "Expected ',' or ']'");
+		}
+
+		if (object) {
+			if (c != '"') {
+				throw error("Expected a key");
+			}
+			position++;
+			key = readKey();
+			if (skipWhitespace() != ':') {
+				throw error("Expected ':'");
+			}
+			position++;
+		}
+
+		current = peekToken();
+		return true;
+	}
+
+	/**
+	 * @return the key of the current value, when inside an object
+	 */
+	String key() {
+		return key;
+	}
+
+	/**
+	 * @return the type of the current value
+	 */
+	Token current() {
+		return current;
+	}
+
+	/**
+	 * @return the current string value, or <code>null</code> for a JSON null
+	 */
+	String string() throws IOException {
+		if (current == Token.NULL) {
+			nul();
+			return null;
+		}
+		expect(Token.STRING);
+		position++;
+
+		// Fast path, the whole string is in the buffer and has no escapes
+		for (int i = position; i < limit; i++) {
+			char c = buffer[i];
+			if (c == '"') {
+				String value = new String(buffer, position, i - position);
+				position = i + 1;
+				return value;
+			} else if (c == '\\' || c < 0x20) {
+				break;
+			}
+		}
+
+		scratch.setLength(0);
+		readString(scratch);
+		return scratch.toString();
+	}
+
+	/**
+	 * @return the current number value as an {@link Integer}, {@link Long} or
+	 *         {@link Double}, whichever is the smallest fit
+	 */
+	Number number() throws IOException {
+		expect(Token.NUMBER);
+		boolean integral = readNumber();
+
+		if (integral) {
+			int length = scratch.length();
+			if (length <= 18) {
+				boolean negative = scratch.charAt(0) == '-';
+				long value = 0;
+				for (int i = negative ? 1 : 0; i < length; i++) {
+					value = value * 10 + (scratch.charAt(i) - '0');
+				}
+				value = negative ? -value : value;
+				if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+					return Integer.valueOf((int) value);
+				}
+				return Long.valueOf(value);
+			}
+			try {
+				return Long.valueOf(scratch.toString());
+			} catch (NumberFormatException e) {
+				// too large for a long
+			}
+		}
+		return Double.valueOf(scratch.toString());
+	}
+
+	/**
+	 * @return the current number value, keeping its exact decimal
+	 *         representation
+	 */
+	BigDecimal bigDecimal() throws IOException {
+		expect(Token.NUMBER);
+		readNumber();
+		return new BigDecimal(scratch.toString());
+	}
+
+	boolean bool() throws IOException {
+		expect(Token.BOOLEAN);
+		if (buffer[position] == 't') {
+			literal("true");
+			return true;
+		}
+		literal("false");
+		return false;
+	}
+
+	void nul() throws IOException {
+		expect(Token.NULL);
+		literal("null");
+	}
+
+	/**
+	 * @return the current value, with objects as {@link Map}s and arrays as
+	 *         {@link List}s
+	 */
+	Object value() throws IOException {
+		switch (current) {
+		case OBJECT -> {
+			Map<String, Object> map = new LinkedHashMap<>();
+			object();
+			while (next()) {
+				String k = key;
+				map.put(k, value());
+			}
+			return map;
+		}
+		case ARRAY -> {
+			List<Object> list = new ArrayList<>();
+			array();
+			while (next()) {
+				list.add(value());
+			}
+			return list;
+		}
+		case STRING -> {
+			return string();
+		}
+		case NUMBER -> {
+			return number();
+		}
+		case BOOLEAN -> {
+			return Boolean.valueOf(bool());
+		}
+		default -> {
+			nul();
+			return null;
+		}
+		}
+	}
+
+	/**
+	 * @return the current object or array as compact JSON text, without
+	 *         building an intermediate tree
+	 */
+	String json() throws IOException {
+		if (current != Token.ARRAY) {
+			expect(Token.OBJECT);
+		}
+		StringBuilder out = new StringBuilder(128);
+		copy(out);
+		return out.toString();
+	}
+
+	/**
+	 * Skip the current value without materializing it
+	 */
+	void skip() throws IOException {
+		switch (current) {
+		case OBJECT -> {
+			object();
+			while (next()) {
+				skip();
+			}
+		}
+		case ARRAY -> {
+			array();
+			while (next()) {
+				skip();
+			}
+		}
+		case STRING -> {
+			position++;
+			readString(null);
+		}
+		case NUMBER -> readNumber();
+		case BOOLEAN -> bool();
+		case NULL -> nul();
+		}
+	}
+
+	private void copy(StringBuilder out) throws IOException {
+		switch (current) {
+		case OBJECT -> {
+			object();
+			out.append('{');
+			boolean first = true;
+			while (next()) {
+				if (!first) {
+					out.append(',');
+				}
+				first = false;
+				appendQuoted(out, key);
+				out.append(':');
+				copy(out);
+			}
+			out.append('}');
+		}
+		case ARRAY -> {
+			array();
+			out.append('[');
+			boolean first = true;
+			while (next()) {
+				if (!first) {
+					out.append(',');
+				}
+				first = false;
+				copy(out);
+			}
+			out.append(']');
+		}
+		case STRING -> copyString(out);
+		case NUMBER -> {
+			readNumber();
+			out.append(scratch);
+		}
+		case BOOLEAN -> out.append(bool());
+		case NULL -> {
+			nul();
+			out.append("null");
+		}
+		}
+	}
+
+	private void push(boolean object) {
+		if (depth == objects.length) {
+			objects = Arrays.copyOf(objects, depth * 2);
+			firstValue = Arrays.copyOf(firstValue, depth * 2);
+		}
+		objects[depth] = object;
+		firstValue[depth] = true;
+		depth++;
+		current = null;
+	}
+
+	private void expect(Token token) throws IOException {
+		if (current != token) {
+			throw error(String.format("Expected %s but found %s", name(token), name(current)));
+		}
+	}
+
+	private static String name(Token token) {
+		return token == null ? "no value" : token.name().toLowerCase();
+	}
+
+	private Token peekToken() throws IOException {
+		int c = skipWhitespace();
+		switch (c) {
+		case '{':
+			return Token.OBJECT;
+		case '[':
+			return Token.ARRAY;
+		case '"':
+			return Token.STRING;
+		case 't', 'f':
+			return Token.BOOLEAN;
+		case 'n':
+			return Token.NULL;
+		case '-', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9':
+			return Token.NUMBER;
+		case -1:
+			throw error("Unexpected end of input");
+		default:
+			throw error(String.format("Unexpected character '%c'", (char) c));
+		}
+	}
+
+	/**
+	 * Skip whitespace and comments
+	 *
+	 * @return the next character, which is not consumed, or -1 at the end of
+	 *         the input
+	 */
+	private int skipWhitespace() throws IOException {
+		while (true) {
+			if (position == limit && !fill()) {
+				return -1;
+			}
+			char c = buffer[position];
+			switch (c) {
+			case ' ', '\t', '\r' -> position++;
+			case '\n' -> {
+				position++;
+				newLine();
+			}
+			case '/' -> skipComment();
+			default -> {
+				return c;
+			}
+			}
+		}
+	}
+
+	private void skipComment() throws IOException {
+		position++;
+		int c = read();
+		if (c == '/') {
+			// Line comment, the line end is left as whitespace
+			while ((c = peek()) != -1 && c != '\n') {
+				position++;
+			}
+		} else if (c == '*') {
+			while (true) {
+				c = read();
+				if (c == -1) {
+					throw error("Unterminated comment");
+				} else if (c == '\n') {
+					newLine();
+				} else if (c == '*' && peek() == '/') {
+					position++;
+					return;
+				}
+			}
+		} else {
+			throw error("Unexpected character '/'");
+		}
+	}
+
+	/**
+	 * Read the rest of a string whose opening quote was consumed
+	 *
+	 * @param out receives the unescaped content, or <code>null</code> to skip
+	 *            the string
+	 */
+	private void readString(StringBuilder out) throws IOException {
+		while (true) {
+			if (position == limit && !fill()) {
+				throw error("Unterminated string");
+			}
+			int start = position;
+			while (position < limit) {
+				char c = buffer[position];
+				if (c == '"' || c == '\\' || c < 0x20) {
+					break;
+				}
+				position++;
+			}
+			if (out != null) {
+				out.append(buffer, start, position - start);
+			}
+			if (position == limit) {
+				continue;
+			}
+
+			char c = buffer[position++];
+			if (c == '"') {
+				return;
+			} else if (c == '\\') {
+				char escaped = readEscape();
+				if (out != null) {
+					out.append(escaped);
+				}
+			} else {
+				throw error("Unescaped control character in string");
+			}
+		}
+	}
+
+	private char readEscape() throws IOException {
+		int c = read();
+		switch (c) {
+		case '"', '\\', '/':
+			return (char) c;
+		case 'b':
+			return '\b';
+		case 'f':
+			return '\f';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'u':
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(read(), 16);
+				if (digit < 0) {
+					throw error("Invalid unicode escape");
+				}
+				value = (value << 4) | digit;
+			}
+			return (char) value;
+		default:
+			throw error("Invalid escape sequence");
+		}
+	}
+
+	/**
+	 * Copy a string as it appears in the input, escapes included
+	 */
+	private void copyString(StringBuilder out) throws IOException {
+		position++;
+		out.append('"');
+		while (true) {
+			int c = read();
+			if (c == -1) {
+				throw error("Unterminated string");
+			} else if (c < 0x20) {
+				throw error("Unescaped control character in string");
+			}
+			out.append((char) c);
+			if (c == '"') {
+				return;
+			} else if (c == '\\') {
+				c = read();
+				if (c == -1) {
+					throw error("Unterminated string");
+				}
+				out.append((char) c);
+			}
+		}
+	}
+
+	private static void appendQuoted(StringBuilder out, String value) {
+		out.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"' -> out.append("\\\"");
+			case '\\' -> out.append("\\\\");
+			case '\n' -> out.append("\\n");
+			case '\r' -> out.append("\\r");
+			case '\t' -> out.append("\\t");
+			default -> {
+				if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				} else {
+					out.append(c);
+				}
+			}
+			}
+		}
+		out.append('"');
+	}
+
+	/**
+	 * Read a key whose opening quote was consumed. Keys repeat a lot in feature
+	 * files, so they are shared through a small cache indexed by hash.
+	 */
+	private String readKey() throws IOException {
+		for (int i = position; i < limit; i++) {
+			char c = buffer[i];
+			if (c == '"') {
+				String value = cachedKey(buffer, position, i - position);
+				position = i + 1;
+				return value;
+			} else if (c == '\\' || c < 0x20) {
+				break;
+			}
+		}
+
+		scratch.setLength(0);
+		readString(scratch);
+		int length = scratch.length();
+		if (keyChars.length < length) {
+			keyChars = new char[Math.max(length, keyChars.length * 2)];
+		}
+		scratch.getChars(0, length, keyChars, 0);
+		return cachedKey(keyChars, 0, length);
+	}
+
+	private String cachedKey(char[] chars, int start, int length) {
+		// Same as String.hashCode(), which is cached in the String itself
+		int hash = 0;
+		for (int i = start; i < start + length; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		int slot = (hash ^ (hash >>> 16)) & (KEY_CACHE_SIZE - 1);
+
+		String cached = keyCache[slot];
+		if (cached != null && cached.length() == length && cached.hashCode() == hash) {
+			boolean matches = true;
+			for (int i = 0; i < length; i++) {
+				if (cached.charAt(i) != chars[start + i]) {
+					matches = false;
+					break;
+				}
+			}
+			if (matches) {
+				return cached;
+			}
+		}
+
+		String value = new String(chars, start, length);
+		keyCache[slot] = value;
+		return value;
+	}
+
+	/**
+	 * Read a number into the scratch buffer
+	 *
+	 * @return whether the number has neither fraction nor exponent
+	 */
+	private boolean readNumber() throws IOException {
+		scratch.setLength(0);
+		boolean integral = true;
+
+		if (peek() == '-') {
+			scratch.append('-');
+			position++;
+		}
+		int digits = readDigits();
+		if (digits == 0 || (digits > 1 && scratch.charAt(scratch.length() - digits) == '0')) {
+			throw error("Invalid number");
+		}
+		if (peek() == '.') {
+			integral = false;
+			scratch.append('.');
+			position++;
+			if (readDigits() == 0) {
+				throw error("Invalid number");
+			}
+		}
+		int c = peek();
+		if (c == 'e' || c == 'E') {
+			integral = false;
+			scratch.append((char) c);
+			position++;
+			c = peek();
+			if (c == '+' || c == '-') {
+				scratch.append((char) c);
+				position++;
+			}
+			if (readDigits() == 0) {
+				throw error("Invalid number");
+			}
+		}
+		return integral;
+	}
+
+	private int readDigits() throws IOException {
+		int count = 0;
+		int c;
+		while ((c = peek()) >= '0' && c <= '9') {
+			scratch.append((char) c);
+			position++;
+			count++;
+		}
+		return count;
+	}
+
+	private void literal(String literal) throws IOException {
+		for (int i = 0; i < literal.length(); i++) {
+			if (read() != literal.charAt(i)) {
+				throw error("Expected '" + literal + "'");
+			}
+		}
+	}
+
+	private int peek() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position];
+	}
+
+	private int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position++];
+	}
+
+	private boolean fill() throws IOException {
+		bufferOffset += limit;
+		position = 0;
+		limit = 0;
+
+		int read;
+		do {
+			read = reader.read(buffer, 0, buffer.length);
+		} while (read == 0);
+
+		if (read < 0) {
+			return false;
+		}
+		limit = read;
+		return true;
+	}
+
+	private void newLine() {
+		line++;
+		lineStart = bufferOffset + position;
+	}
+
+	private IOException error(String message) {
+		long column = bufferOffset + position - lineStart + 1;
+		return new IOException(String.format("Invalid JSON: %s at line %d, column %d", message, line, column));
+	}
+}
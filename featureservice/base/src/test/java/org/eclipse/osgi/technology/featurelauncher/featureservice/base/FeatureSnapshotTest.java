@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2025 Contributors to the Eclipse Foundation.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Stefan Bischof - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.featureservice.base;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.osgi.service.feature.Feature;
+import org.osgi.service.feature.FeatureConfiguration;
+import org.osgi.service.feature.FeatureExtension;
+
+public class FeatureSnapshotTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testSnapshotRoundTrip() throws Exception {
+		FeatureServiceImpl featureServiceImpl = new FeatureServiceImpl();
+		for (String resource : new String[] { "1.json", "test-comments.json", "test-exfeat1.json",
+				"test-exfeat2.json", "test-feature2.json" }) {
+			Feature feature = readFeature(featureServiceImpl, resource);
+
+			Path snapshot = tempDir.resolve(resource + ".feature");
+			try (OutputStream os = Files.newOutputStream(snapshot)) {
+				featureServiceImpl.writeSnapshot(feature, os);
+			}
+
+			Feature restored = featureServiceImpl.readSnapshot(snapshot);
+			assertThat(restored).as(resource).isEqualTo(feature);
+			assertThat(restored.getVariables()).as(resource).isEqualTo(feature.getVariables());
+			assertThat(restored.getBundles()).as(resource).isEqualTo(feature.getBundles());
+			assertThat(restored.getConfigurations()).as(resource).isEqualTo(feature.getConfigurations());
+			assertThat(restored.getExtensions()).as(resource).isEqualTo(feature.getExtensions());
+		}
+	}
+
+	@Test
+	void testSnapshotIDsArePooled() throws Exception {
+		FeatureServiceImpl featureServiceImpl = new FeatureServiceImpl();
+		Feature feature = readFeature(featureServiceImpl, "test-feature2.json");
+
+		Path snapshot = tempDir.resolve("test-feature2.json.feature");
+		try (OutputStream os = Files.newOutputStream(snapshot)) {
+			featureServiceImpl.writeSnapshot(feature, os);
+		}
+
+		Feature restored = featureServiceImpl.readSnapshot(snapshot);
+		assertThat(restored.getID()).isSameAs(
+				featureServiceImpl.getIDfromMavenCoordinates(feature.getID().toString()));
+		for (int i = 0; i < feature.getBundles().size(); i++) {
+			assertThat(restored.getBundles().get(i).getID()).isSameAs(feature.getBundles().get(i).getID());
+		}
+	}
+
+	@Test
+	void testSnapshotKeepsValueTypes() throws Exception {
+		FeatureServiceImpl featureServiceImpl = new FeatureServiceImpl(tempDir);
+		readFeature(featureServiceImpl, "test-feature.json");
+		Feature feature = readFeature(featureServiceImpl, "test-feature.json");
+
+		Map<String, FeatureConfiguration> configs = feature.getConfigurations();
+		Map<String, Object> values = configs.get("org.acme.typed").getValues();
+		assertThat(values.get("number")).isInstanceOf(Integer.class).isEqualTo(7);
+		assertThat(values.get("floatVal")).isInstanceOf(Float.class);
+		assertThat(values.get("flag")).isEqualTo(true);
+		assertThat((Integer[]) values.get("ports")).containsExactly(80, 443, 8080);
+
+		FeatureConfiguration factoryCfg = configs.get("org.acme.factory~instance1");
+		assertThat(factoryCfg.getFactoryPid()).contains("org.acme.factory");
+
+		assertThat(feature.getVariables()).containsEntry("db.password", null);
+	}
+
+	@Test
+	void testReadFeatureUsesSnapshot() throws Exception {
+		FeatureServiceImpl featureServiceImpl = new FeatureServiceImpl(tempDir);
+
+		Feature parsed = readFeature(featureServiceImpl, "test-exfeat1.json");
+		assertThat(snapshots()).hasSize(1);
+
+		Feature cached = readFeature(featureServiceImpl, "test-exfeat1.json");
+		assertThat(cached).isNotSameAs(parsed).isEqualTo(parsed).hasSameHashCodeAs(parsed);
+		assertThat(parsed).isEqualTo(cached);
+		assertThat(cached.getExtensions().get("my-json-extension").getType()).isEqualTo(FeatureExtension.Type.JSON);
+		assertThat(snapshots()).hasSize(1);
+
+		readFeature(featureServiceImpl, "test-exfeat2.json");
+		assertThat(snapshots()).hasSize(2);
+	}
+
+	@Test
+	void testCorruptSnapshotIsReplaced() throws Exception {
+		FeatureServiceImpl featureServiceImpl = new FeatureServiceImpl(tempDir);
+		Feature parsed = readFeature(featureServiceImpl, "test-feature2.json");
+
+		Path snapshot = snapshots()[0];
+		Files.write(snapshot, new byte[] { 1, 2, 3 });
+		assertThatThrownBy(() -> featureServiceImpl.readSnapshot(snapshot)).isInstanceOf(IOException.class);
+
+		assertThat(readFeature(featureServiceImpl, "test-feature2.json")).isEqualTo(parsed);
+		assertThat(featureServiceImpl.readSnapshot(snapshot)).isEqualTo(parsed);
+	}
+
+	@Test
+	void testDamagedSectionIsRejectedOnRead() throws Exception {
+		FeatureServiceImpl featureServiceImpl = new FeatureServiceImpl(tempDir);
+		Feature parsed = readFeature(featureServiceImpl, "test-feature2.json");
+
+		// Damage a byte near the end, in the configurations or extensions
+		Path snapshot = snapshots()[0];
+		byte[] bytes = Files.readAllBytes(snapshot);
+		bytes[bytes.length - 2] ^= 0x55;
+		Files.write(snapshot, bytes);
+		assertThatThrownBy(() -> featureServiceImpl.readSnapshot(snapshot)).isInstanceOf(IOException.class);
+
+		assertThat(readFeature(featureServiceImpl, "test-feature2.json")).isEqualTo(parsed);
+	}
+
+	@Test
+	void testLeastRecentlyUsedSnapshotsArePruned() throws Exception {
+		FeatureServiceImpl featureServiceImpl = new FeatureServiceImpl(tempDir, 2);
+
+		readFeature(featureServiceImpl, "test-exfeat1.json");
+		readFeature(featureServiceImpl, "test-exfeat2.json");
+		assertThat(snapshots()).hasSize(2);
+		for (Path snapshot : snapshots()) {
+			Files.setLastModifiedTime(snapshot, FileTime.fromMillis(1000));
+		}
+
+		// Using a snapshot keeps it
+		readFeature(featureServiceImpl, "test-exfeat1.json");
+		Path used = Stream.of(snapshots())
+				.filter(p -> !FileTime.fromMillis(1000).equals(getLastModifiedTime(p)))
+				.findFirst()
+				.orElseThrow();
+
+		readFeature(featureServiceImpl, "test-feature2.json");
+		assertThat(snapshots()).hasSize(2).contains(used);
+	}
+
+	private static FileTime getLastModifiedTime(Path path) {
+		try {
+			return Files.getLastModifiedTime(path);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Path[] snapshots() throws IOException {
+		try (Stream<Path> files = Files.list(tempDir)) {
+			return files.filter(p -> p.toString().endsWith(".feature")).toArray(Path[]::new);
+		}
+	}
+
+	private Feature readFeature(FeatureServiceImpl featureServiceImpl, String resourceName) throws Exception {
+		try (FileReader fileReader = new FileReader(Path.of("src/test/resources/" + resourceName).toFile())) {
+			return featureServiceImpl.readFeature(fileReader);
+		}
+	}
+}
@@ -17,12 +17,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
 import org.osgi.service.feature.Feature;
@@ -204,6 +206,60 @@ public class JsonReaderTest {
 		assertThat(feature.getName()).hasValue("Commented Feature");
 	}
 
+	@Test
+	void testReadCommentMarkersInStrings() throws Exception {
+		String json = """
+				{
+				  // the id
+				  "id": "org.acme:comments:1.0", /* block
+				  comment spanning lines */
+				  "docURL": "https://docs.example.com/a//b/*c*/",
+				  "configurations": {
+				    "test.config": {
+				      "path": "/srv/*/data", // not a comment start: /*
+				      "quoted": "say \\"hi\\" // there",
+				      "json:String": "{\\"a\\": 1}"
+				    }
+				  },
+				  "extensions": {
+				    "commented-json": {
+				      "type": "json",
+				      "json": { /* inline */ "url": "http://example.com", "list": [1, /* two */ 3] }
+				    }
+				  }
+				}
+				""";
+		Feature feature = featureServiceImpl.readFeature(new StringReader(json));
+
+		assertThat(feature.getDocURL()).hasValue("https://docs.example.com/a//b/*c*/");
+
+		Map<String, Object> values = feature.getConfigurations().get("test.config").getValues();
+		assertThat(values.get("path")).isEqualTo("/srv/*/data");
+		assertThat(values.get("quoted")).isEqualTo("say \"hi\" // there");
+		assertThat(values.get("json")).isEqualTo("{\"a\": 1}");
+
+		FeatureExtension jsonExt = feature.getExtensions().get("commented-json");
+		assertThat(jsonExt.getJSON()).isEqualTo("{\"url\":\"http://example.com\",\"list\":[1,3]}");
+	}
+
+	@Test
+	void testReadInvalidJsonReportsPosition() {
+		String json = """
+				{
+				  "id": "org.acme:invalid:1.0",
+				  "name" "missing colon"
+				}
+				""";
+		assertThatThrownBy(() -> featureServiceImpl.readFeature(new StringReader(json)))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("Invalid JSON")
+				.hasMessageContaining("line 3");
+
+		assertThatThrownBy(() -> featureServiceImpl.readFeature(new StringReader("{ \"id\": \"a:b:1\" /* open")))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("Unterminated comment");
+	}
+
 	@Test
 	void testReadWriteRoundTrip() throws Exception {
 		Feature original = readFeature("test-exfeat1.json");
@@ -329,6 +385,23 @@ public class JsonReaderTest {
 	void testIDParsingInvalid() {
 		assertThatThrownBy(() -> featureServiceImpl.getIDfromMavenCoordinates("invalid"))
 				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> featureServiceImpl.getIDfromMavenCoordinates("a:b:c:d:e:f"))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> featureServiceImpl.getIDfromMavenCoordinates("a::b:1"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void testIDsAreShared() throws Exception {
+		ID parsed = featureServiceImpl.getIDfromMavenCoordinates("org.acme:app:jar:1.0.0");
+		ID built = featureServiceImpl.getID("org.acme", "app", "1.0.0", "jar");
+		assertThat(built).isSameAs(parsed);
+		assertThat(featureServiceImpl.getIDfromMavenCoordinates("org.acme:app:jar:1.0.0")).isSameAs(parsed);
+		assertThat(built.toString()).isSameAs(parsed.toString()).isEqualTo("org.acme:app:jar:1.0.0");
+
+		ID other = new IDImpl("org.acme", "app", "1.0.0", Optional.of("jar"), Optional.empty());
+		assertThat(other).isNotSameAs(parsed).isEqualTo(parsed).hasSameHashCodeAs(parsed);
+		assertThat(featureServiceImpl.getID("org.acme", "app", "1.0.0")).isNotEqualTo(parsed);
 	}
 
 	@Test
@@ -394,6 +467,66 @@ public class JsonReaderTest {
 		assertThat(textExt.getText()).containsExactly("Single line text.");
 	}
 
+	@Test
+	void testLazyContentEqualsBuiltContent() throws Exception {
+		Feature feature = readFeature("test-exfeat1.json");
+
+		FeatureExtension textExt = feature.getExtensions().get("my-text-extension");
+		FeatureExtension built = featureServiceImpl.getBuilderFactory()
+				.newExtensionBuilder("my-text-extension", FeatureExtension.Type.TEXT, FeatureExtension.Kind.OPTIONAL)
+				.addText("Line one of the text extension.")
+				.addText("Line two of the text extension.")
+				.build();
+		assertThat(textExt).isEqualTo(built);
+		assertThat(textExt.getText()).isEqualTo(List.of("Line one of the text extension.",
+				"Line two of the text extension."));
+		assertThatThrownBy(() -> textExt.getText().add("more")).isInstanceOf(UnsupportedOperationException.class);
+
+		String json = """
+				{
+				  "id": "org.acme:lazy:1.0",
+				  "configurations": {
+				    "lazy.config": { "count:Integer": "5", "name": "lazy" }
+				  }
+				}
+				""";
+		Map<String, Object> values = featureServiceImpl.readFeature(new StringReader(json))
+				.getConfigurations()
+				.get("lazy.config")
+				.getValues();
+		assertThat(values).isEqualTo(Map.of("count", 5, "name", "lazy"));
+		assertThatThrownBy(() -> values.put("other", "value")).isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	void testLazyContentIsCheckedOnRead() {
+		String json = """
+				{
+				  "id": "org.acme:lazy:1.0",
+				  "extensions": {
+				    "broken": { "type": "json", "json": { "key": [1, 2 } }
+				  }
+				}
+				""";
+		assertThatThrownBy(() -> featureServiceImpl.readFeature(new StringReader(json)))
+				.isInstanceOf(IOException.class);
+	}
+
+	@Test
+	void testInvalidTypedConfigurationValueIsRejectedOnRead() {
+		String json = """
+				{
+				  "id": "org.acme:typed:1.0",
+				  "configurations": {
+				    "typed.config": { "count:Integer": "abc" }
+				  }
+				}
+				""";
+		assertThatThrownBy(() -> featureServiceImpl.readFeature(new StringReader(json)))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("count:Integer");
+	}
+
 	private Feature readFeature(String resourceName) throws Exception {
 		FileReader fileReader = new FileReader(Path.of("src/test/resources/" + resourceName).toFile());
 		return featureServiceImpl.readFeature(fileReader);
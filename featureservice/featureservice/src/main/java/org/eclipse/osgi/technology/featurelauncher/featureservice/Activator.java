@@ -14,6 +14,9 @@
 
 package org.eclipse.osgi.technology.featurelauncher.featureservice;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Hashtable;
 
 import org.eclipse.osgi.technology.featurelauncher.featureservice.base.FeatureServiceImpl;
@@ -32,7 +35,23 @@ public class Activator implements BundleActivator {
 	public void start(BundleContext context) throws Exception {
 		Hashtable<String, Object> properties = new Hashtable<String, Object>();
 		properties.put(Constants.SERVICE_VENDOR, "eclipse.osgi.technology");
-		context.registerService(FeatureService.class, new FeatureServiceImpl(), properties);
+		context.registerService(FeatureService.class, new FeatureServiceImpl(getSnapshotDirectory(context)),
+				properties);
+	}
+
+	/**
+	 * Snapshots of the parsed features are kept in the directory set by the
+	 * {@link FeatureServiceImpl#SNAPSHOT_DIRECTORY} property, or else in the
+	 * persistent storage area of this bundle. At most
+	 * {@link FeatureServiceImpl#DEFAULT_MAX_SNAPSHOTS} of them are kept.
+	 */
+	private Path getSnapshotDirectory(BundleContext context) {
+		String directory = context.getProperty(FeatureServiceImpl.SNAPSHOT_DIRECTORY);
+		if (directory != null) {
+			return Paths.get(directory);
+		}
+		File dataFile = context.getDataFile("snapshots");
+		return dataFile == null ? null : dataFile.toPath();
 	}
 
 	@Override
@@ -13,6 +13,7 @@
  */
 package org.eclipse.osgi.technology.featurelauncher.launch.launcher;
 
+import static org.eclipse.osgi.technology.featurelauncher.launch.secondstage.FeatureLauncherImplConstants.BUNDLE_DOWNLOAD_PARALLELISM;
 import static org.eclipse.osgi.technology.featurelauncher.repository.spi.RepositoryConstants.DEFAULT_REMOTE_ARTIFACT_REPOSITORY_NAME;
 import static org.eclipse.osgi.technology.featurelauncher.repository.spi.RepositoryConstants.LOCAL_ARTIFACT_REPOSITORY_PATH;
 import static org.eclipse.osgi.technology.featurelauncher.repository.spi.RepositoryConstants.REMOTE_ARTIFACT_REPOSITORY_URI;
@@ -38,6 +39,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.Constants;
@@ -141,6 +144,37 @@ public class FeatureLauncherImplTest {
 		osgiFramework.waitForStop(0);
 	}
 
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 8 })
+	public void testLaunchFeatureWithBundleDownloadParallelism(int parallelism)
+			throws IOException, InterruptedException, URISyntaxException, BundleException {
+
+		// Read Feature JSON
+		Path featureJSONPath = Paths.get(getClass().getResource("/features/gogo-console-feature.json").toURI());
+
+		// Launch the framework
+		// @formatter:off
+		Framework osgiFramework = featureLauncher.launch(Files.newBufferedReader(featureJSONPath))
+				.withRepository(localArtifactRepository)
+				.withRepository(remoteRepository)
+				.withFrameworkProperties(frameworkProperties)
+				.withConfiguration(Map.of(BUNDLE_DOWNLOAD_PARALLELISM, parallelism))
+				.launchFramework();
+		// @formatter:on
+
+		// Verify bundles are installed in feature order whatever the parallelism
+		Bundle[] bundles = osgiFramework.getBundleContext().getBundles();
+		assertEquals(4, bundles.length);
+
+		assertEquals("org.apache.felix.gogo.command", bundles[1].getSymbolicName());
+		assertEquals("org.apache.felix.gogo.shell", bundles[2].getSymbolicName());
+		assertEquals("org.apache.felix.gogo.runtime", bundles[3].getSymbolicName());
+
+		// Stop framework
+		osgiFramework.stop();
+		osgiFramework.waitForStop(0);
+	}
+
 	@Test
 	public void testLaunchFeatureWithConfigWithDefaultFramework()
 			throws IOException, InterruptedException, URISyntaxException, BundleException {
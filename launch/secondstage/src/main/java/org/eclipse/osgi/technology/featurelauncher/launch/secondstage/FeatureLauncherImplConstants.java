@@ -25,4 +25,13 @@ public interface FeatureLauncherImplConstants {
 	String FRAMEWORK_STORAGE_CLEAN_TESTONLY = "testOnly";
 	
 	String CONFIGURATION_ADMIN_IMPL_DEFAULT = "org.apache.felix:org.apache.felix.configadmin:1.9.26";
+	
+	/**
+	 * Launch configuration property setting the maximum number of bundle
+	 * artifacts resolved concurrently ahead of installation. A value of
+	 * <code>1</code> resolves each bundle just before it is installed.
+	 */
+	String BUNDLE_DOWNLOAD_PARALLELISM = "bundle.download.parallelism";
+	
+	int BUNDLE_DOWNLOAD_PARALLELISM_DEFAULT = 4;
 }
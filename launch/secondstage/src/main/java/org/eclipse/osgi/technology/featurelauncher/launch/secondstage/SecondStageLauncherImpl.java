@@ -14,11 +14,15 @@
 package org.eclipse.osgi.technology.featurelauncher.launch.secondstage;
 
 import static org.eclipse.osgi.technology.featurelauncher.launch.secondstage.FeatureLauncherConfigurationManager.CONFIGURATION_TIMEOUT_DEFAULT;
+import static org.eclipse.osgi.technology.featurelauncher.launch.secondstage.FeatureLauncherImplConstants.BUNDLE_DOWNLOAD_PARALLELISM;
+import static org.eclipse.osgi.technology.featurelauncher.launch.secondstage.FeatureLauncherImplConstants.BUNDLE_DOWNLOAD_PARALLELISM_DEFAULT;
 import static org.osgi.service.featurelauncher.FeatureLauncherConstants.BUNDLE_START_LEVEL_METADATA;
 import static org.osgi.service.featurelauncher.FeatureLauncherConstants.CONFIGURATION_TIMEOUT;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -34,6 +38,7 @@ import java.util.stream.Collectors;
 import org.eclipse.osgi.technology.featurelauncher.common.decorator.impl.DecorationContext;
 import org.eclipse.osgi.technology.featurelauncher.common.osgi.util.impl.BundleEventUtil;
 import org.eclipse.osgi.technology.featurelauncher.common.osgi.util.impl.FrameworkEventUtil;
+import org.eclipse.osgi.technology.featurelauncher.common.repository.impl.ArtifactPrefetcher;
 import org.eclipse.osgi.technology.featurelauncher.common.util.impl.FileSystemUtil;
 import org.eclipse.osgi.technology.featurelauncher.common.util.impl.VariablesUtil;
 import org.eclipse.osgi.technology.featurelauncher.launch.spi.SecondStageLauncher;
@@ -105,7 +110,8 @@ public class SecondStageLauncherImpl implements SecondStageLauncher {
 
 		/////////////////////////////////////////////////////////
 		// 160.4.3.4: Installing bundles and configurations
-		List<Bundle> bundles = installBundles(framework, feature, repositories);
+		List<Bundle> bundles = installBundles(framework, feature, repositories,
+				getBundleDownloadParallelism(configurationProperties));
 
 		FeatureLauncherConfigurationManager flcm = createConfigurationAdminTracker(framework.getBundleContext(), feature, variablesToUse);
 
@@ -308,21 +314,42 @@ public class SecondStageLauncherImpl implements SecondStageLauncher {
 		}
 	}
 
+	private int getBundleDownloadParallelism(Map<String, Object> configuration) {
+		if (configuration.containsKey(BUNDLE_DOWNLOAD_PARALLELISM)) {
+			int parallelism = Integer.parseInt(configuration.get(BUNDLE_DOWNLOAD_PARALLELISM).toString());
+
+			if (parallelism < 1) {
+				throw new LaunchException("An invalid bundle download parallelism has been supplied " + parallelism);
+			}
+			return parallelism;
+		} else {
+			return BUNDLE_DOWNLOAD_PARALLELISM_DEFAULT;
+		}
+	}
+
 	private void addLogListeners(Framework framework) {
 		framework.getBundleContext().addFrameworkListener(this::logFrameworkEvent);
 		framework.getBundleContext().addBundleListener(this::logBundleEvent);
 	}
 
 	private List<Bundle> installBundles(Framework framework, Feature feature,
-			List<? extends ArtifactRepository> repositories) {
+			List<? extends ArtifactRepository> repositories, int parallelism) {
 		List<Bundle> installedBundles = new ArrayList<>();
 		if (feature.getBundles() != null && feature.getBundles().size() > 0) {
 
 			LOG.info(String.format("There are %d bundle(s) to install", feature.getBundles().size()));
 
-			for (FeatureBundle featureBundle : feature.getBundles()) {
-				installBundle(framework.getBundleContext(), featureBundle,
-						repositories, installedBundles);
+			// Artifact resolution runs ahead on worker threads, while the
+			// bundles are installed in strict feature order on this thread
+			try (ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(List.copyOf(repositories), parallelism)) {
+				prefetcher.prefetch(feature.getBundles().stream()
+						.map(FeatureBundle::getID)
+						.collect(Collectors.toList()));
+
+				for (FeatureBundle featureBundle : feature.getBundles()) {
+					installBundle(framework.getBundleContext(), featureBundle,
+							prefetcher, installedBundles);
+				}
 			}
 
 		} else {
@@ -332,8 +359,8 @@ public class SecondStageLauncherImpl implements SecondStageLauncher {
 	}
 
 	private void installBundle(BundleContext bundleContext, FeatureBundle featureBundle,
-			List<? extends ArtifactRepository> repositories, List<Bundle> installedBundles) {
-		Bundle installedBundle = installBundle(bundleContext, featureBundle.getID(), repositories);
+			ArtifactPrefetcher prefetcher, List<Bundle> installedBundles) {
+		Bundle installedBundle = installBundle(bundleContext, featureBundle.getID(), prefetcher);
 
 		if (installedBundle != null) {
 			maybeSetBundleStartLevel(installedBundle, featureBundle.getMetadata());
@@ -343,21 +370,25 @@ public class SecondStageLauncherImpl implements SecondStageLauncher {
 	}
 
 	private Bundle installBundle(BundleContext bundleContext, ID featureBundleID,
-			List<? extends ArtifactRepository> repositories) {
-		try (InputStream featureBundleIs = getArtifact(featureBundleID, repositories)) {
-			if (featureBundleIs.available() != 0) {
+			ArtifactPrefetcher prefetcher) {
+		try {
+			Path featureBundlePath = prefetcher.getArtifactPath(featureBundleID);
+			if (featureBundlePath == null) {
+				LOG.warn(String.format("Bundle '%s' could not be found in any repository", featureBundleID));
+				return null;
+			}
+
+			try (InputStream featureBundleIs = Files.newInputStream(featureBundlePath)) {
 				Bundle installedBundle = bundleContext.installBundle(featureBundleID.toString(), featureBundleIs);
 
 				LOG.info(String.format("Installed bundle '%s'", installedBundle.getSymbolicName()));
 
 				return installedBundle;
 			}
-		} catch (IOException | BundleException e) {
+		} catch (IllegalStateException | IOException | BundleException e) {
 			throw new LaunchException(String.format("Could not install bundle '%s'!", featureBundleID.toString()),
 					e);
 		}
-
-		return null;
 	}
 
 	protected void maybeSetBundleStartLevel(Bundle bundle, Map<String, Object> metadata) {
@@ -368,17 +399,6 @@ public class SecondStageLauncherImpl implements SecondStageLauncher {
 		}
 	}
 
-	private InputStream getArtifact(ID featureBundleID, List<? extends ArtifactRepository> repositories) {
-		for (ArtifactRepository artifactRepository : repositories) {
-			InputStream featureBundleIs = artifactRepository.getArtifact(featureBundleID);
-			if (featureBundleIs != null) {
-				return featureBundleIs;
-			}
-		}
-
-		return InputStream.nullInputStream();
-	}
-
 	private void logFrameworkEvent(FrameworkEvent frameworkEvent) {
 		if (frameworkEvent.getType() == FrameworkEvent.ERROR) {
 			LOG.error(String.format("Framework ERROR event %s", frameworkEvent.toString()));
@@ -15,6 +15,7 @@ package org.eclipse.osgi.technology.featurelauncher.repository.maven;
 
 import static org.eclipse.osgi.technology.featurelauncher.repository.spi.RepositoryConstants.ARTIFACT_REPOSITORY_NAME;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -26,22 +27,12 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Supplier;
 
-import org.apache.maven.internal.impl.resolver.MavenSessionBuilderSupplier;
-import org.eclipse.aether.DefaultRepositorySystemSession;
-import org.eclipse.aether.RepositorySystem;
-import org.eclipse.aether.RepositorySystemSession;
-import org.eclipse.aether.RepositorySystemSession.CloseableSession;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
-import org.eclipse.aether.repository.LocalRepository;
-import org.eclipse.aether.repository.LocalRepositoryManager;
 import org.eclipse.aether.resolution.ArtifactRequest;
 import org.eclipse.aether.resolution.ArtifactResolutionException;
 import org.eclipse.aether.resolution.ArtifactResult;
-import org.eclipse.aether.spi.connector.transport.TransporterFactory;
-import org.eclipse.aether.supplier.RepositorySystemSupplier;
-import org.eclipse.aether.transport.file.FileTransporterFactory;
-import org.eclipse.aether.transport.jdk.JdkTransporterFactory;
+import org.eclipse.osgi.technology.featurelauncher.repository.maven.ResolverContext.ResolverStatistics;
 import org.eclipse.osgi.technology.featurelauncher.repository.spi.FileSystemRepository;
 import org.osgi.service.feature.ID;
 import org.slf4j.Logger;
@@ -53,13 +44,17 @@ import org.slf4j.LoggerFactory;
  * @author Michael H. Siemaszko (mhs@into.software)
  * @since Sep 15, 2024
  */
-abstract class AbstractMavenRepositoryImpl implements FileSystemRepository {
+abstract class AbstractMavenRepositoryImpl implements FileSystemRepository, Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(AbstractMavenRepositoryImpl.class);
 
 	private final Map<String, Object> configurationProperties;
 	private final String name;
 	private final Path localRepositoryPath;
 
+	// Created on first use and shared by all lookups until the repository is closed
+	private ResolverContext resolverContext;
+	private boolean closed;
+
 	public AbstractMavenRepositoryImpl(
 			Path localRepositoryPath,
 			Supplier<String> defaultNameSupplier,
@@ -112,16 +107,14 @@ abstract class AbstractMavenRepositoryImpl implements FileSystemRepository {
 	public Path getArtifactPath(ID id) {
 		Objects.requireNonNull(id, "ID cannot be null!");
 
-		try (RepositorySystem repositorySystem = newRepositorySystem();
-				CloseableSession repositorySystemSession = newSession(repositorySystem)) {
-
+		try {
 			Artifact artifact = new DefaultArtifact(id.toString());
 
 			ArtifactRequest artifactRequest = new ArtifactRequest();
 			artifactRequest.setArtifact(artifact);
 			decorateArtifactRequest(artifactRequest);
 
-			ArtifactResult artifactResult = repositorySystem.resolveArtifact(repositorySystemSession, artifactRequest);
+			ArtifactResult artifactResult = getResolverContext().resolveArtifact(artifactRequest);
 
 			if (artifactResult.isResolved() && !artifactResult.isMissing()) {
 				return artifactResult.getArtifact().getPath();
@@ -133,7 +126,7 @@ abstract class AbstractMavenRepositoryImpl implements FileSystemRepository {
 
 		return null;
 	}
-	
+
 	protected void decorateArtifactRequest(ArtifactRequest request) {
 		
 	}
@@ -147,33 +140,43 @@ abstract class AbstractMavenRepositoryImpl implements FileSystemRepository {
 		return localRepositoryPath;
 	}
 
-	private RepositorySystem newRepositorySystem() {
-		return new RepositorySystemSupplier() {
-
-			@Override
-			protected Map<String, TransporterFactory> createTransporterFactories() {
-				HashMap<String, TransporterFactory> result = new HashMap<>();
-		        result.put(FileTransporterFactory.NAME, new FileTransporterFactory());
-		        result.put(
-		                JdkTransporterFactory.NAME,
-		                new JdkTransporterFactory(getChecksumExtractor(), getPathProcessor()));
-		        return result;
-			}
-		}.get();
+	/**
+	 * Get the resolver timings for this repository, showing the one-off
+	 * cost of setting up the resolver against the time spent resolving
+	 * 
+	 * @return the statistics, or <code>null</code> if no artifact has been
+	 *         resolved yet
+	 */
+	synchronized ResolverStatistics getResolverStatistics() {
+		return resolverContext == null ? null : resolverContext.getStatistics();
 	}
 
-	private CloseableSession newSession(RepositorySystem system) {
-		RepositorySystemSession uninitializedSession = new DefaultRepositorySystemSession(h -> false);
-
-		LocalRepository localRepository = new LocalRepository(localRepositoryPath);
-		LocalRepositoryManager localRepositoryManager = system.newLocalRepositoryManager(uninitializedSession,
-				localRepository);
-
-		MavenSessionBuilderSupplier sessionBuilderSupplier = new MavenSessionBuilderSupplier(system);
-
-		RepositorySystemSession.SessionBuilder sessionBuilder = sessionBuilderSupplier.get();
-		sessionBuilder.setLocalRepositoryManager(localRepositoryManager);
+	/**
+	 * Releases the resolver resources held by this repository. Further
+	 * artifact lookups will fail with an {@link IllegalStateException}
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (resolverContext != null) {
+			LOG.debug("Closing repository {} with resolver statistics {}", name, resolverContext.getStatistics());
+			resolverContext.close();
+			resolverContext = null;
+		}
+	}
 
-		return sessionBuilder.build();
+	private synchronized ResolverContext getResolverContext() {
+		if (closed) {
+			throw new IllegalStateException(String.format("The repository %s has been closed", name));
+		}
+		if (resolverContext == null) {
+			resolverContext = new ResolverContext(localRepositoryPath);
+			LOG.debug("Created resolver for repository {} in {} ms", name,
+					resolverContext.getStatistics().setupMillis());
+		}
+		return resolverContext;
 	}
 }
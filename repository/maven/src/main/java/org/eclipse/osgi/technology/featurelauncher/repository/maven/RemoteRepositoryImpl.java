@@ -16,6 +16,7 @@ package org.eclipse.osgi.technology.featurelauncher.repository.maven;
 import static org.eclipse.osgi.technology.featurelauncher.repository.spi.RepositoryConstants.DEFAULT_REMOTE_ARTIFACT_REPOSITORY_TYPE;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -24,6 +25,8 @@ import java.util.UUID;
 
 import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.osgi.technology.featurelauncher.repository.spi.ArtifactCache;
+import org.osgi.service.feature.ID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +41,7 @@ class RemoteRepositoryImpl extends AbstractMavenRepositoryImpl {
 
 	private final URI repositoryURI;
 	private final RemoteRepository remoteRepository;
+	private final ArtifactCache cache;
 
 	public RemoteRepositoryImpl(URI repositoryURI, Path localPath, Map<String, Object> configurationProperties) {
 		
@@ -54,10 +58,39 @@ class RemoteRepositoryImpl extends AbstractMavenRepositoryImpl {
 				this.repositoryURI.toASCIIString())
 				.build();
 		// @formatter:on
+
+		// The temporary local repository is deleted on shutdown, so artifacts
+		// are kept in the shared cache to avoid downloading them on each start
+		this.cache = localPath == null ? ArtifactCache.getDefault() : null;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.eclipse.osgi.technology.featurelauncher.repository.maven.AbstractMavenRepositoryImpl#getArtifactPath(org.osgi.service.feature.ID)
+	 */
+	@Override
+	public Path getArtifactPath(ID id) {
+		if (cache == null) {
+			return super.getArtifactPath(id);
+		}
+
+		String repository = repositoryURI.toASCIIString();
+		Path cached = cache.get(repository, id);
+		if (cached != null) {
+			return cached;
+		}
+
+		Path path = super.getArtifactPath(id);
+		if (path != null) {
+			try (InputStream is = Files.newInputStream(path)) {
+				return cache.put(repository, id, is);
+			} catch (IOException e) {
+				LOG.warn(String.format("Unable to cache artifact ID '%s'", id.toString()), e);
+			}
+		}
+		return path;
 	}
 
-	
-	
 	@Override
 	protected void decorateArtifactRequest(ArtifactRequest request) {
 		super.decorateArtifactRequest(request);
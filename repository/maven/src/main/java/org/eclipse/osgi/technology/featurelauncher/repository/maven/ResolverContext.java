@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2024 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.repository.maven;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.internal.impl.resolver.MavenSessionBuilderSupplier;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession.CloseableSession;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import org.eclipse.aether.supplier.RepositorySystemSupplier;
+import org.eclipse.aether.transport.file.FileTransporterFactory;
+import org.eclipse.aether.transport.jdk.JdkTransporterFactory;
+
+/**
+ * Holds the Maven Resolver {@link RepositorySystem} and session used by a
+ * single {@link AbstractMavenRepositoryImpl}. Both are created once and are
+ * safe to share between concurrent artifact lookups.
+ *
+ * Also records how long the resolver took to set up compared with the time
+ * spent resolving artifacts.
+ */
+class ResolverContext implements AutoCloseable {
+
+	private final RepositorySystem repositorySystem;
+	private final CloseableSession session;
+	private final long setupNanos;
+
+	private final AtomicLong resolveCount = new AtomicLong();
+	private final AtomicLong resolveNanos = new AtomicLong();
+
+	ResolverContext(Path localRepositoryPath) {
+		long start = System.nanoTime();
+		this.repositorySystem = newRepositorySystem();
+		try {
+			this.session = newSession(repositorySystem, localRepositoryPath);
+		} catch (RuntimeException e) {
+			repositorySystem.close();
+			throw e;
+		}
+		this.setupNanos = System.nanoTime() - start;
+	}
+
+	ArtifactResult resolveArtifact(ArtifactRequest request) throws ArtifactResolutionException {
+		long start = System.nanoTime();
+		try {
+			return repositorySystem.resolveArtifact(session, request);
+		} finally {
+			resolveNanos.addAndGet(System.nanoTime() - start);
+			resolveCount.incrementAndGet();
+		}
+	}
+
+	ResolverStatistics getStatistics() {
+		return new ResolverStatistics(TimeUnit.NANOSECONDS.toMillis(setupNanos), resolveCount.get(),
+				TimeUnit.NANOSECONDS.toMillis(resolveNanos.get()));
+	}
+
+	@Override
+	public void close() {
+		try {
+			session.close();
+		} finally {
+			repositorySystem.close();
+		}
+	}
+
+	private static RepositorySystem newRepositorySystem() {
+		return new RepositorySystemSupplier() {
+
+			@Override
+			protected Map<String, TransporterFactory> createTransporterFactories() {
+				HashMap<String, TransporterFactory> result = new HashMap<>();
+		        result.put(FileTransporterFactory.NAME, new FileTransporterFactory());
+		        result.put(
+		                JdkTransporterFactory.NAME,
+		                new JdkTransporterFactory(getChecksumExtractor(), getPathProcessor()));
+		        return result;
+			}
+		}.get();
+	}
+
+	private static CloseableSession newSession(RepositorySystem system, Path localRepositoryPath) {
+		RepositorySystemSession uninitializedSession = new DefaultRepositorySystemSession(h -> false);
+
+		LocalRepository localRepository = new LocalRepository(localRepositoryPath);
+		LocalRepositoryManager localRepositoryManager = system.newLocalRepositoryManager(uninitializedSession,
+				localRepository);
+
+		MavenSessionBuilderSupplier sessionBuilderSupplier = new MavenSessionBuilderSupplier(system);
+
+		RepositorySystemSession.SessionBuilder sessionBuilder = sessionBuilderSupplier.get();
+		sessionBuilder.setLocalRepositoryManager(localRepositoryManager);
+
+		return sessionBuilder.build();
+	}
+
+	/**
+	 * A snapshot of the resolver timings for a repository
+	 *
+	 * @param setupMillis the time taken to create the repository system and
+	 *            session
+	 * @param resolveCount the number of artifact resolutions performed
+	 * @param resolveMillis the total time spent resolving artifacts
+	 */
+	record ResolverStatistics(long setupMillis, long resolveCount, long resolveMillis) {
+	}
+}
@@ -13,8 +13,16 @@
  */
 package org.eclipse.osgi.technology.featurelauncher.repository.maven;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.eclipse.osgi.technology.featurelauncher.repository.maven.ResolverContext.ResolverStatistics;
 import org.eclipse.osgi.technology.featurelauncher.repository.spi.Repository;
 import org.eclipse.osgi.technology.featurelauncher.repository.tests.LocalRepositoryTest;
+import org.junit.jupiter.api.Test;
+import org.osgi.service.feature.ID;
 
 /**
  * Tests
@@ -34,4 +42,24 @@ public class LocalRepositoryImplTest extends LocalRepositoryTest{
 		return LocalArtifactRepositoryImpl.class;
 	}
 
+	@Test
+	public void testResolverIsSharedBetweenLookups() throws Exception {
+		LocalArtifactRepositoryImpl repository = (LocalArtifactRepositoryImpl) artifactRepositoryFactory
+				.createRepository(localM2RepositoryPath);
+
+		assertNull(repository.getResolverStatistics());
+
+		ID artifactId = featureService.getIDfromMavenCoordinates("org.osgi:org.osgi.service.feature:1.0.0");
+		assertNotNull(repository.getArtifactPath(artifactId));
+		assertNotNull(repository.getArtifactPath(artifactId));
+
+		ResolverStatistics statistics = repository.getResolverStatistics();
+		assertNotNull(statistics);
+		assertEquals(2, statistics.resolveCount());
+
+		repository.close();
+
+		assertNull(repository.getResolverStatistics());
+		assertThrows(IllegalStateException.class, () -> repository.getArtifactPath(artifactId));
+	}
 }
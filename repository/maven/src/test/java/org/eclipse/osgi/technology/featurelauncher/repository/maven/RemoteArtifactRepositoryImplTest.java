@@ -13,8 +13,21 @@
  */
 package org.eclipse.osgi.technology.featurelauncher.repository.maven;
 
+import static org.eclipse.osgi.technology.featurelauncher.repository.spi.RepositoryConstants.ARTIFACT_REPOSITORY_NAME;
+import static org.eclipse.osgi.technology.featurelauncher.repository.spi.RepositoryConstants.DEFAULT_REMOTE_ARTIFACT_REPOSITORY_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.eclipse.osgi.technology.featurelauncher.repository.spi.ArtifactCache;
+import org.eclipse.osgi.technology.featurelauncher.repository.spi.FileSystemRepository;
 import org.eclipse.osgi.technology.featurelauncher.repository.spi.Repository;
 import org.eclipse.osgi.technology.featurelauncher.repository.tests.RemoteRepositoryTest;
+import org.junit.jupiter.api.Test;
+import org.osgi.service.feature.ID;
 
 /**
  * Tests
@@ -34,4 +47,23 @@ public class RemoteArtifactRepositoryImplTest extends RemoteRepositoryTest{
 		return RemoteRepositoryImpl.class;
 	}
 
+	@Test
+	public void testTemporaryLocalArtifactRepositoryReadsFromTheArtifactCache() throws Exception {
+		ID artifactId = featureService.getIDfromMavenCoordinates("org.apache.felix:org.apache.felix.webconsole:5.0.10");
+		ArtifactCache cache = ArtifactCache.getDefault();
+
+		Repository first = artifactRepositoryFactory.createRepository(remoteURI,
+				Map.of(ARTIFACT_REPOSITORY_NAME, DEFAULT_REMOTE_ARTIFACT_REPOSITORY_NAME));
+		Path path = ((FileSystemRepository) first).getArtifactPath(artifactId);
+		assertNotNull(path);
+		assertTrue(path.startsWith(cache.getRoot()));
+
+		// A new repository, e.g. after a restart, does not resolve the artifact again
+		long hits = cache.getStatistics().hits();
+		Repository second = artifactRepositoryFactory.createRepository(remoteURI,
+				Map.of(ARTIFACT_REPOSITORY_NAME, DEFAULT_REMOTE_ARTIFACT_REPOSITORY_NAME));
+		assertEquals(path, ((FileSystemRepository) second).getArtifactPath(artifactId));
+		assertEquals(hits + 1, cache.getStatistics().hits());
+	}
+
 }
@@ -0,0 +1,512 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.repository.spi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.eclipse.osgi.technology.featurelauncher.repository.spi.RepositoryConstants.ARTIFACT_CACHE_DIRECTORY;
+import static org.eclipse.osgi.technology.featurelauncher.repository.spi.RepositoryConstants.ARTIFACT_CACHE_MAX_SIZE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.osgi.service.feature.ID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent, content-addressed store for artifact bytes which can be shared
+ * by all repository implementations.
+ * <p>
+ * Artifact content is stored once, named by its SHA-256 digest, and looked up
+ * through a key, normally the artifact {@link ID} qualified by the repository
+ * it was read from. The total size of the stored content is bounded, with the
+ * least recently used content evicted first.
+ * <p>
+ * Looking up or adding content leases it for a while, during which it is not
+ * evicted, so that the returned path stays valid while it is used, e.g. until
+ * a prefetched bundle has been installed. Content in use may therefore keep
+ * the cache above its bound until its lease expires.
+ * <p>
+ * The cache directory is only used if it belongs to the user running the JVM,
+ * and it is made accessible to that user alone where the file system supports
+ * POSIX permissions, as its content is trusted once it has been stored.
+ * <p>
+ * The framework copies the content of the bundles it installs into its own
+ * storage, which cannot be written to directly through the OSGi API, so the
+ * cached content is handed out as paths to read from rather than linked into
+ * the framework storage.
+ * <p>
+ * Keys for <code>SNAPSHOT</code> artifacts are not recorded, as their content
+ * may change without the key changing.
+ */
+public final class ArtifactCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ArtifactCache.class);
+
+	private static final String CONTENT_DIR = "sha256";
+
+	private static final String KEYS_DIR = "keys";
+
+	private static final String TEMP_DIR = "tmp";
+
+	private static final long DEFAULT_MAX_SIZE = 2L * 1024 * 1024 * 1024;
+
+	private static final Duration DEFAULT_LEASE = Duration.ofMinutes(10);
+
+	private static volatile ArtifactCache defaultCache;
+
+	private final Path root;
+
+	private final long maxSize;
+
+	private final Duration lease;
+
+	private volatile boolean rootVerified;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private long currentSize = -1;
+
+	/**
+	 * Get the cache shared by all repositories in this JVM. Its location and
+	 * size can be set with the {@link RepositoryConstants#ARTIFACT_CACHE_DIRECTORY}
+	 * and {@link RepositoryConstants#ARTIFACT_CACHE_MAX_SIZE} system properties.
+	 * It is kept in <code>.cache/featurelauncher/artifacts</code> in the home
+	 * directory of the user by default.
+	 *
+	 * @return the shared cache
+	 */
+	public static ArtifactCache getDefault() {
+		ArtifactCache cache = defaultCache;
+		if (cache == null) {
+			synchronized (ArtifactCache.class) {
+				cache = defaultCache;
+				if (cache == null) {
+					Path root = Paths.get(System.getProperty(ARTIFACT_CACHE_DIRECTORY,
+							Paths.get(System.getProperty("user.home"), ".cache", "featurelauncher", "artifacts")
+									.toString()));
+					long maxSize = Long.getLong(ARTIFACT_CACHE_MAX_SIZE, DEFAULT_MAX_SIZE);
+					cache = new ArtifactCache(root, maxSize);
+					defaultCache = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Create a cache
+	 *
+	 * @param root the directory in which to store the cache
+	 * @param maxSize the maximum total size of the cached content in bytes
+	 */
+	public ArtifactCache(Path root, long maxSize) {
+		this(root, maxSize, DEFAULT_LEASE);
+	}
+
+	/**
+	 * Create a cache
+	 *
+	 * @param root the directory in which to store the cache
+	 * @param maxSize the maximum total size of the cached content in bytes
+	 * @param lease how long content which has been looked up or added is
+	 *            protected from eviction
+	 */
+	public ArtifactCache(Path root, long maxSize, Duration lease) {
+		this.root = Objects.requireNonNull(root, "The cache directory cannot be null!").toAbsolutePath();
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("The maximum cache size must be positive: " + maxSize);
+		}
+		this.maxSize = maxSize;
+		this.lease = Objects.requireNonNull(lease, "The lease cannot be null!");
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Look up the cached content for an artifact
+	 *
+	 * @param id the artifact
+	 * @return the path of the cached content, or <code>null</code> if it is not
+	 *         cached
+	 */
+	public Path get(ID id) {
+		return isSnapshot(id) ? miss() : get(id.toString());
+	}
+
+	/**
+	 * Look up the cached content for an artifact from a given repository
+	 *
+	 * @param repository the repository the artifact is read from, e.g. its URI
+	 *            or name, which keeps artifacts from different repositories
+	 *            with the same ID apart
+	 * @param id the artifact
+	 * @return the path of the cached content, or <code>null</code> if it is not
+	 *         cached
+	 */
+	public Path get(String repository, ID id) {
+		return isSnapshot(id) ? miss() : get(repositoryKey(repository, id));
+	}
+
+	/**
+	 * Look up the cached content for a key
+	 *
+	 * @param key the key
+	 * @return the path of the cached content, or <code>null</code> if it is not
+	 *         cached
+	 */
+	public Path get(String key) {
+		Path keyFile = keyFile(key);
+		try {
+			verifyRoot();
+			if (Files.isRegularFile(keyFile)) {
+				Path content = contentFile(Files.readString(keyFile, UTF_8).trim());
+				if (Files.isRegularFile(content)) {
+					// Record the access for the LRU eviction, which leases the content
+					touch(content);
+					hits.incrementAndGet();
+					return content;
+				}
+				// The content has been evicted
+				Files.deleteIfExists(keyFile);
+			}
+		} catch (IOException e) {
+			LOG.warn("Unable to read the artifact cache entry for {}", key, e);
+		}
+		return miss();
+	}
+
+	/**
+	 * Add the content of an artifact to the cache
+	 *
+	 * @param id the artifact
+	 * @param data the artifact bytes, which are fully consumed but not closed
+	 * @return the path of the cached content
+	 * @throws IOException if the content could not be stored
+	 */
+	public Path put(ID id, InputStream data) throws IOException {
+		return put(isSnapshot(id) ? null : id.toString(), data);
+	}
+
+	/**
+	 * Add the content of an artifact read from a given repository to the cache
+	 *
+	 * @param repository the repository the artifact is read from, as passed to
+	 *            {@link #get(String, ID)}
+	 * @param id the artifact
+	 * @param data the artifact bytes, which are fully consumed but not closed
+	 * @return the path of the cached content
+	 * @throws IOException if the content could not be stored
+	 */
+	public Path put(String repository, ID id, InputStream data) throws IOException {
+		return put(isSnapshot(id) ? null : repositoryKey(repository, id), data);
+	}
+
+	/**
+	 * Add content to the cache
+	 *
+	 * @param key the key to record for the content, may be <code>null</code> if
+	 *            the content should only be stored by digest
+	 * @param data the bytes to store, which are fully consumed but not closed
+	 * @return the path of the cached content
+	 * @throws IOException if the content could not be stored
+	 */
+	public Path put(String key, InputStream data) throws IOException {
+		verifyRoot();
+		Path tempDir = Files.createDirectories(root.resolve(TEMP_DIR));
+		Path temp = Files.createTempFile(tempDir, "artifact", ".tmp");
+		try {
+			MessageDigest digest = sha256();
+			long size;
+			try (OutputStream os = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+				size = data.transferTo(os);
+			}
+			String hash = HexFormat.of().formatHex(digest.digest());
+			Path content = contentFile(hash);
+
+			boolean added = false;
+			if (!Files.exists(content)) {
+				Files.createDirectories(content.getParent());
+				try {
+					moveAtomically(temp, content);
+					added = true;
+				} catch (FileAlreadyExistsException faee) {
+					// Another writer stored the same content first
+				}
+			}
+			if (!added) {
+				// Lease the existing content
+				touch(content);
+			}
+
+			if (key != null) {
+				writeKey(tempDir, key, hash);
+			}
+
+			if (added) {
+				addToSize(size);
+			}
+			return content;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Record the key of an artifact for content which has already been added
+	 * without one, e.g. once it has been verified
+	 *
+	 * @param id the artifact
+	 * @param content the path of the cached content, as returned by
+	 *            {@link #put(String, InputStream)}
+	 * @throws IOException if the key could not be recorded
+	 */
+	public void putKey(ID id, Path content) throws IOException {
+		if (!isSnapshot(id)) {
+			putKey(id.toString(), content);
+		}
+	}
+
+	/**
+	 * Record a key for content which has already been added without one
+	 *
+	 * @param key the key to record for the content
+	 * @param content the path of the cached content, as returned by
+	 *            {@link #put(String, InputStream)}
+	 * @throws IOException if the key could not be recorded
+	 */
+	public void putKey(String key, Path content) throws IOException {
+		Objects.requireNonNull(key, "The key cannot be null!");
+		verifyRoot();
+		String hash = getDigest(content);
+		if (hash == null) {
+			throw new IllegalArgumentException("The path " + content + " is not content of this cache");
+		}
+		writeKey(Files.createDirectories(root.resolve(TEMP_DIR)), key, hash);
+	}
+
+	/**
+	 * Get the SHA-256 digest of cached content, which is calculated when the
+	 * content is stored and names it, so that it need not be read again
+	 *
+	 * @param content a path
+	 * @return the hex encoded SHA-256 digest of the content, or
+	 *         <code>null</code> if the path is not content of this cache
+	 */
+	public String getDigest(Path content) {
+		Path name = content.getFileName();
+		if (name == null || name.toString().length() != 64) {
+			return null;
+		}
+		String hash = name.toString();
+		return content.toAbsolutePath().equals(contentFile(hash)) && Files.isRegularFile(content) ? hash : null;
+	}
+
+	public CacheStatistics getStatistics() {
+		synchronized (this) {
+			return new CacheStatistics(hits.get(), misses.get(), evictions.get(), currentSize(), maxSize);
+		}
+	}
+
+	private Path miss() {
+		misses.incrementAndGet();
+		return null;
+	}
+
+	private synchronized void addToSize(long size) {
+		if (currentSize < 0) {
+			// The first scan of the content already includes the new file
+			currentSize();
+		} else {
+			currentSize += size;
+		}
+		if (currentSize > maxSize) {
+			evict();
+		}
+	}
+
+	private long currentSize() {
+		if (currentSize < 0) {
+			currentSize = contentFiles().stream().mapToLong(ContentFile::size).sum();
+		}
+		return currentSize;
+	}
+
+	private void evict() {
+		// Leased content is not evicted, which includes the content just added
+		FileTime leaseStart = FileTime.fromMillis(System.currentTimeMillis() - lease.toMillis());
+		List<ContentFile> files = contentFiles().stream()
+				.filter(f -> f.lastAccess().compareTo(leaseStart) < 0)
+				.sorted(Comparator.comparing(ContentFile::lastAccess))
+				.collect(Collectors.toList());
+
+		for (ContentFile file : files) {
+			if (currentSize <= maxSize) {
+				break;
+			}
+			try {
+				if (Files.deleteIfExists(file.path())) {
+					currentSize -= file.size();
+					evictions.incrementAndGet();
+					LOG.debug("Evicted {} from the artifact cache", file.path());
+				}
+			} catch (IOException e) {
+				LOG.warn("Unable to evict {} from the artifact cache", file.path(), e);
+			}
+		}
+	}
+
+	private List<ContentFile> contentFiles() {
+		Path contentDir = root.resolve(CONTENT_DIR);
+		if (!Files.isDirectory(contentDir)) {
+			return List.of();
+		}
+		try (Stream<Path> s = Files.walk(contentDir, 2)) {
+			return s.filter(Files::isRegularFile)
+					.map(p -> {
+						try {
+							BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+							return new ContentFile(p, attrs.size(), attrs.lastModifiedTime());
+						} catch (IOException e) {
+							return null;
+						}
+					})
+					.filter(Objects::nonNull)
+					.collect(Collectors.toList());
+		} catch (IOException e) {
+			LOG.warn("Unable to list the artifact cache content", e);
+			return List.of();
+		}
+	}
+
+	/**
+	 * Create the cache directory if needed, and check that it belongs to the
+	 * user running the JVM, by comparing its owner with that of a file created
+	 * in it, and that it is private to that user
+	 */
+	private void verifyRoot() throws IOException {
+		if (rootVerified) {
+			return;
+		}
+		synchronized (this) {
+			if (rootVerified) {
+				return;
+			}
+			Files.createDirectories(root);
+			PosixFileAttributeView view = Files.getFileAttributeView(root, PosixFileAttributeView.class);
+			if (view != null) {
+				Path probe = Files.createTempFile(root, "owner", ".tmp");
+				try {
+					if (!Files.getOwner(probe).equals(view.getOwner())) {
+						throw new IOException(String.format(
+								"The artifact cache directory %s does not belong to the current user", root));
+					}
+				} finally {
+					Files.deleteIfExists(probe);
+				}
+				view.setPermissions(PosixFilePermissions.fromString("rwx------"));
+			}
+			rootVerified = true;
+		}
+	}
+
+	private void writeKey(Path tempDir, String key, String hash) throws IOException {
+		Path keyTemp = Files.createTempFile(tempDir, "key", ".tmp");
+		Files.writeString(keyTemp, hash, UTF_8);
+		Path keyFile = keyFile(key);
+		Files.createDirectories(keyFile.getParent());
+		moveAtomically(keyTemp, keyFile);
+	}
+
+	private static void touch(Path content) throws IOException {
+		Files.setLastModifiedTime(content, FileTime.fromMillis(System.currentTimeMillis()));
+	}
+
+	private Path contentFile(String hash) {
+		return root.resolve(CONTENT_DIR).resolve(hash.substring(0, 2)).resolve(hash);
+	}
+
+	private Path keyFile(String key) {
+		String hash = HexFormat.of().formatHex(sha256().digest(key.getBytes(UTF_8)));
+		return root.resolve(KEYS_DIR).resolve(hash.substring(0, 2)).resolve(hash);
+	}
+
+	private static void moveAtomically(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, REPLACE_EXISTING);
+		}
+	}
+
+	private static String repositoryKey(String repository, ID id) {
+		return Objects.requireNonNull(repository, "The repository cannot be null!") + "|" + id;
+	}
+
+	private static boolean isSnapshot(ID id) {
+		return id.getVersion().endsWith("-SNAPSHOT");
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	private record ContentFile(Path path, long size, FileTime lastAccess) {
+	}
+
+	/**
+	 * A snapshot of the cache usage
+	 *
+	 * @param hits the number of lookups which found cached content
+	 * @param misses the number of lookups which did not find cached content
+	 * @param evictions the number of content files evicted
+	 * @param size the current size of the cached content in bytes
+	 * @param maxSize the maximum size of the cached content in bytes
+	 */
+	public record CacheStatistics(long hits, long misses, long evictions, long size, long maxSize) {
+	}
+}
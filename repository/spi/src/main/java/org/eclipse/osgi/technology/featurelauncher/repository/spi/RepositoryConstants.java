@@ -45,4 +45,15 @@ public class RepositoryConstants {
 	public static final String DEFAULT_LOCAL_ARTIFACT_REPOSITORY_NAME = "local";
 
 	public static final String DEFAULT_REMOTE_ARTIFACT_REPOSITORY_NAME = "central";
+
+	/**
+	 * System property naming the directory of the shared {@link ArtifactCache}
+	 */
+	public static final String ARTIFACT_CACHE_DIRECTORY = "featurelauncher.artifact.cache.dir";
+
+	/**
+	 * System property giving the maximum size in bytes of the shared
+	 * {@link ArtifactCache}
+	 */
+	public static final String ARTIFACT_CACHE_MAX_SIZE = "featurelauncher.artifact.cache.maxSize";
 }
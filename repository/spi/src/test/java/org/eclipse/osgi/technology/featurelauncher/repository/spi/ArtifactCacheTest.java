@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.repository.spi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+
+import org.eclipse.osgi.technology.featurelauncher.repository.spi.ArtifactCache.CacheStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link ArtifactCache}
+ */
+public class ArtifactCacheTest {
+
+	@TempDir
+	Path cacheDir;
+
+	@Test
+	public void testPutAndGet() throws Exception {
+		ArtifactCache cache = new ArtifactCache(cacheDir, 1024);
+
+		assertNull(cache.get("a"));
+
+		Path stored = cache.put("a", new ByteArrayInputStream("hello".getBytes(UTF_8)));
+		assertEquals(stored, cache.get("a"));
+		assertArrayEquals("hello".getBytes(UTF_8), Files.readAllBytes(stored));
+
+		// The same content under another key is stored once
+		assertEquals(stored, cache.put("b", new ByteArrayInputStream("hello".getBytes(UTF_8))));
+
+		CacheStatistics statistics = cache.getStatistics();
+		assertEquals(1, statistics.hits());
+		assertEquals(1, statistics.misses());
+		assertEquals(5, statistics.size());
+	}
+
+	@Test
+	public void testKeyRecordedForStoredContent() throws Exception {
+		ArtifactCache cache = new ArtifactCache(cacheDir, 1024);
+
+		Path stored = cache.put((String) null, new ByteArrayInputStream("hello".getBytes(UTF_8)));
+		assertNull(cache.get("a"));
+
+		cache.putKey("a", stored);
+		assertEquals(stored, cache.get("a"));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> cache.putKey("b", Files.createTempFile(cacheDir, "other", ".tmp")));
+		assertNull(cache.get("b"));
+	}
+
+	@Test
+	public void testDigestOfStoredContent() throws Exception {
+		ArtifactCache cache = new ArtifactCache(cacheDir, 1024);
+
+		Path stored = cache.put("a", new ByteArrayInputStream("hello".getBytes(UTF_8)));
+		assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824", cache.getDigest(stored));
+
+		Path copy = Files.createDirectories(cacheDir.resolve("copy")).resolve(stored.getFileName());
+		Files.copy(stored, copy);
+		assertNull(cache.getDigest(copy));
+	}
+
+	@Test
+	public void testContentSurvivesNewInstance() throws Exception {
+		Path stored = new ArtifactCache(cacheDir, 1024).put("a", new ByteArrayInputStream(new byte[10]));
+
+		ArtifactCache cache = new ArtifactCache(cacheDir, 1024);
+		assertEquals(stored, cache.get("a"));
+		assertEquals(10, cache.getStatistics().size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws Exception {
+		ArtifactCache cache = new ArtifactCache(cacheDir, 25);
+
+		Path first = cache.put("a", new ByteArrayInputStream(new byte[10]));
+		Path second = cache.put("b", new ByteArrayInputStream(new byte[11]));
+		Files.setLastModifiedTime(first, FileTime.fromMillis(1000));
+		Files.setLastModifiedTime(second, FileTime.fromMillis(2000));
+
+		cache.put("c", new ByteArrayInputStream(new byte[12]));
+
+		assertNull(cache.get("a"));
+		assertNotNull(cache.get("b"));
+		assertNotNull(cache.get("c"));
+
+		CacheStatistics statistics = cache.getStatistics();
+		assertEquals(1, statistics.evictions());
+		assertEquals(23, statistics.size());
+	}
+
+	@Test
+	public void testLeasedContentIsNotEvicted() throws Exception {
+		ArtifactCache cache = new ArtifactCache(cacheDir, 25);
+
+		Path first = cache.put("a", new ByteArrayInputStream(new byte[10]));
+		Path second = cache.put("b", new ByteArrayInputStream(new byte[11]));
+		Path third = cache.put("c", new ByteArrayInputStream(new byte[12]));
+
+		// All are in use, so the cache stays above its bound
+		assertTrue(Files.isRegularFile(first));
+		assertTrue(Files.isRegularFile(second));
+		assertTrue(Files.isRegularFile(third));
+		assertEquals(0, cache.getStatistics().evictions());
+		assertEquals(33, cache.getStatistics().size());
+	}
+
+	@Test
+	public void testContentLargerThanTheCacheIsKeptWhileLeased() throws Exception {
+		ArtifactCache cache = new ArtifactCache(cacheDir, 10, Duration.ofMinutes(1));
+
+		Path stored = cache.put("a", new ByteArrayInputStream(new byte[20]));
+
+		assertTrue(Files.isRegularFile(stored));
+		assertEquals(stored, cache.get("a"));
+	}
+
+	@Test
+	public void testExpiredLeasesAreEvicted() throws Exception {
+		ArtifactCache cache = new ArtifactCache(cacheDir, 10, Duration.ZERO);
+
+		Path first = cache.put("a", new ByteArrayInputStream(new byte[8]));
+		Files.setLastModifiedTime(first, FileTime.fromMillis(1000));
+		cache.put("b", new ByteArrayInputStream(new byte[9]));
+
+		assertFalse(Files.exists(first));
+		assertEquals(1, cache.getStatistics().evictions());
+	}
+
+	@Test
+	public void testCacheDirectoryIsPrivate() throws Exception {
+		Path root = cacheDir.resolve("cache");
+		ArtifactCache cache = new ArtifactCache(root, 1024);
+		cache.put("a", new ByteArrayInputStream(new byte[1]));
+
+		PosixFileAttributeView view = Files.getFileAttributeView(root, PosixFileAttributeView.class);
+		assumeTrue(view != null, "POSIX permissions are not supported");
+		assertEquals(PosixFilePermissions.fromString("rwx------"), view.readAttributes().permissions());
+	}
+}
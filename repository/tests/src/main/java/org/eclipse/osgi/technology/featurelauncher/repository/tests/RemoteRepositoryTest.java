@@ -58,7 +58,7 @@ public abstract class RemoteRepositoryTest extends AbstractRepositoryTest {
 
 	private HttpServer httpServer;
 	
-	private URI remoteURI;
+	protected URI remoteURI;
 	
 	@TempDir
 	Path localCache;
@@ -16,21 +16,29 @@ package org.eclipse.osgi.technology.featurelauncher.impl.runtime;
 import static org.eclipse.osgi.technology.featurelauncher.common.osgi.util.impl.ConfigurationUtil.CONFIGURATIONS_FILTER;
 import static org.eclipse.osgi.technology.featurelauncher.common.osgi.util.impl.ConfigurationUtil.CONFIGURATION_DEFAULT_LOCATION;
 import static org.eclipse.osgi.technology.featurelauncher.common.osgi.util.impl.ConfigurationUtil.constructConfigurationsFilter;
+import static org.eclipse.osgi.technology.featurelauncher.common.osgi.util.impl.ConfigurationUtil.constructPidsFilter;
 import static org.eclipse.osgi.technology.featurelauncher.common.osgi.util.impl.ConfigurationUtil.normalizePid;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.osgi.technology.featurelauncher.common.util.impl.VariablesUtil;
+import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.Configuration.ConfigurationAttribute;
@@ -56,112 +64,212 @@ import org.slf4j.LoggerFactory;
 public class FeatureRuntimeConfigurationManager {
 	private static final Logger LOG = LoggerFactory.getLogger(FeatureRuntimeConfigurationManager.class);
 
+	// Properties maintained by Configuration Admin rather than by features
+	private static final Set<String> CONFIGURATION_ADMIN_PROPERTIES = Set.of(Constants.SERVICE_PID,
+			ConfigurationAdmin.SERVICE_FACTORYPID, ConfigurationAdmin.SERVICE_BUNDLELOCATION);
+
 	@Reference
 	ConfigurationAdmin configurationAdmin;
 
-	public void createConfigurations(List<FeatureConfiguration> featureConfigurations,
-			Map<String, Object> featureVariables) {
-		featureConfigurations.forEach(fc -> createConfiguration(fc, featureVariables));
+	/**
+	 * The outcome of applying a single configuration in
+	 * {@link FeatureRuntimeConfigurationManager#applyConfigurations}
+	 */
+	public enum Outcome {
+		CREATED, UPDATED, UNCHANGED, READ_ONLY, FAILED
 	}
 
-	public void removeConfigurations(Set<String> featuresConfigurationsPids) {
-		try {
-			Map<String, Configuration> existingConfigurations = getFeatureLauncherConfigurations();
-
-			if (!existingConfigurations.isEmpty()) {
-				for (String featuresConfigurationsPid : featuresConfigurationsPids) {
-					if (existingConfigurations.containsKey(featuresConfigurationsPid)) {
-						existingConfigurations.remove(featuresConfigurationsPid).delete();
-					}
-				}
-			}
-
-		} catch (IOException | InvalidSyntaxException e) {
-			LOG.error("Error removing configurations!", e);
-		}
+	/**
+	 * Records how a configuration was applied and how long it took
+	 */
+	public record AppliedConfiguration(String pid, Outcome outcome, long durationNanos) {
 	}
 
-	public List<Configuration> getConfigurations(String filter) {
+	public void createConfigurations(List<FeatureConfiguration> featureConfigurations,
+			Map<String, Object> featureVariables) {
 		try {
-			Configuration[] configurations = configurationAdmin.listConfigurations(filter);
-
-			if (configurations != null) {
-				return Stream.of(configurations).collect(Collectors.toList());
-			}
-
+			applyConfigurations(featureConfigurations,
+					getConfigurations(featureConfigurations.stream().map(FeatureConfiguration::getPid).toList()),
+					featureVariables);
 		} catch (IOException | InvalidSyntaxException e) {
-			LOG.error("Error retrieving configurations!", e);
+			LOG.error("Error retrieving existing configurations!", e);
 		}
-
-		return Collections.emptyList();
 	}
 
-	public Map<String, Configuration> getAllConfigurations() throws IOException, InvalidSyntaxException {
+	/**
+	 * Look up the existing configurations with the given PIDs in a single call
+	 * to Configuration Admin
+	 * 
+	 * @param pids the PIDs to look up
+	 * @return the existing configurations by PID
+	 */
+	public Map<String, Configuration> getConfigurations(Collection<String> pids)
+			throws IOException, InvalidSyntaxException {
+		if (pids.isEmpty()) {
+			return Map.of();
+		}
+
 		// @formatter:off
-		return Optional.ofNullable(configurationAdmin.listConfigurations(null))
+		return Optional.ofNullable(configurationAdmin.listConfigurations(constructPidsFilter(pids)))
 				.map(Arrays::stream)
 				.map(s -> s.collect(Collectors.toMap(Configuration::getPid, Function.identity())))
 				.orElse(Map.of());
 		// @formatter:on
 	}
 
-	public void createConfiguration(FeatureConfiguration featureConfiguration, Map<String, Object> featureVariables) {
-		if (featureConfiguration.getFactoryPid().isPresent()) {
-			createFactoryConfiguration(featureConfiguration, featureVariables);
-			return;
-		}
+	/**
+	 * Create or update the given feature configurations. The properties of all
+	 * the configurations are computed first and compared with those of the
+	 * existing configurations, so that Configuration Admin is only called to
+	 * write the configurations which actually change, in a single pass.
+	 * 
+	 * @param featureConfigurations the configurations to apply
+	 * @param existingConfigurations the existing configurations by PID, as
+	 *            returned by {@link #getConfigurations(Collection)}
+	 * @param featureVariables the variables to substitute in the configurations
+	 * @return the outcome of each configuration, in the order given
+	 */
+	public List<AppliedConfiguration> applyConfigurations(Collection<FeatureConfiguration> featureConfigurations,
+			Map<String, Configuration> existingConfigurations, Map<String, Object> featureVariables) {
+		long start = System.nanoTime();
 
-		try {
-			LOG.info(String.format("Creating configuration %s", featureConfiguration.getPid()));
+		AppliedConfiguration[] applied = new AppliedConfiguration[featureConfigurations.size()];
+		List<PendingWrite> pendingWrites = new ArrayList<>();
 
-			Configuration configuration = configurationAdmin.getConfiguration(featureConfiguration.getPid(),
-					CONFIGURATION_DEFAULT_LOCATION);
+		// Compute everything up front, dropping the configurations which would not change
+		int index = 0;
+		for (FeatureConfiguration featureConfiguration : featureConfigurations) {
+			long pidStart = System.nanoTime();
+			Configuration existing = existingConfigurations.get(featureConfiguration.getPid());
 
-			if (!isReadOnly(configuration)) {
-				updateConfigurationProperties(configuration, featureConfiguration, featureVariables);
-			} else {
+			Hashtable<String, Object> properties = new Hashtable<>(
+					VariablesUtil.maybeSubstituteVariables(featureConfiguration.getValues(), featureVariables));
+			properties.put(CONFIGURATIONS_FILTER, Boolean.TRUE);
+
+			if (existing != null && isReadOnly(existing)) {
 				LOG.warn(String.format("Configuration %s is read only!", featureConfiguration.getPid()));
+				applied[index] = new AppliedConfiguration(featureConfiguration.getPid(), Outcome.READ_ONLY,
+						System.nanoTime() - pidStart);
+			} else if (existing != null && isUnchanged(existing.getProperties(), properties)) {
+				applied[index] = new AppliedConfiguration(featureConfiguration.getPid(), Outcome.UNCHANGED,
+						System.nanoTime() - pidStart);
+			} else {
+				pendingWrites.add(new PendingWrite(index, featureConfiguration, existing, properties));
 			}
+			index++;
+		}
 
-		} catch (IllegalArgumentException | IOException e) {
-			LOG.error(String.format("Error creating configuration %s!", featureConfiguration.getPid()), e);
+		// Then write the ones which change
+		for (PendingWrite pendingWrite : pendingWrites) {
+			long pidStart = System.nanoTime();
+			Outcome outcome = writeConfiguration(pendingWrite.featureConfiguration(), pendingWrite.existing(),
+					pendingWrite.properties());
+			applied[pendingWrite.index()] = new AppliedConfiguration(pendingWrite.featureConfiguration().getPid(),
+					outcome, System.nanoTime() - pidStart);
 		}
+
+		if (LOG.isDebugEnabled()) {
+			for (AppliedConfiguration a : applied) {
+				LOG.debug(String.format("Configuration %s %s in %d us", a.pid(), a.outcome(),
+						TimeUnit.NANOSECONDS.toMicros(a.durationNanos())));
+			}
+		}
+		if (applied.length > 0) {
+			LOG.info(String.format("Applied %d configurations (%d written) in %d ms", applied.length,
+					pendingWrites.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+		}
+
+		return List.of(applied);
 	}
 
-	private void createFactoryConfiguration(FeatureConfiguration featureConfiguration,
-			Map<String, Object> featureVariables) {
+	private record PendingWrite(int index, FeatureConfiguration featureConfiguration, Configuration existing,
+			Hashtable<String, Object> properties) {
+	}
+
+	private Outcome writeConfiguration(FeatureConfiguration featureConfiguration, Configuration existing,
+			Hashtable<String, Object> properties) {
 		try {
-			LOG.info(String.format("Creating factory configuration %s", featureConfiguration.getPid()));
+			Configuration configuration = existing;
+			if (configuration == null) {
+				LOG.info(String.format("Creating configuration %s", featureConfiguration.getPid()));
 
-			Configuration configuration = configurationAdmin.getFactoryConfiguration(
-					featureConfiguration.getFactoryPid().get(), normalizePid(featureConfiguration.getPid()),
-					CONFIGURATION_DEFAULT_LOCATION);
+				if (featureConfiguration.getFactoryPid().isPresent()) {
+					configuration = configurationAdmin.getFactoryConfiguration(
+							featureConfiguration.getFactoryPid().get(), normalizePid(featureConfiguration.getPid()),
+							CONFIGURATION_DEFAULT_LOCATION);
+				} else {
+					configuration = configurationAdmin.getConfiguration(featureConfiguration.getPid(),
+							CONFIGURATION_DEFAULT_LOCATION);
+				}
 
-			if (!isReadOnly(configuration)) {
-				updateConfigurationProperties(configuration, featureConfiguration, featureVariables);
-			} else {
-				LOG.warn(String.format("Configuration %s is read only!", featureConfiguration.getPid()));
+				if (isReadOnly(configuration)) {
+					LOG.warn(String.format("Configuration %s is read only!", featureConfiguration.getPid()));
+					return Outcome.READ_ONLY;
+				}
 			}
 
-		} catch (IllegalArgumentException | IOException e) {
-			LOG.error(String.format("Error creating configuration %s!", featureConfiguration.getPid()), e);
+			configuration.updateIfDifferent(properties);
+
+			return existing == null ? Outcome.CREATED : Outcome.UPDATED;
+
+		} catch (IllegalArgumentException | IllegalStateException | IOException e) {
+			LOG.error(String.format("Error writing configuration %s!", featureConfiguration.getPid()), e);
+			return Outcome.FAILED;
 		}
 	}
 
-	private void updateConfigurationProperties(Configuration configuration, FeatureConfiguration featureConfiguration,
-			Map<String, Object> featureVariables) {
-		Map<String, Object> configurationProperties = VariablesUtil
-				.maybeSubstituteVariables(featureConfiguration.getValues(), featureVariables);
+	private boolean isUnchanged(Dictionary<String, Object> current, Map<String, Object> properties) {
+		if (current == null) {
+			return false;
+		}
+
+		int compared = 0;
+		for (Enumeration<String> keys = current.keys(); keys.hasMoreElements();) {
+			String key = keys.nextElement();
+			if (CONFIGURATION_ADMIN_PROPERTIES.contains(key)) {
+				continue;
+			}
+			if (!properties.containsKey(key) || !Objects.deepEquals(current.get(key), properties.get(key))) {
+				return false;
+			}
+			compared++;
+		}
 
-		configurationProperties.put(CONFIGURATIONS_FILTER, Boolean.TRUE);
+		return compared == properties.size();
+	}
 
+	public void removeConfigurations(Set<String> featuresConfigurationsPids) {
 		try {
-			configuration.updateIfDifferent(new Hashtable<>(configurationProperties));
-		} catch (IOException e) {
-			LOG.error(String.format("Error updating configuration properties %s!", featureConfiguration.getPid()), e);
+			Map<String, Configuration> existingConfigurations = getFeatureLauncherConfigurations();
+
+			if (!existingConfigurations.isEmpty()) {
+				for (String featuresConfigurationsPid : featuresConfigurationsPids) {
+					if (existingConfigurations.containsKey(featuresConfigurationsPid)) {
+						existingConfigurations.remove(featuresConfigurationsPid).delete();
+					}
+				}
+			}
+
+		} catch (IOException | InvalidSyntaxException e) {
+			LOG.error("Error removing configurations!", e);
 		}
 	}
 
+	public List<Configuration> getConfigurations(String filter) {
+		try {
+			Configuration[] configurations = configurationAdmin.listConfigurations(filter);
+
+			if (configurations != null) {
+				return Stream.of(configurations).collect(Collectors.toList());
+			}
+
+		} catch (IOException | InvalidSyntaxException e) {
+			LOG.error("Error retrieving configurations!", e);
+		}
+
+		return Collections.emptyList();
+	}
+
 	private Map<String, Configuration> getFeatureLauncherConfigurations() throws IOException, InvalidSyntaxException {
 		// @formatter:off
 		return Optional.ofNullable(configurationAdmin.listConfigurations(constructConfigurationsFilter()))
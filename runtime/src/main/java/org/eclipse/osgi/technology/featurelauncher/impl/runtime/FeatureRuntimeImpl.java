@@ -16,26 +16,52 @@ package org.eclipse.osgi.technology.featurelauncher.impl.runtime;
 import static org.osgi.service.feature.FeatureExtension.Kind.MANDATORY;
 import static org.osgi.service.featurelauncher.FeatureLauncherConstants.BUNDLE_START_LEVEL_METADATA;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
@@ -44,16 +70,25 @@ import java.util.stream.Stream;
 import org.eclipse.osgi.technology.featurelauncher.common.decorator.impl.DecorationContext;
 import org.eclipse.osgi.technology.featurelauncher.common.decorator.impl.LaunchFrameworkFeatureExtensionHandler;
 import org.eclipse.osgi.technology.featurelauncher.common.decorator.impl.MutableRepositoryList;
+import org.eclipse.osgi.technology.featurelauncher.common.repository.impl.ArtifactPrefetcher;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeConfigurationManager.AppliedConfiguration;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeConfigurationManager.Outcome;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeJournal.JournaledBundle;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeJournal.JournaledConfiguration;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeJournal.JournaledFeature;
 import org.eclipse.osgi.technology.featurelauncher.repository.common.osgi.ArtifactRepositoryAdapter;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.startlevel.BundleStartLevel;
 import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.FrameworkWiring;
 import org.osgi.service.cm.Configuration;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.feature.Feature;
 import org.osgi.service.feature.FeatureBundle;
@@ -83,7 +118,18 @@ import org.slf4j.LoggerFactory;
 
 /**
  * 160.5 The Feature Runtime Service
- * 
+ * <p>
+ * Install, update and remove operations are applied one at a time, in the
+ * order they are submitted, by a single operation thread. The work which does
+ * not touch the framework, i.e. decorating a feature and resolving its
+ * artifacts, is done on a separate pool as soon as an operation is submitted,
+ * so that it overlaps with the operations queued before it.
+ * <p>
+ * The installed features are recorded in a journal in the data area of the
+ * bundle. When the runtime is activated again, e.g. after a restart of the
+ * framework, the features whose bundles are still installed are restored from
+ * the journal, without installing anything.
+ *
  * @author Michael H. Siemaszko (mhs@into.software)
  * @since Sep 15, 2024
  */
@@ -91,39 +137,101 @@ import org.slf4j.LoggerFactory;
 public class FeatureRuntimeImpl implements FeatureRuntime {
 	private static final Logger LOG = LoggerFactory.getLogger(FeatureRuntimeImpl.class);
 
+	private static final long BUNDLE_REFRESH_TIMEOUT_SECONDS = 60;
+
+	private static final String JOURNAL_FILE = "feature-runtime.journal";
+
 	private final FeatureRuntimeConfigurationManager featureRuntimeConfigurationManager;
 	
 	private final ArtifactRepositoryFactory artifactRepositoryFactory;
 
-	private FeatureService featureService;
+	private final FeatureService featureService;
 
 	private BundleContext bundleContext;
 
 	private final Map<String, ArtifactRepository> defaultArtifactRepositories;
 
+	// The state below is only accessed by the operation thread, other threads
+	// read the snapshot published in 'runtimeState'
+
 	// Bundles installed by this feature runtime
-	private final Map<ID, Bundle> installedBundlesByIdentifier;
+	private final SnapshotMap<ID, Bundle> installedBundlesByIdentifier;
 
 	// Lists of bundles for each feature installed
-	private final Map<ID, List<ID>> installedFeaturesToBundles;
+	private final SnapshotMap<ID, List<ID>> installedFeaturesToBundles;
 
 	// List of configurations for each feature installed
 	private final Map<ID, Collection<String>> installedFeaturesToConfigurations;
 
-	// List of installed features
+	// List of installed features, which are replaced rather than changed
 	private final List<InstalledFeature> installedFeatures;
 
+	// Whether 'installedFeatures' changed since the state was last published
+	private boolean installedFeaturesChanged;
+
 	// Bundles already present in running framework
 	private final Map<Map.Entry<String, String>, Long> existingBundles;
 
 	// Allows faster lookup of bundle symbolic name and version
 	private final Map<ID, Map.Entry<String, String>> bundleIdsToSymbolicNamesVersions;
 
+	// Reverse indexes of the maps above, so that ownership lookups do not scan
+	// every installed feature
+	private final Map<ID, Set<ID>> bundlesToOwningFeatures;
+
+	private final Map<String, Set<ID>> configurationsToOwningFeatures;
+
+	private final Map<Map.Entry<String, String>, ID> symbolicNamesVersionsToBundleIds;
+
+	// Installed features by the IDs of their bundles and the PIDs of their
+	// configurations, used to maintain their "owning features"
+	private final Map<ID, List<InstalledFeature>> installedFeaturesByBundleId;
+
+	private final Map<String, List<InstalledFeature>> installedFeaturesByPid;
+
 	// ID of the virtual external feature representing ownership of a bundle or
 	// configuration that was deployed by another management agent
 	private ID externalFeatureId;
 
-	
+	// Maximum number of bundle artifacts resolved concurrently before installation
+	private final int bundlePrefetchParallelism;
+
+	// Whether updates apply only the differences to the installed feature
+	private final boolean incrementalUpdate;
+
+	// Applies the operations one at a time, in submission order
+	private final ThreadPoolExecutor operationExecutor;
+
+	private volatile Thread operationThread;
+
+	// Decorates features and resolves their artifacts ahead of their turn
+	private final ExecutorService preparationExecutor;
+
+	// Starts the bundles of a start level concurrently, if enabled
+	private final ExecutorService bundleStartExecutor;
+
+	// Threads of the bundle start pool, which start bundles on behalf of the
+	// operation thread
+	private final Set<Thread> bundleStartThreads = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger queueDepth = new AtomicInteger();
+
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+	private final LongAdder completedOperations = new LongAdder();
+
+	private final LongAdder totalWaitNanos = new LongAdder();
+
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	// The state last published by the operation thread, read without locking
+	private volatile RuntimeState runtimeState = RuntimeState.EMPTY;
+
+	// Records the installed features across activations, null if disabled or
+	// if it could not be written
+	private FeatureRuntimeJournal journal;
+
+
 	public static @interface Config {
 		
 		public String[] local_repositories() default { "~/.m2/repository" };
@@ -133,14 +241,58 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		public boolean local_repositories_enabled() default false;
 		
 		public boolean remote_repositories_enabled() default false;
+		
+		/**
+		 * The maximum number of bundle artifacts to resolve concurrently
+		 * before installing a feature. A value of 1 or less resolves each
+		 * artifact as it is installed.
+		 */
+		public int bundle_prefetch_parallelism() default 4;
+		
+		/**
+		 * Whether an update applies only the differences between the installed
+		 * and the new feature, updating bundles in place when only their
+		 * version changes. When disabled an out of date feature is removed and
+		 * installed again.
+		 */
+		public boolean incremental_update() default true;
+
+		/**
+		 * The maximum number of submitted operations whose features are
+		 * decorated, and whose artifacts start resolving, while earlier
+		 * operations are still being applied.
+		 */
+		public int operation_preparation_parallelism() default 2;
+
+		/**
+		 * The maximum number of bundles of a feature started concurrently.
+		 * Bundles are started together only when they have the same start
+		 * level, and all the bundles of a start level are started before
+		 * those of the next one. A value of 1 or less starts the bundles one
+		 * at a time, in feature order.
+		 */
+		public int bundle_start_parallelism() default 1;
+
+		/**
+		 * Whether the installed features are recorded in a journal, from which
+		 * those whose bundles are still installed are restored when the
+		 * runtime is activated again. When disabled the runtime starts without
+		 * installed features.
+		 */
+		public boolean state_journal_enabled() default true;
 	}
 	
 	@Activate
 	public FeatureRuntimeImpl(BundleContext context, Config config,
-			@Reference ArtifactRepositoryFactory arf, @Reference FeatureRuntimeConfigurationManager frcm) {
+			@Reference ArtifactRepositoryFactory arf, @Reference FeatureRuntimeConfigurationManager frcm,
+			@Reference FeatureService featureService) {
 		this.bundleContext = context;
 		this.artifactRepositoryFactory = arf;
 		this.featureRuntimeConfigurationManager = frcm;
+		this.featureService = featureService;
+		setExternalFeatureId();
+		this.bundlePrefetchParallelism = config.bundle_prefetch_parallelism();
+		this.incrementalUpdate = config.incremental_update();
 
 		try {
 			Map<String, ArtifactRepository> repos = new HashMap<>();
@@ -187,19 +339,104 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 			throw new FeatureRuntimeException("Could not create default artifact repositories!");
 		}
 
-		this.installedBundlesByIdentifier = new HashMap<>();
-		this.installedFeaturesToBundles = new HashMap<>();
+		this.installedBundlesByIdentifier = new SnapshotMap<>();
+		this.installedFeaturesToBundles = new SnapshotMap<>();
 		this.installedFeaturesToConfigurations = new HashMap<>();
 		this.installedFeatures = new ArrayList<>();
 		this.bundleIdsToSymbolicNamesVersions = new HashMap<>();
+		this.bundlesToOwningFeatures = new HashMap<>();
+		this.configurationsToOwningFeatures = new HashMap<>();
+		this.symbolicNamesVersionsToBundleIds = new HashMap<>();
+		this.installedFeaturesByBundleId = new HashMap<>();
+		this.installedFeaturesByPid = new HashMap<>();
+
+		this.operationExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				r -> {
+					Thread t = new Thread(r, "featurelauncher-runtime-operations");
+					t.setDaemon(true);
+					operationThread = t;
+					return t;
+				});
+		AtomicInteger threadCounter = new AtomicInteger();
+		this.preparationExecutor = Executors.newFixedThreadPool(Math.max(1, config.operation_preparation_parallelism()),
+				r -> {
+					Thread t = new Thread(r, "featurelauncher-runtime-prepare-" + threadCounter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		if (config.bundle_start_parallelism() > 1) {
+			AtomicInteger startThreadCounter = new AtomicInteger();
+			this.bundleStartExecutor = Executors.newFixedThreadPool(config.bundle_start_parallelism(), r -> {
+				Thread t = new Thread(() -> {
+					try {
+						r.run();
+					} finally {
+						bundleStartThreads.remove(Thread.currentThread());
+					}
+				}, "featurelauncher-runtime-start-" + startThreadCounter.incrementAndGet());
+				t.setDaemon(true);
+				bundleStartThreads.add(t);
+				return t;
+			});
+		} else {
+			this.bundleStartExecutor = null;
+		}
+
+		if (config.state_journal_enabled()) {
+			File journalFile = context.getDataFile(JOURNAL_FILE);
+			if (journalFile != null) {
+				this.journal = new FeatureRuntimeJournal(journalFile.toPath());
+				restoreInstalledFeatures();
+			} else {
+				LOG.warn("The framework has no file system support, installed features are not journaled");
+			}
+		}
 
 		LOG.info("Started FeatureRuntime!");
 	}
 
-	@Reference
-	private void setFeatureService(FeatureService featureService) {
-		this.featureService = featureService;
-		setExternalFeatureId();
+	@Deactivate
+	void deactivate() {
+		// Let the current operation finish, but fail those still waiting
+		operationExecutor.shutdown();
+		List<Runnable> queuedOperations = new ArrayList<>();
+		operationExecutor.getQueue().drainTo(queuedOperations);
+		for (Runnable queuedOperation : queuedOperations) {
+			((QueuedOperation<?, ?>) queuedOperation).abort();
+		}
+		if (Thread.currentThread() != operationThread) {
+			try {
+				if (!operationExecutor.awaitTermination(BUNDLE_REFRESH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+					LOG.warn(String.format("The current feature runtime operation did not complete within %d seconds",
+							BUNDLE_REFRESH_TIMEOUT_SECONDS));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		preparationExecutor.shutdownNow();
+		if (bundleStartExecutor != null) {
+			bundleStartExecutor.shutdownNow();
+		}
+		if (journal != null) {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				LOG.warn("An error occurred closing the feature runtime journal", e);
+			}
+		}
+
+		// Release any resources (e.g. resolver sessions) held by the default repositories
+		for (ArtifactRepository ar : defaultArtifactRepositories.values()) {
+			Object repository = ar instanceof ArtifactRepositoryAdapter ara ? ara.unwrap() : ar;
+			if (repository instanceof AutoCloseable closeable) {
+				try {
+					closeable.close();
+				} catch (Exception e) {
+					LOG.warn(String.format("An error occurred closing artifact repository %s", repository), e);
+				}
+			}
+		}
 	}
 
 	@Override
@@ -256,7 +493,16 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 	 */
 	@Override
 	public List<InstalledFeature> getInstalledFeatures() {
-		return installedFeatures;
+		return runtimeState.installedFeatures();
+	}
+
+	/**
+	 * @return the state published once the last operation was applied, which
+	 *         never changes afterwards, including the installed features it
+	 *         holds
+	 */
+	public RuntimeState getRuntimeState() {
+		return runtimeState;
 	}
 
 	/* 
@@ -265,14 +511,59 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 	 */
 	@Override
 	public void remove(ID featureId) {
+		await(removeAsync(featureId));
+	}
+
+	/**
+	 * Queue the removal of an installed feature
+	 *
+	 * @param featureId the feature to remove
+	 * @return a future completed once the feature has been removed
+	 * @see #remove(ID)
+	 */
+	public CompletableFuture<Void> removeAsync(ID featureId) {
 		Objects.requireNonNull(featureId, "Feature ID cannot be null!");
 
-		InstalledFeature installedFeature = getInstalledFeatureById(featureId);
+		return enqueue(CompletableFuture.completedFuture(featureId), id -> {
+			InstalledFeature installedFeature = getInstalledFeatureById(id);
+
+			Objects.requireNonNull(installedFeature,
+					String.format("No feature matching %s ID could be found!", id.toString()));
+
+			new RemoveOperationBuilderImpl(installedFeature.getFeature())
+					.removeFeature(installedFeature.getFeature().getID());
+			return null;
+		});
+	}
+
+	/**
+	 * @return the current state of the operation queue
+	 */
+	public OperationQueueMetrics getOperationQueueMetrics() {
+		// @formatter:off
+		return new OperationQueueMetrics(
+				queueDepth.get(),
+				maxQueueDepth.get(),
+				completedOperations.sum(),
+				Duration.ofNanos(totalWaitNanos.sum()),
+				Duration.ofNanos(maxWaitNanos.get()));
+		// @formatter:on
+	}
 
-		Objects.requireNonNull(installedFeature,
-				String.format("No feature matching %s ID could be found!", featureId.toString()));
+	/**
+	 * Install several features as a single operation. The bundles and
+	 * configurations shared by the features are only installed once, all the
+	 * bundles are installed before any is started, and if any of the features
+	 * cannot be installed none of them is.
+	 *
+	 * @param features the features to install, in install order, none of which
+	 *            may be installed already
+	 * @return a builder for the operation
+	 */
+	public BatchInstallOperationBuilder installAll(Collection<Feature> features) {
+		Objects.requireNonNull(features, "Features cannot be null!");
 
-		new RemoveOperationBuilderImpl(installedFeature.getFeature()).remove();
+		return new BatchInstallOperationBuilderImpl(features);
 	}
 
 	/* 
@@ -306,9 +597,11 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		}
 	}
 
-	abstract class AbstractOperationBuilderImpl<T extends OperationBuilder<T>> implements OperationBuilder<T> {
+	/**
+	 * The options common to all operations, and the steps they are made of
+	 */
+	abstract class AbstractOperationBuilderImpl<T> {
 		protected DecorationContext<?> decorationUtil;
-		protected Feature feature;
 		protected boolean isCompleted;
 		protected boolean useDefaultRepositories;
 		protected Map<String, ArtifactRepository> artifactRepositories;
@@ -320,10 +613,7 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		
 		protected final MutableRepositoryList completedRepositories = new MutableRepositoryList();
 
-		public AbstractOperationBuilderImpl(Feature feature) {
-			Objects.requireNonNull(feature, "Feature cannot be null!");
-
-			this.feature = feature;
+		protected AbstractOperationBuilderImpl() {
 			this.isCompleted = false;
 			this.useDefaultRepositories = true;
 			this.artifactRepositories = new LinkedHashMap<>();
@@ -336,7 +626,6 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		 * (non-Javadoc)
 		 * @see org.osgi.service.featurelauncher.runtime.FeatureRuntime.OperationBuilder#addRepository(java.lang.String, org.osgi.service.featurelauncher.repository.ArtifactRepository)
 		 */
-		@Override
 		public T addRepository(String name, ArtifactRepository repository) {
 			Objects.requireNonNull(name, "Artifact Repository name cannot be null!");
 			Objects.requireNonNull(repository, "Artifact Repository cannot be null!");
@@ -352,7 +641,6 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		 * (non-Javadoc)
 		 * @see org.osgi.service.featurelauncher.runtime.FeatureRuntime.OperationBuilder#useDefaultRepositories(boolean)
 		 */
-		@Override
 		public T useDefaultRepositories(boolean include) {
 			ensureNotCompletedYet();
 
@@ -365,7 +653,6 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		 * (non-Javadoc)
 		 * @see org.osgi.service.featurelauncher.runtime.FeatureRuntime.OperationBuilder#withBundleMerge(org.osgi.service.featurelauncher.runtime.RuntimeBundleMerge)
 		 */
-		@Override
 		public T withBundleMerge(RuntimeBundleMerge merge) {
 			Objects.requireNonNull(merge, "Runtime bundle merge cannot be null!");
 
@@ -380,7 +667,6 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		 * (non-Javadoc)
 		 * @see org.osgi.service.featurelauncher.runtime.FeatureRuntime.OperationBuilder#withConfigurationMerge(org.osgi.service.featurelauncher.runtime.RuntimeConfigurationMerge)
 		 */
-		@Override
 		public T withConfigurationMerge(RuntimeConfigurationMerge merge) {
 			Objects.requireNonNull(merge, "Runtime configuration merge cannot be null!");
 
@@ -395,7 +681,6 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		 * (non-Javadoc)
 		 * @see org.osgi.service.featurelauncher.runtime.FeatureRuntime.OperationBuilder#withVariables(java.util.Map)
 		 */
-		@Override
 		public T withVariables(Map<String, Object> variables) {
 			Objects.requireNonNull(variables, "Variables cannot be null!");
 
@@ -410,7 +695,6 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		 * (non-Javadoc)
 		 * @see org.osgi.service.featurelauncher.runtime.FeatureRuntime.OperationBuilder#withDecorator(org.osgi.service.featurelauncher.decorator.FeatureDecorator)
 		 */
-		@Override
 		public T withDecorator(FeatureDecorator decorator) {
 			Objects.requireNonNull(decorator, "Feature Decorator cannot be null!");
 
@@ -425,7 +709,6 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		 * (non-Javadoc)
 		 * @see org.osgi.service.featurelauncher.runtime.FeatureRuntime.OperationBuilder#withExtensionHandler(java.lang.String, org.osgi.service.featurelauncher.decorator.FeatureExtensionHandler)
 		 */
-		@Override
 		public T withExtensionHandler(String extensionName, FeatureExtensionHandler extensionHandler) {
 			Objects.requireNonNull(extensionName, "Feature extension name cannot be null!");
 			Objects.requireNonNull(extensionHandler, "Feature extension handler cannot be null!");
@@ -437,12 +720,8 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 			return castThis();
 		}
 
-		/* 
-		 * (non-Javadoc)
-		 * @see org.osgi.service.featurelauncher.runtime.FeatureRuntime.OperationBuilder#complete()
-		 */
-		@Override
-		public InstalledFeature complete() throws FeatureRuntimeException {
+		protected void markCompleted() {
+			ensureNotCompletedYet();
 			this.isCompleted = true;
 
 			if (this.useDefaultRepositories) {
@@ -456,13 +735,30 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 				return f;
 			};
 			decorationUtil = new DecorationContext<>(launchHandler);
-
-			return addOrUpdateFeature(feature);
 		}
 
-		protected InstalledFeature addOrUpdateFeature(Feature feature) {
-			ID featureId = feature.getID();
+		protected PreparedFeature prepareFeature(Feature feature) {
+			ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(completedRepositories, bundlePrefetchParallelism);
+			try {
+				PreparedFeature prepared = prepareFeature(feature, prefetcher);
+
+				// Start resolving the bundles not installed yet, any which are
+				// installed or removed meanwhile are resolved when used
+				// @formatter:off
+				prefetcher.prefetch(prepared.decoratedFeature().getBundles().stream()
+						.map(FeatureBundle::getID)
+						.filter(id -> !runtimeState.installedBundlesByIdentifier().containsKey(id))
+						.collect(Collectors.toCollection(LinkedHashSet::new)));
+				// @formatter:on
+
+				return prepared;
+			} catch (RuntimeException e) {
+				prefetcher.close();
+				throw e;
+			}
+		}
 
+		protected PreparedFeature prepareFeature(Feature feature, ArtifactPrefetcher prefetcher) {
 			validateFeatureExtensions(feature);
 
 			// @formatter:off
@@ -471,11 +767,24 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 	        		.collect(Collectors.toList());
 	        // @formatter:on
 
+			// Feature Decoration
+			Feature decoratedFeature = decorateFeature(feature);
+
+			return new PreparedFeature(feature, decoratedFeature, featureBundlesIDs, prefetcher);
+		}
+
+		protected InstalledFeature addOrUpdateFeature(PreparedFeature prepared) {
+			Feature feature = prepared.originalFeature();
+			ID featureId = feature.getID();
+			List<ID> featureBundlesIDs = prepared.featureBundlesIDs();
+
 			// Check if feature is already installed or out of date
 			if (installedFeaturesToBundles.containsKey(featureId)) {
 				LOG.info(String.format("Updating feature %s", featureId));
 
-				if (installedFeaturesToBundles.get(featureId).equals(featureBundlesIDs)) {
+				if (incrementalUpdate) {
+					return updateFeature(prepared);
+				} else if (installedFeaturesToBundles.get(featureId).equals(featureBundlesIDs)) {
 					// No work to do, already installed
 					LOG.info(String.format("The feature %s is already up to date", featureId));
 
@@ -489,39 +798,337 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 				}
 			}
 
-			// Feature Decoration
 			Feature originalFeature = feature;
+			feature = prepared.decoratedFeature();
+
+			// Install bundles
+			List<InstalledBundle> installedBundles = installBundles(feature, featureBundlesIDs,
+					prepared.prefetcher());
+
+			// Install configurations
+			List<InstalledConfiguration> installedConfigurations = installConfigurations(feature);
+
+			// Start bundles
+			Map<ID, Duration> activationTimes = startBundles(featureId, installedBundles);
+
+			// construct installed feature
+			InstalledFeature installedFeature = constructInstalledFeature(feature, originalFeature,
+					feature != originalFeature, false, installedBundles, installedConfigurations, activationTimes);
+
+			// update "owning features" in other 'installedFeatures'
+			updateInstalledFeaturesOnAddOrUpdate(installedFeature);
+
+			addInstalledFeature(installedFeature);
+
+			return installedFeature;
+		}
+
+		protected Feature decorateFeature(Feature feature) {
 			try {
 				feature = decorationUtil.executeFeatureDecorators(featureService,
 						feature, this.completedRepositories, decorators);
 
-				feature = decorationUtil.executeFeatureExtensionHandlers(featureService, feature,
+				return decorationUtil.executeFeatureExtensionHandlers(featureService, feature,
 						this.completedRepositories, extensionHandlers);
 			} catch (AbandonOperationException e) {
 				throw new FeatureRuntimeException("Feature decoration handling failed!", e);
 			}
+		}
 
-			// Install bundles
-			List<InstalledBundle> installedBundles = installBundles(feature, featureBundlesIDs);
+		/**
+		 * Update an installed feature by applying only the differences to the
+		 * new feature. Bundles present in both are left untouched, bundles
+		 * whose version changed are updated in place, and configurations are
+		 * only written when their values change. All the bundles updated or
+		 * uninstalled are refreshed together at the end.
+		 * <p>
+		 * The bundles and configurations of the previous version which are no
+		 * longer needed are only removed once the new ones are in place, so
+		 * that if updating fails the previous version of the feature can be
+		 * restored.
+		 */
+		protected InstalledFeature updateFeature(PreparedFeature prepared) {
+			Feature originalFeature = prepared.originalFeature();
+			Feature feature = prepared.decoratedFeature();
+			ID featureId = originalFeature.getID();
+			List<ID> featureBundlesIDs = prepared.featureBundlesIDs();
+
+			// Forget the previous version of the feature, so that only other
+			// features count as owners from here on
+			List<ID> previousBundleIDs = unregisterFeatureBundles(featureId);
+			Collection<String> previousConfigurationPIDs = unregisterFeatureConfigurations(featureId);
+			List<InstalledFeature> previousFeatures = removeInstalledFeature(featureId);
+			updateInstalledFeaturesOnRemove(featureId, previousFeatures);
+
+			Set<ID> previousInstalledBundleIDs = new HashSet<>(installedBundlesByIdentifier.keySet());
+			Map<ID, ID> updatedBundleIDs = new LinkedHashMap<>();
+
+			Set<ID> unreferencedBundleIDs;
+			Set<Bundle> bundlesToRefresh = new LinkedHashSet<>();
+			List<InstalledBundle> installedBundles;
+			List<InstalledConfiguration> installedConfigurations;
+			try {
+				// Bundles of the previous version no longer referenced by any feature
+				Set<ID> featureBundlesIDsSet = new HashSet<>(featureBundlesIDs);
+				// @formatter:off
+				unreferencedBundleIDs = previousBundleIDs.stream()
+						.filter(id -> !featureBundlesIDsSet.contains(id) && !bundlesToOwningFeatures.containsKey(id))
+						.collect(Collectors.toCollection(LinkedHashSet::new));
+				// @formatter:on
 
-			// Install configurations
-			List<InstalledConfiguration> installedConfigurations = installConfigurations(feature);
+				// Pair new bundles with an unreferenced bundle of the same artifact,
+				// which can then be updated rather than uninstalled and installed
+				Map<ArtifactKey, ID> replaceableBundleIDs = new HashMap<>();
+				for (ID bundleId : unreferencedBundleIDs) {
+					if (installedBundlesByIdentifier.containsKey(bundleId)) {
+						replaceableBundleIDs.putIfAbsent(ArtifactKey.of(bundleId), bundleId);
+					}
+				}
+				Map<ID, FeatureBundle> bundleReplacements = new LinkedHashMap<>();
+				for (FeatureBundle featureBundle : feature.getBundles()) {
+					ID bundleId = featureBundle.getID();
+					if (!installedBundlesByIdentifier.containsKey(bundleId)) {
+						ID previousBundleId = replaceableBundleIDs.remove(ArtifactKey.of(bundleId));
+						if (previousBundleId != null) {
+							bundleReplacements.put(previousBundleId, featureBundle);
+						}
+					}
+				}
+
+				// Resolve the replacements before any bundle is changed
+				Map<ID, Path> replacementPaths = new LinkedHashMap<>();
+				for (Map.Entry<ID, FeatureBundle> bundleReplacement : bundleReplacements.entrySet()) {
+					ID bundleId = bundleReplacement.getValue().getID();
+					Path featureBundlePath = getArtifactPath(bundleId, prepared.prefetcher());
+					if (featureBundlePath != null) {
+						replacementPaths.put(bundleReplacement.getKey(), featureBundlePath);
+						unreferencedBundleIDs.remove(bundleReplacement.getKey());
+					} else {
+						// Nothing to update to, the previous version can no longer be used
+						LOG.warn(String.format("Bundle %s could not be found, bundle %s will be removed", bundleId,
+								bundleReplacement.getKey()));
+					}
+				}
+
+				// Update bundles in place
+				for (Map.Entry<ID, Path> replacementPath : replacementPaths.entrySet()) {
+					FeatureBundle featureBundle = bundleReplacements.get(replacementPath.getKey());
+					bundlesToRefresh
+							.add(updateBundle(replacementPath.getKey(), featureBundle, replacementPath.getValue()));
+					updatedBundleIDs.put(featureBundle.getID(), replacementPath.getKey());
+				}
+
+				// Install new bundles, those already installed are left untouched
+				installedBundles = installBundles(feature, featureBundlesIDs, prepared.prefetcher());
+
+				// Update configurations, except those which were only present externally
+				// @formatter:off
+				Set<String> previousOwnedConfigurationPIDs = previousFeatures.stream()
+						.flatMap(f -> f.getInstalledConfigurations().stream())
+						.filter(ic -> !ic.getOwningFeatures().contains(externalFeatureId))
+						.map(InstalledConfiguration::getPid)
+						.collect(Collectors.toSet());
+				// @formatter:on
+				installedConfigurations = installConfigurations(feature, previousOwnedConfigurationPIDs);
+
+			} catch (Throwable t) {
+				rollbackUpdate(featureId, previousBundleIDs, previousConfigurationPIDs, previousFeatures,
+						previousInstalledBundleIDs, updatedBundleIDs, prepared.prefetcher());
+
+				if (t instanceof Error e) {
+					throw e;
+				}
+				throw new FeatureRuntimeException(
+						String.format("Updating the feature %s failed, its previous version was restored!", featureId),
+						t);
+			}
+
+			// Remove the bundles which were not replaced, in reverse install order
+			Deque<ID> bundleIDsForRemoval = new LinkedList<>();
+			for (ID bundleId : unreferencedBundleIDs) {
+				bundleIDsForRemoval.addFirst(bundleId);
+
+				Bundle bundle = installedBundlesByIdentifier.get(bundleId);
+				if (bundle != null) {
+					bundlesToRefresh.add(bundle);
+				}
+
+				LOG.info(String.format("Bundle %s is no longer required and will be removed", bundleId));
+			}
+			stopBundles(bundleIDsForRemoval);
+			uninstallBundles(bundleIDsForRemoval);
+
+			// @formatter:off
+			Set<String> configurationPIDsForRemoval = previousConfigurationPIDs.stream()
+					.filter(pid -> !configurationsToOwningFeatures.containsKey(pid))
+					.collect(Collectors.toSet());
+			// @formatter:on
+			configurationPIDsForRemoval.forEach(pid -> LOG.info(String.format("Configuration %s will be removed", pid)));
+			removeFeatureConfigurations(configurationPIDsForRemoval);
+
+			// Rewire everything affected by updated or uninstalled bundles at once
+			refreshBundles(bundlesToRefresh);
 
 			// Start bundles
-			startBundles(featureId, installedBundles);
+			Map<ID, Duration> activationTimes = startBundles(featureId, installedBundles);
 
 			// construct installed feature
 			InstalledFeature installedFeature = constructInstalledFeature(feature, originalFeature,
-					feature != originalFeature, false, installedBundles, installedConfigurations);
+					feature != originalFeature, false, installedBundles, installedConfigurations, activationTimes);
 
 			// update "owning features" in other 'installedFeatures'
 			updateInstalledFeaturesOnAddOrUpdate(installedFeature);
 
-			installedFeatures.add(installedFeature);
+			addInstalledFeature(installedFeature);
 
 			return installedFeature;
 		}
 
+		protected Bundle updateBundle(ID previousBundleID, FeatureBundle featureBundle, Path featureBundlePath) {
+			ID bundleId = featureBundle.getID();
+			Bundle bundle = installedBundlesByIdentifier.get(previousBundleID);
+
+			try (InputStream featureBundleIs = Files.newInputStream(featureBundlePath)) {
+				bundle.update(featureBundleIs);
+			} catch (BundleException | IOException e) {
+				throw new FeatureRuntimeException(
+						String.format("Could not update bundle '%s' to '%s'!", previousBundleID, bundleId), e);
+			}
+
+			installedBundlesByIdentifier.remove(previousBundleID);
+			installedBundlesByIdentifier.put(bundleId, bundle);
+
+			maybeSetBundleStartLevel(bundle, featureBundle.getMetadata());
+
+			LOG.info(String.format("Updated bundle '%s' from %s to %s", bundle.getSymbolicName(), previousBundleID,
+					bundleId));
+
+			return bundle;
+		}
+
+		protected Path getArtifactPath(ID bundleId, ArtifactPrefetcher prefetcher) {
+			try {
+				return prefetcher.getArtifactPath(bundleId);
+			} catch (IllegalStateException e) {
+				throw new FeatureRuntimeException(String.format("Could not resolve bundle '%s'!", bundleId),
+						e.getCause());
+			}
+		}
+
+		/**
+		 * Undo a partly applied update, removing the bundles installed for the
+		 * new version, updating the bundles updated in place back to their
+		 * previous version and registering the previous version of the feature
+		 * again. Nothing of the previous version has been removed yet, and the
+		 * configurations are only written once all of them could be computed.
+		 *
+		 * @param updatedBundleIDs the previous ID of each bundle updated in
+		 *            place, keyed by its new ID
+		 */
+		protected void rollbackUpdate(ID featureId, List<ID> previousBundleIDs,
+				Collection<String> previousConfigurationPIDs, List<InstalledFeature> previousFeatures,
+				Set<ID> previousInstalledBundleIDs, Map<ID, ID> updatedBundleIDs, ArtifactPrefetcher prefetcher) {
+			unregisterFeatureBundles(featureId);
+			unregisterFeatureConfigurations(featureId);
+
+			Set<Bundle> bundlesToRefresh = new LinkedHashSet<>();
+
+			// Remove the new bundles, in reverse install order, which is that of
+			// their framework bundle IDs as these grow with every install
+			// @formatter:off
+			Deque<ID> bundleIDsForRemoval = installedBundlesByIdentifier.entrySet().stream()
+					.filter(e -> !previousInstalledBundleIDs.contains(e.getKey()))
+					.filter(e -> !updatedBundleIDs.containsKey(e.getKey()))
+					.sorted(Comparator.comparingLong(
+							(Map.Entry<ID, Bundle> e) -> e.getValue().getBundleId()).reversed())
+					.map(Map.Entry::getKey)
+					.collect(Collectors.toCollection(LinkedList::new));
+			// @formatter:on
+			bundleIDsForRemoval.forEach(bundleId -> bundlesToRefresh.add(installedBundlesByIdentifier.get(bundleId)));
+			stopBundles(bundleIDsForRemoval);
+			uninstallBundles(bundleIDsForRemoval);
+
+			// Put the previous version of the bundles updated in place back
+			// @formatter:off
+			Map<ID, FeatureBundle> previousFeatureBundles = previousFeatures.stream()
+					.flatMap(f -> f.getFeature().getBundles().stream())
+					.collect(Collectors.toMap(FeatureBundle::getID, Function.identity(), (a, b) -> a));
+			// @formatter:on
+			for (Map.Entry<ID, ID> updatedBundleID : updatedBundleIDs.entrySet()) {
+				ID previousBundleID = updatedBundleID.getValue();
+				Bundle bundle = installedBundlesByIdentifier.remove(updatedBundleID.getKey());
+				installedBundlesByIdentifier.put(previousBundleID, bundle);
+				bundlesToRefresh.add(bundle);
+
+				try {
+					Path previousBundlePath = prefetcher.getArtifactPath(previousBundleID);
+					if (previousBundlePath == null) {
+						throw new IOException(String.format("Bundle %s could not be found", previousBundleID));
+					}
+					try (InputStream previousBundleIs = Files.newInputStream(previousBundlePath)) {
+						bundle.update(previousBundleIs);
+					}
+					FeatureBundle previousFeatureBundle = previousFeatureBundles.get(previousBundleID);
+					if (previousFeatureBundle != null) {
+						maybeSetBundleStartLevel(bundle, previousFeatureBundle.getMetadata());
+					}
+				} catch (BundleException | IOException | IllegalStateException e) {
+					LOG.error(String.format("Could not restore bundle '%s' from '%s'!", previousBundleID,
+							updatedBundleID.getKey()), e);
+				}
+			}
+			refreshBundles(bundlesToRefresh);
+
+			registerFeatureBundles(featureId, previousBundleIDs);
+			registerFeatureConfigurations(featureId, previousConfigurationPIDs);
+			for (InstalledFeature previousFeature : previousFeatures) {
+				updateInstalledFeaturesOnAddOrUpdate(previousFeature);
+				addInstalledFeature(previousFeature);
+			}
+
+			LOG.warn(String.format("Rolled back the update of feature %s, removing %d bundles and restoring %d bundles",
+					featureId, bundleIDsForRemoval.size(), updatedBundleIDs.size()));
+		}
+
+		protected void refreshBundles(Collection<Bundle> bundles) {
+			if (bundles.isEmpty()) {
+				return;
+			}
+
+			FrameworkWiring frameworkWiring = bundleContext.getBundle(Constants.SYSTEM_BUNDLE_ID)
+					.adapt(FrameworkWiring.class);
+
+			CountDownLatch refreshed = new CountDownLatch(1);
+			frameworkWiring.refreshBundles(bundles, e -> refreshed.countDown());
+
+			try {
+				if (!refreshed.await(BUNDLE_REFRESH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+					LOG.warn(String.format("Refreshing %d bundles did not complete within %d seconds", bundles.size(),
+							BUNDLE_REFRESH_TIMEOUT_SECONDS));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new FeatureRuntimeException("Interrupted while refreshing bundles!", e);
+			}
+		}
+
+		/**
+		 * Resolve the bundles together, so that the framework computes their
+		 * wiring once rather than as each of them is started
+		 */
+		protected void resolveBundles(Collection<Bundle> bundles) {
+			if (bundles.isEmpty()) {
+				return;
+			}
+
+			FrameworkWiring frameworkWiring = bundleContext.getBundle(Constants.SYSTEM_BUNDLE_ID)
+					.adapt(FrameworkWiring.class);
+
+			if (!frameworkWiring.resolveBundles(bundles)) {
+				LOG.warn(String.format("Not all of the %d bundles installed could be resolved", bundles.size()));
+			}
+		}
+
 		// TODO: clarify with Tim understanding / how this is currently implemented and
 		// integrate this then
 		protected Stream<BundleMapping> maybeRunBundleMerge(MergeOperationType operation, Feature feature) {
@@ -667,13 +1274,18 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 			removeFeatureConfigurations(configurationPIDsForRemoval);
 
 			// remove feature from list of installed features
-			installedFeatures.removeIf(f -> featureId.equals(f.getFeature().getID()));
+			List<InstalledFeature> removedFeatures = removeInstalledFeature(featureId);
 
 			// update "owning features" in other installed features
-			updateInstalledFeaturesOnRemove(featureId);
+			updateInstalledFeaturesOnRemove(featureId, removedFeatures);
 		}
 
-		protected List<InstalledBundle> installBundles(Feature feature, List<ID> featureBundles) {
+		/**
+		 * Install the bundles of a feature in feature order, taking the
+		 * artifacts from the prefetcher so that their downloads overlap
+		 */
+		protected List<InstalledBundle> installBundles(Feature feature, List<ID> featureBundles,
+				ArtifactPrefetcher prefetcher) {
 			List<InstalledBundle> installedBundles = new ArrayList<>();
 			for (FeatureBundle featureBundle : feature.getBundles()) {
 				ID bundleId = featureBundle.getID();
@@ -685,7 +1297,7 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 					Bundle bundle = null;
 
 					try {
-						bundle = installBundle(bundleId);
+						bundle = installBundle(bundleId, prefetcher);
 
 						if (bundle != null) {
 							installedBundlesByIdentifier.put(bundleId, bundle);
@@ -724,7 +1336,7 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 				}
 			}
 
-			installedFeaturesToBundles.put(feature.getID(), featureBundles);
+			registerFeatureBundles(feature.getID(), featureBundles);
 
 			return installedBundles;
 		}
@@ -732,44 +1344,77 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		protected ID getAliasBundleId(ID bundleId) {
 			final Map.Entry<String, String> bundleSymbolicNameAndVersion = getBundleSymbolicNameAndVersion(bundleId);
 			if (bundleSymbolicNameAndVersion != null) {
-				// @formatter:off
-				return bundleIdsToSymbolicNamesVersions.entrySet().stream()
-						.filter(entry -> ((bundleSymbolicNameAndVersion.getKey())
-								.equals(entry.getValue().getKey())
-								&& (bundleSymbolicNameAndVersion.getValue())
-										.equals(entry.getValue().getValue())))
-						.map(entry -> entry.getKey())
-						.findFirst()
-						.orElse(null);
-				// @formatter:on
+				return symbolicNamesVersionsToBundleIds.get(bundleSymbolicNameAndVersion);
 			}
 			return null;
 		}
 
-		protected Bundle installBundle(ID featureBundleID) throws IOException, BundleException {
-			try (InputStream featureBundleIs = getArtifact(featureBundleID)) {
-				if (featureBundleIs.available() != 0) {
-					Bundle installedBundle = bundleContext.installBundle(featureBundleID.toString(), featureBundleIs);
+		protected Bundle installBundle(ID featureBundleID, ArtifactPrefetcher prefetcher)
+				throws IOException, BundleException {
+			Path featureBundlePath;
+			try {
+				featureBundlePath = prefetcher.getArtifactPath(featureBundleID);
+			} catch (IllegalStateException e) {
+				throw new IOException(e.getMessage(), e.getCause());
+			}
+
+			if (featureBundlePath == null) {
+				return null;
+			}
 
-					LOG.info(String.format("Installed bundle '%s'", installedBundle.getSymbolicName()));
+			try (InputStream featureBundleIs = Files.newInputStream(featureBundlePath)) {
+				Bundle installedBundle = bundleContext.installBundle(getBundleLocation(featureBundleID),
+						featureBundleIs);
 
-					return installedBundle;
-				}
+				LOG.info(String.format("Installed bundle '%s'", installedBundle.getSymbolicName()));
+
+				return installedBundle;
 			}
+		}
 
-			return null;
+		/**
+		 * A bundle is installed with its ID as location. A bundle updated in
+		 * place keeps the location it was installed with, so if the ID is
+		 * still the location of a bundle the runtime has since updated to
+		 * another version, the bundle is installed under a distinct location,
+		 * as installing it under the same one would return the updated bundle.
+		 */
+		protected String getBundleLocation(ID featureBundleID) {
+			String location = featureBundleID.toString();
+			for (int i = 1;; i++) {
+				Bundle existingBundle = bundleContext.getBundle(location);
+				if (existingBundle == null || !installedBundlesByIdentifier.containsValue(existingBundle)) {
+					return location;
+				}
+				location = String.format("%s#%d", featureBundleID, i);
+			}
 		}
 
 		protected List<InstalledConfiguration> installConfigurations(Feature feature) {
-			List<InstalledConfiguration> installedConfigurations = new ArrayList<>();
+			return installConfigurations(feature, Collections.emptySet());
+		}
 
-			Map<String, Configuration> allExistingConfigurations;
+		/**
+		 * @param previousConfigurationPIDs configurations owned by the version of
+		 *            the feature being updated, which are written again only if
+		 *            their values changed
+		 */
+		protected List<InstalledConfiguration> installConfigurations(Feature feature,
+				Set<String> previousConfigurationPIDs) {
+			return installConfigurations(feature, previousConfigurationPIDs,
+					getExistingConfigurations(feature.getConfigurations().keySet()));
+		}
 
-			try {
-				allExistingConfigurations = featureRuntimeConfigurationManager.getAllConfigurations();
-			} catch (IOException | InvalidSyntaxException e) {
-				throw new FeatureRuntimeException("Error retrieving existing configurations!", e);
-			}
+		/**
+		 * @param existingConfigurations the existing configurations, which
+		 *            include at least those of the feature
+		 */
+		protected List<InstalledConfiguration> installConfigurations(Feature feature,
+				Set<String> previousConfigurationPIDs, Map<String, Configuration> existingConfigurations) {
+			List<InstalledConfiguration> installedConfigurations = new ArrayList<>();
+
+			// Configurations to be created or updated, written together once all are known
+			List<FeatureConfiguration> configurationsToApply = new ArrayList<>();
 
 			for (Map.Entry<String, FeatureConfiguration> featureConfigurationEntry : feature.getConfigurations()
 					.entrySet()) {
@@ -778,15 +1423,21 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 
 				boolean configurationAlreadyInstalledByRuntime = isConfigurationInstalledByRuntime(configurationPid);
 
-				if (!allExistingConfigurations.containsKey(configurationPid)) {
+				if (!existingConfigurations.containsKey(configurationPid)) {
 
-					featureRuntimeConfigurationManager.createConfiguration(featureConfiguration,
-							mergeVariables(feature));
+					configurationsToApply.add(featureConfiguration);
 
 					installedConfigurations.add(constructInstalledConfiguration(featureConfiguration,
 							constructOwningFeatures(feature.getID())));
 
-					LOG.info(String.format("Installed configuration %s", configurationPid));
+				} else if (!configurationAlreadyInstalledByRuntime
+						&& previousConfigurationPIDs.contains(configurationPid)) {
+
+					// Only written if the values differ
+					configurationsToApply.add(featureConfiguration);
+
+					installedConfigurations.add(constructInstalledConfiguration(featureConfiguration,
+							constructOwningFeatures(feature.getID())));
 
 				} else {
 
@@ -808,31 +1459,104 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 				}
 			}
 
-			List<String> featureConfigurationsPIDs = feature.getConfigurations().keySet().stream()
-					.collect(Collectors.toList());
-
-			installedFeaturesToConfigurations.put(feature.getID(), featureConfigurationsPIDs);
+			if (!configurationsToApply.isEmpty()) {
+				for (AppliedConfiguration applied : featureRuntimeConfigurationManager.applyConfigurations(
+						configurationsToApply, existingConfigurations, mergeVariables(feature))) {
+					if (applied.outcome() == Outcome.CREATED) {
+						LOG.info(String.format("Installed configuration %s", applied.pid()));
+					}
+				}
+			}
+
+			List<String> featureConfigurationsPIDs = feature.getConfigurations().keySet().stream()
+					.collect(Collectors.toList());
+
+			registerFeatureConfigurations(feature.getID(), featureConfigurationsPIDs);
 
 			return installedConfigurations;
 		}
 
-		protected void startBundles(ID featureId, List<InstalledBundle> installedBundles) {
-			for (InstalledBundle installedBundle : installedBundles) {
-				try {
-					if (installedBundle.getBundle().getState() == Bundle.INSTALLED) {
-						BundleRevision rev = installedBundle.getBundle().adapt(BundleRevision.class);
-						if (rev != null && (rev.getTypes() & BundleRevision.TYPE_FRAGMENT) == 0) {
-							// Start all but fragment bundles
-							installedBundle.getBundle().start();
-						} else {
-							LOG.info(String.format("Not starting bundle %s as it is a fragment",
-									installedBundle.getBundle().getSymbolicName()));
+		protected Map<String, Configuration> getExistingConfigurations(Collection<String> configurationPIDs) {
+			try {
+				return featureRuntimeConfigurationManager.getConfigurations(configurationPIDs);
+			} catch (IOException | InvalidSyntaxException e) {
+				throw new FeatureRuntimeException("Error retrieving existing configurations!", e);
+			}
+		}
+
+		/**
+		 * Start the installed bundles, one at a time in feature order, or when
+		 * parallel start is enabled, all the bundles of a start level together
+		 * once those of the lower start levels have started. An operation
+		 * applied on a thread of the start pool, submitted by a bundle being
+		 * started, starts its bundles one at a time, as waiting for the pool
+		 * from one of its own threads could never end.
+		 *
+		 * @return the time taken to start each bundle which was started
+		 */
+		protected Map<ID, Duration> startBundles(ID featureId, List<InstalledBundle> installedBundles) {
+			Map<ID, Duration> activationTimes = new LinkedHashMap<>();
+
+			if (bundleStartExecutor == null || bundleStartThreads.contains(Thread.currentThread())) {
+				for (InstalledBundle installedBundle : installedBundles) {
+					Duration activationTime = startBundle(featureId, installedBundle);
+					if (activationTime != null) {
+						activationTimes.put(installedBundle.getBundleId(), activationTime);
+					}
+				}
+			} else {
+				// @formatter:off
+				Map<Integer, List<InstalledBundle>> installedBundlesByStartLevel = installedBundles.stream()
+						.collect(Collectors.groupingBy(InstalledBundle::getStartLevel, TreeMap::new,
+								Collectors.toList()));
+				// @formatter:on
+
+				for (List<InstalledBundle> startLevelBundles : installedBundlesByStartLevel.values()) {
+					List<CompletableFuture<Duration>> starts = new ArrayList<>();
+					for (InstalledBundle installedBundle : startLevelBundles) {
+						starts.add(CompletableFuture.supplyAsync(() -> startBundle(featureId, installedBundle),
+								bundleStartExecutor));
+					}
+					for (int i = 0; i < starts.size(); i++) {
+						Duration activationTime = starts.get(i).join();
+						if (activationTime != null) {
+							activationTimes.put(startLevelBundles.get(i).getBundleId(), activationTime);
 						}
 					}
-				} catch (Exception e) {
-					LOG.warn(String.format("An error occurred starting a bundle in feature %s", featureId));
 				}
 			}
+
+			return Collections.unmodifiableMap(activationTimes);
+		}
+
+		/**
+		 * @return the time taken to start the bundle, or <code>null</code> if
+		 *         it was not started
+		 */
+		protected Duration startBundle(ID featureId, InstalledBundle installedBundle) {
+			try {
+				if (installedBundle.getBundle().getState() == Bundle.INSTALLED) {
+					BundleRevision rev = installedBundle.getBundle().adapt(BundleRevision.class);
+					if (rev != null && (rev.getTypes() & BundleRevision.TYPE_FRAGMENT) == 0) {
+						// Start all but fragment bundles
+						long start = System.nanoTime();
+						installedBundle.getBundle().start();
+						Duration activationTime = Duration.ofNanos(System.nanoTime() - start);
+
+						if (LOG.isDebugEnabled()) {
+							LOG.debug("Started bundle {} in {} ms", installedBundle.getBundle().getSymbolicName(),
+									activationTime.toMillis());
+						}
+						return activationTime;
+					} else {
+						LOG.info(String.format("Not starting bundle %s as it is a fragment",
+								installedBundle.getBundle().getSymbolicName()));
+					}
+				}
+			} catch (Exception e) {
+				LOG.warn(String.format("An error occurred starting a bundle in feature %s", featureId));
+			}
+			return null;
 		}
 
 		protected void stopBundles(Deque<ID> bundleIDsToStop) {
@@ -866,14 +1590,14 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 
 		protected Deque<ID> getBundleIDsForRemoval(ID featureId) {
 			// Get all the bundles to remove in "install order", clearing the features map
-			Set<ID> bundlesToRemove = installedFeaturesToBundles.remove(featureId).stream()
+			Set<ID> bundlesToRemove = unregisterFeatureBundles(featureId).stream()
 					.collect(Collectors.toCollection(LinkedHashSet::new));
 
 			// Create a deque of bundles to remove, in the order they should be removed
 			Deque<ID> orderedBundleIDsForRemoval = new LinkedList<>();
 			for (ID bundleToRemove : bundlesToRemove) {
 				// Only remove the bundle if no remaining features reference it
-				if (installedFeaturesToBundles.values().stream().noneMatch(c -> c.contains(bundleToRemove))) {
+				if (!bundlesToOwningFeatures.containsKey(bundleToRemove)) {
 					// Add to the start of the deque, so that we reverse the install order
 					orderedBundleIDsForRemoval.addFirst(bundleToRemove);
 
@@ -892,12 +1616,11 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 			Set<String> configurationPIDsForRemoval = new HashSet<>();
 
 			if (installedFeaturesToConfigurations.containsKey(featureId)) {
-				Set<String> featureConfigurationPIDsToRemove = installedFeaturesToConfigurations.remove(featureId)
+				Set<String> featureConfigurationPIDsToRemove = unregisterFeatureConfigurations(featureId)
 						.stream().collect(Collectors.toSet());
 
 				for (String featureConfigurationPIDToRemove : featureConfigurationPIDsToRemove) {
-					if (installedFeaturesToConfigurations.values().stream()
-							.noneMatch(c -> c.contains(featureConfigurationPIDToRemove))) {
+					if (!configurationsToOwningFeatures.containsKey(featureConfigurationPIDToRemove)) {
 						configurationPIDsForRemoval.add(featureConfigurationPIDToRemove);
 
 						LOG.info(String.format("Configuration %s will be removed", featureConfigurationPIDToRemove));
@@ -911,6 +1634,13 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		protected InstalledFeature constructInstalledFeature(Feature feature, Feature originalFeature,
 				boolean isDecorated, boolean isInitialLaunch, List<InstalledBundle> installedBundles,
 				List<InstalledConfiguration> installedConfigurations) {
+			return constructInstalledFeature(feature, originalFeature, isDecorated, isInitialLaunch, installedBundles,
+					installedConfigurations, Collections.emptyMap());
+		}
+
+		protected InstalledFeature constructInstalledFeature(Feature feature, Feature originalFeature,
+				boolean isDecorated, boolean isInitialLaunch, List<InstalledBundle> installedBundles,
+				List<InstalledConfiguration> installedConfigurations, Map<ID, Duration> bundleActivationTimes) {
 			// @formatter:off
 			return new InstalledFeatureImpl(
 					feature, 
@@ -918,7 +1648,8 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 					isDecorated, 
 					isInitialLaunch, 
 					installedBundles,
-					installedConfigurations);
+					installedConfigurations,
+					bundleActivationTimes);
 			// @formatter:on
 		}
 
@@ -963,9 +1694,7 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		}
 
 		protected List<ID> constructOwningFeatures(ID... featureIds) {
-			List<ID> owningFeatures = new ArrayList<>();
-			owningFeatures.addAll(List.of(featureIds));
-			return owningFeatures;
+			return List.of(featureIds);
 		}
 
 		protected List<ID> constructBundleOwningFeatures(ID featureId, ID bundleId) {
@@ -976,12 +1705,7 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		}
 
 		protected List<ID> getBundleOwningFeatures(ID bundleId) {
-			// @formatter:off
-			return installedFeaturesToBundles.entrySet().stream()
-					.filter(e -> e.getValue().contains(bundleId))
-					.map(e -> e.getKey())
-					.toList();
-			// @formatter:on
+			return List.copyOf(bundlesToOwningFeatures.getOrDefault(bundleId, Collections.emptySet()));
 		}
 
 		protected InstalledConfiguration constructInstalledConfiguration(FeatureConfiguration featureConfiguration,
@@ -1010,12 +1734,7 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		}
 
 		protected List<ID> getConfigurationOwningFeatures(String configurationPid) {
-			// @formatter:off
-			return installedFeaturesToConfigurations.entrySet().stream()
-					.filter(e -> e.getValue().contains(configurationPid))
-					.map(e -> e.getKey())
-					.toList();
-			// @formatter:on
+			return List.copyOf(configurationsToOwningFeatures.getOrDefault(configurationPid, Collections.emptySet()));
 		}
 
 		protected Map.Entry<String, String> getBundleSymbolicNameAndVersion(ID featureBundleID) {
@@ -1037,6 +1756,8 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 										.entry(featureBundleSymbolicName, featureBundleVersion);
 
 								bundleIdsToSymbolicNamesVersions.put(featureBundleID, bundleSymbolicNameAndVersion);
+								symbolicNamesVersionsToBundleIds.putIfAbsent(bundleSymbolicNameAndVersion,
+										featureBundleID);
 
 								return bundleSymbolicNameAndVersion;
 							}
@@ -1053,11 +1774,7 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		}
 
 		protected boolean isConfigurationInstalledByRuntime(String configurationPid) {
-			// @formatter:off
-			return installedFeaturesToConfigurations.values().stream()
-					.flatMap(pids -> pids.stream())
-					.anyMatch(pid -> configurationPid.equals(pid));
-			// @formatter:on
+			return configurationsToOwningFeatures.containsKey(configurationPid);
 		}
 
 //		protected Path getArtifactPath(ID featureBundleID) {
@@ -1084,17 +1801,6 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 //			return null;
 //		}
 
-		protected InputStream getArtifact(ID featureBundleID) {
-			for (ArtifactRepository artifactRepository : completedRepositories) {
-				InputStream featureBundleIs = artifactRepository.getArtifact(featureBundleID);
-				if (featureBundleIs != null) {
-					return featureBundleIs;
-				}
-			}
-
-			return InputStream.nullInputStream();
-		}
-
 		protected void validateFeatureExtensions(Feature feature) {
 			List<String> unknownMandatoryFeatureExtensions = feature.getExtensions().entrySet().stream()
 					.filter(e -> e.getValue().getKind() == MANDATORY).map(Map.Entry::getKey)
@@ -1139,8 +1845,43 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		}
 	}
 
-	public class InstallOperationBuilderImpl extends AbstractOperationBuilderImpl<InstallOperationBuilder>
-			implements InstallOperationBuilder {
+	/**
+	 * An operation on a single feature
+	 */
+	abstract class AbstractFeatureOperationBuilderImpl<T extends OperationBuilder<T>>
+			extends AbstractOperationBuilderImpl<T> implements OperationBuilder<T> {
+		protected final Feature feature;
+
+		protected AbstractFeatureOperationBuilderImpl(Feature feature) {
+			Objects.requireNonNull(feature, "Feature cannot be null!");
+
+			this.feature = feature;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.osgi.service.featurelauncher.runtime.FeatureRuntime.OperationBuilder#complete()
+		 */
+		@Override
+		public InstalledFeature complete() throws FeatureRuntimeException {
+			return await(completeAsync());
+		}
+
+		/**
+		 * Queue the operation, decorating the feature and resolving its
+		 * artifacts while the operations queued before it are applied
+		 *
+		 * @return a future completed with the installed feature
+		 */
+		protected CompletableFuture<InstalledFeature> completeAsync() {
+			markCompleted();
+
+			return enqueue(prepare(() -> prepareFeature(feature)), this::addOrUpdateFeature);
+		}
+	}
+
+	public class InstallOperationBuilderImpl extends AbstractFeatureOperationBuilderImpl<InstallOperationBuilder>
+			implements AsyncInstallOperationBuilder {
 
 		public InstallOperationBuilderImpl(Feature feature) {
 			super(feature);
@@ -1154,10 +1895,19 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		public InstalledFeature install() {
 			return complete();
 		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.AsyncInstallOperationBuilder#installAsync()
+		 */
+		@Override
+		public CompletableFuture<InstalledFeature> installAsync() {
+			return completeAsync();
+		}
 	}
 
-	public class UpdateOperationBuilderImpl extends AbstractOperationBuilderImpl<UpdateOperationBuilder>
-			implements UpdateOperationBuilder {
+	public class UpdateOperationBuilderImpl extends AbstractFeatureOperationBuilderImpl<UpdateOperationBuilder>
+			implements AsyncUpdateOperationBuilder {
 
 		public UpdateOperationBuilderImpl(Feature feature) {
 			super(feature);
@@ -1171,9 +1921,18 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		public InstalledFeature update() {
 			return complete();
 		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.AsyncUpdateOperationBuilder#updateAsync()
+		 */
+		@Override
+		public CompletableFuture<InstalledFeature> updateAsync() {
+			return completeAsync();
+		}
 	}
 
-	public class RemoveOperationBuilderImpl extends AbstractOperationBuilderImpl<RemoveOperationBuilder>
+	public class RemoveOperationBuilderImpl extends AbstractFeatureOperationBuilderImpl<RemoveOperationBuilder>
 			implements RemoveOperationBuilder {
 
 		public RemoveOperationBuilderImpl(Feature feature) {
@@ -1186,7 +1945,434 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		 */
 		@Override
 		public void remove() {
-			removeFeature(this.feature.getID());
+			await(removeAsync());
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.RemoveOperationBuilder#removeAsync()
+		 */
+		@Override
+		public CompletableFuture<Void> removeAsync() {
+			ensureNotCompletedYet();
+			this.isCompleted = true;
+
+			return enqueue(CompletableFuture.completedFuture(this.feature.getID()), featureId -> {
+				removeFeature(featureId);
+				return null;
+			});
+		}
+	}
+
+	public class BatchInstallOperationBuilderImpl extends AbstractOperationBuilderImpl<BatchInstallOperationBuilder>
+			implements BatchInstallOperationBuilder {
+
+		private final List<Feature> features;
+
+		public BatchInstallOperationBuilderImpl(Collection<Feature> features) {
+			features.forEach(f -> Objects.requireNonNull(f, "Feature cannot be null!"));
+
+			this.features = List.copyOf(features);
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.BatchInstallOperationBuilder#install()
+		 */
+		@Override
+		public List<InstalledFeature> install() {
+			return await(installAsync());
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.BatchInstallOperationBuilder#installAsync()
+		 */
+		@Override
+		public CompletableFuture<List<InstalledFeature>> installAsync() {
+			markCompleted();
+
+			return enqueue(prepare(this::prepareBatch), this::installBatch);
+		}
+
+		protected PreparedBatch prepareBatch() {
+			ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(completedRepositories, bundlePrefetchParallelism);
+			try {
+				List<PreparedFeature> preparedFeatures = new ArrayList<>();
+				Set<ID> bundleIDs = new LinkedHashSet<>();
+				for (Feature feature : features) {
+					PreparedFeature prepared = prepareFeature(feature, prefetcher);
+					prepared.decoratedFeature().getBundles().forEach(fb -> bundleIDs.add(fb.getID()));
+					preparedFeatures.add(prepared);
+				}
+
+				// Each bundle shared by several features is resolved once
+				bundleIDs.removeIf(runtimeState.installedBundlesByIdentifier()::containsKey);
+				prefetcher.prefetch(bundleIDs);
+
+				return new PreparedBatch(preparedFeatures, prefetcher);
+			} catch (RuntimeException e) {
+				prefetcher.close();
+				throw e;
+			}
+		}
+
+		protected List<InstalledFeature> installBatch(PreparedBatch batch) {
+			List<PreparedFeature> preparedFeatures = batch.features();
+
+			// Only features which are not installed yet can be installed together
+			Set<ID> featureIDs = new HashSet<>();
+			for (PreparedFeature prepared : preparedFeatures) {
+				ID featureId = prepared.originalFeature().getID();
+				if (!featureIDs.add(featureId)) {
+					throw new FeatureRuntimeException(
+							String.format("The feature %s is included more than once in the batch!", featureId));
+				}
+				if (installedFeaturesToBundles.containsKey(featureId)) {
+					throw new FeatureRuntimeException(String.format("The feature %s is already installed!", featureId));
+				}
+			}
+
+			// Look up the existing configurations of all the features at once
+			Map<String, Long> configurationDeclarations = new HashMap<>();
+			for (PreparedFeature prepared : preparedFeatures) {
+				prepared.decoratedFeature().getConfigurations().keySet()
+						.forEach(pid -> configurationDeclarations.merge(pid, 1L, Long::sum));
+			}
+			Map<String, Configuration> existingConfigurations = new HashMap<>(
+					getExistingConfigurations(configurationDeclarations.keySet()));
+
+			Set<ID> previousBundleIDs = new HashSet<>(installedBundlesByIdentifier.keySet());
+			Set<String> previousConfigurationPIDs = new HashSet<>(existingConfigurations.keySet());
+			List<ID> registeredFeatureIDs = new ArrayList<>();
+
+			try {
+				// Install the bundles of all the features, those shared only once
+				List<List<InstalledBundle>> installedBundles = new ArrayList<>();
+				for (PreparedFeature prepared : preparedFeatures) {
+					registeredFeatureIDs.add(prepared.decoratedFeature().getID());
+					installedBundles.add(installBundles(prepared.decoratedFeature(), prepared.featureBundlesIDs(),
+							prepared.prefetcher()));
+				}
+
+				// Install configurations, those shared by several features are
+				// looked up again once created, so that they are only written once
+				List<List<InstalledConfiguration>> installedConfigurations = new ArrayList<>();
+				for (PreparedFeature prepared : preparedFeatures) {
+					Feature feature = prepared.decoratedFeature();
+					installedConfigurations
+							.add(installConfigurations(feature, Collections.emptySet(), existingConfigurations));
+
+					// @formatter:off
+					Set<String> createdSharedPIDs = feature.getConfigurations().keySet().stream()
+							.filter(pid -> configurationDeclarations.get(pid) > 1)
+							.filter(pid -> !existingConfigurations.containsKey(pid))
+							.collect(Collectors.toSet());
+					// @formatter:on
+					if (!createdSharedPIDs.isEmpty()) {
+						existingConfigurations.putAll(getExistingConfigurations(createdSharedPIDs));
+					}
+				}
+
+				// Resolve all the new bundles together, then start them
+				// @formatter:off
+				resolveBundles(installedBundlesByIdentifier.entrySet().stream()
+						.filter(e -> !previousBundleIDs.contains(e.getKey()))
+						.map(Map.Entry::getValue)
+						.collect(Collectors.toList()));
+				// @formatter:on
+
+				for (int i = 0; i < preparedFeatures.size(); i++) {
+					PreparedFeature prepared = preparedFeatures.get(i);
+					Feature feature = prepared.decoratedFeature();
+
+					Map<ID, Duration> activationTimes = startBundles(feature.getID(), installedBundles.get(i));
+
+					InstalledFeature installedFeature = constructInstalledFeature(feature, prepared.originalFeature(),
+							feature != prepared.originalFeature(), false, installedBundles.get(i),
+							installedConfigurations.get(i), activationTimes);
+
+					// update "owning features" in other 'installedFeatures'
+					updateInstalledFeaturesOnAddOrUpdate(installedFeature);
+
+					addInstalledFeature(installedFeature);
+				}
+
+				// The features of the batch were added last, those sharing bundles or
+				// configurations with later ones have since been replaced
+				return List.copyOf(installedFeatures.subList(installedFeatures.size() - preparedFeatures.size(),
+						installedFeatures.size()));
+
+			} catch (Throwable t) {
+				rollbackBatch(preparedFeatures, registeredFeatureIDs, previousBundleIDs, previousConfigurationPIDs);
+
+				if (t instanceof Error e) {
+					throw e;
+				}
+				throw new FeatureRuntimeException(
+						"Installing the batch of features failed, none of its features was installed!", t);
+			}
+		}
+
+		/**
+		 * Undo a partly installed batch, removing the features, the bundles
+		 * installed and the configurations created for it
+		 */
+		protected void rollbackBatch(List<PreparedFeature> preparedFeatures, List<ID> registeredFeatureIDs,
+				Set<ID> previousBundleIDs, Set<String> previousConfigurationPIDs) {
+			for (ID featureId : registeredFeatureIDs) {
+				unregisterFeatureBundles(featureId);
+				unregisterFeatureConfigurations(featureId);
+				updateInstalledFeaturesOnRemove(featureId, removeInstalledFeature(featureId));
+			}
+
+			// Remove the new bundles, in reverse install order
+			Deque<ID> bundleIDsForRemoval = new LinkedList<>();
+			Set<Bundle> bundlesToRefresh = new LinkedHashSet<>();
+			for (PreparedFeature prepared : preparedFeatures) {
+				for (FeatureBundle featureBundle : prepared.decoratedFeature().getBundles()) {
+					ID bundleId = featureBundle.getID();
+					Bundle bundle = installedBundlesByIdentifier.get(bundleId);
+					if (bundle != null && !previousBundleIDs.contains(bundleId) && bundlesToRefresh.add(bundle)) {
+						bundleIDsForRemoval.addFirst(bundleId);
+					}
+				}
+			}
+			stopBundles(bundleIDsForRemoval);
+			uninstallBundles(bundleIDsForRemoval);
+			refreshBundles(bundlesToRefresh);
+
+			// @formatter:off
+			Set<String> configurationPIDsForRemoval = preparedFeatures.stream()
+					.flatMap(p -> p.decoratedFeature().getConfigurations().keySet().stream())
+					.filter(pid -> !previousConfigurationPIDs.contains(pid))
+					.filter(pid -> !configurationsToOwningFeatures.containsKey(pid))
+					.collect(Collectors.toSet());
+			// @formatter:on
+			removeFeatureConfigurations(configurationPIDsForRemoval);
+
+			LOG.warn(String.format("Rolled back a batch of %d features, removing %d bundles and %d configurations",
+					preparedFeatures.size(), bundleIDsForRemoval.size(), configurationPIDsForRemoval.size()));
+		}
+	}
+
+	/**
+	 * Queue an operation, which is applied once the operations submitted
+	 * before it are done and its preparation is complete. An operation
+	 * submitted from the operation thread itself, or from a thread starting
+	 * bundles for it, for instance by a bundle started by another operation,
+	 * is applied immediately, as waiting for it could never end.
+	 *
+	 * @param preparation the work done ahead of the operation
+	 * @param mutation applies the prepared operation to the framework
+	 * @return a future completed with the result of the operation
+	 */
+	private <P, R> CompletableFuture<R> enqueue(CompletableFuture<P> preparation,
+			Function<? super P, ? extends R> mutation) {
+		QueuedOperation<P, R> operation = new QueuedOperation<>(preparation, mutation);
+
+		maxQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+
+		if (Thread.currentThread() == operationThread) {
+			operation.run();
+		} else if (bundleStartThreads.contains(Thread.currentThread())) {
+			// The operation thread waits for this bundle to start, and the
+			// bundles starting alongside it are kept from applying theirs at
+			// the same time
+			synchronized (bundleStartThreads) {
+				operation.run();
+			}
+		} else {
+			try {
+				operationExecutor.execute(operation);
+			} catch (RejectedExecutionException e) {
+				operation.abort();
+			}
+		}
+
+		return operation.result;
+	}
+
+	private <P> CompletableFuture<P> prepare(Supplier<P> preparation) {
+		try {
+			return CompletableFuture.supplyAsync(preparation, preparationExecutor);
+		} catch (RejectedExecutionException e) {
+			return CompletableFuture.failedFuture(new FeatureRuntimeException("The feature runtime has been stopped!", e));
+		}
+	}
+
+	/**
+	 * Wait for an operation, rethrowing the exception it failed with
+	 */
+	private static <R> R await(CompletableFuture<R> operation) {
+		try {
+			return operation.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			} else if (e.getCause() instanceof Error err) {
+				throw err;
+			}
+			throw new FeatureRuntimeException("The operation failed!", e.getCause());
+		}
+	}
+
+	private final class QueuedOperation<P, R> implements Runnable {
+
+		private final CompletableFuture<P> preparation;
+
+		private final Function<? super P, ? extends R> mutation;
+
+		private final CompletableFuture<R> result = new CompletableFuture<>();
+
+		private final long submitted = System.nanoTime();
+
+		QueuedOperation(CompletableFuture<P> preparation, Function<? super P, ? extends R> mutation) {
+			this.preparation = preparation;
+			this.mutation = mutation;
+		}
+
+		@Override
+		public void run() {
+			long waitNanos = System.nanoTime() - submitted;
+			int depth = queueDepth.decrementAndGet();
+
+			P prepared = null;
+			try {
+				prepared = preparation.get();
+				result.complete(mutation.apply(prepared));
+			} catch (ExecutionException e) {
+				result.completeExceptionally(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				result.completeExceptionally(new FeatureRuntimeException("Interrupted while preparing the operation!", e));
+			} catch (Throwable t) {
+				result.completeExceptionally(t);
+			} finally {
+				release(prepared);
+				// Also after a failure, which may have changed the state in part
+				publishRuntimeState();
+
+				completedOperations.increment();
+				totalWaitNanos.add(waitNanos);
+				maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Applied an operation after waiting {} ms in the queue, {} operations remain queued",
+							TimeUnit.NANOSECONDS.toMillis(waitNanos), depth);
+				}
+			}
+		}
+
+		void abort() {
+			queueDepth.decrementAndGet();
+			preparation.thenAccept(FeatureRuntimeImpl::release);
+			result.completeExceptionally(new FeatureRuntimeException("The feature runtime has been stopped!"));
+		}
+	}
+
+	/**
+	 * Publish a snapshot of the state, only called on the operation thread so
+	 * that snapshots are published in the order the state changed
+	 */
+	private void publishRuntimeState() {
+		RuntimeState previousState = runtimeState;
+		List<InstalledFeature> features = previousState.installedFeatures();
+		if (installedFeaturesChanged) {
+			features = List.copyOf(installedFeatures);
+			installedFeaturesChanged = false;
+		}
+
+		// @formatter:off
+		runtimeState = new RuntimeState(
+				previousState.version() + 1,
+				features,
+				installedFeaturesToBundles.snapshot(),
+				installedBundlesByIdentifier.snapshot());
+		// @formatter:on
+	}
+
+	private static void release(Object prepared) {
+		if (prepared instanceof AutoCloseable preparedOperation) {
+			try {
+				preparedOperation.close();
+			} catch (Exception e) {
+				LOG.warn("An error occurred releasing a prepared operation", e);
+			}
+		}
+	}
+
+	/**
+	 * A feature decorated ahead of its operation, with its bundles already
+	 * being resolved
+	 *
+	 * @param originalFeature the feature as submitted
+	 * @param decoratedFeature the feature after decoration
+	 * @param featureBundlesIDs the bundles of the original feature
+	 * @param prefetcher resolves the bundles of the decorated feature
+	 */
+	protected record PreparedFeature(Feature originalFeature, Feature decoratedFeature, List<ID> featureBundlesIDs,
+			ArtifactPrefetcher prefetcher) implements AutoCloseable {
+
+		@Override
+		public void close() {
+			prefetcher.close();
+		}
+	}
+
+	/**
+	 * Features decorated ahead of their batch operation, whose bundles are
+	 * resolved by a single prefetcher
+	 *
+	 * @param features the prepared features, in install order
+	 * @param prefetcher resolves the bundles of all the features
+	 */
+	protected record PreparedBatch(List<PreparedFeature> features, ArtifactPrefetcher prefetcher)
+			implements AutoCloseable {
+
+		@Override
+		public void close() {
+			prefetcher.close();
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the features installed by the runtime. Later
+	 * operations replace the installed features whose owning features change,
+	 * and the parts of the state they leave unchanged are shared with the
+	 * snapshots published after them.
+	 *
+	 * @param version incremented each time a snapshot is published
+	 * @param installedFeatures the installed features, in install order
+	 * @param installedFeaturesToBundles the bundles of each installed feature
+	 * @param installedBundlesByIdentifier the bundles installed by the runtime
+	 */
+	public record RuntimeState(long version, List<InstalledFeature> installedFeatures,
+			Map<ID, List<ID>> installedFeaturesToBundles, Map<ID, Bundle> installedBundlesByIdentifier) {
+
+		static final RuntimeState EMPTY = new RuntimeState(0, List.of(), Map.of(), Map.of());
+	}
+
+	/**
+	 * The state of the operation queue
+	 *
+	 * @param queueDepth the number of operations waiting to be applied
+	 * @param maxQueueDepth the largest number of operations which have been
+	 *            waiting at once
+	 * @param completedOperations the number of operations applied so far
+	 * @param totalWait the time all the applied operations spent waiting in
+	 *            the queue
+	 * @param maxWait the longest time an operation spent waiting in the queue
+	 */
+	public record OperationQueueMetrics(int queueDepth, int maxQueueDepth, long completedOperations,
+			Duration totalWait, Duration maxWait) {
+
+		/**
+		 * @return the average time an applied operation spent waiting in the
+		 *         queue
+		 */
+		public Duration averageWait() {
+			return completedOperations == 0 ? Duration.ZERO : totalWait.dividedBy(completedOperations);
 		}
 	}
 
@@ -1204,73 +2390,452 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		ID featureId = installedFeature.getFeature().getID();
 
 		// @formatter:off
-		List<ID> installedFeatureBundlesIDs = installedFeature.getInstalledBundles().stream()
+		Set<ID> installedFeatureBundlesIDs = installedFeature.getInstalledBundles().stream()
 				.map(ib -> ib.getBundleId())
-				.toList();
+				.collect(Collectors.toCollection(LinkedHashSet::new));
 		// @formatter:on
 
 		// @formatter:off
-		List<String> installedFeatureConfigurationsPIDs = installedFeature.getInstalledConfigurations().stream()
+		Set<String> installedFeatureConfigurationsPIDs = installedFeature.getInstalledConfigurations().stream()
 				.map(ic -> ic.getPid())
-				.toList();
+				.collect(Collectors.toCollection(LinkedHashSet::new));
 		// @formatter:on
 
-		for (InstalledFeature existingFeature : installedFeatures) {
-			for (InstalledBundle existingFeatureBundle : existingFeature.getInstalledBundles()) {
-				if (installedFeatureBundlesIDs.contains(existingFeatureBundle.getBundleId())) {
-					existingFeatureBundle.getOwningFeatures().add(featureId);
-					LOG.info(String.format("Added feature %s to owning features of bundle %s", featureId,
-							existingFeatureBundle.getBundleId()));
+		replaceOwningFeatures(featureId, installedFeatureBundlesIDs, installedFeatureConfigurationsPIDs, true);
+	}
+
+	private void updateInstalledFeaturesOnRemove(ID featureId, List<InstalledFeature> removedFeatures) {
+		// Only the bundles and configurations of the removed feature can be owned by it
+		Set<ID> removedFeatureBundlesIDs = new LinkedHashSet<>();
+		Set<String> removedFeatureConfigurationsPIDs = new LinkedHashSet<>();
+		for (InstalledFeature removedFeature : removedFeatures) {
+			removedFeature.getInstalledBundles().forEach(ib -> removedFeatureBundlesIDs.add(ib.getBundleId()));
+			removedFeature.getInstalledConfigurations()
+					.forEach(ic -> removedFeatureConfigurationsPIDs.add(ic.getPid()));
+		}
+
+		replaceOwningFeatures(featureId, removedFeatureBundlesIDs, removedFeatureConfigurationsPIDs, false);
+	}
+
+	/**
+	 * Add or remove a feature from the "owning features" of the given bundles
+	 * and configurations. Installed features may already have been published,
+	 * so those affected are replaced by a copy rather than changed.
+	 */
+	private void replaceOwningFeatures(ID featureId, Set<ID> bundleIDs, Set<String> pids, boolean add) {
+		Set<InstalledFeature> affectedFeatures = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (ID bundleId : bundleIDs) {
+			affectedFeatures.addAll(installedFeaturesByBundleId.getOrDefault(bundleId, Collections.emptyList()));
+		}
+		for (String pid : pids) {
+			affectedFeatures.addAll(installedFeaturesByPid.getOrDefault(pid, Collections.emptyList()));
+		}
+		if (affectedFeatures.isEmpty()) {
+			return;
+		}
+
+		Map<InstalledFeature, InstalledFeature> replacements = new IdentityHashMap<>();
+		for (InstalledFeature affectedFeature : affectedFeatures) {
+			boolean changed = false;
+
+			List<InstalledBundle> installedBundles = new ArrayList<>();
+			for (InstalledBundle installedBundle : affectedFeature.getInstalledBundles()) {
+				List<ID> owningFeatures = bundleIDs.contains(installedBundle.getBundleId())
+						? updateOwningFeatures(installedBundle.getOwningFeatures(), featureId, add)
+						: null;
+				if (owningFeatures == null) {
+					installedBundles.add(installedBundle);
+					continue;
 				}
+				// @formatter:off
+				installedBundles.add(new InstalledBundleImpl(
+						installedBundle.getBundleId(),
+						installedBundle.getAliases(),
+						installedBundle.getBundle(),
+						installedBundle.getStartLevel(),
+						owningFeatures));
+				// @formatter:on
+				changed = true;
+				LOG.info(String.format("%s feature %s %s owning features of bundle %s", add ? "Added" : "Removed",
+						featureId, add ? "to" : "from", installedBundle.getBundleId()));
 			}
 
-			for (InstalledConfiguration existingFeatureConfiguration : existingFeature.getInstalledConfigurations()) {
-				if (installedFeatureConfigurationsPIDs.contains(existingFeatureConfiguration.getPid())) {
-					existingFeatureConfiguration.getOwningFeatures().add(featureId);
-					LOG.info(String.format("Added feature %s to owning features of configuration %s", featureId,
-							existingFeatureConfiguration.getPid()));
+			List<InstalledConfiguration> installedConfigurations = new ArrayList<>();
+			for (InstalledConfiguration installedConfiguration : affectedFeature.getInstalledConfigurations()) {
+				List<ID> owningFeatures = pids.contains(installedConfiguration.getPid())
+						? updateOwningFeatures(installedConfiguration.getOwningFeatures(), featureId, add)
+						: null;
+				if (owningFeatures == null) {
+					installedConfigurations.add(installedConfiguration);
+					continue;
 				}
+				installedConfigurations.add(new InstalledConfigurationImpl(installedConfiguration.getPid(),
+						installedConfiguration.getFactoryPid(), installedConfiguration.getProperties(),
+						owningFeatures));
+				changed = true;
+				LOG.info(String.format("%s feature %s %s owning features of configuration %s",
+						add ? "Added" : "Removed", featureId, add ? "to" : "from", installedConfiguration.getPid()));
+			}
+
+			if (changed) {
+				// @formatter:off
+				replacements.put(affectedFeature, new InstalledFeatureImpl(
+						affectedFeature.getFeature(),
+						affectedFeature.getOriginalFeature(),
+						affectedFeature.isDecorated(),
+						affectedFeature.isInitialLaunch(),
+						installedBundles,
+						installedConfigurations,
+						affectedFeature instanceof ActivatedFeature activatedFeature
+								? activatedFeature.getBundleActivationTimes()
+								: Collections.emptyMap()));
+				// @formatter:on
+			}
+		}
+
+		if (!replacements.isEmpty()) {
+			installedFeatures.replaceAll(f -> replacements.getOrDefault(f, f));
+			installedFeaturesChanged = true;
+			for (Map.Entry<InstalledFeature, InstalledFeature> replacement : replacements.entrySet()) {
+				unindexInstalledFeature(replacement.getKey());
+				indexInstalledFeature(replacement.getValue());
 			}
 		}
 	}
 
-	private void updateInstalledFeaturesOnRemove(ID featureId) {
-		for (InstalledFeature existingFeature : installedFeatures) {
+	/**
+	 * @return the owning features with the given feature added or removed, or
+	 *         null if they do not change
+	 */
+	private static List<ID> updateOwningFeatures(List<ID> owningFeatures, ID featureId, boolean add) {
+		if (add) {
+			List<ID> updatedOwningFeatures = new ArrayList<>(owningFeatures);
+			updatedOwningFeatures.add(featureId);
+			return updatedOwningFeatures;
+		}
+		if (!owningFeatures.contains(featureId)) {
+			return null;
+		}
+		List<ID> updatedOwningFeatures = new ArrayList<>(owningFeatures);
+		updatedOwningFeatures.removeIf(featureId::equals);
+		return updatedOwningFeatures;
+	}
+
+	private List<InstalledFeature> removeInstalledFeature(ID featureId) {
+		List<InstalledFeature> removedFeatures = new ArrayList<>();
+		for (Iterator<InstalledFeature> it = installedFeatures.iterator(); it.hasNext();) {
+			InstalledFeature installedFeature = it.next();
+			if (featureId.equals(installedFeature.getFeature().getID())) {
+				it.remove();
+				unindexInstalledFeature(installedFeature);
+				removedFeatures.add(installedFeature);
+				installedFeaturesChanged = true;
+			}
+		}
+		if (!removedFeatures.isEmpty() && journal != null) {
+			try {
+				journal.remove(featureId.toString());
+			} catch (IOException e) {
+				disableJournal(e);
+			}
+		}
+		return removedFeatures;
+	}
+
+	private void addInstalledFeature(InstalledFeature installedFeature) {
+		installedFeatures.add(installedFeature);
+		installedFeaturesChanged = true;
+		indexInstalledFeature(installedFeature);
+
+		if (journal != null) {
+			try {
+				journal.put(toJournaledFeature(installedFeature));
+			} catch (IOException e) {
+				disableJournal(e);
+			}
+		}
+	}
+
+	private JournaledFeature toJournaledFeature(InstalledFeature installedFeature) throws IOException {
+		ID featureId = installedFeature.getFeature().getID();
+
+		List<JournaledBundle> bundles = new ArrayList<>();
+		for (InstalledBundle installedBundle : installedFeature.getInstalledBundles()) {
+			Bundle bundle = installedBundle.getBundle();
 			// @formatter:off
-			boolean isFeatureBundlesReferenced = existingFeature.getInstalledBundles().stream()
-					.flatMap(ib -> ib.getOwningFeatures().stream())
-					.anyMatch(ofId -> featureId.equals(ofId));
+			bundles.add(new JournaledBundle(
+					installedBundle.getBundleId().toString(),
+					installedBundle.getAliases().stream().map(ID::toString).toList(),
+					bundle != null ? bundle.getBundleId() : -1,
+					bundle != null ? bundle.getLocation() : null,
+					installedBundle.getOwningFeatures().contains(externalFeatureId)));
 			// @formatter:on
+		}
+
+		List<JournaledConfiguration> configurations = new ArrayList<>();
+		for (InstalledConfiguration installedConfiguration : installedFeature.getInstalledConfigurations()) {
+			configurations.add(new JournaledConfiguration(installedConfiguration.getPid(),
+					installedConfiguration.getOwningFeatures().contains(externalFeatureId)));
+		}
+
+		// @formatter:off
+		return new JournaledFeature(
+				featureId.toString(),
+				writeFeature(installedFeature.getOriginalFeature()),
+				installedFeature.isDecorated() ? writeFeature(installedFeature.getFeature()) : null,
+				installedFeaturesToBundles.getOrDefault(featureId, List.of()).stream().map(ID::toString).toList(),
+				bundles,
+				configurations);
+		// @formatter:on
+	}
+
+	private String writeFeature(Feature feature) throws IOException {
+		StringWriter writer = new StringWriter();
+		featureService.writeFeature(feature, writer);
+		return writer.toString();
+	}
+
+	/**
+	 * Restore the features recorded in the journal, as long as the bundles and
+	 * configurations installed for them are still present. The others are
+	 * dropped from the journal, so that installing them again installs
+	 * whatever is missing.
+	 */
+	private void restoreInstalledFeatures() {
+		long start = System.nanoTime();
+
+		List<JournaledFeature> journaledFeatures;
+		try {
+			journaledFeatures = journal.replay();
+		} catch (IOException e) {
+			LOG.warn("Could not read the feature runtime journal, no installed features are restored", e);
+			journaledFeatures = List.of();
+		}
 
+		Map<String, Configuration> existingConfigurations;
+		try {
 			// @formatter:off
-			boolean isFeatureConfigurationsReferenced = existingFeature.getInstalledConfigurations().stream()
-					.flatMap(ic -> ic.getOwningFeatures().stream())
-					.anyMatch(ofId -> featureId.equals(ofId));
+			existingConfigurations = featureRuntimeConfigurationManager.getConfigurations(journaledFeatures.stream()
+					.flatMap(f -> f.configurations().stream())
+					.filter(c -> !c.external())
+					.map(JournaledConfiguration::pid)
+					.collect(Collectors.toSet()));
 			// @formatter:on
+		} catch (IOException | InvalidSyntaxException e) {
+			LOG.warn("Could not retrieve the journaled configurations, no installed features are restored", e);
+			existingConfigurations = null;
+		}
 
-			if (isFeatureBundlesReferenced) {
+		List<String> droppedFeatureIDs = new ArrayList<>();
+		for (JournaledFeature journaledFeature : journaledFeatures) {
+			if (existingConfigurations == null || !restoreInstalledFeature(journaledFeature, existingConfigurations)) {
+				droppedFeatureIDs.add(journaledFeature.featureId());
+			}
+		}
 
-				// update bundles' "owning features"
-				for (InstalledBundle installedFeatureBundle : existingFeature.getInstalledBundles()) {
-					if (installedFeatureBundle.getOwningFeatures().removeIf(ofId -> featureId.equals(ofId))) {
-						LOG.info(String.format("Removed feature %s from owning features of bundle %s", featureId,
-								installedFeatureBundle.getBundleId()));
-					}
-				}
+		try {
+			for (String droppedFeatureID : droppedFeatureIDs) {
+				journal.remove(droppedFeatureID);
 			}
+			journal.compact();
+		} catch (IOException e) {
+			disableJournal(e);
+		}
 
-			if (isFeatureConfigurationsReferenced) {
+		publishRuntimeState();
 
-				// update configurations' "owning features"
-				for (InstalledConfiguration installedFeatureConfiguration : existingFeature
-						.getInstalledConfigurations()) {
-					if (installedFeatureConfiguration.getOwningFeatures().removeIf(ofId -> featureId.equals(ofId))) {
-						LOG.info(String.format("Removed feature %s from owning features of configuration %s", featureId,
-								installedFeatureConfiguration.getPid()));
-					}
+		LOG.info(String.format("Restored %d installed features from the journal in %d ms", installedFeatures.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+	}
+
+	private boolean restoreInstalledFeature(JournaledFeature journaledFeature,
+			Map<String, Configuration> existingConfigurations) {
+		try {
+			Feature originalFeature = featureService.readFeature(new StringReader(journaledFeature.featureJson()));
+			Feature feature = journaledFeature.decoratedFeatureJson() == null ? originalFeature
+					: featureService.readFeature(new StringReader(journaledFeature.decoratedFeatureJson()));
+			ID featureId = feature.getID();
+
+			// Check everything before changing any state
+			Map<ID, Bundle> restoredBundles = new LinkedHashMap<>();
+			List<InstalledBundle> installedBundles = new ArrayList<>();
+			for (JournaledBundle journaledBundle : journaledFeature.bundles()) {
+				ID bundleId = featureService.getIDfromMavenCoordinates(journaledBundle.bundleId());
+				Bundle bundle = journaledBundle.frameworkBundleId() < 0 ? null
+						: bundleContext.getBundle(journaledBundle.frameworkBundleId());
+
+				List<ID> owningFeatures = new ArrayList<>();
+				owningFeatures.add(featureId);
+				if (journaledBundle.external()) {
+					owningFeatures.add(externalFeatureId);
+				} else if (bundle == null || bundle.getState() == Bundle.UNINSTALLED
+						|| !bundle.getLocation().equals(journaledBundle.location())) {
+					LOG.info(String.format(
+							"Bundle %s of feature %s is no longer installed, the feature is not restored", bundleId,
+							featureId));
+					return false;
+				} else {
+					owningFeatures.addAll(bundlesToOwningFeatures.getOrDefault(bundleId, Collections.emptySet()));
+					restoredBundles.put(bundleId, bundle);
 				}
+
+				// @formatter:off
+				installedBundles.add(new InstalledBundleImpl(
+						bundleId,
+						journaledBundle.aliases().stream().map(featureService::getIDfromMavenCoordinates).toList(),
+						bundle,
+						bundle != null ? bundle.adapt(BundleStartLevel.class).getStartLevel() : 0,
+						owningFeatures));
+				// @formatter:on
+			}
+
+			List<InstalledConfiguration> installedConfigurations = new ArrayList<>();
+			for (JournaledConfiguration journaledConfiguration : journaledFeature.configurations()) {
+				String pid = journaledConfiguration.pid();
+				FeatureConfiguration featureConfiguration = feature.getConfigurations().get(pid);
+
+				List<ID> owningFeatures = new ArrayList<>();
+				owningFeatures.add(featureId);
+				if (journaledConfiguration.external()) {
+					owningFeatures.add(externalFeatureId);
+				} else if (featureConfiguration == null || !existingConfigurations.containsKey(pid)) {
+					LOG.info(String.format(
+							"Configuration %s of feature %s no longer exists, the feature is not restored", pid,
+							featureId));
+					return false;
+				} else {
+					owningFeatures.addAll(configurationsToOwningFeatures.getOrDefault(pid, Collections.emptySet()));
+				}
+
+				installedConfigurations.add(new InstalledConfigurationImpl(pid, featureConfiguration.getFactoryPid(),
+						featureConfiguration.getValues(), owningFeatures));
+			}
+
+			// @formatter:off
+			registerFeatureBundles(featureId, journaledFeature.featureBundles().stream()
+					.map(featureService::getIDfromMavenCoordinates)
+					.collect(Collectors.toList()));
+			registerFeatureConfigurations(featureId, feature.getConfigurations().keySet().stream()
+					.collect(Collectors.toList()));
+			// @formatter:on
+			installedBundlesByIdentifier.putAll(restoredBundles);
+
+			InstalledFeature installedFeature = new InstalledFeatureImpl(feature, originalFeature,
+					feature != originalFeature, false, installedBundles, installedConfigurations);
+
+			// update "owning features" in other 'installedFeatures'
+			updateInstalledFeaturesOnAddOrUpdate(installedFeature);
+
+			installedFeatures.add(installedFeature);
+			installedFeaturesChanged = true;
+			indexInstalledFeature(installedFeature);
+
+			return true;
+
+		} catch (IOException | RuntimeException e) {
+			LOG.warn(String.format("Could not restore feature %s from the journal", journaledFeature.featureId()), e);
+			return false;
+		}
+	}
+
+	/**
+	 * Stop journaling after the journal could not be written, deleting it so
+	 * that the next activation does not restore an outdated state
+	 */
+	private void disableJournal(IOException e) {
+		LOG.warn("Could not write the feature runtime journal, installed features are no longer journaled", e);
+		try {
+			journal.delete();
+		} catch (IOException closeException) {
+			LOG.warn("Could not delete the feature runtime journal", closeException);
+		}
+		journal = null;
+	}
+
+	private void indexInstalledFeature(InstalledFeature installedFeature) {
+		for (InstalledBundle installedBundle : installedFeature.getInstalledBundles()) {
+			installedFeaturesByBundleId.computeIfAbsent(installedBundle.getBundleId(), k -> new ArrayList<>())
+					.add(installedFeature);
+		}
+		for (InstalledConfiguration installedConfiguration : installedFeature.getInstalledConfigurations()) {
+			installedFeaturesByPid.computeIfAbsent(installedConfiguration.getPid(), k -> new ArrayList<>())
+					.add(installedFeature);
+		}
+	}
+
+	/**
+	 * Remove an installed feature from the indexes, by identity as a feature
+	 * and its replacement may be equal
+	 */
+	private void unindexInstalledFeature(InstalledFeature installedFeature) {
+		for (InstalledBundle installedBundle : installedFeature.getInstalledBundles()) {
+			removeFromFeatureIndex(installedFeaturesByBundleId, installedBundle.getBundleId(), installedFeature);
+		}
+		for (InstalledConfiguration installedConfiguration : installedFeature.getInstalledConfigurations()) {
+			removeFromFeatureIndex(installedFeaturesByPid, installedConfiguration.getPid(), installedFeature);
+		}
+	}
+
+	private static <K> void removeFromFeatureIndex(Map<K, List<InstalledFeature>> index, K key,
+			InstalledFeature installedFeature) {
+		List<InstalledFeature> installedFeatures = index.get(key);
+		if (installedFeatures == null) {
+			return;
+		}
+		for (Iterator<InstalledFeature> it = installedFeatures.iterator(); it.hasNext();) {
+			if (it.next() == installedFeature) {
+				it.remove();
+				break;
 			}
 		}
+		if (installedFeatures.isEmpty()) {
+			index.remove(key);
+		}
+	}
+
+	private void registerFeatureBundles(ID featureId, List<ID> featureBundles) {
+		unregisterFeatureBundles(featureId);
+		installedFeaturesToBundles.put(featureId, featureBundles);
+		for (ID bundleId : featureBundles) {
+			bundlesToOwningFeatures.computeIfAbsent(bundleId, k -> new LinkedHashSet<>()).add(featureId);
+		}
+	}
+
+	private List<ID> unregisterFeatureBundles(ID featureId) {
+		List<ID> featureBundles = installedFeaturesToBundles.remove(featureId);
+		if (featureBundles == null) {
+			return Collections.emptyList();
+		}
+		for (ID bundleId : featureBundles) {
+			removeFromIndex(bundlesToOwningFeatures, bundleId, featureId);
+		}
+		return featureBundles;
+	}
+
+	private void registerFeatureConfigurations(ID featureId, Collection<String> featureConfigurations) {
+		unregisterFeatureConfigurations(featureId);
+		installedFeaturesToConfigurations.put(featureId, featureConfigurations);
+		for (String pid : featureConfigurations) {
+			configurationsToOwningFeatures.computeIfAbsent(pid, k -> new LinkedHashSet<>()).add(featureId);
+		}
+	}
+
+	private Collection<String> unregisterFeatureConfigurations(ID featureId) {
+		Collection<String> featureConfigurations = installedFeaturesToConfigurations.remove(featureId);
+		if (featureConfigurations == null) {
+			return Collections.emptyList();
+		}
+		for (String pid : featureConfigurations) {
+			removeFromIndex(configurationsToOwningFeatures, pid, featureId);
+		}
+		return featureConfigurations;
+	}
+
+	private static <K, V> void removeFromIndex(Map<K, ? extends Collection<V>> index, K key, V value) {
+		Collection<V> values = index.get(key);
+		if (values != null && values.remove(value) && values.isEmpty()) {
+			index.remove(key);
+		}
 	}
 
 	private Map<Map.Entry<String, String>, Long> getExistingBundles() {
@@ -1285,8 +2850,63 @@ public class FeatureRuntimeImpl implements FeatureRuntime {
 		externalFeatureId = featureService.getIDfromMavenCoordinates(FeatureRuntimeConstants.EXTERNAL_FEATURE_ID);
 	}
 
+	/**
+	 * Identifies an artifact independently of its version
+	 */
+	private record ArtifactKey(String groupId, String artifactId, Optional<String> type,
+			Optional<String> classifier) {
+
+		static ArtifactKey of(ID id) {
+			return new ArtifactKey(id.getGroupId(), id.getArtifactId(), id.getType(), id.getClassifier());
+		}
+	}
+
 	// TODO: maybe add this to org.osgi.service.featurelauncher.runtime.FeatureRuntime ?
 	public interface RemoveOperationBuilder extends OperationBuilder<RemoveOperationBuilder> {
 		void remove();
+
+		CompletableFuture<Void> removeAsync();
+	}
+
+	// TODO: maybe add this to org.osgi.service.featurelauncher.runtime.FeatureRuntime ?
+	public interface BatchInstallOperationBuilder {
+		BatchInstallOperationBuilder addRepository(String name, ArtifactRepository repository);
+
+		BatchInstallOperationBuilder useDefaultRepositories(boolean include);
+
+		BatchInstallOperationBuilder withBundleMerge(RuntimeBundleMerge merge);
+
+		BatchInstallOperationBuilder withConfigurationMerge(RuntimeConfigurationMerge merge);
+
+		BatchInstallOperationBuilder withVariables(Map<String, Object> variables);
+
+		BatchInstallOperationBuilder withDecorator(FeatureDecorator decorator);
+
+		BatchInstallOperationBuilder withExtensionHandler(String extensionName,
+				FeatureExtensionHandler extensionHandler);
+
+		List<InstalledFeature> install();
+
+		CompletableFuture<List<InstalledFeature>> installAsync();
+	}
+
+	// TODO: maybe add this to org.osgi.service.featurelauncher.runtime.InstalledFeature ?
+	public interface ActivatedFeature extends InstalledFeature {
+		/**
+		 * @return the time taken to start each bundle started when the feature
+		 *         was installed or updated, in feature order, or by start level
+		 *         first when bundles are started in parallel
+		 */
+		Map<ID, Duration> getBundleActivationTimes();
+	}
+
+	// TODO: maybe add this to org.osgi.service.featurelauncher.runtime.FeatureRuntime ?
+	public interface AsyncInstallOperationBuilder extends InstallOperationBuilder {
+		CompletableFuture<InstalledFeature> installAsync();
+	}
+
+	// TODO: maybe add this to org.osgi.service.featurelauncher.runtime.FeatureRuntime ?
+	public interface AsyncUpdateOperationBuilder extends UpdateOperationBuilder {
+		CompletableFuture<InstalledFeature> updateAsync();
 	}
 }
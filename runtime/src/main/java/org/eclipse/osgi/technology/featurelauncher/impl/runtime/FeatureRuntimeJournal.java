@@ -0,0 +1,375 @@
+/**
+ * Copyright (c) 2025 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.impl.runtime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only journal of the features installed by
+ * {@link FeatureRuntimeImpl}, from which they are restored when the runtime
+ * is activated again.
+ * <p>
+ * The journal starts with a header, followed by one record per installed or
+ * removed feature. Each record is written as its length and CRC-32 followed
+ * by its content, so that a record torn by a crash is recognized and ignored,
+ * together with anything after it. Once the records superseded by later ones
+ * outnumber the live features, the journal is compacted by writing the live
+ * features to a new file which replaces it.
+ * <p>
+ * This class is not thread safe, it is only used by the operation thread of
+ * the feature runtime.
+ */
+final class FeatureRuntimeJournal implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(FeatureRuntimeJournal.class);
+
+	private static final int MAGIC = 0x46524A4E; // "FRJN"
+
+	static final int FORMAT_VERSION = 2;
+
+	// Record types
+	private static final byte PUT = 1;
+	private static final byte REMOVE = 2;
+
+	// Number of superseded records always tolerated before compacting
+	private static final int COMPACTION_THRESHOLD = 64;
+
+	private final Path file;
+
+	// The live features, in install order
+	private final Map<String, JournaledFeature> live = new LinkedHashMap<>();
+
+	private DataOutputStream out;
+
+	// Records appended since the journal was last compacted
+	private int appendedRecords;
+
+	/**
+	 * @param file the journal file, which need not exist yet
+	 */
+	FeatureRuntimeJournal(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Read the journal. A journal which is not recognized, or whose last
+	 * records are incomplete or damaged, is read up to the first bad record.
+	 *
+	 * @return the live features, in install order
+	 * @throws IOException if the journal could not be read
+	 */
+	List<JournaledFeature> replay() throws IOException {
+		live.clear();
+
+		if (!Files.isRegularFile(file)) {
+			return List.of();
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				LOG.warn(String.format("Ignoring the unrecognized feature runtime journal %s", file));
+				return List.of();
+			}
+
+			CRC32 crc = new CRC32();
+			for (int records = 0;; records++) {
+				int length;
+				try {
+					length = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+
+				long checksum = in.readInt() & 0xFFFFFFFFL;
+				if (length < 0) {
+					throw new EOFException();
+				}
+				byte[] record = in.readNBytes(length);
+
+				crc.reset();
+				crc.update(record);
+				if (record.length != length || crc.getValue() != checksum) {
+					LOG.warn(String.format("Ignoring the feature runtime journal %s after its record %d", file,
+							records));
+					break;
+				}
+
+				readRecord(new DataInputStream(new ByteArrayInputStream(record)));
+			}
+		} catch (EOFException e) {
+			LOG.warn(String.format("Ignoring the incomplete last record of the feature runtime journal %s", file));
+		}
+
+		return List.copyOf(live.values());
+	}
+
+	/**
+	 * Record that a feature has been installed, replacing any previous record
+	 * of the same feature
+	 *
+	 * @param feature the installed feature
+	 * @throws IOException if the record could not be written
+	 */
+	void put(JournaledFeature feature) throws IOException {
+		live.remove(feature.featureId());
+		live.put(feature.featureId(), feature);
+
+		append(PUT, dos -> writeFeature(dos, feature));
+	}
+
+	/**
+	 * Record that a feature has been removed
+	 *
+	 * @param featureId the ID of the removed feature
+	 * @throws IOException if the record could not be written
+	 */
+	void remove(String featureId) throws IOException {
+		if (live.remove(featureId) != null) {
+			append(REMOVE, dos -> writeString(dos, featureId));
+		}
+	}
+
+	/**
+	 * Replace the journal with one holding only the live features
+	 *
+	 * @throws IOException if the journal could not be written
+	 */
+	void compact() throws IOException {
+		close();
+
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			dos.writeInt(MAGIC);
+			dos.writeInt(FORMAT_VERSION);
+			for (JournaledFeature feature : live.values()) {
+				writeRecord(dos, PUT, d -> writeFeature(d, feature));
+			}
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		out = new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+		appendedRecords = 0;
+	}
+
+	/**
+	 * Close and delete the journal
+	 *
+	 * @throws IOException if the journal could not be deleted
+	 */
+	void delete() throws IOException {
+		close();
+		Files.deleteIfExists(file);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (out != null) {
+			try {
+				out.close();
+			} finally {
+				out = null;
+			}
+		}
+	}
+
+	private void append(byte type, RecordWriter content) throws IOException {
+		if (out == null) {
+			compact();
+		}
+
+		writeRecord(out, type, content);
+		out.flush();
+
+		if (++appendedRecords > Math.max(COMPACTION_THRESHOLD, live.size())) {
+			compact();
+		}
+	}
+
+	private void readRecord(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+		case PUT -> {
+			JournaledFeature feature = readFeature(in);
+			live.remove(feature.featureId());
+			live.put(feature.featureId(), feature);
+		}
+		case REMOVE -> live.remove(readString(in));
+		default -> throw new IOException(String.format("Unknown feature runtime journal record type %d", type));
+		}
+	}
+
+	private static void writeRecord(DataOutputStream dos, byte type, RecordWriter content) throws IOException {
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		DataOutputStream recordDos = new DataOutputStream(record);
+		recordDos.writeByte(type);
+		content.write(recordDos);
+		recordDos.flush();
+
+		CRC32 crc = new CRC32();
+		crc.update(record.toByteArray());
+
+		dos.writeInt(record.size());
+		dos.writeInt((int) crc.getValue());
+		record.writeTo(dos);
+	}
+
+	private static void writeFeature(DataOutputStream dos, JournaledFeature feature) throws IOException {
+		writeString(dos, feature.featureId());
+		writeString(dos, feature.featureJson());
+		dos.writeBoolean(feature.decoratedFeatureJson() != null);
+		if (feature.decoratedFeatureJson() != null) {
+			writeString(dos, feature.decoratedFeatureJson());
+		}
+		writeStrings(dos, feature.featureBundles());
+
+		dos.writeInt(feature.bundles().size());
+		for (JournaledBundle bundle : feature.bundles()) {
+			writeString(dos, bundle.bundleId());
+			writeStrings(dos, bundle.aliases());
+			dos.writeLong(bundle.frameworkBundleId());
+			dos.writeBoolean(bundle.location() != null);
+			if (bundle.location() != null) {
+				writeString(dos, bundle.location());
+			}
+			dos.writeBoolean(bundle.external());
+		}
+
+		dos.writeInt(feature.configurations().size());
+		for (JournaledConfiguration configuration : feature.configurations()) {
+			writeString(dos, configuration.pid());
+			dos.writeBoolean(configuration.external());
+		}
+	}
+
+	private static JournaledFeature readFeature(DataInputStream in) throws IOException {
+		String featureId = readString(in);
+		String featureJson = readString(in);
+		String decoratedFeatureJson = in.readBoolean() ? readString(in) : null;
+		List<String> featureBundles = readStrings(in);
+
+		int bundleCount = in.readInt();
+		List<JournaledBundle> bundles = new ArrayList<>(bundleCount);
+		for (int i = 0; i < bundleCount; i++) {
+			bundles.add(new JournaledBundle(readString(in), readStrings(in), in.readLong(),
+					in.readBoolean() ? readString(in) : null, in.readBoolean()));
+		}
+
+		int configurationCount = in.readInt();
+		List<JournaledConfiguration> configurations = new ArrayList<>(configurationCount);
+		for (int i = 0; i < configurationCount; i++) {
+			configurations.add(new JournaledConfiguration(readString(in), in.readBoolean()));
+		}
+
+		return new JournaledFeature(featureId, featureJson, decoratedFeatureJson, featureBundles, List.copyOf(bundles),
+				List.copyOf(configurations));
+	}
+
+	// Unlike writeUTF, not limited to 64k, as feature JSON may be larger
+	private static void writeString(DataOutputStream dos, String value) throws IOException {
+		byte[] bytes = value.getBytes(UTF_8);
+		dos.writeInt(bytes.length);
+		dos.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		byte[] bytes = in.readNBytes(length);
+		if (bytes.length != length) {
+			throw new EOFException();
+		}
+		return new String(bytes, UTF_8);
+	}
+
+	private static void writeStrings(DataOutputStream dos, List<String> values) throws IOException {
+		dos.writeInt(values.size());
+		for (String value : values) {
+			writeString(dos, value);
+		}
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		List<String> values = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			values.add(readString(in));
+		}
+		return List.copyOf(values);
+	}
+
+	@FunctionalInterface
+	private interface RecordWriter {
+		void write(DataOutputStream dos) throws IOException;
+	}
+
+	/**
+	 * An installed feature
+	 *
+	 * @param featureId the ID of the installed, possibly decorated, feature
+	 * @param featureJson the original feature
+	 * @param decoratedFeatureJson the decorated feature, or <code>null</code>
+	 *            if the feature was not decorated
+	 * @param featureBundles the IDs of the bundles of the original feature
+	 * @param bundles the installed bundles
+	 * @param configurations the installed configurations
+	 */
+	record JournaledFeature(String featureId, String featureJson, String decoratedFeatureJson,
+			List<String> featureBundles, List<JournaledBundle> bundles, List<JournaledConfiguration> configurations) {
+	}
+
+	/**
+	 * @param bundleId the ID of the bundle in the feature
+	 * @param aliases the aliases of the bundle
+	 * @param frameworkBundleId the framework bundle ID, or -1 if there is no
+	 *            bundle
+	 * @param location the location of the bundle, or <code>null</code> if
+	 *            there is no bundle. It is the ID the bundle was first
+	 *            installed with, which an update in place does not change.
+	 * @param external whether the bundle was installed by another management
+	 *            agent
+	 */
+	record JournaledBundle(String bundleId, List<String> aliases, long frameworkBundleId, String location,
+			boolean external) {
+	}
+
+	/**
+	 * @param pid the PID of the configuration
+	 * @param external whether the configuration was created by another
+	 *            management agent
+	 */
+	record JournaledConfiguration(String pid, boolean external) {
+	}
+}
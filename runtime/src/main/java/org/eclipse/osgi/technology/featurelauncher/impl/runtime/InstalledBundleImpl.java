@@ -40,7 +40,7 @@ class InstalledBundleImpl implements InstalledBundle {
 		this.aliases = aliases;
 		this.bundle = bundle;
 		this.startLevel = startLevel;
-		this.owningFeatures = owningFeatures;
+		this.owningFeatures = List.copyOf(owningFeatures);
 	}
 
 	/* 
@@ -38,7 +38,7 @@ class InstalledConfigurationImpl implements InstalledConfiguration {
 		this.pid = pid;
 		this.factoryPid = factoryPid;
 		this.properties = properties;
-		this.owningFeatures = owningFeatures;
+		this.owningFeatures = List.copyOf(owningFeatures);
 	}
 
 	/* 
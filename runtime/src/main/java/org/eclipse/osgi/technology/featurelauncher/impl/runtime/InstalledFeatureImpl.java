@@ -13,13 +13,17 @@
  */
 package org.eclipse.osgi.technology.featurelauncher.impl.runtime;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.ActivatedFeature;
 import org.osgi.service.feature.Feature;
+import org.osgi.service.feature.ID;
 import org.osgi.service.featurelauncher.runtime.InstalledBundle;
 import org.osgi.service.featurelauncher.runtime.InstalledConfiguration;
-import org.osgi.service.featurelauncher.runtime.InstalledFeature;
 
 /**
  * Implementation of {@link org.osgi.service.featurelauncher.runtime.InstalledFeature}
@@ -27,22 +31,31 @@ import org.osgi.service.featurelauncher.runtime.InstalledFeature;
  * @author Michael H. Siemaszko (mhs@into.software)
  * @since Sep 15, 2024
  */
-class InstalledFeatureImpl implements InstalledFeature {
+class InstalledFeatureImpl implements ActivatedFeature {
 	private final Feature feature;
 	private final Feature originalFeature;
 	private final boolean isDecorated;
 	private final boolean isInitialLaunch;
 	private final List<InstalledBundle> installedBundles;
 	private final List<InstalledConfiguration> installedConfigurations;
+	private final Map<ID, Duration> bundleActivationTimes;
 
 	public InstalledFeatureImpl(Feature feature, Feature originalFeature, boolean isDecorated, boolean isInitialLaunch,
 			List<InstalledBundle> installedBundles, List<InstalledConfiguration> installedConfigurations) {
+		this(feature, originalFeature, isDecorated, isInitialLaunch, installedBundles, installedConfigurations,
+				Collections.emptyMap());
+	}
+
+	public InstalledFeatureImpl(Feature feature, Feature originalFeature, boolean isDecorated, boolean isInitialLaunch,
+			List<InstalledBundle> installedBundles, List<InstalledConfiguration> installedConfigurations,
+			Map<ID, Duration> bundleActivationTimes) {
 		this.feature = feature;
 		this.originalFeature = originalFeature;
 		this.isDecorated = isDecorated;
 		this.isInitialLaunch = isInitialLaunch;
-		this.installedBundles = installedBundles;
-		this.installedConfigurations = installedConfigurations;
+		this.installedBundles = List.copyOf(installedBundles);
+		this.installedConfigurations = List.copyOf(installedConfigurations);
+		this.bundleActivationTimes = bundleActivationTimes;
 	}
 
 	/* 
@@ -99,6 +112,15 @@ class InstalledFeatureImpl implements InstalledFeature {
 		return installedConfigurations;
 	}
 
+	/* 
+	 * (non-Javadoc)
+	 * @see org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.ActivatedFeature#getBundleActivationTimes()
+	 */
+	@Override
+	public Map<ID, Duration> getBundleActivationTimes() {
+		return bundleActivationTimes;
+	}
+
 	/* 
 	 * (non-Javadoc)
 	 * @see java.lang.Object#hashCode()
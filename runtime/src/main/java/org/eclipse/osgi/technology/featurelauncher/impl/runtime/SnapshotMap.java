@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2024 Kentyou and others.
+ * All rights reserved.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Kentyou - initial implementation
+ */
+package org.eclipse.osgi.technology.featurelauncher.impl.runtime;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+/**
+ * A map split into segments by key hash, which can take immutable snapshots of
+ * itself. A snapshot shares the segments which did not change since the
+ * previous snapshot, so that only the changed segments are copied.
+ * <p>
+ * This map is not thread safe, its snapshots are.
+ */
+final class SnapshotMap<K, V> extends AbstractMap<K, V> {
+
+	private static final int SEGMENTS = 64;
+
+	private final Map<K, V>[] segments = newSegments();
+
+	private final boolean[] changedSegments = new boolean[SEGMENTS];
+
+	private int size;
+
+	private Snapshot<K, V> snapshot;
+
+	SnapshotMap() {
+		Arrays.setAll(segments, i -> new HashMap<>());
+		Map<K, V>[] snapshotSegments = newSegments();
+		Arrays.fill(snapshotSegments, Map.of());
+		snapshot = new Snapshot<>(snapshotSegments, 0);
+	}
+
+	/**
+	 * @return an immutable copy of this map, which is the previous one if
+	 *         nothing changed since
+	 */
+	Map<K, V> snapshot() {
+		Map<K, V>[] snapshotSegments = null;
+		for (int i = 0; i < SEGMENTS; i++) {
+			if (changedSegments[i]) {
+				if (snapshotSegments == null) {
+					snapshotSegments = snapshot.segments.clone();
+				}
+				snapshotSegments[i] = Map.copyOf(segments[i]);
+				changedSegments[i] = false;
+			}
+		}
+		if (snapshotSegments != null) {
+			snapshot = new Snapshot<>(snapshotSegments, size);
+		}
+		return snapshot;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#get(java.lang.Object)
+	 */
+	@Override
+	public V get(Object key) {
+		return segments[segment(key)].get(key);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#containsKey(java.lang.Object)
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return segments[segment(key)].containsKey(key);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#put(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public V put(K key, V value) {
+		int segment = segment(key);
+		Map<K, V> segmentMap = segments[segment];
+		int segmentSize = segmentMap.size();
+		V previous = segmentMap.put(key, value);
+		size += segmentMap.size() - segmentSize;
+		changedSegments[segment] = true;
+		return previous;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#remove(java.lang.Object)
+	 */
+	@Override
+	public V remove(Object key) {
+		int segment = segment(key);
+		Map<K, V> segmentMap = segments[segment];
+		if (!segmentMap.containsKey(key)) {
+			return null;
+		}
+		size--;
+		changedSegments[segment] = true;
+		return segmentMap.remove(key);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#size()
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractMap#entrySet()
+	 */
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		return new SegmentsEntrySet<>(segments, this::size);
+	}
+
+	private static int segment(Object key) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (SEGMENTS - 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> Map<K, V>[] newSegments() {
+		return new Map[SEGMENTS];
+	}
+
+	/**
+	 * An immutable snapshot, made of immutable segments
+	 */
+	private static final class Snapshot<K, V> extends AbstractMap<K, V> {
+
+		private final Map<K, V>[] segments;
+
+		private final int size;
+
+		Snapshot(Map<K, V>[] segments, int size) {
+			this.segments = segments;
+			this.size = size;
+		}
+
+		@Override
+		public V get(Object key) {
+			return segments[segment(key)].get(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return segments[segment(key)].containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Set<Entry<K, V>> entrySet() {
+			return new SegmentsEntrySet<>(segments, this::size);
+		}
+	}
+
+	/**
+	 * The entries of all the segments, which cannot be changed through it
+	 */
+	private static final class SegmentsEntrySet<K, V> extends AbstractSet<Entry<K, V>> {
+
+		private final Map<K, V>[] segments;
+
+		private final IntSupplier size;
+
+		SegmentsEntrySet(Map<K, V>[] segments, IntSupplier size) {
+			this.segments = segments;
+			this.size = size;
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			// @formatter:off
+			return Arrays.stream(segments)
+					.flatMap(s -> Collections.unmodifiableMap(s).entrySet().stream())
+					.iterator();
+			// @formatter:on
+		}
+
+		@Override
+		public int size() {
+			return size.getAsInt();
+		}
+	}
+}
@@ -21,14 +21,19 @@ import static org.eclipse.osgi.technology.featurelauncher.repository.spi.Reposit
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.osgi.service.featurelauncher.FeatureLauncherConstants.BUNDLE_START_LEVEL_METADATA;
 import static org.osgi.service.featurelauncher.repository.ArtifactRepositoryConstants.ARTIFACT_REPOSITORY_NAME;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.URI;
@@ -36,18 +41,43 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 
 import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeConfigurationManager;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.ActivatedFeature;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.AsyncInstallOperationBuilder;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.AsyncUpdateOperationBuilder;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.OperationQueueMetrics;
+import org.eclipse.osgi.technology.featurelauncher.impl.runtime.FeatureRuntimeImpl.RuntimeState;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
 import org.osgi.service.cm.Configuration;
 import org.osgi.service.feature.Feature;
 import org.osgi.service.feature.FeatureService;
@@ -58,6 +88,7 @@ import org.osgi.service.featurelauncher.decorator.FeatureDecorator;
 import org.osgi.service.featurelauncher.repository.ArtifactRepository;
 import org.osgi.service.featurelauncher.runtime.FeatureRuntime;
 import org.osgi.service.featurelauncher.runtime.FeatureRuntimeConstants;
+import org.osgi.service.featurelauncher.runtime.FeatureRuntimeException;
 import org.osgi.service.featurelauncher.runtime.InstalledBundle;
 import org.osgi.service.featurelauncher.runtime.InstalledConfiguration;
 import org.osgi.service.featurelauncher.runtime.InstalledFeature;
@@ -567,4 +598,801 @@ public class FeatureRuntimeIntegrationTest {
 			assertEquals(0, installedFeatures.size());
 		}
 	}
+
+	@Test
+	public void testUpdateFeatureInPlace(
+			@InjectService FeatureRuntimeConfigurationManager featureRuntimeConfigurationManagerService)
+			throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+
+		Path updateRepositoryPath = localCache.resolve("updateRepo");
+		writeTestBundle(updateRepositoryPath, "updated-bundle", "1.0.0");
+		writeTestBundle(updateRepositoryPath, "updated-bundle", "1.0.1");
+		writeTestBundle(updateRepositoryPath, "unchanged-bundle", "1.0.0");
+		ArtifactRepository updateRepository = featureRuntimeService.createRepository(updateRepositoryPath);
+
+		Bundle updatedBundle;
+		Bundle unchangedBundle;
+		long unchangedBundleLastModified;
+		long unchangedConfigurationChangeCount;
+
+		try (InputStream featureIs = getClass().getClassLoader()
+				.getResourceAsStream("/features/update-in-place-feature.json");
+				Reader featureReader = new BufferedReader(
+						new InputStreamReader(featureIs, Charset.forName("UTF-8").newDecoder()));) {
+
+			// @formatter:off
+			InstalledFeature installedFeature = featureRuntimeService.install(featureReader)
+					.useDefaultRepositories(false)
+					.addRepository("update", updateRepository)
+					.install();
+			// @formatter:on
+			assertNotNull(installedFeature);
+
+			List<InstalledBundle> installedBundles = installedFeature.getInstalledBundles();
+			assertEquals(2, installedBundles.size());
+
+			updatedBundle = installedBundles.get(0).getBundle();
+			assertEquals("1.0.0", updatedBundle.getVersion().toString());
+
+			unchangedBundle = installedBundles.get(1).getBundle();
+			assertEquals(Bundle.ACTIVE, unchangedBundle.getState());
+			unchangedBundleLastModified = unchangedBundle.getLastModified();
+
+			unchangedConfigurationChangeCount = getTestConfiguration(featureRuntimeConfigurationManagerService,
+					"unchanged").getChangeCount();
+		}
+
+		ID featureId = featureRuntimeService.getInstalledFeatures().get(0).getFeature().getID();
+
+		try (InputStream featureIs = getClass().getClassLoader()
+				.getResourceAsStream("/features/update-in-place-feature.updated.json");
+				Reader featureReader = new BufferedReader(
+						new InputStreamReader(featureIs, Charset.forName("UTF-8").newDecoder()));) {
+
+			// @formatter:off
+			InstalledFeature updatedFeature = featureRuntimeService.update(featureId, featureReader)
+					.useDefaultRepositories(false)
+					.addRepository("update", updateRepository)
+					.update();
+			// @formatter:on
+			assertNotNull(updatedFeature);
+			assertEquals(1, featureRuntimeService.getInstalledFeatures().size());
+
+			List<InstalledBundle> installedBundles = updatedFeature.getInstalledBundles();
+			assertEquals(2, installedBundles.size());
+
+			// The bundle whose version changed is updated, not re-installed
+			assertEquals("org.eclipse.osgi.technology.featurelauncher.test:updated-bundle:1.0.1",
+					installedBundles.get(0).getBundleId().toString());
+			assertEquals(updatedBundle.getBundleId(), installedBundles.get(0).getBundle().getBundleId());
+			assertEquals("1.0.1", installedBundles.get(0).getBundle().getVersion().toString());
+			assertEquals(Bundle.ACTIVE, installedBundles.get(0).getBundle().getState());
+			assertTrue(installedBundles.get(0).getOwningFeatures().contains(featureId));
+
+			// The unchanged bundle is left alone
+			assertEquals(unchangedBundle.getBundleId(), installedBundles.get(1).getBundle().getBundleId());
+			assertEquals(unchangedBundleLastModified, installedBundles.get(1).getBundle().getLastModified());
+			assertEquals(Bundle.ACTIVE, installedBundles.get(1).getBundle().getState());
+			assertTrue(installedBundles.get(1).getOwningFeatures().contains(featureId));
+
+			// Only the changed configuration is written
+			assertEquals("updated", getTestConfiguration(featureRuntimeConfigurationManagerService, "updated")
+					.getProperties().get("value"));
+			assertEquals(unchangedConfigurationChangeCount,
+					getTestConfiguration(featureRuntimeConfigurationManagerService, "unchanged").getChangeCount());
+
+			featureRuntimeService.remove(featureId);
+
+			assertTrue(featureRuntimeService.getInstalledFeatures().isEmpty());
+			assertEquals(Bundle.UNINSTALLED, installedBundles.get(0).getBundle().getState());
+			assertEquals(Bundle.UNINSTALLED, installedBundles.get(1).getBundle().getState());
+		}
+	}
+
+	@Test
+	public void testBundleVersionReplacedByAnUpdateCanBeInstalledAgain(@InjectService FeatureService featureService)
+			throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+
+		Path updateRepositoryPath = localCache.resolve("reinstallRepo");
+		writeTestBundle(updateRepositoryPath, "updated-bundle", "1.0.0");
+		writeTestBundle(updateRepositoryPath, "updated-bundle", "1.0.1");
+		writeTestBundle(updateRepositoryPath, "unchanged-bundle", "1.0.0");
+		ArtifactRepository updateRepository = featureRuntimeService.createRepository(updateRepositoryPath);
+
+		Feature feature = readFeature(featureService, "/features/update-in-place-feature.json");
+		Feature updatedFeature = readFeature(featureService, "/features/update-in-place-feature.updated.json");
+		Feature otherFeature = featureService.readFeature(new StringReader("""
+				{
+					"feature-resource-version": "1.0",
+					"id": "org.eclipse.osgi.technology.featurelauncher:previous-version-feature:1.0",
+					"bundles": [
+						{ "id": "org.eclipse.osgi.technology.featurelauncher.test:updated-bundle:1.0.0" }
+					]
+				}
+				"""));
+
+		// @formatter:off
+		featureRuntimeService.install(feature)
+				.useDefaultRepositories(false)
+				.addRepository("update", updateRepository)
+				.install();
+		InstalledFeature installedFeature = featureRuntimeService.update(feature.getID(), updatedFeature)
+				.useDefaultRepositories(false)
+				.addRepository("update", updateRepository)
+				.update();
+		// The location of the updated bundle is still the ID of its previous version
+		InstalledFeature otherInstalledFeature = featureRuntimeService.install(otherFeature)
+				.useDefaultRepositories(false)
+				.addRepository("update", updateRepository)
+				.install();
+		// @formatter:on
+
+		Bundle updatedBundle = installedFeature.getInstalledBundles().get(0).getBundle();
+		Bundle previousVersionBundle = otherInstalledFeature.getInstalledBundles().get(0).getBundle();
+		assertTrue(updatedBundle.getBundleId() != previousVersionBundle.getBundleId());
+		assertEquals("1.0.1", updatedBundle.getVersion().toString());
+		assertEquals("1.0.0", previousVersionBundle.getVersion().toString());
+		assertEquals(List.of(otherFeature.getID()),
+				otherInstalledFeature.getInstalledBundles().get(0).getOwningFeatures());
+
+		featureRuntimeService.remove(otherFeature.getID());
+		assertEquals(Bundle.UNINSTALLED, previousVersionBundle.getState());
+		assertEquals(Bundle.ACTIVE, updatedBundle.getState());
+
+		featureRuntimeService.remove(updatedFeature.getID());
+		assertEquals(Bundle.UNINSTALLED, updatedBundle.getState());
+	}
+
+	@Test
+	public void testFailedUpdateRestoresThePreviousFeature(
+			@InjectService FeatureRuntimeConfigurationManager featureRuntimeConfigurationManagerService,
+			@InjectService FeatureService featureService) throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+		FeatureRuntimeImpl featureRuntimeImpl = (FeatureRuntimeImpl) featureRuntimeService;
+
+		Path updateRepositoryPath = localCache.resolve("failedUpdateRepo");
+		writeTestBundle(updateRepositoryPath, "updated-bundle", "1.0.0");
+		writeTestBundle(updateRepositoryPath, "updated-bundle", "1.0.1");
+		writeTestBundle(updateRepositoryPath, "unchanged-bundle", "1.0.0");
+		Path brokenBundle = updateRepositoryPath
+				.resolve("org/eclipse/osgi/technology/featurelauncher/test/broken-bundle/1.0.0/broken-bundle-1.0.0.jar");
+		Files.createDirectories(brokenBundle.getParent());
+		Files.writeString(brokenBundle, "not a bundle");
+		ArtifactRepository updateRepository = featureRuntimeService.createRepository(updateRepositoryPath);
+
+		Feature feature = readFeature(featureService, "/features/update-in-place-feature.json");
+
+		// @formatter:off
+		InstalledFeature installedFeature = featureRuntimeService.install(feature)
+				.useDefaultRepositories(false)
+				.addRepository("update", updateRepository)
+				.install();
+		// @formatter:on
+		Bundle updatedBundle = installedFeature.getInstalledBundles().get(0).getBundle();
+		Bundle unchangedBundle = installedFeature.getInstalledBundles().get(1).getBundle();
+
+		// The bundle updated in place comes before the one which cannot be installed
+		Feature brokenFeature = featureService.readFeature(new StringReader("""
+				{
+					"feature-resource-version": "1.0",
+					"id": "org.eclipse.osgi.technology.featurelauncher:update-in-place-feature:1.0",
+					"bundles": [
+						{ "id": "org.eclipse.osgi.technology.featurelauncher.test:updated-bundle:1.0.1" },
+						{ "id": "org.eclipse.osgi.technology.featurelauncher.test:unchanged-bundle:1.0.0" },
+						{ "id": "org.eclipse.osgi.technology.featurelauncher.test:broken-bundle:1.0.0" }
+					],
+					"configurations": {
+						"org.eclipse.osgi.technology.featurelauncher.test.updated": { "value": "updated" }
+					}
+				}
+				"""));
+
+		// @formatter:off
+		assertThrows(FeatureRuntimeException.class, () -> featureRuntimeService.update(feature.getID(), brokenFeature)
+				.useDefaultRepositories(false)
+				.addRepository("update", updateRepository)
+				.update());
+		// @formatter:on
+
+		// The previous version of the feature is still installed, and running
+		assertEquals(List.of(installedFeature), featureRuntimeService.getInstalledFeatures());
+		assertEquals("1.0.0", updatedBundle.getVersion().toString());
+		assertEquals(Bundle.ACTIVE, updatedBundle.getState());
+		assertEquals(Bundle.ACTIVE, unchangedBundle.getState());
+		assertEquals(Set.of(
+				featureService.getIDfromMavenCoordinates("org.eclipse.osgi.technology.featurelauncher.test:updated-bundle:1.0.0"),
+				featureService.getIDfromMavenCoordinates("org.eclipse.osgi.technology.featurelauncher.test:unchanged-bundle:1.0.0")),
+				featureRuntimeImpl.getRuntimeState().installedBundlesByIdentifier().keySet());
+		assertEquals("initial", getTestConfiguration(featureRuntimeConfigurationManagerService, "updated")
+				.getProperties().get("value"));
+		assertEquals("initial", getTestConfiguration(featureRuntimeConfigurationManagerService, "unchanged")
+				.getProperties().get("value"));
+
+		// It can still be removed as a whole
+		featureRuntimeService.remove(feature.getID());
+		assertTrue(featureRuntimeService.getInstalledFeatures().isEmpty());
+		assertEquals(Bundle.UNINSTALLED, updatedBundle.getState());
+		assertEquals(Bundle.UNINSTALLED, unchangedBundle.getState());
+	}
+
+	@Test
+	public void testAsyncOperationsAreAppliedInSubmissionOrder(@InjectService FeatureService featureService)
+			throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+		FeatureRuntimeImpl featureRuntimeImpl = (FeatureRuntimeImpl) featureRuntimeService;
+
+		Path updateRepositoryPath = localCache.resolve("asyncRepo");
+		writeTestBundle(updateRepositoryPath, "updated-bundle", "1.0.0");
+		writeTestBundle(updateRepositoryPath, "updated-bundle", "1.0.1");
+		writeTestBundle(updateRepositoryPath, "unchanged-bundle", "1.0.0");
+		ArtifactRepository updateRepository = featureRuntimeService.createRepository(updateRepositoryPath);
+
+		Feature feature = readFeature(featureService, "/features/update-in-place-feature.json");
+		Feature updatedFeature = readFeature(featureService, "/features/update-in-place-feature.updated.json");
+		ID featureId = feature.getID();
+
+		long completedOperations = featureRuntimeImpl.getOperationQueueMetrics().completedOperations();
+
+		// Submit all the operations without waiting, they are applied in order
+		// @formatter:off
+		CompletableFuture<InstalledFeature> installed = ((AsyncInstallOperationBuilder) featureRuntimeService
+				.install(feature)
+				.useDefaultRepositories(false)
+				.addRepository("update", updateRepository))
+				.installAsync();
+		CompletableFuture<InstalledFeature> updated = ((AsyncUpdateOperationBuilder) featureRuntimeService
+				.update(featureId, updatedFeature)
+				.useDefaultRepositories(false)
+				.addRepository("update", updateRepository))
+				.updateAsync();
+		// @formatter:on
+		CompletableFuture<Void> removed = featureRuntimeImpl.removeAsync(featureId);
+
+		removed.get(30, TimeUnit.SECONDS);
+		assertTrue(installed.isDone());
+		assertTrue(updated.isDone());
+
+		assertEquals("org.eclipse.osgi.technology.featurelauncher.test:updated-bundle:1.0.0",
+				installed.get().getInstalledBundles().get(0).getBundleId().toString());
+		assertEquals("org.eclipse.osgi.technology.featurelauncher.test:updated-bundle:1.0.1",
+				updated.get().getInstalledBundles().get(0).getBundleId().toString());
+		assertTrue(featureRuntimeService.getInstalledFeatures().isEmpty());
+
+		OperationQueueMetrics metrics = featureRuntimeImpl.getOperationQueueMetrics();
+		assertEquals(0, metrics.queueDepth());
+		assertEquals(completedOperations + 3, metrics.completedOperations());
+		assertTrue(metrics.maxQueueDepth() >= 1);
+		assertTrue(metrics.maxWait().compareTo(metrics.averageWait()) >= 0);
+	}
+
+	@Test
+	public void testRuntimeStateIsReadableDuringOperations(@InjectService FeatureService featureService)
+			throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+		FeatureRuntimeImpl featureRuntimeImpl = (FeatureRuntimeImpl) featureRuntimeService;
+
+		Path stressRepositoryPath = localCache.resolve("stressRepo");
+		writeTestBundle(stressRepositoryPath, "updated-bundle", "1.0.0");
+		writeTestBundle(stressRepositoryPath, "unchanged-bundle", "1.0.0");
+		ArtifactRepository stressRepository = featureRuntimeService.createRepository(stressRepositoryPath);
+
+		Feature feature = readFeature(featureService, "/features/update-in-place-feature.json");
+
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicInteger reads = new AtomicInteger();
+
+		// Readers check that every snapshot is consistent and that none is older
+		// than one they already saw
+		List<Thread> readers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			Thread reader = new Thread(() -> {
+				long lastVersion = 0;
+				try {
+					while (!done.get()) {
+						RuntimeState state = featureRuntimeImpl.getRuntimeState();
+						assertTrue(state.version() >= lastVersion);
+						lastVersion = state.version();
+
+						assertEquals(state.installedFeatures().size(), state.installedFeaturesToBundles().size());
+						for (InstalledFeature installedFeature : state.installedFeatures()) {
+							List<ID> bundleIds = state.installedFeaturesToBundles()
+									.get(installedFeature.getFeature().getID());
+							assertNotNull(bundleIds);
+							for (InstalledBundle installedBundle : installedFeature.getInstalledBundles()) {
+								assertTrue(bundleIds.contains(installedBundle.getBundleId()));
+								assertTrue(state.installedBundlesByIdentifier()
+										.containsKey(installedBundle.getBundleId()));
+								assertTrue(installedBundle.getOwningFeatures()
+										.contains(installedFeature.getFeature().getID()));
+							}
+						}
+						featureRuntimeService.getInstalledFeatures().forEach(f -> f.getInstalledConfigurations()
+								.forEach(c -> c.getOwningFeatures().size()));
+						reads.incrementAndGet();
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			}, "runtime-state-reader-" + i);
+			readers.add(reader);
+			reader.start();
+		}
+
+		try {
+			for (int i = 0; i < 20; i++) {
+				// @formatter:off
+				featureRuntimeService.install(feature)
+						.useDefaultRepositories(false)
+						.addRepository("stress", stressRepository)
+						.install();
+				// @formatter:on
+				featureRuntimeService.remove(feature.getID());
+			}
+		} finally {
+			done.set(true);
+			for (Thread reader : readers) {
+				reader.join(5000);
+			}
+		}
+
+		if (failure.get() != null) {
+			throw new AssertionError("Reading the runtime state failed", failure.get());
+		}
+		assertTrue(reads.get() > 0);
+		assertTrue(featureRuntimeService.getInstalledFeatures().isEmpty());
+		assertTrue(featureRuntimeImpl.getRuntimeState().installedBundlesByIdentifier().isEmpty());
+	}
+
+	@Test
+	public void testBundleActivationTimesAreReported() throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+
+		Path activationRepositoryPath = localCache.resolve("activationRepo");
+		writeTestBundle(activationRepositoryPath, "updated-bundle", "1.0.0");
+		writeTestBundle(activationRepositoryPath, "unchanged-bundle", "1.0.0");
+		ArtifactRepository activationRepository = featureRuntimeService.createRepository(activationRepositoryPath);
+
+		try (InputStream featureIs = getClass().getClassLoader()
+				.getResourceAsStream("/features/update-in-place-feature.json");
+				Reader featureReader = new BufferedReader(
+						new InputStreamReader(featureIs, Charset.forName("UTF-8").newDecoder()));) {
+
+			// @formatter:off
+			InstalledFeature installedFeature = featureRuntimeService.install(featureReader)
+					.useDefaultRepositories(false)
+					.addRepository("activation", activationRepository)
+					.install();
+			// @formatter:on
+			assertTrue(installedFeature instanceof ActivatedFeature);
+
+			Map<ID, Duration> activationTimes = ((ActivatedFeature) installedFeature).getBundleActivationTimes();
+			assertEquals(2, activationTimes.size());
+			for (InstalledBundle installedBundle : installedFeature.getInstalledBundles()) {
+				assertEquals(Bundle.ACTIVE, installedBundle.getBundle().getState());
+				assertFalse(activationTimes.get(installedBundle.getBundleId()).isNegative());
+			}
+
+			featureRuntimeService.remove(installedFeature.getFeature().getID());
+		}
+	}
+
+	@Test
+	public void testBatchInstallSharesBundlesAndConfigurations(
+			@InjectService FeatureRuntimeConfigurationManager featureRuntimeConfigurationManagerService,
+			@InjectService FeatureService featureService) throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+		FeatureRuntimeImpl featureRuntimeImpl = (FeatureRuntimeImpl) featureRuntimeService;
+
+		Path batchRepositoryPath = localCache.resolve("batchRepo");
+		writeTestBundle(batchRepositoryPath, "first-bundle", "1.0.0");
+		writeTestBundle(batchRepositoryPath, "second-bundle", "1.0.0");
+		writeTestBundle(batchRepositoryPath, "shared-bundle", "1.0.0");
+		ArtifactRepository batchRepository = featureRuntimeService.createRepository(batchRepositoryPath);
+
+		Feature first = batchFeature(featureService, "first", "first-bundle");
+		Feature second = batchFeature(featureService, "second", "second-bundle");
+
+		// @formatter:off
+		List<InstalledFeature> installedFeatures = featureRuntimeImpl.installAll(List.of(first, second))
+				.useDefaultRepositories(false)
+				.addRepository("batch", batchRepository)
+				.install();
+		// @formatter:on
+		assertEquals(2, installedFeatures.size());
+		assertEquals(installedFeatures, featureRuntimeService.getInstalledFeatures());
+
+		// The shared bundle is installed once, and owned by both features
+		InstalledBundle firstShared = installedFeatures.get(0).getInstalledBundles().get(1);
+		InstalledBundle secondShared = installedFeatures.get(1).getInstalledBundles().get(1);
+		assertEquals("org.eclipse.osgi.technology.featurelauncher.test:shared-bundle:1.0.0",
+				firstShared.getBundleId().toString());
+		assertEquals(firstShared.getBundle().getBundleId(), secondShared.getBundle().getBundleId());
+		assertEquals(Bundle.ACTIVE, secondShared.getBundle().getState());
+		assertTrue(firstShared.getOwningFeatures().contains(second.getID()));
+		assertTrue(secondShared.getOwningFeatures().contains(first.getID()));
+
+		// The shared configuration is created once, and owned by both features
+		assertEquals("shared", getTestConfiguration(featureRuntimeConfigurationManagerService, "shared")
+				.getProperties().get("value"));
+		InstalledConfiguration secondSharedConfiguration = installedFeatures.get(1).getInstalledConfigurations()
+				.get(0);
+		assertTrue(secondSharedConfiguration.getOwningFeatures().contains(first.getID()));
+		assertTrue(secondSharedConfiguration.getOwningFeatures().contains(second.getID()));
+
+		featureRuntimeService.remove(second.getID());
+		assertEquals(Bundle.ACTIVE, firstShared.getBundle().getState());
+		featureRuntimeService.remove(first.getID());
+		assertEquals(Bundle.UNINSTALLED, firstShared.getBundle().getState());
+		assertTrue(featureRuntimeConfigurationManagerService
+				.getConfigurations("(service.pid=org.eclipse.osgi.technology.featurelauncher.test.shared)")
+				.isEmpty());
+	}
+
+	@Test
+	public void testPublishedStateIsNotChangedByLaterOperations(@InjectService FeatureService featureService)
+			throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+		FeatureRuntimeImpl featureRuntimeImpl = (FeatureRuntimeImpl) featureRuntimeService;
+
+		Path snapshotRepositoryPath = localCache.resolve("snapshotRepo");
+		writeTestBundle(snapshotRepositoryPath, "first-bundle", "1.0.0");
+		writeTestBundle(snapshotRepositoryPath, "second-bundle", "1.0.0");
+		writeTestBundle(snapshotRepositoryPath, "shared-bundle", "1.0.0");
+		ArtifactRepository snapshotRepository = featureRuntimeService.createRepository(snapshotRepositoryPath);
+
+		Feature first = batchFeature(featureService, "first", "first-bundle");
+		Feature second = batchFeature(featureService, "second", "second-bundle");
+
+		// @formatter:off
+		InstalledFeature firstInstalled = featureRuntimeService.install(first)
+				.useDefaultRepositories(false)
+				.addRepository("snapshot", snapshotRepository)
+				.install();
+		RuntimeState firstState = featureRuntimeImpl.getRuntimeState();
+		featureRuntimeService.install(second)
+				.useDefaultRepositories(false)
+				.addRepository("snapshot", snapshotRepository)
+				.install();
+		// @formatter:on
+
+		// The feature and state published before are left as they were
+		assertEquals(List.of(first.getID()), firstInstalled.getInstalledBundles().get(1).getOwningFeatures());
+		assertEquals(List.of(first.getID()), firstInstalled.getInstalledConfigurations().get(0).getOwningFeatures());
+		assertEquals(List.of(firstInstalled), firstState.installedFeatures());
+		assertEquals(2, firstState.installedBundlesByIdentifier().size());
+
+		// while the current ones show the new owner
+		InstalledFeature firstCurrent = featureRuntimeService.getInstalledFeatures().get(0);
+		assertEquals(List.of(first.getID(), second.getID()),
+				firstCurrent.getInstalledBundles().get(1).getOwningFeatures());
+		assertEquals(List.of(first.getID(), second.getID()),
+				firstCurrent.getInstalledConfigurations().get(0).getOwningFeatures());
+		assertEquals(3, featureRuntimeImpl.getRuntimeState().installedBundlesByIdentifier().size());
+
+		featureRuntimeService.remove(second.getID());
+		assertEquals(List.of(first.getID(), second.getID()),
+				firstCurrent.getInstalledBundles().get(1).getOwningFeatures());
+		assertEquals(List.of(first.getID()), featureRuntimeService.getInstalledFeatures().get(0).getInstalledBundles()
+				.get(1).getOwningFeatures());
+
+		featureRuntimeService.remove(first.getID());
+		assertTrue(featureRuntimeImpl.getRuntimeState().installedBundlesByIdentifier().isEmpty());
+	}
+
+	@Test
+	public void testBatchInstallIsRolledBackOnFailure(
+			@InjectService FeatureRuntimeConfigurationManager featureRuntimeConfigurationManagerService,
+			@InjectService FeatureService featureService) throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+		FeatureRuntimeImpl featureRuntimeImpl = (FeatureRuntimeImpl) featureRuntimeService;
+
+		Path batchRepositoryPath = localCache.resolve("brokenBatchRepo");
+		writeTestBundle(batchRepositoryPath, "first-bundle", "1.0.0");
+		writeTestBundle(batchRepositoryPath, "shared-bundle", "1.0.0");
+		Path brokenBundle = batchRepositoryPath
+				.resolve("org/eclipse/osgi/technology/featurelauncher/test/broken-bundle/1.0.0/broken-bundle-1.0.0.jar");
+		Files.createDirectories(brokenBundle.getParent());
+		Files.writeString(brokenBundle, "not a bundle");
+		ArtifactRepository batchRepository = featureRuntimeService.createRepository(batchRepositoryPath);
+
+		Feature first = batchFeature(featureService, "first", "first-bundle");
+		Feature broken = batchFeature(featureService, "broken", "broken-bundle");
+
+		// @formatter:off
+		assertThrows(FeatureRuntimeException.class, () -> featureRuntimeImpl.installAll(List.of(first, broken))
+				.useDefaultRepositories(false)
+				.addRepository("batch", batchRepository)
+				.install());
+		// @formatter:on
+
+		// Nothing of the batch is left behind
+		assertTrue(featureRuntimeService.getInstalledFeatures().isEmpty());
+		assertTrue(featureRuntimeImpl.getRuntimeState().installedBundlesByIdentifier().isEmpty());
+		BundleContext bundleContext = FrameworkUtil.getBundle(getClass()).getBundleContext();
+		assertNull(bundleContext.getBundle("org.eclipse.osgi.technology.featurelauncher.test:first-bundle:1.0.0"));
+		assertNull(bundleContext.getBundle("org.eclipse.osgi.technology.featurelauncher.test:shared-bundle:1.0.0"));
+		assertTrue(featureRuntimeConfigurationManagerService
+				.getConfigurations("(service.pid=org.eclipse.osgi.technology.featurelauncher.test.shared)")
+				.isEmpty());
+	}
+
+	@Test
+	public void testInstalledFeaturesAreRestoredOnReactivation(
+			@InjectConfiguration(withConfig = @WithConfiguration(pid = "osgi.technology.featurelauncher.runtime")) Configuration config,
+			@InjectService FeatureService featureService) throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+
+		Path journalRepositoryPath = localCache.resolve("journalRepo");
+		writeTestBundle(journalRepositoryPath, "journal-bundle", "1.0.0");
+		writeTestBundle(journalRepositoryPath, "shared-bundle", "1.0.0");
+		ArtifactRepository journalRepository = featureRuntimeService.createRepository(journalRepositoryPath);
+
+		Feature feature = batchFeature(featureService, "journal", "journal-bundle");
+
+		// @formatter:off
+		InstalledFeature installedFeature = featureRuntimeService.install(feature)
+				.useDefaultRepositories(false)
+				.addRepository("journal", journalRepository)
+				.install();
+		// @formatter:on
+
+		// A configuration change makes SCR activate a new runtime
+		Dictionary<String, Object> props = config.getProperties();
+		props.put("reactivated", System.nanoTime());
+		FeatureRuntime reactivatedRuntimeService = reconfigure(config, props, featureRuntimeService);
+
+		// The feature is restored with the bundles installed before
+		assertEquals(1, reactivatedRuntimeService.getInstalledFeatures().size());
+		InstalledFeature restoredFeature = reactivatedRuntimeService.getInstalledFeatures().get(0);
+		assertEquals(feature.getID(), restoredFeature.getFeature().getID());
+		assertEquals(2, restoredFeature.getInstalledBundles().size());
+		assertEquals(2, restoredFeature.getInstalledConfigurations().size());
+		for (int i = 0; i < 2; i++) {
+			InstalledBundle installedBundle = installedFeature.getInstalledBundles().get(i);
+			InstalledBundle restoredBundle = restoredFeature.getInstalledBundles().get(i);
+			assertEquals(installedBundle.getBundleId(), restoredBundle.getBundleId());
+			assertEquals(installedBundle.getBundle().getBundleId(), restoredBundle.getBundle().getBundleId());
+			assertEquals(List.of(feature.getID()), restoredBundle.getOwningFeatures());
+		}
+
+		// Installing it again does not install anything
+		// @formatter:off
+		InstalledFeature reinstalledFeature = reactivatedRuntimeService.install(feature)
+				.useDefaultRepositories(false)
+				.addRepository("journal", journalRepository)
+				.install();
+		// @formatter:on
+		assertEquals(installedFeature.getInstalledBundles().get(0).getBundle().getBundleId(),
+				reinstalledFeature.getInstalledBundles().get(0).getBundle().getBundleId());
+
+		reactivatedRuntimeService.remove(feature.getID());
+		assertTrue(reactivatedRuntimeService.getInstalledFeatures().isEmpty());
+		assertEquals(Bundle.UNINSTALLED, restoredFeature.getInstalledBundles().get(0).getBundle().getState());
+	}
+
+	@Test
+	public void testUpdatedFeatureIsRestoredOnReactivation(
+			@InjectConfiguration(withConfig = @WithConfiguration(pid = "osgi.technology.featurelauncher.runtime")) Configuration config,
+			@InjectService FeatureService featureService) throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+
+		Path updateRepositoryPath = localCache.resolve("restoreUpdateRepo");
+		writeTestBundle(updateRepositoryPath, "updated-bundle", "1.0.0");
+		writeTestBundle(updateRepositoryPath, "updated-bundle", "1.0.1");
+		writeTestBundle(updateRepositoryPath, "unchanged-bundle", "1.0.0");
+		ArtifactRepository updateRepository = featureRuntimeService.createRepository(updateRepositoryPath);
+
+		Feature feature = readFeature(featureService, "/features/update-in-place-feature.json");
+		Feature updatedFeature = readFeature(featureService, "/features/update-in-place-feature.updated.json");
+
+		// @formatter:off
+		featureRuntimeService.install(feature)
+				.useDefaultRepositories(false)
+				.addRepository("update", updateRepository)
+				.install();
+		InstalledFeature installedFeature = featureRuntimeService.update(feature.getID(), updatedFeature)
+				.useDefaultRepositories(false)
+				.addRepository("update", updateRepository)
+				.update();
+		// @formatter:on
+
+		// The updated bundle keeps the location it was first installed with
+		Bundle updatedBundle = installedFeature.getInstalledBundles().get(0).getBundle();
+		assertEquals("1.0.1", updatedBundle.getVersion().toString());
+		assertEquals("org.eclipse.osgi.technology.featurelauncher.test:updated-bundle:1.0.0",
+				updatedBundle.getLocation());
+
+		Dictionary<String, Object> props = config.getProperties();
+		props.put("reactivated", System.nanoTime());
+		FeatureRuntime reactivatedRuntimeService = reconfigure(config, props, featureRuntimeService);
+
+		// The updated feature is restored with the updated bundle
+		assertEquals(1, reactivatedRuntimeService.getInstalledFeatures().size());
+		InstalledFeature restoredFeature = reactivatedRuntimeService.getInstalledFeatures().get(0);
+		assertEquals(updatedFeature.getID(), restoredFeature.getFeature().getID());
+		InstalledBundle restoredBundle = restoredFeature.getInstalledBundles().get(0);
+		assertEquals("org.eclipse.osgi.technology.featurelauncher.test:updated-bundle:1.0.1",
+				restoredBundle.getBundleId().toString());
+		assertEquals(updatedBundle.getBundleId(), restoredBundle.getBundle().getBundleId());
+		assertEquals(List.of(updatedFeature.getID()), restoredBundle.getOwningFeatures());
+
+		reactivatedRuntimeService.remove(updatedFeature.getID());
+		assertTrue(reactivatedRuntimeService.getInstalledFeatures().isEmpty());
+		assertEquals(Bundle.UNINSTALLED, updatedBundle.getState());
+	}
+
+	@Test
+	public void testParallelBundleStartFollowsStartLevels(
+			@InjectConfiguration(withConfig = @WithConfiguration(pid = "osgi.technology.featurelauncher.runtime")) Configuration config,
+			@InjectService FeatureService featureService) throws Exception {
+
+		FeatureRuntime featureRuntimeService = featureRuntimeServiceAware.waitForService(5000);
+		assertNotNull(featureRuntimeService);
+
+		Dictionary<String, Object> props = config.getProperties();
+		props.put("bundle.start.parallelism", 4);
+		FeatureRuntime parallelRuntimeService = reconfigure(config, props, featureRuntimeService);
+
+		Path parallelRepositoryPath = localCache.resolve("parallelRepo");
+		StringBuilder bundles = new StringBuilder();
+		for (int level = 2; level <= 3; level++) {
+			for (int i = 0; i < 4; i++) {
+				String artifactId = String.format("level%d-bundle%d", level, i);
+				writeTestBundle(parallelRepositoryPath, artifactId, "1.0.0");
+				// listed in reverse start level order
+				bundles.insert(0, String.format(
+						"{ \"id\": \"org.eclipse.osgi.technology.featurelauncher.test:%s:1.0.0\", \"%s\": %d },",
+						artifactId, BUNDLE_START_LEVEL_METADATA, level));
+			}
+		}
+		bundles.setLength(bundles.length() - 1);
+		Feature feature = featureService.readFeature(new StringReader(String.format("""
+				{
+					"feature-resource-version": "1.0",
+					"id": "org.eclipse.osgi.technology.featurelauncher:parallel-start-feature:1.0",
+					"bundles": [ %s ]
+				}
+				""", bundles)));
+		ArtifactRepository parallelRepository = parallelRuntimeService.createRepository(parallelRepositoryPath);
+
+		BundleContext bundleContext = FrameworkUtil.getBundle(getClass()).getBundleContext();
+		FrameworkStartLevel frameworkStartLevel = bundleContext.getBundle(Constants.SYSTEM_BUNDLE_LOCATION)
+				.adapt(FrameworkStartLevel.class);
+		int previousStartLevel = frameworkStartLevel.getStartLevel();
+		setFrameworkStartLevel(frameworkStartLevel, 3);
+
+		List<String> started = new CopyOnWriteArrayList<>();
+		SynchronousBundleListener listener = event -> {
+			if (event.getType() == BundleEvent.STARTED) {
+				started.add(event.getBundle().getSymbolicName());
+			}
+		};
+		bundleContext.addBundleListener(listener);
+		try {
+			// @formatter:off
+			InstalledFeature installedFeature = parallelRuntimeService.install(feature)
+					.useDefaultRepositories(false)
+					.addRepository("parallel", parallelRepository)
+					.install();
+			// @formatter:on
+
+			assertEquals(8, ((ActivatedFeature) installedFeature).getBundleActivationTimes().size());
+			for (InstalledBundle installedBundle : installedFeature.getInstalledBundles()) {
+				assertEquals(Bundle.ACTIVE, installedBundle.getBundle().getState());
+			}
+
+			// All the bundles of start level 2 started before any of start level 3
+			assertEquals(8, started.size());
+			for (int i = 0; i < 8; i++) {
+				assertTrue(started.get(i).contains(i < 4 ? ".level2-" : ".level3-"), started.toString());
+			}
+		} finally {
+			bundleContext.removeBundleListener(listener);
+			parallelRuntimeService.remove(feature.getID());
+			setFrameworkStartLevel(frameworkStartLevel, previousStartLevel);
+		}
+	}
+
+	/**
+	 * Update the runtime configuration, and wait for SCR to activate a new
+	 * runtime with it
+	 */
+	private FeatureRuntime reconfigure(Configuration config, Dictionary<String, Object> props,
+			FeatureRuntime featureRuntimeService) throws Exception {
+		config.update(props);
+
+		FeatureRuntime reactivatedRuntimeService = featureRuntimeService;
+		for (long deadline = System.currentTimeMillis() + 5000; reactivatedRuntimeService == featureRuntimeService
+				&& System.currentTimeMillis() < deadline;) {
+			Thread.sleep(50);
+			FeatureRuntime current = featureRuntimeServiceAware.getService();
+			reactivatedRuntimeService = current != null ? current : featureRuntimeService;
+		}
+		assertTrue(reactivatedRuntimeService != featureRuntimeService);
+		return reactivatedRuntimeService;
+	}
+
+	private void setFrameworkStartLevel(FrameworkStartLevel frameworkStartLevel, int startLevel) throws Exception {
+		CompletableFuture<Void> changed = new CompletableFuture<>();
+		frameworkStartLevel.setStartLevel(startLevel, event -> changed.complete(null));
+		changed.get(5, TimeUnit.SECONDS);
+	}
+
+	private Feature batchFeature(FeatureService featureService, String name, String bundle) throws IOException {
+		String json = String.format("""
+				{
+					"feature-resource-version": "1.0",
+					"id": "org.eclipse.osgi.technology.featurelauncher:batch-%1$s-feature:1.0",
+					"bundles": [
+						{ "id": "org.eclipse.osgi.technology.featurelauncher.test:%2$s:1.0.0" },
+						{ "id": "org.eclipse.osgi.technology.featurelauncher.test:shared-bundle:1.0.0" }
+					],
+					"configurations": {
+						"org.eclipse.osgi.technology.featurelauncher.test.shared": { "value": "shared" },
+						"org.eclipse.osgi.technology.featurelauncher.test.%1$s": { "value": "%1$s" }
+					}
+				}
+				""", name, bundle);
+		return featureService.readFeature(new StringReader(json));
+	}
+
+	private Feature readFeature(FeatureService featureService, String resource) throws IOException {
+		try (InputStream featureIs = getClass().getClassLoader().getResourceAsStream(resource);
+				Reader featureReader = new BufferedReader(
+						new InputStreamReader(featureIs, Charset.forName("UTF-8").newDecoder()));) {
+			return featureService.readFeature(featureReader);
+		}
+	}
+
+	private Configuration getTestConfiguration(FeatureRuntimeConfigurationManager featureRuntimeConfigurationManager,
+			String name) {
+		List<Configuration> configurations = featureRuntimeConfigurationManager.getConfigurations(
+				String.format("(service.pid=org.eclipse.osgi.technology.featurelauncher.test.%s)", name));
+		assertEquals(1, configurations.size());
+		return configurations.get(0);
+	}
+
+	private void writeTestBundle(Path repositoryPath, String artifactId, String version) throws IOException {
+		Path jar = repositoryPath.resolve("org/eclipse/osgi/technology/featurelauncher/test")
+				.resolve(artifactId)
+				.resolve(version)
+				.resolve(artifactId + "-" + version + ".jar");
+		Files.createDirectories(jar.getParent());
+
+		Manifest manifest = new Manifest();
+		Attributes attributes = manifest.getMainAttributes();
+		attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		attributes.putValue("Bundle-ManifestVersion", "2");
+		attributes.putValue("Bundle-SymbolicName", "org.eclipse.osgi.technology.featurelauncher.test." + artifactId);
+		attributes.putValue("Bundle-Version", version);
+
+		try (OutputStream os = Files.newOutputStream(jar); JarOutputStream jos = new JarOutputStream(os, manifest)) {
+			// A manifest is all that is needed
+		}
+	}
 }